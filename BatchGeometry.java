@@ -0,0 +1,272 @@
+import java.util.Arrays;
+
+/**
+ * Batch kernels computing the same values as the {@link Geometry} and {@link SolidGeometry} kernels for many shapes,
+ * solids or points at once, over
+ * columnar arrays: one array per coordinate, e.g. the x-values of the first vertices of all triangles, then those of
+ * the second vertices, and so on, rather than one array of interleaved coordinates. Each kernel is a single counted
+ * loop, reading and writing every array at the same index, with no calls other than intrinsics such as
+ * <code>Math.sqrt</code>, which is the shape of loop that the JIT compiler turns into SIMD instructions. Running with
+ * <code>-XX:-UseSuperWord</code> disables this and leaves the plain scalar loops.
+ * <p>
+ * Java evaluates every floating-point operation of each element in the same order, with the same rounding, whether
+ * the loop is vectorized or not, so the results of these kernels are identical, bit for bit, to those of the
+ * corresponding scalar kernel and shape method. The only exception is {@link #snap}, which differs from
+ * <code>Math.round</code> for NaN and beyond the range of a <code>long</code>.
+ * <p>
+ * Every kernel processes the elements from index <code>from</code>, inclusive, to index <code>to</code>, exclusive, so
+ * that large batches can be split between threads. The kernels of solids with many faces make one pass over the
+ * columns per face triangle, adding its contribution to the output, block by block so that the output stays in the
+ * cache between passes; they add the contributions in the same order as the scalar kernels.
+ */
+final class BatchGeometry {
+
+    private BatchGeometry() {}
+
+    /**
+     * Writes the area of every circle of radius <code>r[i]</code> to <code>areas[i]</code>.
+     */
+    static void circleAreas(double[] r, double[] areas, int from, int to) {
+        for (int i = from; i < to; i++)
+            areas[i] = Math.PI * (r[i] * r[i]);
+    }
+
+    static void circlePerimeters(double[] r, double[] perimeters, int from, int to) {
+        for (int i = from; i < to; i++)
+            perimeters[i] = 2 * Math.PI * r[i];
+    }
+
+    /**
+     * Writes the area of every triangle with vertices (x1[i],y1[i]), (x2[i],y2[i]) and (x3[i],y3[i]) to
+     * <code>areas[i]</code>, as per {@link Geometry#triangleArea(double, double, double, double, double, double)}.
+     */
+    static void triangleAreas(double[] x1, double[] y1, double[] x2, double[] y2, double[] x3, double[] y3,
+                              double[] areas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double ox = x1[i], oy = y1[i];
+            areas[i] = Math.abs((x2[i] - ox) * (y3[i] - oy) - (x3[i] - ox) * (y2[i] - oy)) / 2;
+        }
+    }
+
+    /**
+     * Writes the area of every quadrilateral with vertices (x1[i],y1[i]) to (x4[i],y4[i]) to <code>areas[i]</code>, as
+     * per {@link Geometry#quadrilateralArea(double, double, double, double, double, double, double, double)}.
+     */
+    static void quadrilateralAreas(double[] x1, double[] y1, double[] x2, double[] y2,
+                                   double[] x3, double[] y3, double[] x4, double[] y4,
+                                   double[] areas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double ox = x1[i], oy = y1[i], ax = x3[i] - ox, ay = y3[i] - oy;
+            double first  = Math.abs((x2[i] - ox) * ay - ax * (y2[i] - oy)) / 2;
+            double second = Math.abs((x4[i] - ox) * ay - ax * (y4[i] - oy)) / 2;
+            areas[i] = first + second;
+        }
+    }
+
+    /**
+     * Writes the perimeter of every triangle with the specified vertices to <code>perimeters[i]</code>, as per
+     * {@link Geometry#trianglePerimeter(double, double, double, double, double, double)}.
+     */
+    static void trianglePerimeters(double[] x1, double[] y1, double[] x2, double[] y2, double[] x3, double[] y3,
+                                   double[] perimeters, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double ax = x2[i] - x1[i], ay = y2[i] - y1[i];
+            double bx = x3[i] - x2[i], by = y3[i] - y2[i];
+            double cx = x1[i] - x3[i], cy = y1[i] - y3[i];
+            perimeters[i] = Math.sqrt(ax * ax + ay * ay) + Math.sqrt(bx * bx + by * by)
+                            + Math.sqrt(cx * cx + cy * cy);
+        }
+    }
+
+    /**
+     * Writes the perimeter of every quadrilateral with the specified vertices to <code>perimeters[i]</code>, as per
+     * {@link Geometry#quadrilateralPerimeter(double, double, double, double, double, double, double, double)}.
+     */
+    static void quadrilateralPerimeters(double[] x1, double[] y1, double[] x2, double[] y2,
+                                        double[] x3, double[] y3, double[] x4, double[] y4,
+                                        double[] perimeters, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double ax = x2[i] - x1[i], ay = y2[i] - y1[i];
+            double bx = x3[i] - x2[i], by = y3[i] - y2[i];
+            double cx = x4[i] - x3[i], cy = y4[i] - y3[i];
+            double dx = x1[i] - x4[i], dy = y1[i] - y4[i];
+            perimeters[i] = Math.sqrt(ax * ax + ay * ay) + Math.sqrt(bx * bx + by * by)
+                            + Math.sqrt(cx * cx + cy * cy) + Math.sqrt(dx * dx + dy * dy);
+        }
+    }
+
+    /**
+     * Writes the distance from the origin to every point (x[i],y[i]) to <code>distances[i]</code>.
+     */
+    static void distancesFromOrigin(double[] x, double[] y, double[] distances, int from, int to) {
+        for (int i = from; i < to; i++)
+            distances[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+    }
+
+    /**
+     * Writes the distance from (px,py) to every point (x[i],y[i]) to <code>distances[i]</code>, as per
+     * {@link Geometry#distance(double, double, double, double)}.
+     */
+    static void distances(double px, double py, double[] x, double[] y, double[] distances, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double a = x[i] - px, b = y[i] - py;
+            distances[i] = Math.sqrt(a * a + b * b);
+        }
+    }
+
+    /**
+     * Writes every value of <code>values</code> rounded to the nearest integer, with ties rounded up, to
+     * <code>snapped</code>, which may be the same array. This is the rounding that <code>snap()</code> applies to every
+     * coordinate with <code>Math.round</code>, computed with <code>Math.rint</code>, which rounds ties to even, and
+     * corrected on the rare ties that it rounds down; the difference between a value and its nearest integer is exact,
+     * so the correction never applies to anything but a tie. Results are identical to <code>Math.round</code> for every
+     * value within the range of a <code>long</code>; beyond it, values are returned as they are instead of saturating,
+     * and NaN stays NaN instead of becoming zero.
+     */
+    static void snap(double[] values, double[] snapped, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double v = values[i], nearest = Math.rint(v);
+            snapped[i] = (v - nearest == 0.5 ? nearest + 1 : nearest) + 0.0; // + 0.0 turns -0.0 into 0.0
+        }
+    }
+
+    /**
+     * The number of elements of a block of the kernels making several passes over their columns: small enough for the
+     * output and the columns of one pass to stay in the cache.
+     */
+    private static final int BLOCK = 1024;
+
+    /**
+     * Writes the volume of every sphere of radius <code>r[i]</code> to <code>volumes[i]</code>.
+     */
+    static void sphereVolumes(double[] r, double[] volumes, int from, int to) {
+        for (int i = from; i < to; i++)
+            volumes[i] = 4 * Math.PI / 3 * (r[i] * r[i] * r[i]);
+    }
+
+    static void sphereSurfaceAreas(double[] r, double[] areas, int from, int to) {
+        for (int i = from; i < to; i++)
+            areas[i] = 4 * Math.PI * (r[i] * r[i]);
+    }
+
+    /**
+     * Writes the volume of every box spanning (minX[i],minY[i],minZ[i]) to (maxX[i],maxY[i],maxZ[i]) to
+     * <code>volumes[i]</code>, as per {@link SolidGeometry#boxVolume}.
+     */
+    static void boxVolumes(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY, double[] maxZ,
+                           double[] volumes, int from, int to) {
+        for (int i = from; i < to; i++)
+            volumes[i] = (maxX[i] - minX[i]) * (maxY[i] - minY[i]) * (maxZ[i] - minZ[i]);
+    }
+
+    static void boxSurfaceAreas(double[] minX, double[] minY, double[] minZ, double[] maxX, double[] maxY,
+                                double[] maxZ, double[] areas, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double dx = maxX[i] - minX[i], dy = maxY[i] - minY[i], dz = maxZ[i] - minZ[i];
+            areas[i] = 2 * (dx * dy + dy * dz + dz * dx);
+        }
+    }
+
+    /**
+     * Writes the volume of every tetrahedron to <code>volumes[i]</code>, as per
+     * {@link SolidGeometry#tetrahedronVolume(double[], int)}, where the coordinates of its k-th vertex are
+     * (x[k][i],y[k][i],z[k][i]).
+     */
+    static void tetrahedronVolumes(double[][] x, double[][] y, double[][] z, double[] volumes, int from, int to) {
+        double[] x1 = x[0], y1 = y[0], z1 = z[0], x2 = x[1], y2 = y[1], z2 = z[1];
+        double[] x3 = x[2], y3 = y[2], z3 = z[2], x4 = x[3], y4 = y[3], z4 = z[3];
+        for (int i = from; i < to; i++) {
+            double ox = x1[i], oy = y1[i], oz = z1[i];
+            double ax = x2[i] - ox, ay = y2[i] - oy, az = z2[i] - oz;
+            double bx = x3[i] - ox, by = y3[i] - oy, bz = z3[i] - oz;
+            double cx = x4[i] - ox, cy = y4[i] - oy, cz = z4[i] - oz;
+            volumes[i] = Math.abs(ax * (by * cz - bz * cy) + ay * (bz * cx - bx * cz) + az * (bx * cy - by * cx)) / 6;
+        }
+    }
+
+    /**
+     * Writes the surface area of every tetrahedron to <code>areas[i]</code>, as per
+     * {@link SolidGeometry#tetrahedronSurfaceArea(double[], int)}, with the columns of
+     * {@link #tetrahedronVolumes}.
+     */
+    static void tetrahedronSurfaceAreas(double[][] x, double[][] y, double[][] z, double[] areas, int from, int to) {
+        int[][] faces = {{0, 1, 2}, {0, 1, 3}, {0, 2, 3}, {1, 2, 3}};
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+            Arrays.fill(areas, start, end, 0);
+            for (int[] f : faces)
+                addTriangleAreas(x[f[0]], y[f[0]], z[f[0]], x[f[1]], y[f[1]], z[f[1]], x[f[2]], y[f[2]], z[f[2]],
+                                 areas, start, end);
+        }
+    }
+
+    /**
+     * Writes the volume of every hexahedron to <code>volumes[i]</code>, as per
+     * {@link SolidGeometry#hexahedronVolume(double[], int)}, where the coordinates of its k-th vertex are
+     * (x[k][i],y[k][i],z[k][i]).
+     */
+    static void hexahedronVolumes(double[][] x, double[][] y, double[][] z, double[] volumes, int from, int to) {
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+            Arrays.fill(volumes, start, end, 0);
+            for (int[] face : SolidGeometry.HEXAHEDRON_FACES) {
+                for (int t = 1; t < 3; t++) {
+                    int a = face[0], b = face[t], c = face[t + 1];
+                    if (a == 0 || b == 0 || c == 0)
+                        continue;
+                    addTriples(x[0], y[0], z[0], x[a], y[a], z[a], x[b], y[b], z[b], x[c], y[c], z[c],
+                               volumes, start, end);
+                }
+            }
+            for (int i = start; i < end; i++)
+                volumes[i] = Math.abs(volumes[i]) / 6;
+        }
+    }
+
+    /**
+     * Writes the surface area of every hexahedron to <code>areas[i]</code>, as per
+     * {@link SolidGeometry#hexahedronSurfaceArea(double[], int)}, with the columns of {@link #hexahedronVolumes}.
+     */
+    static void hexahedronSurfaceAreas(double[][] x, double[][] y, double[][] z, double[] areas, int from, int to) {
+        for (int start = from; start < to; start += BLOCK) {
+            int end = Math.min(start + BLOCK, to);
+            Arrays.fill(areas, start, end, 0);
+            for (int[] face : SolidGeometry.HEXAHEDRON_FACES) {
+                for (int t = 1; t < 3; t++) {
+                    int a = face[0], b = face[t], c = face[t + 1];
+                    addTriangleAreas(x[a], y[a], z[a], x[b], y[b], z[b], x[c], y[c], z[c], areas, start, end);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the triple product of the vectors from o to a, b and c, as per {@link SolidGeometry#triple}, to
+     * <code>sums[i]</code>.
+     */
+    private static void addTriples(double[] ox, double[] oy, double[] oz, double[] ax, double[] ay, double[] az,
+                                   double[] bx, double[] by, double[] bz, double[] cx, double[] cy, double[] cz,
+                                   double[] sums, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double px = ax[i] - ox[i], py = ay[i] - oy[i], pz = az[i] - oz[i];
+            double qx = bx[i] - ox[i], qy = by[i] - oy[i], qz = bz[i] - oz[i];
+            double rx = cx[i] - ox[i], ry = cy[i] - oy[i], rz = cz[i] - oz[i];
+            sums[i] += px * (qy * rz - qz * ry) + py * (qz * rx - qx * rz) + pz * (qx * ry - qy * rx);
+        }
+    }
+
+    /**
+     * Adds the area of the triangle with vertices a, b and c, as per {@link SolidGeometry#triangleArea}, to
+     * <code>sums[i]</code>.
+     */
+    private static void addTriangleAreas(double[] ax, double[] ay, double[] az, double[] bx, double[] by,
+                                         double[] bz, double[] cx, double[] cy, double[] cz,
+                                         double[] sums, int from, int to) {
+        for (int i = from; i < to; i++) {
+            double px = bx[i] - ax[i], py = by[i] - ay[i], pz = bz[i] - az[i];
+            double qx = cx[i] - ax[i], qy = cy[i] - ay[i], qz = cz[i] - az[i];
+            double nx = py * qz - pz * qy, ny = pz * qx - px * qz, nz = px * qy - py * qx;
+            sums[i] += Math.sqrt(nx * nx + ny * ny + nz * nz) / 2;
+        }
+    }
+}
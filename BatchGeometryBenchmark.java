@@ -0,0 +1,143 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the batch kernels of {@link BatchGeometry}, over columnar arrays, with looping over shape objects and with
+ * looping over the interleaved coordinates of a {@link ShapeStore}: triangle areas, quadrilateral perimeters, distances
+ * of points from the origin, and the rounding of coordinates done by <code>snap()</code>. The object loops invalidate
+ * the cached area and perimeter of every shape before each run, so that they are computed rather than read back.
+ * Before measuring, the results of the batch kernels are checked to be identical, bit for bit, to the scalar ones.
+ * <p>
+ * Usage: <code>java BatchGeometryBenchmark [size]</code>; add <code>-XX:-UseSuperWord</code> to measure the batch
+ * kernels without SIMD instructions.
+ */
+public class BatchGeometryBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 1_000_000;
+        Random random = new Random(216);
+        List<Triangle> triangles = new ArrayList<>(n);
+        List<Quadrilateral> quadrilaterals = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            triangles.add(new Triangle(vertices(3, random)));
+            quadrilaterals.add(new Quadrilateral(vertices(4, random)));
+        }
+        ShapeStore triangleStore = new ShapeStore(n), quadrilateralStore = new ShapeStore(n);
+        triangles.forEach(triangleStore::add);
+        quadrilaterals.forEach(quadrilateralStore::add);
+        ShapeColumns triangleColumns = ShapeColumns.of(triangleStore);
+        ShapeColumns quadrilateralColumns = ShapeColumns.of(quadrilateralStore);
+        double[] x = new double[n], y = new double[n], values = new double[2 * n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (random.nextDouble() - 0.5) * 2000;
+            y[i] = (random.nextDouble() - 0.5) * 2000;
+            values[2 * i] = x[i];
+            values[2 * i + 1] = y[i];
+        }
+        check(triangles, triangleColumns, quadrilaterals, quadrilateralColumns, x, y, values);
+
+        double[] out = new double[2 * n];
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("triangle.area.objects", n, n, () -> invalidate(triangles), () -> {
+            double sum = 0;
+            for (Triangle t : triangles)
+                sum += t.area();
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("triangle.area.store", n, n, () -> {
+            double sum = 0;
+            for (int i = 0; i < n; i++)
+                sum += triangleStore.area(i);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("triangle.area.batch", n, n, () -> {
+            double[][] tx = triangleColumns.tx, ty = triangleColumns.ty;
+            BatchGeometry.triangleAreas(tx[0], ty[0], tx[1], ty[1], tx[2], ty[2], out, 0, n);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+        System.out.println(Bench.measure("quadrilateral.perimeter.objects", n, n, () -> invalidate(quadrilaterals),
+                                         () -> {
+            double sum = 0;
+            for (Quadrilateral q : quadrilaterals)
+                sum += q.perimeter();
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("quadrilateral.perimeter.store", n, n, () -> {
+            double sum = 0;
+            for (int i = 0; i < n; i++)
+                sum += quadrilateralStore.perimeter(i);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("quadrilateral.perimeter.batch", n, n, () -> {
+            double[][] qx = quadrilateralColumns.qx, qy = quadrilateralColumns.qy;
+            BatchGeometry.quadrilateralPerimeters(qx[0], qy[0], qx[1], qy[1], qx[2], qy[2], qx[3], qy[3], out, 0, n);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+        System.out.println(Bench.measure("distance.interleaved", n, n, () -> {
+            for (int i = 0; i < n; i++)
+                out[i] = Geometry.distance(0, 0, values[2 * i], values[2 * i + 1]);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+        System.out.println(Bench.measure("distance.batch", n, n, () -> {
+            BatchGeometry.distancesFromOrigin(x, y, out, 0, n);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+        System.out.println(Bench.measure("snap.Math.round", 2 * n, 2 * n, () -> {
+            for (int i = 0; i < values.length; i++)
+                out[i] = Math.round(values[i]);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+        System.out.println(Bench.measure("snap.batch", 2 * n, 2 * n, () -> {
+            BatchGeometry.snap(values, out, 0, values.length);
+            return Double.doubleToLongBits(out[n - 1]);
+        }));
+    }
+
+    private static List<TwoDPoint> vertices(int count, Random random) {
+        double x = random.nextInt(100_000) / 100.0, y = random.nextInt(100_000) / 100.0;
+        double[] c = {x, y, x, y + 1 + random.nextInt(1000) / 100.0, x + 1 + random.nextInt(1000) / 100.0,
+                      y + 1 + random.nextInt(1000) / 100.0, x + 1 + random.nextInt(1000) / 100.0, y};
+        return TwoDPoint.ofDoubles(count == 3 ? new double[]{c[0], c[1], c[2], c[3], c[6], c[7]} : c);
+    }
+
+    /**
+     * Resets the position of every shape to its current vertices, which discards its cached area and perimeter.
+     */
+    private static void invalidate(List<? extends Positionable> shapes) {
+        for (Positionable s : shapes)
+            s.setPosition(new ArrayList<>(s.getPosition()));
+    }
+
+    private static void check(List<Triangle> triangles, ShapeColumns triangleColumns,
+                              List<Quadrilateral> quadrilaterals, ShapeColumns quadrilateralColumns,
+                              double[] x, double[] y, double[] values) {
+        double[] areas = triangleColumns.areas(), perimeters = triangleColumns.perimeters();
+        for (int i = 0; i < triangles.size(); i++)
+            if (areas[i] != triangles.get(i).area() || perimeters[i] != triangles.get(i).perimeter())
+                throw new AssertionError("triangle " + i + " differs");
+        areas = quadrilateralColumns.areas();
+        perimeters = quadrilateralColumns.perimeters();
+        for (int i = 0; i < quadrilaterals.size(); i++)
+            if (areas[i] != quadrilaterals.get(i).area() || perimeters[i] != quadrilaterals.get(i).perimeter())
+                throw new AssertionError("quadrilateral " + i + " differs");
+
+        double[] distances = new double[x.length];
+        BatchGeometry.distancesFromOrigin(x, y, distances, 0, x.length);
+        for (int i = 0; i < x.length; i++)
+            if (distances[i] != Geometry.distance(0, 0, x[i], y[i]))
+                throw new AssertionError("the distance of point " + i + " differs");
+
+        double[] edges = {0.5, -0.5, 1.5, -1.5, 2.5, -2.5, 0.49999999999999994, -0.49999999999999994, -0.0, 0.0,
+                          4503599627370495.5, -4503599627370495.5, 9007199254740993.0, 1e18, -1e18,
+                          Math.nextDown(0.5), Math.nextUp(-0.5), Math.nextDown(-0.5), -1e-300};
+        double[] all = new double[values.length + edges.length];
+        System.arraycopy(values, 0, all, 0, values.length);
+        System.arraycopy(edges, 0, all, values.length, edges.length);
+        double[] snapped = new double[all.length];
+        BatchGeometry.snap(all, snapped, 0, all.length);
+        for (int i = 0; i < all.length; i++)
+            if (Double.compare(snapped[i], Math.round(all[i])) != 0)
+                throw new AssertionError(all[i] + " snaps to " + snapped[i] + " instead of " + Math.round(all[i]));
+    }
+}
@@ -0,0 +1,178 @@
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.function.LongSupplier;
+
+/**
+ * A small micro-benchmark harness used by the benchmark classes of this project. Each measurement warms the code up,
+ * then times repeated runs and reports the median time per operation together with the bytes allocated per operation
+ * by the measuring thread and the garbage collections that happened while measuring (the equivalent of a GC
+ * profiler).
+ * <p>
+ * A run returns a <code>long</code> derived from its work, which is folded into a volatile sink so that the JIT
+ * cannot discard the work as dead code.
+ */
+final class Bench {
+
+    private static final long WARMUP_NANOS  = 300_000_000L;
+    private static final long MEASURE_NANOS = 700_000_000L;
+    private static final int  MIN_RUNS      = 5;
+    private static final int  MAX_RUNS      = 10_000;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static volatile long sink;
+
+    /**
+     * A print stream discarding everything written to it, used to benchmark printing without measuring the terminal.
+     */
+    static final PrintStream NULL_OUT = new PrintStream(OutputStream.nullOutputStream());
+
+    private Bench() {}
+
+    /**
+     * The outcome of a single measurement.
+     */
+    static final class Result {
+        final String name;
+        final long   size;
+        final double nsPerOp;
+        final double bytesPerOp;
+        final long   gcCount;
+        final long   gcMillis;
+
+        Result(String name, long size, double nsPerOp, double bytesPerOp, long gcCount, long gcMillis) {
+            this.name = name;
+            this.size = size;
+            this.nsPerOp = nsPerOp;
+            this.bytesPerOp = bytesPerOp;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+
+        /**
+         * @return the number of operations per second, as per the median time per operation
+         */
+        double opsPerSecond() {return 1e9 / nsPerOp;}
+
+        @Override
+        public String toString() {
+            return String.format("%-44s %10d %14.2f %14.1f %8d %8d", name, size, nsPerOp, bytesPerOp, gcCount,
+                                 gcMillis);
+        }
+    }
+
+    static String header() {
+        return String.format("%-44s %10s %14s %14s %8s %8s", "benchmark", "size", "ns/op", "B/op", "gc", "gc ms");
+    }
+
+    /**
+     * Measures a run of the specified number of operations.
+     *
+     * @param name        the name of the benchmark.
+     * @param size        the input size, for reporting.
+     * @param opsPerRun   the number of operations performed by a single run.
+     * @param run         the measured code.
+     * @return the result of the measurement.
+     */
+    static Result measure(String name, long size, long opsPerRun, LongSupplier run) {
+        return measure(name, size, opsPerRun, () -> {}, run);
+    }
+
+    /**
+     * Measures a run of the specified number of operations, calling <code>setup</code> untimed before every run.
+     *
+     * @param name        the name of the benchmark.
+     * @param size        the input size, for reporting.
+     * @param opsPerRun   the number of operations performed by a single run.
+     * @param setup       the code preparing the input of a run, such as a fresh copy of a list to sort.
+     * @param run         the measured code.
+     * @return the result of the measurement.
+     */
+    static Result measure(String name, long size, long opsPerRun, Runnable setup, LongSupplier run) {
+        long warmupEnd = System.nanoTime() + WARMUP_NANOS;
+        for (int i = 0; i < MIN_RUNS || (System.nanoTime() < warmupEnd && i < MAX_RUNS); i++) {
+            setup.run();
+            sink += run.getAsLong();
+        }
+
+        long[] times = new long[MAX_RUNS];
+        long allocated = 0, gcCount = -gcCount(), gcMillis = -gcMillis();
+        long measureEnd = System.nanoTime() + MEASURE_NANOS;
+        int runs = 0;
+        while (runs < MIN_RUNS || (System.nanoTime() < measureEnd && runs < MAX_RUNS)) {
+            setup.run();
+            long bytes = allocatedBytes();
+            long start = System.nanoTime();
+            sink += run.getAsLong();
+            times[runs++] = System.nanoTime() - start;
+            allocated += allocatedBytes() - bytes;
+        }
+        gcCount += gcCount();
+        gcMillis += gcMillis();
+
+        long[] sorted = Arrays.copyOf(times, runs);
+        Arrays.sort(sorted);
+        double median = sorted[runs / 2];
+        return new Result(name, size, median / opsPerRun, (double) allocated / runs / opsPerRun, gcCount, gcMillis);
+    }
+
+    /**
+     * @return the number of bytes allocated so far by the current thread
+     */
+    static long allocatedBytes() {
+        return THREADS.getCurrentThreadAllocatedBytes();
+    }
+
+    static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            count += Math.max(gc.getCollectionCount(), 0);
+        return count;
+    }
+
+    static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+            millis += Math.max(gc.getCollectionTime(), 0);
+        return millis;
+    }
+
+    /**
+     * Formats the 50th, 90th, 99th and 99.9th percentiles and the maximum of the specified latencies, in microseconds.
+     *
+     * @param nanos the measured latencies in nanoseconds; sorted in place.
+     * @return the formatted percentiles
+     */
+    static String percentiles(long[] nanos) {
+        Arrays.sort(nanos);
+        return String.format("p50 %8.2f  p90 %8.2f  p99 %8.2f  p99.9 %8.2f  max %8.2f us",
+                percentile(nanos, 0.5) / 1e3, percentile(nanos, 0.9) / 1e3, percentile(nanos, 0.99) / 1e3,
+                percentile(nanos, 0.999) / 1e3, nanos[nanos.length - 1] / 1e3);
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)];
+    }
+
+    /**
+     * Parses a comma-separated list of sizes such as <code>10,1k,1M</code>.
+     */
+    static int[] sizes(String spec) {
+        String[] parts = spec.split(",");
+        int[] sizes = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            String p = parts[i].trim();
+            int multiplier = 1;
+            if (p.endsWith("k") || p.endsWith("K")) multiplier = 1_000;
+            else if (p.endsWith("m") || p.endsWith("M")) multiplier = 1_000_000;
+            if (multiplier != 1)
+                p = p.substring(0, p.length() - 1);
+            sizes[i] = Integer.parseInt(p) * multiplier;
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * An immutable axis-aligned rectangle in the two-dimensional x-y plane, given by its least and greatest
+ * <code>x</code> and <code>y</code> values. A bounding box includes its boundary.
+ */
+public final class BoundingBox {
+
+    private final double minX, minY, maxX, maxY;
+
+    /**
+     * @throws IllegalArgumentException if a least value is greater than the corresponding greatest value.
+     */
+    public BoundingBox(double minX, double minY, double maxX, double maxY) {
+        if (minX > maxX || minY > maxY)
+            throw new IllegalArgumentException("Error: The least values cannot exceed the greatest values.");
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    /**
+     * @return the smallest bounding box enclosing the vertices given as interleaved <code>x</code> and <code>y</code>
+     * values in <code>coords[offset, offset + 2 * count)</code>
+     */
+    public static BoundingBox of(double[] coords, int offset, int count) {
+        double minX = coords[offset], minY = coords[offset + 1], maxX = minX, maxY = minY;
+        for (int k = 1; k < count; k++) {
+            double x = coords[offset + 2 * k], y = coords[offset + 2 * k + 1];
+            minX = Math.min(minX, x);
+            maxX = Math.max(maxX, x);
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    public double getMinX() {return minX;}
+
+    public double getMinY() {return minY;}
+
+    public double getMaxX() {return maxX;}
+
+    public double getMaxY() {return maxY;}
+
+    public double width() {return maxX - minX;}
+
+    public double height() {return maxY - minY;}
+
+    public double area() {return width() * height();}
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in this box or on its boundary
+     */
+    public boolean contains(double x, double y) {
+        return minX <= x && x <= maxX && minY <= y && y <= maxY;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the specified box lies entirely in this one
+     */
+    public boolean contains(BoundingBox b) {
+        return minX <= b.minX && b.maxX <= maxX && minY <= b.minY && b.maxY <= maxY;
+    }
+
+    /**
+     * @return <code>true</code> if and only if this box and the specified one have at least one point in common
+     */
+    public boolean intersects(BoundingBox b) {
+        return minX <= b.maxX && b.minX <= maxX && minY <= b.maxY && b.minY <= maxY;
+    }
+
+    /**
+     * @return the smallest box enclosing both this box and the specified one
+     */
+    public BoundingBox union(BoundingBox b) {
+        return new BoundingBox(Math.min(minX, b.minX), Math.min(minY, b.minY),
+                               Math.max(maxX, b.maxX), Math.max(maxY, b.maxY));
+    }
+
+    /**
+     * @return the squared distance from the point (x,y) to the nearest point of this box, which is zero if the point
+     * lies in the box
+     */
+    public double squaredDistance(double x, double y) {
+        double dx = Math.max(Math.max(minX - x, 0), x - maxX);
+        double dy = Math.max(Math.max(minY - y, 0), y - maxY);
+        return dx * dx + dy * dy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof BoundingBox))
+            return false;
+        BoundingBox b = (BoundingBox) o;
+        return Double.compare(minX, b.minX) == 0 && Double.compare(minY, b.minY) == 0
+                && Double.compare(maxX, b.maxX) == 0 && Double.compare(maxY, b.maxY) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = Double.hashCode(minX);
+        h = 31 * h + Double.hashCode(minY);
+        h = 31 * h + Double.hashCode(maxX);
+        return 31 * h + Double.hashCode(maxY);
+    }
+
+    @Override
+    public String toString() {
+        return "BoundingBox[(" + minX + "," + minY + "), (" + maxX + "," + maxY + ")]";
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An axis-aligned rectangular box, i.e., a cuboid whose faces are parallel to the coordinate planes, given by two
+ * opposite corners.
+ */
+public class Box implements ThreeDShape, Positionable {
+
+    private ThreeDPoint min;
+    private ThreeDPoint max;
+
+    public Box(List<ThreeDPoint> corners) {
+        setPosition(corners);
+    }
+
+    /**
+     * Sets the position of this box to span the first two elements in the specified list of points, taken as opposite
+     * corners in any order. If the input list has more than two elements, the subsequent elements are ignored.
+     *
+     * @param points the specified list of points.
+     */
+    @Override
+    public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        try {
+            if (points.get(0) instanceof ThreeDPoint && points.get(1) instanceof ThreeDPoint) {
+                ThreeDPoint a = (ThreeDPoint) points.get(0), b = (ThreeDPoint) points.get(1);
+                min = new ThreeDPoint(Math.min(a.getX(), b.getX()), Math.min(a.getY(), b.getY()),
+                                      Math.min(a.getZ(), b.getZ()));
+                max = new ThreeDPoint(Math.max(a.getX(), b.getX()), Math.max(a.getY(), b.getY()),
+                                      Math.max(a.getZ(), b.getZ()));
+            }
+            else throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: The list must consist of ThreeDPoint instances.");
+        }
+    }
+
+    /**
+     * @return the corner of this box with the least coordinates, then the one with the greatest coordinates, as an
+     * unmodifiable list
+     */
+    @Override
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(Arrays.asList(min, max));}
+
+    /**
+     * @return the number of faces of this box, which is always set to six
+     */
+    @Override
+    public int numFaces() {
+        return 6;
+    }
+
+    /**
+     * Checks whether or not a list of vertices is a valid pair of opposite corners for a box, i.e., two
+     * {@link ThreeDPoint} instances differing in each of their coordinates.
+     */
+    @Override
+    public boolean isMember(List<? extends Point> corners) {
+        if (corners.size() != 2 || !(corners.get(0) instanceof ThreeDPoint) || !(corners.get(1) instanceof ThreeDPoint))
+            return false;
+        ThreeDPoint a = (ThreeDPoint) corners.get(0), b = (ThreeDPoint) corners.get(1);
+        return a.getX() != b.getX() && a.getY() != b.getY() && a.getZ() != b.getZ();
+    }
+
+    @Override
+    public double getLeastX() {return min.getX();}
+
+    @Override
+    public int compareTo(ThreeDShape s) {
+        return Double.compare(this.volume(), s.volume());
+    }
+
+    @Override
+    public double volume() {
+        return SolidGeometry.boxVolume(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+    }
+
+    @Override
+    public double surfaceArea() {
+        return SolidGeometry.boxSurfaceArea(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ());
+    }
+
+    @Override
+    public String toString() {
+        return "Box[(" + String.format("%.2f", min.getX()) + "," + String.format("%.2f", min.getY()) + ","
+                + String.format("%.2f", min.getZ()) + "), (" + String.format("%.2f", max.getX()) + ","
+                + String.format("%.2f", max.getY()) + "," + String.format("%.2f", max.getZ()) + ")]";
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+/**
+ * A printer for bulk dumps of shapes. Where {@link Printer} calls <code>System.out.println</code> for every shape,
+ * which formats each coordinate with <code>String.format</code> and flushes the console, this printer appends the
+ * same characters to a reusable buffer with {@link ShapeFormat} and writes the buffer out whenever it is full. The
+ * output is identical, byte for byte, to that of {@link Printer} for the same shapes, line separators included.
+ * <p>
+ * Nothing is written until the buffer fills up or the printer is flushed, so a dump must end with {@link #flush()} or
+ * {@link #close()}. Errors of the underlying stream are rethrown as {@link UncheckedIOException}s.
+ *
+ * @param <T> the type of the printed shapes
+ */
+public class BufferedPrinter<T extends TwoDShape> extends AbstractPrinter<T> implements Flushable, Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final Writer        out;
+    private final boolean       closeOut;
+    private final boolean       ascii = ShapeFormat.isDefaultLocaleAscii();
+    private final StringBuilder buffer;
+    private final char[]        chars;
+    private long printed;
+
+    /**
+     * Creates a printer to the standard output, in the default charset. Closing it flushes it but leaves the standard
+     * output open.
+     */
+    public BufferedPrinter() {
+        this(new OutputStreamWriter(System.out, Charset.defaultCharset()), false, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a printer to the specified stream, in the specified charset. Closing the printer closes the stream.
+     */
+    public BufferedPrinter(OutputStream out, Charset charset) {
+        this(new OutputStreamWriter(out, charset), true, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a printer to the specified writer. Closing the printer closes the writer.
+     */
+    public BufferedPrinter(Writer out) {
+        this(out, true, DEFAULT_BUFFER_SIZE);
+    }
+
+    private BufferedPrinter(Writer out, boolean closeOut, int bufferSize) {
+        this.out = out;
+        this.closeOut = closeOut;
+        this.buffer = new StringBuilder(bufferSize + 256);
+        this.chars = new char[bufferSize + 256];
+    }
+
+    /**
+     * Appends the human-readable form of the specified shape and a line separator to the buffer of this printer.
+     */
+    @Override
+    void print(T shape) {
+        ShapeFormat.append(buffer, shape, ascii).append(LINE_SEPARATOR);
+        printed++;
+        if (buffer.length() >= DEFAULT_BUFFER_SIZE)
+            drain();
+    }
+
+    /**
+     * Prints every shape of the specified iterable.
+     */
+    public void printAll(Iterable<? extends T> shapes) {
+        for (T shape : shapes)
+            print(shape);
+    }
+
+    /**
+     * @return the number of shapes printed so far
+     */
+    public long printed() {return printed;}
+
+    /**
+     * Writes the buffer to the underlying writer, reusing a single array regardless of the length of the buffer.
+     */
+    private void drain() {
+        try {
+            for (int from = 0, length = buffer.length(); from < length; ) {
+                int n = Math.min(chars.length, length - from);
+                buffer.getChars(from, from + n, chars, 0);
+                out.write(chars, 0, n);
+                from += n;
+            }
+            buffer.setLength(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        drain();
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        if (closeOut) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -7,6 +7,8 @@ public class Circle implements TwoDShape, Positionable {
     private double radius;
     private double leastX;
 
+    private BoundingBox bounds;
+
     public Circle(double x, double y, double r) {
         this.center = new TwoDPoint(x, y);
         this.radius = r;
@@ -21,9 +23,13 @@ public class Circle implements TwoDShape, Positionable {
      */
     @Override
     public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        if (Metrics.ENABLED)
+            Metrics.SET_POSITION.increment();
         try {
             if (points.get(0) instanceof TwoDPoint) {
                 center = (TwoDPoint) points.get(0);
+                leastX = center.getX() - radius;
+                bounds = null;
             }
             else throw new IllegalArgumentException();
         } catch (IllegalArgumentException e) {
@@ -61,8 +67,15 @@ public class Circle implements TwoDShape, Positionable {
     @Override
     public double getLeastX() {return leastX;}
 
+    /**
+     * @return the radius of this circle
+     */
+    public double getRadius() {return radius;}
+
     @Override
     public int compareTo(TwoDShape s) {
+        if (Metrics.ENABLED)
+            Metrics.COMPARE_TO.increment();
         return Double.compare(this.area(), s.area());
     }
 
@@ -70,12 +83,52 @@ public class Circle implements TwoDShape, Positionable {
      * @return the area of this circle
      */
     @Override
-    public double area() {return (Math.PI * (radius * radius));}
+    public double area() {
+        if (Metrics.ENABLED)
+            Metrics.AREA.increment();
+        return (Math.PI * (radius * radius));
+    }
 
     /**
      * @return the perimeter (i.e., the total length of the boundary) of this quadrilateral
      */
-    public double perimeter() {return (2 * Math.PI * radius);}
+    public double perimeter() {
+        if (Metrics.ENABLED)
+            Metrics.PERIMETER.increment();
+        return (2 * Math.PI * radius);
+    }
+
+    /**
+     * @return the smallest square enclosing this circle; computed once per position
+     */
+    @Override
+    public BoundingBox boundingBox() {
+        if (bounds == null)
+            bounds = new BoundingBox(center.getX() - radius, center.getY() - radius,
+                                     center.getX() + radius, center.getY() + radius);
+        return bounds;
+    }
+
+    /**
+     * @return the center of this circle
+     */
+    @Override
+    public TwoDPoint centroid() {return center;}
+
+    @Override
+    public boolean contains(double x, double y) {
+        return Geometry.distance(center.getX(), center.getY(), x, y) <= radius;
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Math.max(0, Geometry.distance(center.getX(), center.getY(), x, y) - radius);
+    }
+
+    @Override
+    public boolean intersects(BoundingBox box) {
+        return Geometry.circleIntersectsBox(center.getX(), center.getY(), radius, box);
+    }
 
     @Override
     public String toString() {
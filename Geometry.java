@@ -0,0 +1,375 @@
+import java.math.BigDecimal;
+
+/**
+ * Allocation-free geometric kernels shared by the shapes of this package and by the stores that keep shapes as raw
+ * coordinates. Every kernel works on plain <code>double</code>s, either passed one by one or read from an array of
+ * interleaved <code>x</code> and <code>y</code> values starting at a given offset.
+ * <p>
+ * Areas are computed with the shoelace formula, i.e., as half the absolute cross product of two edges taken from the
+ * same vertex. Unlike Heron's formula, this involves no square roots and does not subtract nearly equal side lengths,
+ * so it stays accurate for thin triangles.
+ */
+final class Geometry {
+
+    private Geometry() {}
+
+    /**
+     * @return the cross product of the vectors from (ox,oy) to (ax,ay) and from (ox,oy) to (bx,by), which is twice the
+     * signed area of the triangle they form: positive if the three points turn counter-clockwise, negative if they turn
+     * clockwise, and zero if they are in a straight line
+     */
+    static double cross(double ox, double oy, double ax, double ay, double bx, double by) {
+        return (ax - ox) * (by - oy) - (bx - ox) * (ay - oy);
+    }
+
+    /**
+     * A bound on the error of {@link #cross} relative to the sum of the magnitudes of its two products: each product
+     * rounds three times, in its two subtractions and its multiplication, and their difference once more, for an error
+     * below four half-units in the last place of that sum, which is doubled for safety.
+     */
+    private static final double CROSS_ERROR = 4 * Math.ulp(1.0);
+
+    /**
+     * Returns the exact sign of {@link #cross}, so that orientations are consistent however close to a straight line
+     * the points are. The product is computed in floating point first, and recomputed exactly with
+     * <code>BigDecimal</code> only when it is too small to be sure of its sign, or overflows.
+     *
+     * @return 1 if the three points turn counter-clockwise, -1 if they turn clockwise, and 0 if they are exactly in a
+     * straight line
+     */
+    static int orientation(double ox, double oy, double ax, double ay, double bx, double by) {
+        double left = (ax - ox) * (by - oy), right = (bx - ox) * (ay - oy);
+        double det = left - right;
+        // subnormal products lose relative precision, hence the absolute term
+        double bound = CROSS_ERROR * (Math.abs(left) + Math.abs(right)) + 4 * Double.MIN_VALUE;
+        if (det > bound)
+            return 1;
+        if (det < -bound)
+            return -1;
+        return exactOrientation(ox, oy, ax, ay, bx, by, det);
+    }
+
+    /**
+     * The slow path of {@link #orientation}, kept apart so that the fast path is small enough to be inlined.
+     */
+    private static int exactOrientation(double ox, double oy, double ax, double ay, double bx, double by, double det) {
+        if (!(Double.isFinite(ox) && Double.isFinite(oy) && Double.isFinite(ax) && Double.isFinite(ay)
+                && Double.isFinite(bx) && Double.isFinite(by)))
+            return (int) Math.signum(det);
+        BigDecimal x = new BigDecimal(ox), y = new BigDecimal(oy);
+        return new BigDecimal(ax).subtract(x).multiply(new BigDecimal(by).subtract(y))
+                .subtract(new BigDecimal(bx).subtract(x).multiply(new BigDecimal(ay).subtract(y))).signum();
+    }
+
+    /**
+     * @return the distance between (x1,y1) and (x2,y2)
+     */
+    static double distance(double x1, double y1, double x2, double y2) {
+        double a = x2 - x1;
+        double b = y2 - y1;
+        return Math.sqrt((a*a)+(b*b));
+    }
+
+    static double triangleArea(double x1, double y1, double x2, double y2, double x3, double y3) {
+        return Math.abs(cross(x1, y1, x2, y2, x3, y3)) / 2;
+    }
+
+    static double triangleArea(double[] xy, int offset) {
+        return triangleArea(xy[offset], xy[offset + 1], xy[offset + 2], xy[offset + 3], xy[offset + 4], xy[offset + 5]);
+    }
+
+    /**
+     * Returns the area of a quadrilateral as the sum of the areas of the two triangles formed by its first and third
+     * vertices with each of the other two vertices, which is the way {@link Quadrilateral} defines it.
+     */
+    static double quadrilateralArea(double x1, double y1, double x2, double y2,
+                                    double x3, double y3, double x4, double y4) {
+        return triangleArea(x1, y1, x2, y2, x3, y3) + triangleArea(x1, y1, x4, y4, x3, y3);
+    }
+
+    static double quadrilateralArea(double[] xy, int offset) {
+        return quadrilateralArea(xy[offset], xy[offset + 1], xy[offset + 2], xy[offset + 3],
+                                 xy[offset + 4], xy[offset + 5], xy[offset + 6], xy[offset + 7]);
+    }
+
+    static double trianglePerimeter(double x1, double y1, double x2, double y2, double x3, double y3) {
+        return distance(x1, y1, x2, y2) + distance(x2, y2, x3, y3) + distance(x3, y3, x1, y1);
+    }
+
+    static double quadrilateralPerimeter(double x1, double y1, double x2, double y2,
+                                         double x3, double y3, double x4, double y4) {
+        return distance(x1, y1, x2, y2) + distance(x2, y2, x3, y3)
+                + distance(x3, y3, x4, y4) + distance(x4, y4, x1, y1);
+    }
+
+    /**
+     * @return the perimeter of the closed polygon whose <code>count</code> vertices are read from
+     * <code>xy[offset, offset + 2 * count)</code>, in a single pass over the vertices
+     */
+    static double perimeter(double[] xy, int offset, int count) {
+        double px = xy[offset], py = xy[offset + 1];
+        double p = 0;
+        for (int k = 1; k < count; k++) {
+            double x = xy[offset + 2 * k], y = xy[offset + 2 * k + 1];
+            p += distance(px, py, x, y);
+            px = x;
+            py = y;
+        }
+        return p + distance(px, py, xy[offset], xy[offset + 1]);
+    }
+
+    /**
+     * @return the area enclosed by the simple polygon whose <code>count</code> vertices are read from
+     * <code>xy[offset, offset + 2 * count)</code>, as per the shoelace formula
+     */
+    static double polygonArea(double[] xy, int offset, int count) {
+        double ox = xy[offset], oy = xy[offset + 1];
+        double twice = 0;
+        for (int k = 2; k < count; k++) {
+            int a = offset + 2 * (k - 1), b = offset + 2 * k;
+            twice += cross(ox, oy, xy[a], xy[a + 1], xy[b], xy[b + 1]);
+        }
+        return Math.abs(twice) / 2;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the triangle with the three specified vertices
+     * or on its boundary, whichever way the vertices turn
+     */
+    static boolean triangleContains(double x1, double y1, double x2, double y2, double x3, double y3,
+                                    double x, double y) {
+        double d1 = cross(x1, y1, x2, y2, x, y);
+        double d2 = cross(x2, y2, x3, y3, x, y);
+        double d3 = cross(x3, y3, x1, y1, x, y);
+        boolean negative = d1 < 0 || d2 < 0 || d3 < 0;
+        boolean positive = d1 > 0 || d2 > 0 || d3 > 0;
+        if (negative && positive)
+            return false;
+        if (negative || positive)
+            return true;
+        // a degenerate triangle is the union of its three sides
+        return segmentDistance(x1, y1, x2, y2, x, y) == 0 || segmentDistance(x2, y2, x3, y3, x, y) == 0
+                || segmentDistance(x3, y3, x1, y1, x, y) == 0;
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the nearest point of the segment from (x1,y1) to (x2,y2)
+     */
+    static double segmentDistance(double x1, double y1, double x2, double y2, double x, double y) {
+        double dx = x2 - x1, dy = y2 - y1;
+        double lengthSquared = dx * dx + dy * dy;
+        double t = lengthSquared == 0 ? 0 : ((x - x1) * dx + (y - y1) * dy) / lengthSquared;
+        t = Math.max(0, Math.min(1, t));
+        return distance(x1 + t * dx, y1 + t * dy, x, y);
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the nearest point of the triangle with the three specified vertices,
+     * which is zero if the point lies in the triangle
+     */
+    static double triangleDistance(double x1, double y1, double x2, double y2, double x3, double y3,
+                                   double x, double y) {
+        if (triangleContains(x1, y1, x2, y2, x3, y3, x, y))
+            return 0;
+        return Math.min(segmentDistance(x1, y1, x2, y2, x, y),
+                        Math.min(segmentDistance(x2, y2, x3, y3, x, y), segmentDistance(x3, y3, x1, y1, x, y)));
+    }
+
+    /**
+     * @return <code>true</code> if and only if the closed segments from (x1,y1) to (x2,y2) and from (x3,y3) to
+     * (x4,y4) have at least one point in common
+     */
+    static boolean segmentsIntersect(double x1, double y1, double x2, double y2,
+                                     double x3, double y3, double x4, double y4) {
+        int d1 = orientation(x3, y3, x4, y4, x1, y1);
+        int d2 = orientation(x3, y3, x4, y4, x2, y2);
+        int d3 = orientation(x1, y1, x2, y2, x3, y3);
+        int d4 = orientation(x1, y1, x2, y2, x4, y4);
+        if (d1 * d2 < 0 && d3 * d4 < 0)
+            return true;
+        return (d1 == 0 && onSegment(x3, y3, x4, y4, x1, y1)) || (d2 == 0 && onSegment(x3, y3, x4, y4, x2, y2))
+                || (d3 == 0 && onSegment(x1, y1, x2, y2, x3, y3)) || (d4 == 0 && onSegment(x1, y1, x2, y2, x4, y4));
+    }
+
+    /**
+     * @return <code>true</code> if the point (x,y), known to be in a straight line with the segment from (x1,y1) to
+     * (x2,y2), lies on that segment
+     */
+    private static boolean onSegment(double x1, double y1, double x2, double y2, double x, double y) {
+        return Math.min(x1, x2) <= x && x <= Math.max(x1, x2) && Math.min(y1, y2) <= y && y <= Math.max(y1, y2);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the triangle with the three specified vertices and the specified box
+     * have at least one point in common
+     */
+    static boolean triangleIntersectsBox(double x1, double y1, double x2, double y2, double x3, double y3,
+                                         BoundingBox box) {
+        if (box.contains(x1, y1) || box.contains(x2, y2) || box.contains(x3, y3))
+            return true;
+        double minX = box.getMinX(), minY = box.getMinY(), maxX = box.getMaxX(), maxY = box.getMaxY();
+        if (triangleContains(x1, y1, x2, y2, x3, y3, minX, minY))
+            return true;
+        return segmentIntersectsBox(x1, y1, x2, y2, minX, minY, maxX, maxY)
+                || segmentIntersectsBox(x2, y2, x3, y3, minX, minY, maxX, maxY)
+                || segmentIntersectsBox(x3, y3, x1, y1, minX, minY, maxX, maxY);
+    }
+
+    private static boolean segmentIntersectsBox(double x1, double y1, double x2, double y2,
+                                                double minX, double minY, double maxX, double maxY) {
+        return segmentsIntersect(x1, y1, x2, y2, minX, minY, maxX, minY)
+                || segmentsIntersect(x1, y1, x2, y2, maxX, minY, maxX, maxY)
+                || segmentsIntersect(x1, y1, x2, y2, maxX, maxY, minX, maxY)
+                || segmentsIntersect(x1, y1, x2, y2, minX, maxY, minX, minY);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the circle centered at (cx,cy) of radius r and the specified box have at
+     * least one point in common
+     */
+    static boolean circleIntersectsBox(double cx, double cy, double r, BoundingBox box) {
+        return box.squaredDistance(cx, cy) <= r * r;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the region of the shape whose <code>count</code>
+     * vertices are read from <code>xy[offset, offset + 2 * count)</code>. A triangle is the region enclosed by its
+     * three vertices, and a quadrilateral is the union of the two triangles that make up its area (see
+     * {@link #quadrilateralArea(double[], int)}).
+     */
+    static boolean contains(double[] xy, int offset, int count, double x, double y) {
+        double[] c = xy;
+        int o = offset;
+        if (triangleContains(c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5], x, y))
+            return true;
+        return count == 4 && triangleContains(c[o], c[o + 1], c[o + 6], c[o + 7], c[o + 4], c[o + 5], x, y);
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the region of the triangle or quadrilateral whose
+     * <code>count</code> vertices are read from <code>xy[offset, offset + 2 * count)</code>, as defined by
+     * {@link #contains(double[], int, int, double, double)}
+     */
+    static double distance(double[] xy, int offset, int count, double x, double y) {
+        double[] c = xy;
+        int o = offset;
+        double d = triangleDistance(c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5], x, y);
+        if (count == 4 && d > 0)
+            d = Math.min(d, triangleDistance(c[o], c[o + 1], c[o + 6], c[o + 7], c[o + 4], c[o + 5], x, y));
+        return d;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the region of the triangle or quadrilateral whose <code>count</code>
+     * vertices are read from <code>xy[offset, offset + 2 * count)</code>, as defined by
+     * {@link #contains(double[], int, int, double, double)}, has at least one point in common with the specified box
+     */
+    static boolean intersects(double[] xy, int offset, int count, BoundingBox box) {
+        double[] c = xy;
+        int o = offset;
+        if (triangleIntersectsBox(c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5], box))
+            return true;
+        return count == 4 && triangleIntersectsBox(c[o], c[o + 1], c[o + 6], c[o + 7], c[o + 4], c[o + 5], box);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the two triangles with the specified vertices have at least one point
+     * in common, whichever way their vertices turn. Either two sides cross, or one triangle lies entirely within the
+     * other, in which case each of its vertices does.
+     */
+    static boolean trianglesOverlap(double x1, double y1, double x2, double y2, double x3, double y3,
+                                    double u1, double v1, double u2, double v2, double u3, double v3) {
+        if (segmentIntersectsTriangle(x1, y1, x2, y2, u1, v1, u2, v2, u3, v3)
+                || segmentIntersectsTriangle(x2, y2, x3, y3, u1, v1, u2, v2, u3, v3)
+                || segmentIntersectsTriangle(x3, y3, x1, y1, u1, v1, u2, v2, u3, v3))
+            return true;
+        return triangleContains(u1, v1, u2, v2, u3, v3, x1, y1) || triangleContains(x1, y1, x2, y2, x3, y3, u1, v1);
+    }
+
+    private static boolean segmentIntersectsTriangle(double x1, double y1, double x2, double y2,
+                                                     double u1, double v1, double u2, double v2, double u3, double v3) {
+        return segmentsIntersect(x1, y1, x2, y2, u1, v1, u2, v2) || segmentsIntersect(x1, y1, x2, y2, u2, v2, u3, v3)
+                || segmentsIntersect(x1, y1, x2, y2, u3, v3, u1, v1);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the regions of the two triangles or quadrilaterals whose vertices are
+     * read from <code>a[aOffset, aOffset + 2 * aCount)</code> and <code>b[bOffset, bOffset + 2 * bCount)</code>, as
+     * defined by {@link #contains(double[], int, int, double, double)}, have at least one point in common
+     */
+    static boolean overlaps(double[] a, int aOffset, int aCount, double[] b, int bOffset, int bCount) {
+        int o = aOffset, p = bOffset;
+        if (trianglesOverlap(a[o], a[o + 1], a[o + 2], a[o + 3], a[o + 4], a[o + 5],
+                             b[p], b[p + 1], b[p + 2], b[p + 3], b[p + 4], b[p + 5]))
+            return true;
+        if (bCount == 4 && trianglesOverlap(a[o], a[o + 1], a[o + 2], a[o + 3], a[o + 4], a[o + 5],
+                                            b[p], b[p + 1], b[p + 6], b[p + 7], b[p + 4], b[p + 5]))
+            return true;
+        if (aCount != 4)
+            return false;
+        if (trianglesOverlap(a[o], a[o + 1], a[o + 6], a[o + 7], a[o + 4], a[o + 5],
+                             b[p], b[p + 1], b[p + 2], b[p + 3], b[p + 4], b[p + 5]))
+            return true;
+        return bCount == 4 && trianglesOverlap(a[o], a[o + 1], a[o + 6], a[o + 7], a[o + 4], a[o + 5],
+                                               b[p], b[p + 1], b[p + 6], b[p + 7], b[p + 4], b[p + 5]);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the simple polygon whose <code>count</code>
+     * vertices are read from <code>xy[offset, offset + 2 * count)</code>, or on its boundary, by counting the edges
+     * that a ray from the point crosses, in a single pass over the edges
+     */
+    static boolean polygonContains(double[] xy, int offset, int count, double x, double y) {
+        boolean inside = false;
+        int j = offset + 2 * (count - 1);
+        for (int k = 0; k < count; k++) {
+            int i = offset + 2 * k;
+            double xi = xy[i], yi = xy[i + 1], xj = xy[j], yj = xy[j + 1];
+            if (cross(xj, yj, xi, yi, x, y) == 0 && onSegment(xj, yj, xi, yi, x, y))
+                return true;
+            if ((yi > y) != (yj > y) && x < xi + (y - yi) * (xj - xi) / (yj - yi))
+                inside = !inside;
+            j = i;
+        }
+        return inside;
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the simple polygon whose <code>count</code> vertices are read from
+     * <code>xy[offset, offset + 2 * count)</code>, which is zero if the polygon contains the point
+     */
+    static double polygonDistance(double[] xy, int offset, int count, double x, double y) {
+        if (polygonContains(xy, offset, count, x, y))
+            return 0;
+        double d = Double.POSITIVE_INFINITY;
+        int j = offset + 2 * (count - 1);
+        for (int k = 0; k < count; k++) {
+            int i = offset + 2 * k;
+            d = Math.min(d, segmentDistance(xy[j], xy[j + 1], xy[i], xy[i + 1], x, y));
+            j = i;
+        }
+        return d;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the simple polygon whose <code>count</code> vertices are read from
+     * <code>xy[offset, offset + 2 * count)</code> and the specified box have at least one point in common: a vertex
+     * lies in the box, a corner of the box lies in the polygon, or an edge crosses the boundary of the box
+     */
+    static boolean polygonIntersectsBox(double[] xy, int offset, int count, BoundingBox box) {
+        for (int k = 0; k < count; k++)
+            if (box.contains(xy[offset + 2 * k], xy[offset + 2 * k + 1]))
+                return true;
+        double minX = box.getMinX(), minY = box.getMinY(), maxX = box.getMaxX(), maxY = box.getMaxY();
+        if (polygonContains(xy, offset, count, minX, minY))
+            return true;
+        int j = offset + 2 * (count - 1);
+        for (int k = 0; k < count; k++) {
+            int i = offset + 2 * k;
+            if (segmentIntersectsBox(xy[j], xy[j + 1], xy[i], xy[i + 1], minX, minY, maxX, maxY))
+                return true;
+            j = i;
+        }
+        return false;
+    }
+}
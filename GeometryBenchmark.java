@@ -0,0 +1,116 @@
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the {@link Geometry} kernels with the way triangle and quadrilateral areas used to be computed: Heron's
+ * formula over three distances for triangles, and two freshly allocated {@link Triangle}s per quadrilateral. Besides
+ * timing, it reports the relative error of both triangle formulas on thin triangles against the exact area.
+ * <p>
+ * Usage: <code>java GeometryBenchmark [size]</code>.
+ */
+public class GeometryBenchmark {
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 100_000;
+        Random random = new Random(216);
+        double[] triangles = new double[6 * n];
+        double[] quads = new double[8 * n];
+        for (int i = 0; i < triangles.length; i++)
+            triangles[i] = random.nextInt(20000) / 100.0;
+        for (int i = 0; i < quads.length; i++)
+            quads[i] = random.nextInt(20000) / 100.0;
+
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("triangle.area.heron", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < triangles.length; o += 6)
+                sum += heronArea(triangles[o], triangles[o + 1], triangles[o + 2], triangles[o + 3],
+                                 triangles[o + 4], triangles[o + 5]);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("triangle.area.kernel", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < triangles.length; o += 6)
+                sum += Geometry.triangleArea(triangles, o);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("triangle.perimeter.kernel", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < triangles.length; o += 6)
+                sum += Geometry.perimeter(triangles, o, 3);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("quadrilateral.area.twoTriangles", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < quads.length; o += 8)
+                sum += twoTriangleArea(quads, o);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("quadrilateral.area.kernel", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < quads.length; o += 8)
+                sum += Geometry.quadrilateralArea(quads, o);
+            return Double.doubleToLongBits(sum);
+        }));
+        System.out.println(Bench.measure("quadrilateral.perimeter.kernel", n, n, () -> {
+            double sum = 0;
+            for (int o = 0; o < quads.length; o += 8)
+                sum += Geometry.perimeter(quads, o, 4);
+            return Double.doubleToLongBits(sum);
+        }));
+
+        System.out.println();
+        System.out.printf("%-14s %-24s %-24s%n", "thinness", "heron relative error", "kernel relative error");
+        for (int e = 2; e <= 14; e += 2) {
+            double h = Math.pow(10, -e);
+            double heronError = 0, kernelError = 0;
+            for (int i = 0; i < 1000; i++) {
+                double x = 1 + random.nextDouble(), y = 1 + random.nextDouble(), w = 1 + random.nextDouble();
+                double exact = exactArea(x, y, x + w, y + h, x + 2 * w, y);
+                heronError = Math.max(heronError,
+                        Math.abs(heronArea(x, y, x + w, y + h, x + 2 * w, y) - exact) / exact);
+                kernelError = Math.max(kernelError,
+                        Math.abs(Geometry.triangleArea(x, y, x + w, y + h, x + 2 * w, y) - exact) / exact);
+            }
+            System.out.printf("%-14s %-24.3e %-24.3e%n", "1e-" + e, heronError, kernelError);
+        }
+    }
+
+    private static double heronArea(double x1, double y1, double x2, double y2, double x3, double y3) {
+        double a = Geometry.distance(x1, y1, x2, y2);
+        double b = Geometry.distance(x2, y2, x3, y3);
+        double c = Geometry.distance(x3, y3, x1, y1);
+        double s = (a + b + c) / 2;
+        return Math.sqrt(s * (s - a) * (s - b) * (s - c));
+    }
+
+    private static double twoTriangleArea(double[] q, int o) {
+        List<TwoDPoint> h1 = new ArrayList<>();
+        h1.add(new TwoDPoint(q[o], q[o + 1]));
+        h1.add(new TwoDPoint(q[o + 2], q[o + 3]));
+        h1.add(new TwoDPoint(q[o + 4], q[o + 5]));
+        List<TwoDPoint> h2 = new ArrayList<>();
+        h2.add(h1.get(0));
+        h2.add(new TwoDPoint(q[o + 6], q[o + 7]));
+        h2.add(h1.get(2));
+        return heronArea(new Triangle(h1)) + heronArea(new Triangle(h2));
+    }
+
+    private static double heronArea(Triangle t) {
+        List<? extends Point> v = t.getPosition();
+        TwoDPoint p1 = (TwoDPoint) v.get(0), p2 = (TwoDPoint) v.get(1), p3 = (TwoDPoint) v.get(2);
+        return heronArea(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY());
+    }
+
+    private static double exactArea(double x1, double y1, double x2, double y2, double x3, double y3) {
+        BigDecimal ax = new BigDecimal(x2).subtract(new BigDecimal(x1)),
+                   ay = new BigDecimal(y2).subtract(new BigDecimal(y1));
+        BigDecimal bx = new BigDecimal(x3).subtract(new BigDecimal(x1)),
+                   by = new BigDecimal(y3).subtract(new BigDecimal(y1));
+        return ax.multiply(by).subtract(bx.multiply(ay)).abs().divide(BigDecimal.valueOf(2), MathContext.DECIMAL128)
+                .doubleValue();
+    }
+}
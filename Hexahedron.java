@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A convex solid with six quadrilateral faces, such as a cuboid, a parallelepiped or a frustum of a square pyramid. Its
+ * eight vertices are given as the four vertices of its bottom face in order around the face, followed by the four
+ * vertices of its top face, with each vertex of the top face joined by an edge to the vertex of the bottom face given
+ * four positions earlier. The faces are those of {@link SolidGeometry#HEXAHEDRON_FACES}.
+ */
+public class Hexahedron implements ThreeDShape, Positionable {
+
+    private double leastX;
+
+    private List<ThreeDPoint> vertices = new ArrayList<>();
+
+    // the coordinates of the vertices, interleaved for the kernels of SolidGeometry
+    private double[] xyz = new double[24];
+
+    // derived metrics, computed on first use and invalidated whenever the vertices change; volatile, so that threads
+    // sharing a solid that is no longer modified never read a torn value, at worst computing a metric more than once
+    private volatile double volume      = Double.NaN;
+    private volatile double surfaceArea = Double.NaN;
+
+    public Hexahedron(List<ThreeDPoint> vertices) {
+        setPosition(vertices);
+    }
+
+    /**
+     * Sets the position of this hexahedron according to the first eight elements in the specified list of points, in
+     * the order described above. If the input list has more than eight elements, the subsequent elements are ignored.
+     *
+     * @param points the specified list of points.
+     */
+    @Override
+    public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        try {
+            List<ThreeDPoint> position = new ArrayList<>(8);
+            for (int i = 0; i < 8; i++) {
+                if (points.get(i) instanceof ThreeDPoint) {
+                    position.add((ThreeDPoint) points.get(i));
+                }
+                else throw new IllegalArgumentException();
+            }
+            vertices = position;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: The list must consist of ThreeDPoint instances.");
+        }
+        xyz = coordinates(vertices);
+        leastX = Double.POSITIVE_INFINITY;
+        for (ThreeDPoint p : vertices)
+            leastX = Math.min(leastX, p.getX());
+        volume      = Double.NaN;
+        surfaceArea = Double.NaN;
+    }
+
+    private static double[] coordinates(List<? extends Point> vertices) {
+        double[] xyz = new double[3 * vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            ThreeDPoint p = (ThreeDPoint) vertices.get(i);
+            xyz[3 * i] = p.getX();
+            xyz[3 * i + 1] = p.getY();
+            xyz[3 * i + 2] = p.getZ();
+        }
+        return xyz;
+    }
+
+    /**
+     * @return the eight vertices of this hexahedron, in the order they were given, as an unmodifiable list
+     */
+    @Override
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(vertices);}
+
+    /**
+     * @return the number of faces of this hexahedron, which is always set to six
+     */
+    @Override
+    public int numFaces() {
+        return 6;
+    }
+
+    /**
+     * Checks whether or not a list of vertices forms a valid hexahedron, i.e., eight {@link ThreeDPoint} instances,
+     * in the order described above, bounding a convex solid of positive volume.
+     */
+    @Override
+    public boolean isMember(List<? extends Point> vertices) {
+        if (vertices.size() != 8)
+            return false;
+        for (Point p : vertices)
+            if (!(p instanceof ThreeDPoint))
+                return false;
+        return SolidGeometry.isConvexHexahedron(coordinates(vertices), 0);
+    }
+
+    @Override
+    public double getLeastX() {return leastX;}
+
+    @Override
+    public int compareTo(ThreeDShape s) {
+        return Double.compare(this.volume(), s.volume());
+    }
+
+    /**
+     * @return the volume of this hexahedron; computed once per position
+     */
+    @Override
+    public double volume() {
+        if (Double.isNaN(volume))
+            volume = SolidGeometry.hexahedronVolume(xyz, 0);
+        return volume;
+    }
+
+    /**
+     * @return the total area of the six faces of this hexahedron; computed once per position
+     */
+    @Override
+    public double surfaceArea() {
+        if (Double.isNaN(surfaceArea))
+            surfaceArea = SolidGeometry.hexahedronSurfaceArea(xyz, 0);
+        return surfaceArea;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("Hexahedron[");
+        for (int i = 0; i < vertices.size(); i++) {
+            ThreeDPoint p = vertices.get(i);
+            s.append(i == 0 ? "(" : ", (").append(String.format("%.2f", p.getX())).append(',')
+             .append(String.format("%.2f", p.getY())).append(',').append(String.format("%.2f", p.getZ())).append(')');
+        }
+        return s.append(']').toString();
+    }
+}
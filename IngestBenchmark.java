@@ -0,0 +1,251 @@
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link IngestPipeline} reading shapes from several files at once, sorting them and printing them to a
+ * {@link BufferedPrinter} that discards its output, against doing the same sequentially on the calling thread: parsing
+ * each file into shapes, keeping the valid ones, sorting and printing them. Half the shapes of each file are triangles
+ * or quadrilaterals, and one in fifty is a flat triangle that the pipeline rejects. The statistics of the stages of the
+ * last run of the pipeline are printed after the measurements of each size.
+ * <p>
+ * Before measuring, the pipeline is checked against the sequential version on files and in-memory sources with small
+ * chunks, so that many lines straddle two reads, with and without a limit; its stages are checked to account for every
+ * byte and shape, and to block when a slow printer falls behind; and failures of a source are checked to stop the
+ * pipeline with the error of the source.
+ * <p>
+ * Usage: <code>java IngestBenchmark [sizes]</code>; the size is the total number of shapes of all the files.
+ */
+public class IngestBenchmark {
+
+    private static final int SOURCES = 8;
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "100k,1M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<IngestPipeline.Source> sources = files(n, new Random(216));
+            System.out.println(Bench.measure("sequential", n, n, () -> {
+                BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(Writer.nullWriter());
+                sequential(sources, printer);
+                return printer.printed();
+            }));
+            IngestPipeline.Stats[] stats = new IngestPipeline.Stats[1];
+            System.out.println(Bench.measure("pipeline", n, n, () -> {
+                BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(Writer.nullWriter());
+                stats[0] = run(new IngestPipeline(sources, printer));
+                return printer.printed();
+            }));
+            System.out.println(Bench.measure("pipeline.limit100", n, n, () -> {
+                BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(Writer.nullWriter());
+                run(new IngestPipeline(sources, printer).limit(100));
+                return printer.printed();
+            }));
+            System.out.println();
+            System.out.println(stats[0]);
+        }
+    }
+
+    private static IngestPipeline.Stats run(IngestPipeline pipeline) {
+        try {
+            return pipeline.run();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * @return <code>n</code> random shapes, one in fifty of them a flat triangle
+     */
+    private static List<TwoDShape> shapes(int n, Random random) {
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, random);
+        for (int i = 0; i < n; i += 50) {
+            double x = random.nextInt(2000) / 100.0, y = random.nextInt(2000) / 100.0;
+            shapes.set(i, new Triangle(Arrays.asList(new TwoDPoint(x, y), new TwoDPoint(x + 1, y + 1),
+                                                     new TwoDPoint(x + 2, y + 2))));
+        }
+        return shapes;
+    }
+
+    /**
+     * @return {@link #SOURCES} temporary files of <code>n</code> random shapes in all, deleted on exit
+     */
+    private static List<IngestPipeline.Source> files(int n, Random random) throws IOException {
+        List<TwoDShape> shapes = shapes(n, random);
+        List<IngestPipeline.Source> sources = new ArrayList<>(SOURCES);
+        for (int s = 0; s < SOURCES; s++) {
+            Path path = Files.createTempFile("shapes-" + s + "-", ".txt");
+            path.toFile().deleteOnExit();
+            try (OutputStream out = Files.newOutputStream(path)) {
+                StringBuilder lines = new StringBuilder();
+                for (TwoDShape shape : shapes.subList(n * s / SOURCES, n * (s + 1) / SOURCES))
+                    ShapeFormat.append(lines, shape, true).append('\n');
+                out.write(lines.toString().getBytes(StandardCharsets.US_ASCII));
+            }
+            sources.add(IngestPipeline.Source.of(path));
+        }
+        return sources;
+    }
+
+    /**
+     * Does the work of the pipeline on the calling thread, one source after the other.
+     */
+    private static void sequential(List<IngestPipeline.Source> sources, AbstractPrinter<TwoDShape> printer) {
+        List<TwoDShape> shapes = new ArrayList<>();
+        ShapeParser parser = new ShapeParser();
+        try {
+            for (IngestPipeline.Source source : sources)
+                parser.parse(source.open(), ShapeParser.into(s -> {
+                    if (s.isMember(((Positionable) s).getPosition()))
+                        shapes.add(s);
+                }));
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        Ordering.sortByLeastX(shapes);
+        Ordering.sortByArea(shapes);
+        for (TwoDShape s : shapes)
+            printer.print(s);
+    }
+
+    /**
+     * A printer collecting the printed shapes, optionally sleeping for a millisecond every so many shapes.
+     */
+    private static final class Collector extends AbstractPrinter<TwoDShape> {
+        final List<TwoDShape> shapes = new ArrayList<>();
+        private final int     sleepEvery;
+
+        Collector(int sleepEvery) {this.sleepEvery = sleepEvery;}
+
+        @Override
+        void print(TwoDShape s) {
+            shapes.add(s);
+            if (sleepEvery > 0 && shapes.size() % sleepEvery == 0) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private static void check() throws IOException {
+        Random random = new Random(216);
+        List<IngestPipeline.Source> sources = new ArrayList<>(files(20_000, random));
+        for (int s = 0; s < SOURCES; s++)
+            sources.add(IngestPipeline.Source.shapes("memory-" + s, shapes(2_500, random)));
+        sources.add(IngestPipeline.Source.shapes("empty", Collections.emptyList()));
+        long bytes = 0;
+        for (IngestPipeline.Source source : sources)
+            try (InputStream in = source.open()) {
+                bytes += in.readAllBytes().length;
+            }
+
+        Collector expected = new Collector(0);
+        sequential(sources, expected);
+        Collector actual = new Collector(0);
+        IngestPipeline pipeline = new IngestPipeline(sources, actual).workers(3).chunkSize(4096).queueCapacity(2)
+                                                                     .batchSize(100);
+        IngestPipeline.Stats stats = pipeline.run();
+        checkSame(expected.shapes, actual.shapes);
+        long valid = expected.shapes.size();
+        if (stats.stage("read").out != bytes || stats.stage("parse").in != bytes
+                || stats.stage("parse").out != 40_000 || stats.stage("construct").in != 40_000
+                || stats.stage("construct").out != valid || stats.stage("sort").out != valid
+                || stats.stage("print").out != valid || stats.stage("print").batches != (valid + 99) / 100)
+            throw new AssertionError("the stages miscount bytes or shapes:" + System.lineSeparator() + stats);
+        for (IngestPipeline.StageStats stage : stats.stages)
+            if (stage.maxQueueDepth > stage.queueCapacity || stage.queueDepth != 0)
+                throw new AssertionError("the queue of " + stage.name + " overflowed or was not drained");
+        try {
+            pipeline.run();
+            throw new AssertionError("a pipeline ran twice");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Collector limited = new Collector(0);
+        new IngestPipeline(sources, limited).limit(100).batchSize(7).run();
+        // shapes tied with the hundredth may be printed instead of it, but not out of order
+        if (!keys(expected.shapes.subList(0, 100)).equals(keys(limited.shapes)))
+            throw new AssertionError("the limited pipeline printed other shapes than the first hundred");
+
+        Collector slow = new Collector(10);
+        stats = new IngestPipeline(sources, slow).queueCapacity(1).batchSize(10).limit(1000).run();
+        if (slow.shapes.size() != 1000 || stats.stage("sort").blockedNanos == 0
+                || stats.stage("print").maxQueueDepth != 1)
+            throw new AssertionError("a slow printer does not hold the sort stage back:" + System.lineSeparator()
+                                     + stats);
+
+        Collector none = new Collector(0);
+        if (new IngestPipeline(Collections.emptyList(), none).run().stage("print").out != 0 || !none.shapes.isEmpty())
+            throw new AssertionError("shapes were printed from no source");
+
+        List<IngestPipeline.Source> failing = new ArrayList<>(sources);
+        byte[] malformed = "Circle[center: (1.00,2.00); radius: 3.0]\nTriangle[(0.00,0.00)]\n"
+                .getBytes(StandardCharsets.US_ASCII);
+        failing.add(IngestPipeline.Source.of("malformed", () -> new ByteArrayInputStream(malformed)));
+        try {
+            new IngestPipeline(failing, new Collector(0)).run();
+            throw new AssertionError("a malformed line was accepted");
+        } catch (IllegalArgumentException e) {
+            if (!e.getMessage().endsWith("Source: malformed"))
+                throw new AssertionError("the error does not name its source: " + e.getMessage());
+        }
+        failing.set(failing.size() - 1, IngestPipeline.Source.of("unreachable", () -> {
+            throw new IOException("Connection refused");
+        }));
+        try {
+            new IngestPipeline(failing, new Collector(0)).run();
+            throw new AssertionError("an unreadable source was ignored");
+        } catch (IOException e) {
+            if (!e.getMessage().contains("unreachable"))
+                throw new AssertionError("the error does not name its source: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the specified shapes are in the order of {@link Ordering#main(String[])}, and the same as the
+     * expected shapes up to the order of shapes of equal area and least x-value.
+     */
+    private static void checkSame(List<TwoDShape> expected, List<TwoDShape> actual) {
+        for (int i = 1; i < actual.size(); i++) {
+            TwoDShape a = actual.get(i - 1), b = actual.get(i);
+            if (a.area() > b.area() || (a.area() == b.area() && a.getLeastX() > b.getLeastX()))
+                throw new AssertionError(a + " is printed before " + b);
+        }
+        List<String> e = new ArrayList<>(expected.size()), a = new ArrayList<>(actual.size());
+        for (TwoDShape s : expected)
+            e.add(s.toString());
+        for (TwoDShape s : actual)
+            a.add(s.toString());
+        Collections.sort(e);
+        Collections.sort(a);
+        if (!e.equals(a))
+            throw new AssertionError("the pipeline printed " + actual.size() + " shapes instead of " + expected.size()
+                                     + ", or other shapes");
+    }
+
+    /**
+     * @return the area and least x-value of every shape, in order
+     */
+    private static List<String> keys(List<TwoDShape> shapes) {
+        List<String> keys = new ArrayList<>(shapes.size());
+        for (TwoDShape s : shapes)
+            keys.add(s.area() + " " + s.getLeastX());
+        return keys;
+    }
+}
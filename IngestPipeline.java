@@ -0,0 +1,602 @@
+import java.io.ByteArrayInputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A staged pipeline reading the human-readable forms of shapes from many sources at once, and printing the valid ones
+ * in the order of {@link Ordering#main(String[])}: by area, and shapes of equal area by least x-value. Shapes of equal
+ * area and least x-value may come out in any order, since sources are read concurrently. The stages are
+ * <ol>
+ *     <li><b>read</b>: one thread per source reads its bytes in chunks of whole lines,</li>
+ *     <li><b>parse</b>: worker threads parse every chunk with a {@link ShapeParser} into a {@link ShapeStore},</li>
+ *     <li><b>construct</b>: worker threads build a {@link Circle}, {@link Triangle} or {@link Quadrilateral} for every
+ *     parsed shape, and reject those whose vertices fail {@link TwoDShape#isMember(List)},</li>
+ *     <li><b>sort</b>: a single thread collects the shapes and sorts them once every source is exhausted, keeping only
+ *     the first {@link #limit(int)} of them if a limit is set, and</li>
+ *     <li><b>print</b>: a single thread prints the sorted shapes, in batches, through the printer of the pipeline.</li>
+ * </ol>
+ * Stages hand batches to each other through bounded queues: a chunk of bytes, a store of parsed shapes, or a list of
+ * shapes. A stage whose output queue is full blocks until the next stage catches up, so a slow printer or slow workers
+ * hold the readers back instead of letting the queues grow, and memory use is bounded by the capacity of the queues,
+ * except for the shapes held by the sort stage, all of them without a limit.
+ * <p>
+ * The first failure of any stage, such as an unreadable source or a malformed line, stops every stage and is rethrown
+ * by {@link #run()}. Each stage counts what it takes in and puts out, the time it spends busy, waiting for input and
+ * blocked on its output, and the depth of its input queue, which {@link #stats()} reports while the pipeline runs.
+ * <p>
+ * Readers mostly wait on I/O, so there is one per source rather than a fixed pool. They are platform threads by
+ * default; on a JDK with virtual threads, <code>Thread.ofVirtual().factory()</code> can be passed to
+ * {@link #readerThreads(ThreadFactory)} so that thousands of sources cost no more than a few threads. A pipeline runs
+ * only once.
+ */
+public class IngestPipeline {
+
+    /**
+     * A source of lines of shapes, such as a file or a socket.
+     */
+    public interface Source {
+
+        String name();
+
+        /**
+         * @return a new stream of the bytes of this source, closed by the pipeline once it is read
+         */
+        InputStream open() throws IOException;
+
+        /**
+         * @return a source reading the specified file
+         */
+        static Source of(Path path) {
+            return of(path.toString(), () -> Files.newInputStream(path));
+        }
+
+        /**
+         * @return a source reading the streams opened by the specified function, such as the input stream of a socket
+         */
+        static Source of(String name, Callable<? extends InputStream> open) {
+            return new Source() {
+                @Override
+                public String name() {return name;}
+
+                @Override
+                public InputStream open() throws IOException {
+                    try {
+                        return open.call();
+                    } catch (IOException | RuntimeException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException(e);
+                    }
+                }
+            };
+        }
+
+        /**
+         * @return an in-memory source of the human-readable forms of the specified shapes, one per line
+         */
+        static Source shapes(String name, Iterable<? extends TwoDShape> shapes) {
+            StringBuilder lines = new StringBuilder();
+            for (TwoDShape s : shapes)
+                ShapeFormat.append(lines, s, true).append('\n');
+            byte[] bytes = lines.toString().getBytes(StandardCharsets.US_ASCII);
+            return of(name, () -> new ByteArrayInputStream(bytes));
+        }
+    }
+
+    static final int DEFAULT_CHUNK_SIZE     = 1 << 16;
+    static final int DEFAULT_BATCH_SIZE     = 1024;
+    static final int DEFAULT_QUEUE_CAPACITY = 16;
+
+    private final List<Source>               sources;
+    private final AbstractPrinter<TwoDShape> printer;
+
+    private int           workers       = Runtime.getRuntime().availableProcessors();
+    private int           chunkSize     = DEFAULT_CHUNK_SIZE;
+    private int           batchSize     = DEFAULT_BATCH_SIZE;
+    private int           queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private int           limit         = Integer.MAX_VALUE;
+    private ThreadFactory readerThreads = Thread::new;
+
+    private final Stage read      = new Stage("read");
+    private final Stage parse     = new Stage("parse");
+    private final Stage construct = new Stage("construct");
+    private final Stage sort      = new Stage("sort");
+    private final Stage print     = new Stage("print");
+
+    private final List<Thread>               threads = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile long startNanos, endNanos;
+
+    /**
+     * Creates a pipeline from the specified sources to the specified printer, which is flushed at the end of the run if
+     * it is {@link Flushable}.
+     */
+    public IngestPipeline(List<? extends Source> sources, AbstractPrinter<TwoDShape> printer) {
+        this.sources = new ArrayList<>(sources);
+        this.printer = printer;
+    }
+
+    /**
+     * Sets the number of threads of each of the parse and construct stages; the number of processors by default.
+     *
+     * @return this pipeline
+     * @throws IllegalArgumentException if the number is not positive.
+     */
+    public IngestPipeline workers(int workers) {
+        this.workers = positive(workers, "number of workers");
+        return this;
+    }
+
+    /**
+     * Sets the number of bytes read at a time from a source, and passed to the parse stage as a single chunk; 64 KB by
+     * default. A chunk is extended to the end of a line longer than this size.
+     *
+     * @return this pipeline
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public IngestPipeline chunkSize(int chunkSize) {
+        this.chunkSize = positive(chunkSize, "chunk size");
+        return this;
+    }
+
+    /**
+     * Sets the number of sorted shapes passed to the print stage at a time; 1024 by default.
+     *
+     * @return this pipeline
+     * @throws IllegalArgumentException if the size is not positive.
+     */
+    public IngestPipeline batchSize(int batchSize) {
+        this.batchSize = positive(batchSize, "batch size");
+        return this;
+    }
+
+    /**
+     * Sets the number of batches each queue between two stages holds before blocking the stage feeding it; 16 by
+     * default.
+     *
+     * @return this pipeline
+     * @throws IllegalArgumentException if the capacity is not positive.
+     */
+    public IngestPipeline queueCapacity(int queueCapacity) {
+        this.queueCapacity = positive(queueCapacity, "queue capacity");
+        return this;
+    }
+
+    /**
+     * Prints only the first shapes in sorted order, so that the sort stage holds no more than twice as many shapes at
+     * a time.
+     *
+     * @return this pipeline
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public IngestPipeline limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Error: The limit must not be negative.");
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Sets the factory of the threads reading the sources.
+     *
+     * @return this pipeline
+     */
+    public IngestPipeline readerThreads(ThreadFactory readerThreads) {
+        this.readerThreads = readerThreads;
+        return this;
+    }
+
+    private static int positive(int value, String name) {
+        if (value < 1)
+            throw new IllegalArgumentException("Error: The " + name + " must be positive.");
+        return value;
+    }
+
+    /**
+     * Runs every stage until all the shapes are printed, or until a stage fails.
+     *
+     * @return the statistics of the stages at the end of the run
+     * @throws IOException              if a source cannot be read, or if the calling thread is interrupted.
+     * @throws IllegalArgumentException if a line of a source is not the human-readable form of a shape.
+     * @throws IllegalStateException    if the pipeline has already run.
+     */
+    public Stats run() throws IOException {
+        synchronized (threads) {
+            if (!threads.isEmpty())
+                throw new IllegalStateException("Error: The pipeline has already run.");
+            Channel<Chunk> chunks = new Channel<>(queueCapacity, Math.max(sources.size(), 1), workers, parse);
+            Channel<ShapeStore> parsed = new Channel<>(queueCapacity, workers, workers, construct);
+            Channel<List<TwoDShape>> constructed = new Channel<>(queueCapacity, workers, 1, sort);
+            Channel<List<TwoDShape>> sorted = new Channel<>(queueCapacity, 1, 1, print);
+            for (Source source : sources)
+                threads.add(readerThreads.newThread(task(() -> read(source, chunks))));
+            if (sources.isEmpty())
+                threads.add(new Thread(task(chunks::close)));
+            for (int w = 0; w < workers; w++) {
+                threads.add(new Thread(task(() -> parse(chunks, parsed)), "ingest-parse-" + w));
+                threads.add(new Thread(task(() -> construct(parsed, constructed)), "ingest-construct-" + w));
+            }
+            threads.add(new Thread(task(() -> sort(constructed, sorted)), "ingest-sort"));
+            threads.add(new Thread(task(() -> print(sorted)), "ingest-print"));
+            startNanos = System.nanoTime();
+            for (Thread thread : threads)
+                thread.start();
+        }
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    // stop every stage, and wait for them to stop
+                    interrupted = true;
+                    fail(e);
+                }
+            }
+        }
+        endNanos = System.nanoTime();
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        Throwable t = failure.get();
+        if (t instanceof InterruptedException)
+            throw new InterruptedIOException("Error: The pipeline was interrupted.");
+        if (t instanceof IOException)
+            throw (IOException) t;
+        if (t instanceof RuntimeException)
+            throw (RuntimeException) t;
+        if (t instanceof Error)
+            throw (Error) t;
+        return stats();
+    }
+
+    /**
+     * The body of a stage thread, which may throw anything.
+     */
+    private interface Body {
+        void run() throws Exception;
+    }
+
+    /**
+     * @return a task running the specified body, and stopping every stage if it fails
+     */
+    private Runnable task(Body body) {
+        return () -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                // stopped by the failure of another stage, which is the one reported
+            } catch (Throwable t) {
+                fail(t);
+            }
+        };
+    }
+
+    private void fail(Throwable t) {
+        if (failure.compareAndSet(null, t))
+            for (Thread thread : threads)
+                thread.interrupt();
+    }
+
+    /**
+     * A chunk of whole lines of a source.
+     */
+    private static final class Chunk {
+        final Source source;
+        final long   offset;
+        final byte[] bytes;
+        final int    length;
+
+        Chunk(Source source, long offset, byte[] bytes, int length) {
+            this.source = source;
+            this.offset = offset;
+            this.bytes = bytes;
+            this.length = length;
+        }
+    }
+
+    private void read(Source source, Channel<Chunk> out) throws InterruptedException, IOException {
+        try (InputStream in = source.open()) {
+            byte[] buffer = new byte[chunkSize];
+            int length = 0;
+            long offset = 0;
+            while (true) {
+                long start = System.nanoTime();
+                if (length == buffer.length)
+                    buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+                int n = in.read(buffer, length, buffer.length - length);
+                if (n < 0)
+                    break;
+                read.in.add(n);
+                length += n;
+                int end = length;
+                while (end > 0 && buffer[end - 1] != '\n')
+                    end--;
+                read.busy(start);
+                if (end > 0 && length >= chunkSize) {
+                    // pass the whole lines on, and keep the start of the last line for the next chunk
+                    byte[] next = new byte[Math.max(chunkSize, length - end)];
+                    System.arraycopy(buffer, end, next, 0, length - end);
+                    out.put(new Chunk(source, offset, buffer, end), read, end);
+                    buffer = next;
+                    length -= end;
+                    offset += end;
+                }
+            }
+            if (length > 0)
+                out.put(new Chunk(source, offset, buffer, length), read, length);
+        } catch (IOException e) {
+            throw new IOException("Error: " + source.name() + " could not be read.", e);
+        }
+        out.close();
+    }
+
+    private void parse(Channel<Chunk> in, Channel<ShapeStore> out) throws InterruptedException {
+        ShapeParser parser = new ShapeParser();
+        for (Chunk chunk; (chunk = in.take()) != null; ) {
+            long start = System.nanoTime();
+            parse.in.add(chunk.length);
+            ShapeStore store = new ShapeStore(ShapeParser.expectedShapes(chunk.length));
+            try {
+                parser.parse(new ByteArrayInputStream(chunk.bytes, 0, chunk.length), chunk.offset,
+                             ShapeParser.into(store));
+            } catch (IOException e) {
+                throw new AssertionError(e); // impossible with an in-memory stream
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException(e.getMessage() + " Source: " + chunk.source.name(), e);
+            }
+            parse.busy(start);
+            out.put(store, parse, store.size());
+        }
+        out.close();
+    }
+
+    private void construct(Channel<ShapeStore> in, Channel<List<TwoDShape>> out) throws InterruptedException {
+        for (ShapeStore store; (store = in.take()) != null; ) {
+            long start = System.nanoTime();
+            construct.in.add(store.size());
+            List<TwoDShape> shapes = new ArrayList<>(store.size());
+            for (int i = 0; i < store.size(); i++) {
+                TwoDShape shape = toShape(store, i);
+                if (shape.isMember(((Positionable) shape).getPosition()))
+                    shapes.add(shape);
+            }
+            construct.busy(start);
+            out.put(shapes, construct, shapes.size());
+        }
+        out.close();
+    }
+
+    /**
+     * @return a new {@link Circle}, {@link Triangle} or {@link Quadrilateral} of the shape at the specified index of
+     * the store, with its vertices ordered by its constructor
+     */
+    static TwoDShape toShape(ShapeStore store, int i) {
+        int n = store.vertexCount(i);
+        if (n == 1)
+            return new Circle(store.x(i, 0), store.y(i, 0), store.radius(i));
+        double[] coordinates = new double[2 * n];
+        for (int k = 0; k < n; k++) {
+            coordinates[2 * k] = store.x(i, k);
+            coordinates[2 * k + 1] = store.y(i, k);
+        }
+        return n == 3 ? new Triangle(PointArray.twoD(coordinates)) : new Quadrilateral(PointArray.twoD(coordinates));
+    }
+
+    private void sort(Channel<List<TwoDShape>> in, Channel<List<TwoDShape>> out) throws InterruptedException {
+        List<TwoDShape> shapes = new ArrayList<>();
+        for (List<TwoDShape> batch; (batch = in.take()) != null; ) {
+            long start = System.nanoTime();
+            sort.in.add(batch.size());
+            shapes.addAll(batch);
+            if (limit < Integer.MAX_VALUE && shapes.size() >= 2 * Math.max(limit, batchSize))
+                sortAndTrim(shapes);
+            sort.busy(start);
+        }
+        long start = System.nanoTime();
+        sortAndTrim(shapes);
+        sort.busy(start);
+        for (int from = 0; from < shapes.size(); from += batchSize) {
+            List<TwoDShape> batch = new ArrayList<>(shapes.subList(from, Math.min(from + batchSize, shapes.size())));
+            out.put(batch, sort, batch.size());
+        }
+        out.close();
+    }
+
+    /**
+     * Sorts the specified shapes as {@link Ordering#main(String[])} does, by least x-value then by area with a stable
+     * sort, and drops those past the limit.
+     */
+    private void sortAndTrim(List<TwoDShape> shapes) {
+        Ordering.sortByLeastX(shapes);
+        Ordering.sortByArea(shapes);
+        if (shapes.size() > limit)
+            shapes.subList(limit, shapes.size()).clear();
+    }
+
+    private void print(Channel<List<TwoDShape>> in) throws InterruptedException, IOException {
+        AbstractPrinter<TwoDShape> metered = Metrics.metered(printer);
+        for (List<TwoDShape> batch; (batch = in.take()) != null; ) {
+            long start = System.nanoTime();
+            print.in.add(batch.size());
+            for (TwoDShape s : batch)
+                metered.print(s);
+            print.out.add(batch.size());
+            print.batches.increment();
+            print.busy(start);
+        }
+        if (printer instanceof Flushable)
+            ((Flushable) printer).flush();
+    }
+
+    /**
+     * The counters of a stage, updated by all of its threads.
+     */
+    private static final class Stage {
+        final String    name;
+        final LongAdder in           = new LongAdder();
+        final LongAdder out          = new LongAdder();
+        final LongAdder batches      = new LongAdder();
+        final LongAdder busyNanos    = new LongAdder();
+        final LongAdder idleNanos    = new LongAdder();
+        final LongAdder blockedNanos = new LongAdder();
+
+        // the queue feeding this stage, if any
+        Channel<?> input;
+
+        Stage(String name) {this.name = name;}
+
+        void busy(long start) {busyNanos.add(System.nanoTime() - start);}
+    }
+
+    /**
+     * A bounded queue of batches between two stages, ended by one marker per consumer once every producer is done.
+     */
+    private static final class Channel<T> {
+        private static final Object END = new Object();
+
+        private final ArrayBlockingQueue<Object> queue;
+        private final AtomicInteger              producers;
+        private final int                        consumers;
+        private final Stage                      consumer;
+        private final AtomicInteger              maxDepth = new AtomicInteger();
+
+        Channel(int capacity, int producers, int consumers, Stage consumer) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.producers = new AtomicInteger(producers);
+            this.consumers = consumers;
+            this.consumer = consumer;
+            consumer.input = this;
+        }
+
+        /**
+         * Puts a batch of the specified number of items, blocking while the queue is full, and counts it and the time
+         * spent blocked as output of the specified stage.
+         */
+        void put(T batch, Stage producer, long items) throws InterruptedException {
+            if (!queue.offer(batch)) {
+                long start = System.nanoTime();
+                queue.put(batch);
+                producer.blockedNanos.add(System.nanoTime() - start);
+            }
+            maxDepth.accumulateAndGet(queue.size(), Math::max);
+            producer.out.add(items);
+            producer.batches.increment();
+        }
+
+        /**
+         * @return the next batch, waiting for one if the queue is empty, or <code>null</code> once every producer is
+         * done
+         */
+        @SuppressWarnings("unchecked")
+        T take() throws InterruptedException {
+            Object batch = queue.poll();
+            if (batch == null) {
+                long start = System.nanoTime();
+                batch = queue.take();
+                consumer.idleNanos.add(System.nanoTime() - start);
+            }
+            return batch == END ? null : (T) batch;
+        }
+
+        /**
+         * Signals that one of the producers is done, and ends the queue if it was the last one.
+         */
+        void close() throws InterruptedException {
+            if (producers.decrementAndGet() == 0)
+                for (int c = 0; c < consumers; c++)
+                    queue.put(END);
+        }
+
+        int depth() {return queue.size();}
+
+        int capacity() {return queue.size() + queue.remainingCapacity();}
+    }
+
+    /**
+     * The statistics of a stage at some point of a run.
+     */
+    public static final class StageStats {
+        public final String name;
+        public final long   in, out, batches;
+        public final long   busyNanos, idleNanos, blockedNanos;
+        public final int    queueDepth, maxQueueDepth, queueCapacity;
+
+        private StageStats(Stage stage) {
+            name = stage.name;
+            in = stage.in.sum();
+            out = stage.out.sum();
+            batches = stage.batches.sum();
+            busyNanos = stage.busyNanos.sum();
+            idleNanos = stage.idleNanos.sum();
+            blockedNanos = stage.blockedNanos.sum();
+            queueDepth = stage.input == null ? 0 : stage.input.depth();
+            maxQueueDepth = stage.input == null ? 0 : stage.input.maxDepth.get();
+            queueCapacity = stage.input == null ? 0 : stage.input.capacity();
+        }
+    }
+
+    /**
+     * The statistics of every stage at some point of a run. The read stage counts bytes, the parse stage bytes in and
+     * shapes out, and the other stages shapes; the construct stage puts out only the valid shapes, and the sort stage
+     * only those within the limit. The times are summed over the threads of a stage.
+     */
+    public static final class Stats {
+        public final long             elapsedNanos;
+        public final List<StageStats> stages;
+
+        private Stats(long elapsedNanos, List<StageStats> stages) {
+            this.elapsedNanos = elapsedNanos;
+            this.stages = Collections.unmodifiableList(stages);
+        }
+
+        /**
+         * @return the statistics of the stage of the specified name
+         * @throws IllegalArgumentException if there is no such stage.
+         */
+        public StageStats stage(String name) {
+            for (StageStats s : stages)
+                if (s.name.equals(name))
+                    return s;
+            throw new IllegalArgumentException("Error: There is no stage named " + name + ".");
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder s = new StringBuilder(String.format("%-10s %12s %12s %8s %12s %10s %10s %10s %11s%n",
+                    "stage", "in", "out", "batches", "out/s", "busy ms", "idle ms", "blocked ms", "queue"));
+            for (StageStats stage : stages)
+                s.append(String.format("%-10s %12d %12d %8d %12.0f %10.1f %10.1f %10.1f %3d/%3d/%3d%n", stage.name,
+                                       stage.in, stage.out, stage.batches, stage.out * 1e9 / Math.max(elapsedNanos, 1),
+                                       stage.busyNanos / 1e6, stage.idleNanos / 1e6, stage.blockedNanos / 1e6,
+                                       stage.queueDepth, stage.maxQueueDepth, stage.queueCapacity));
+            return s.append(String.format("elapsed %.1f ms; queue is depth/max depth/capacity%n", elapsedNanos / 1e6))
+                    .toString();
+        }
+    }
+
+    /**
+     * @return the statistics of every stage so far, which may be called from any thread while the pipeline runs
+     */
+    public Stats stats() {
+        long elapsed = startNanos == 0 ? 0 : (endNanos == 0 ? System.nanoTime() : endNanos) - startNanos;
+        List<StageStats> stages = new ArrayList<>(5);
+        for (Stage stage : Arrays.asList(read, parse, construct, sort, print))
+            stages.add(new StageStats(stage));
+        return new Stats(elapsed, stages);
+    }
+}
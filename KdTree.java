@@ -0,0 +1,409 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A static k-d tree over the points of a {@link PointArray}, in two or three dimensions, answering nearest-neighbour,
+ * radius and bounding-box queries without looking at most of the points.
+ * <p>
+ * The tree is built once, from a copy of the packed coordinates of the points, by median splits: the points of a range
+ * are partitioned around the median of their coordinates along one axis, the axes being taken in turn at every level,
+ * and the two halves are split in the same way until they are no larger than {@value #LEAF_SIZE} points. The tree is
+ * implicit in the order of the copied coordinates: the median of a range is the node splitting it, so no node object
+ * is ever created, and the whole tree takes the coordinates and one <code>int</code> per point. The two halves of a
+ * range are independent, so large trees can be built in parallel.
+ * <p>
+ * Queries return the indices of the points in the point array the tree was built from. Distances are Euclidean, and
+ * points at equal distances are ordered by index, so results never depend on the shape of the tree. The tree does not
+ * follow later changes to the point array.
+ *
+ * @param <P> the type of the points, {@link TwoDPoint} or {@link ThreeDPoint}
+ */
+public final class KdTree<P extends Point> {
+
+    static final int LEAF_SIZE = 8;
+
+    /**
+     * Ranges of no more than this many points are built sequentially by a parallel build.
+     */
+    static final int PARALLEL_CUTOFF = 1 << 15;
+
+    private final PointArray<P> points;
+    private final int           dimension;
+    private final double[]      coords;
+    private final int[]         ids;
+
+    private KdTree(PointArray<P> points, boolean parallel) {
+        this.points = points;
+        this.dimension = points.dimension();
+        this.coords = points.toDoubleArray();
+        for (double c : coords)
+            if (Double.isNaN(c))
+                throw new IllegalArgumentException("Error: Points with NaN coordinates cannot be indexed.");
+        this.ids = new int[points.size()];
+        for (int i = 0; i < ids.length; i++)
+            ids[i] = i;
+        if (parallel && ids.length > PARALLEL_CUTOFF)
+            ForkJoinPool.commonPool().invoke(new Build(0, ids.length, 0));
+        else
+            build(0, ids.length, 0);
+    }
+
+    /**
+     * Builds a tree over the specified points, sequentially.
+     *
+     * @throws IllegalArgumentException if a coordinate is NaN.
+     */
+    public static <P extends Point> KdTree<P> of(PointArray<P> points) {
+        return new KdTree<>(points, false);
+    }
+
+    /**
+     * Builds a tree over the specified points, splitting the work between the threads of the common fork/join pool.
+     *
+     * @throws IllegalArgumentException if a coordinate is NaN.
+     */
+    public static <P extends Point> KdTree<P> parallelOf(PointArray<P> points) {
+        return new KdTree<>(points, true);
+    }
+
+    /**
+     * @return the point array this tree was built from
+     */
+    public PointArray<P> points() {return points;}
+
+    public int size() {return ids.length;}
+
+    public int dimension() {return dimension;}
+
+    /**
+     * @return the indices of the <code>k</code> points nearest to (x,y), nearest first, or of all the points if there
+     * are fewer than <code>k</code>
+     * @throws IllegalArgumentException if this tree is not two-dimensional or <code>k</code> is negative.
+     */
+    public int[] nearest(double x, double y, int k) {
+        return nearest(query(2, x, y, 0), k);
+    }
+
+    /**
+     * @return the indices of the <code>k</code> points nearest to (x,y,z), nearest first, or of all the points if
+     * there are fewer than <code>k</code>
+     * @throws IllegalArgumentException if this tree is not three-dimensional or <code>k</code> is negative.
+     */
+    public int[] nearest(double x, double y, double z, int k) {
+        return nearest(query(3, x, y, z), k);
+    }
+
+    /**
+     * @return the indices of the points at a distance of at most <code>r</code> from (x,y), in increasing order
+     * @throws IllegalArgumentException if this tree is not two-dimensional.
+     */
+    public int[] withinRadius(double x, double y, double r) {
+        return withinRadius(query(2, x, y, 0), r);
+    }
+
+    /**
+     * @return the indices of the points at a distance of at most <code>r</code> from (x,y,z), in increasing order
+     * @throws IllegalArgumentException if this tree is not three-dimensional.
+     */
+    public int[] withinRadius(double x, double y, double z, double r) {
+        return withinRadius(query(3, x, y, z), r);
+    }
+
+    /**
+     * @return the indices of the points within the specified box, boundary included, in increasing order; the
+     * <code>z</code> values of three-dimensional points are not constrained
+     */
+    public int[] within(BoundingBox box) {
+        Hits hits = new Hits();
+        within(0, ids.length, 0, box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY(), hits);
+        return hits.sorted();
+    }
+
+    private double[] query(int dimension, double x, double y, double z) {
+        if (dimension != this.dimension)
+            throw new IllegalArgumentException("Error: The query must have as many coordinates as the points.");
+        return dimension == 2 ? new double[]{x, y} : new double[]{x, y, z};
+    }
+
+    private void build(int lo, int hi, int axis) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, axis);
+            build(lo, mid, next(axis));
+            lo = mid + 1;
+            axis = next(axis);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Build extends RecursiveAction {
+        private final int lo, hi, axis;
+
+        Build(int lo, int hi, int axis) {
+            this.lo = lo;
+            this.hi = hi;
+            this.axis = axis;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= PARALLEL_CUTOFF) {
+                build(lo, hi, axis);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            select(lo, hi, mid, axis);
+            invokeAll(new Build(lo, mid, next(axis)), new Build(mid + 1, hi, next(axis)));
+        }
+    }
+
+    private int next(int axis) {
+        return axis + 1 == dimension ? 0 : axis + 1;
+    }
+
+    /**
+     * Moves the point of <code>[lo, hi)</code> whose coordinate along the specified axis is the k-th smallest to index
+     * <code>k</code>, with no greater coordinate before it and no smaller one after it, by quickselect with a
+     * median-of-three pivot and Hoare partitioning, which stays fast when many coordinates are equal.
+     */
+    private void select(int lo, int hi, int k, int axis) {
+        int l = lo, r = hi - 1;
+        while (l < r) {
+            double a = key(l, axis), b = key((l + r) >>> 1, axis), c = key(r, axis);
+            double pivot = Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+            int i = l, j = r;
+            while (i <= j) {
+                while (key(i, axis) < pivot)
+                    i++;
+                while (key(j, axis) > pivot)
+                    j--;
+                if (i <= j)
+                    swap(i++, j--);
+            }
+            if (k <= j)
+                r = j;
+            else if (k >= i)
+                l = i;
+            else
+                return;
+        }
+    }
+
+    private double key(int slot, int axis) {
+        return coords[slot * dimension + axis];
+    }
+
+    private void swap(int a, int b) {
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        for (int d = 0, i = a * dimension, j = b * dimension; d < dimension; d++, i++, j++) {
+            double c = coords[i];
+            coords[i] = coords[j];
+            coords[j] = c;
+        }
+    }
+
+    private double squaredDistance(int slot, double[] q) {
+        double sum = 0;
+        for (int d = 0, i = slot * dimension; d < dimension; d++, i++) {
+            double delta = coords[i] - q[d];
+            sum += delta * delta;
+        }
+        return sum;
+    }
+
+    private int[] nearest(double[] q, int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Error: The number of neighbours cannot be negative.");
+        Neighbours best = new Neighbours(Math.min(k, ids.length));
+        if (best.capacity > 0)
+            nearest(0, ids.length, 0, q, best);
+        return best.sorted();
+    }
+
+    private void nearest(int lo, int hi, int axis, double[] q, Neighbours best) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            best.offer(squaredDistance(mid, q), ids[mid]);
+            double delta = q[axis] - key(mid, axis);
+            int next = next(axis);
+            if (delta < 0) {
+                nearest(lo, mid, next, q, best);
+                if (!best.accepts(delta * delta))
+                    return;
+                lo = mid + 1;
+            } else {
+                nearest(mid + 1, hi, next, q, best);
+                if (!best.accepts(delta * delta))
+                    return;
+                hi = mid;
+            }
+            axis = next;
+        }
+        for (int s = lo; s < hi; s++)
+            best.offer(squaredDistance(s, q), ids[s]);
+    }
+
+    private int[] withinRadius(double[] q, double r) {
+        Hits hits = new Hits();
+        if (r >= 0)
+            withinRadius(0, ids.length, 0, q, r, r * r, hits);
+        return hits.sorted();
+    }
+
+    private void withinRadius(int lo, int hi, int axis, double[] q, double r, double r2, Hits hits) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            if (squaredDistance(mid, q) <= r2)
+                hits.add(ids[mid]);
+            double split = key(mid, axis);
+            int next = next(axis);
+            boolean left = q[axis] - r <= split, right = q[axis] + r >= split;
+            if (left && right)
+                withinRadius(lo, mid, next, q, r, r2, hits);
+            if (right)
+                lo = mid + 1;
+            else if (left)
+                hi = mid;
+            else
+                return;
+            axis = next;
+        }
+        for (int s = lo; s < hi; s++)
+            if (squaredDistance(s, q) <= r2)
+                hits.add(ids[s]);
+    }
+
+    private void within(int lo, int hi, int axis, double minX, double minY, double maxX, double maxY, Hits hits) {
+        while (hi - lo > LEAF_SIZE) {
+            int mid = (lo + hi) >>> 1;
+            if (inside(mid, minX, minY, maxX, maxY))
+                hits.add(ids[mid]);
+            int next = next(axis);
+            boolean left, right;
+            if (axis < 2) {
+                double split = key(mid, axis);
+                left = (axis == 0 ? minX : minY) <= split;
+                right = (axis == 0 ? maxX : maxY) >= split;
+            } else {
+                left = right = true;
+            }
+            if (left && right)
+                within(lo, mid, next, minX, minY, maxX, maxY, hits);
+            if (right)
+                lo = mid + 1;
+            else if (left)
+                hi = mid;
+            else
+                return;
+            axis = next;
+        }
+        for (int s = lo; s < hi; s++)
+            if (inside(s, minX, minY, maxX, maxY))
+                hits.add(ids[s]);
+    }
+
+    private boolean inside(int slot, double minX, double minY, double maxX, double maxY) {
+        double x = coords[slot * dimension], y = coords[slot * dimension + 1];
+        return minX <= x && x <= maxX && minY <= y && y <= maxY;
+    }
+
+    /**
+     * The best neighbours found so far: a max-heap of at most <code>capacity</code> squared distances and indices,
+     * ordered by distance, then by index, so that its root is the worst of them.
+     */
+    private static final class Neighbours {
+        final int      capacity;
+        final double[] distances;
+        final int[]    indices;
+        int            size;
+
+        Neighbours(int capacity) {
+            this.capacity = capacity;
+            this.distances = new double[capacity];
+            this.indices = new int[capacity];
+        }
+
+        /**
+         * @return whether a point at the specified squared distance could still be among the best neighbours
+         */
+        boolean accepts(double distance) {
+            return size < capacity || distance <= distances[0];
+        }
+
+        void offer(double distance, int index) {
+            if (size < capacity) {
+                int i = size++;
+                for (int parent; i > 0 && worse(distance, index, distances[parent = (i - 1) >>> 1], indices[parent]);
+                     i = parent) {
+                    distances[i] = distances[parent];
+                    indices[i] = indices[parent];
+                }
+                distances[i] = distance;
+                indices[i] = index;
+            } else if (worse(distances[0], indices[0], distance, index)) {
+                siftDown(distance, index, size);
+            }
+        }
+
+        /**
+         * @return whether the neighbour at distance <code>a</code> with index <code>i</code> is worse than the one at
+         * distance <code>b</code> with index <code>j</code>
+         */
+        private static boolean worse(double a, int i, double b, int j) {
+            return a > b || a == b && i > j;
+        }
+
+        /**
+         * Places the specified neighbour at the root of the first <code>n</code> positions of the heap, and sifts it
+         * down to its place.
+         */
+        private void siftDown(double distance, int index, int n) {
+            int i = 0;
+            for (int child; (child = 2 * i + 1) < n; i = child) {
+                if (child + 1 < n && worse(distances[child + 1], indices[child + 1], distances[child], indices[child]))
+                    child++;
+                if (!worse(distances[child], indices[child], distance, index))
+                    break;
+                distances[i] = distances[child];
+                indices[i] = indices[child];
+            }
+            distances[i] = distance;
+            indices[i] = index;
+        }
+
+        /**
+         * Empties the heap into the indices of the neighbours, nearest first.
+         */
+        int[] sorted() {
+            int[] sorted = new int[size];
+            for (int n = size; n > 0; n--) {
+                sorted[n - 1] = indices[0];
+                siftDown(distances[n - 1], indices[n - 1], n - 1);
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * A growable array of the indices of the points found by a query.
+     */
+    private static final class Hits {
+        int[] indices = new int[16];
+        int   size;
+
+        void add(int index) {
+            if (size == indices.length)
+                indices = Arrays.copyOf(indices, 2 * size);
+            indices[size++] = index;
+        }
+
+        int[] sorted() {
+            int[] sorted = Arrays.copyOf(indices, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
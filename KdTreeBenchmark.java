@@ -0,0 +1,144 @@
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Compares answering nearest-neighbour and radius queries over points with a {@link KdTree} against sorting all the
+ * points by their distance from the query point every time, on uniformly random two-dimensional points. The benchmark
+ * reports the time of building the tree, sequentially and in parallel, then the latency of a single query of each kind.
+ * Before measuring, the answers of the tree are checked against brute force, in two and three dimensions, on points
+ * with many duplicate coordinates and equal distances.
+ * <p>
+ * Usage: <code>java KdTreeBenchmark [sizes]</code>; the default size of 10M points needs a heap of about 1 GB.
+ */
+public class KdTreeBenchmark {
+
+    private static final int QUERIES = 1024;
+    private static final int K       = 10;
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "10M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            Random random = new Random(216);
+            double[] coordinates = new double[2 * n];
+            for (int i = 0; i < coordinates.length; i++)
+                coordinates[i] = random.nextDouble() * 1000;
+            PointArray<TwoDPoint> points = PointArray.twoD(coordinates);
+            double[] queries = new double[2 * QUERIES];
+            for (int i = 0; i < queries.length; i++)
+                queries[i] = random.nextDouble() * 1000;
+            // a radius holding about a hundred points on average
+            double r = 1000 * Math.sqrt(100 / (Math.PI * n));
+
+            System.out.println(Bench.measure("build.sequential", n, n, () -> KdTree.of(points).size()));
+            System.out.println(Bench.measure("build.parallel", n, n, () -> KdTree.parallelOf(points).size()));
+            KdTree<TwoDPoint> tree = KdTree.of(points);
+            int[] next = {0};
+            System.out.println(Bench.measure("knn(" + K + ").tree", n, QUERIES, () -> {
+                long sum = 0;
+                for (int q = 0; q < QUERIES; q++)
+                    sum += tree.nearest(queries[2 * q], queries[2 * q + 1], K)[0];
+                return sum;
+            }));
+            System.out.println(Bench.measure("radius.tree", n, QUERIES, () -> {
+                long sum = 0;
+                for (int q = 0; q < QUERIES; q++)
+                    sum += tree.withinRadius(queries[2 * q], queries[2 * q + 1], r).length;
+                return sum;
+            }));
+            System.out.println(Bench.measure("knn(" + K + ").fullSort", n, 1, () -> {
+                int q = next[0]++ % QUERIES;
+                return sortedByDistance(coordinates, queries[2 * q], queries[2 * q + 1])[0];
+            }));
+            System.out.println(Bench.measure("radius.fullSort", n, 1, () -> {
+                int q = next[0]++ % QUERIES;
+                return withinRadiusBySort(coordinates, queries[2 * q], queries[2 * q + 1], r).length;
+            }));
+        }
+    }
+
+    /**
+     * @return the indices of all the points, nearest to (x,y) first, the way a query is answered without an index
+     */
+    private static int[] sortedByDistance(double[] coordinates, double x, double y) {
+        double[] distances = new double[coordinates.length / 2];
+        for (int i = 0; i < distances.length; i++) {
+            double dx = coordinates[2 * i] - x, dy = coordinates[2 * i + 1] - y;
+            distances[i] = dx * dx + dy * dy;
+        }
+        return KeySort.order(distances);
+    }
+
+    private static int[] withinRadiusBySort(double[] coordinates, double x, double y, double r) {
+        int[] order = sortedByDistance(coordinates, x, y);
+        int count = 0;
+        while (count < order.length && squaredDistance(coordinates, 2, order[count], x, y, 0) <= r * r)
+            count++;
+        int[] hits = Arrays.copyOf(order, count);
+        Arrays.sort(hits);
+        return hits;
+    }
+
+    private static double squaredDistance(double[] coordinates, int dimension, int i, double x, double y, double z) {
+        double dx = coordinates[dimension * i] - x, dy = coordinates[dimension * i + 1] - y;
+        double dz = dimension == 3 ? coordinates[dimension * i + 2] - z : 0;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Checks every kind of query against brute force, for trees built sequentially and in parallel, in two and three
+     * dimensions, on small integer coordinates so that many points coincide or are equally distant.
+     */
+    private static void check() {
+        Random random = new Random(216);
+        check(2, random);
+        check(3, random);
+        KdTree<TwoDPoint> empty = KdTree.of(PointArray.twoD(new double[0]));
+        if (empty.nearest(0, 0, 3).length != 0 || empty.withinRadius(0, 0, 1).length != 0)
+            throw new AssertionError("an empty tree finds points");
+        try {
+            KdTree.of(PointArray.twoD(new double[]{0, Double.NaN}));
+            throw new AssertionError("a NaN coordinate is accepted");
+        } catch (IllegalArgumentException expected) {
+            // rejected as expected
+        }
+    }
+
+    private static void check(int dimension, Random random) {
+        int n = 3 * KdTree.PARALLEL_CUTOFF + 17;
+        double[] coordinates = new double[dimension * n];
+        for (int i = 0; i < coordinates.length; i++)
+            coordinates[i] = random.nextInt(200) - 100;
+        KdTree<?> sequential = dimension == 2 ? KdTree.of(PointArray.twoD(coordinates))
+                                              : KdTree.of(PointArray.threeD(coordinates));
+        KdTree<?> parallel = dimension == 2 ? KdTree.parallelOf(PointArray.twoD(coordinates))
+                                            : KdTree.parallelOf(PointArray.threeD(coordinates));
+        for (int q = 0; q < 200; q++) {
+            double x = random.nextInt(240) - 120 + random.nextInt(2) * 0.5, y = random.nextInt(240) - 120,
+                   z = random.nextInt(240) - 120, r = random.nextInt(12);
+            int k = q < 5 ? q : random.nextInt(300);
+            double[] distances = new double[n];
+            for (int i = 0; i < n; i++)
+                distances[i] = squaredDistance(coordinates, dimension, i, x, y, z);
+            int[] expectedNearest = Arrays.copyOf(KeySort.order(distances), k);
+            int[] expectedRadius = IntStream.range(0, n).filter(i -> distances[i] <= r * r).toArray();
+            BoundingBox box = new BoundingBox(x - r, y - 2 * r, x + 2 * r, y + r);
+            int[] expectedBox = IntStream.range(0, n).filter(i -> box.contains(coordinates[dimension * i],
+                                                                                coordinates[dimension * i + 1]))
+                                         .toArray();
+            for (KdTree<?> tree : Arrays.asList(sequential, parallel)) {
+                int[] nearest = dimension == 2 ? tree.nearest(x, y, k) : tree.nearest(x, y, z, k);
+                int[] radius = dimension == 2 ? tree.withinRadius(x, y, r) : tree.withinRadius(x, y, z, r);
+                if (!Arrays.equals(nearest, expectedNearest))
+                    throw new AssertionError("the " + k + " nearest points differ in " + dimension + "D");
+                if (!Arrays.equals(radius, expectedRadius))
+                    throw new AssertionError("the points within " + r + " differ in " + dimension + "D");
+                if (!Arrays.equals(tree.within(box), expectedBox))
+                    throw new AssertionError("the points within " + box + " differ in " + dimension + "D");
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Stable sorting of lists on primitive <code>double</code> keys. Every key is extracted exactly once into a
+ * <code>double[]</code>, the indices of the elements are sorted on these keys with a least-significant-digit radix
+ * sort, and the list is then permuted according to the sorted indices. Keys are ordered as per
+ * {@link Double#compare(double, double)}, so the result is the same as that of a stable comparison sort with a
+ * comparator of the form <code>Double.compare(key(o1), key(o2))</code>.
+ */
+final class KeySort {
+
+    /**
+     * Below this many elements, an insertion sort on the indices is faster than the radix passes.
+     */
+    private static final int INSERTION_SORT_THRESHOLD = 64;
+
+    private static final int DIGIT_BITS = 16;
+    private static final int RADIX      = 1 << DIGIT_BITS;
+
+    private KeySort() {}
+
+    /**
+     * Sorts the specified list in increasing order of the specified key, keeping equal elements in their original
+     * relative order.
+     *
+     * @param list the list to sort.
+     * @param key  the function extracting the key of an element; called exactly once per element.
+     */
+    static <T> void sort(List<T> list, ToDoubleFunction<? super T> key) {
+        int n = list.size();
+        if (n < 2)
+            return;
+        Object[] elements = list.toArray();
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked") T t = (T) elements[i];
+            keys[i] = key.applyAsDouble(t);
+        }
+        permute(list, elements, order(keys));
+    }
+
+    /**
+     * Returns the indices of the specified keys in increasing order of their keys. Equal keys keep their original
+     * relative order.
+     *
+     * @param keys the keys to sort; not modified.
+     * @return the sorted permutation of <code>0, 1, ..., keys.length - 1</code>.
+     */
+    static int[] order(double[] keys) {
+        int n = keys.length;
+        long[] bits = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            bits[i] = sortableBits(keys[i]);
+            order[i] = i;
+        }
+        if (n < INSERTION_SORT_THRESHOLD)
+            insertionSort(bits, order, 0, n);
+        else
+            radixSort(bits, order);
+        return order;
+    }
+
+    /**
+     * Sorts <code>order[from, to)</code> together with <code>bits[from, to)</code> in increasing order of the bits,
+     * keeping equal bits in their original relative order.
+     */
+    static void sortRange(long[] bits, int[] order, int from, int to) {
+        int n = to - from;
+        if (n < INSERTION_SORT_THRESHOLD) {
+            insertionSort(bits, order, from, to);
+            return;
+        }
+        if (from == 0 && to == bits.length) {
+            radixSort(bits, order);
+            return;
+        }
+        long[] b = Arrays.copyOfRange(bits, from, to);
+        int[] o = Arrays.copyOfRange(order, from, to);
+        radixSort(b, o);
+        System.arraycopy(b, 0, bits, from, n);
+        System.arraycopy(o, 0, order, from, n);
+    }
+
+    /**
+     * Maps a double to a long such that comparing two such longs as signed values agrees with
+     * {@link Double#compare(double, double)} on the original doubles.
+     */
+    static long sortableBits(double d) {
+        long bits = Double.doubleToLongBits(d);
+        return bits ^ ((bits >> 63) & Long.MAX_VALUE);
+    }
+
+    /**
+     * Sorts <code>order[from, to)</code> together with <code>bits[from, to)</code> in increasing order of the bits.
+     */
+    static void insertionSort(long[] bits, int[] order, int from, int to) {
+        for (int i = from + 1; i < to; i++) {
+            long b = bits[i];
+            int o = order[i];
+            int j = i - 1;
+            while (j >= from && bits[j] > b) {
+                bits[j + 1] = bits[j];
+                order[j + 1] = order[j];
+                j--;
+            }
+            bits[j + 1] = b;
+            order[j + 1] = o;
+        }
+    }
+
+    /**
+     * Sorts <code>order</code> together with <code>bits</code> in increasing order of the bits, one 16-bit digit at a
+     * time starting with the least significant one. Passes where every key has the same digit are skipped.
+     */
+    static void radixSort(long[] bits, int[] order) {
+        int n = bits.length;
+        long[] srcBits = bits, dstBits = new long[n];
+        int[] srcOrder = order, dstOrder = new int[n];
+        int[] counts = new int[RADIX];
+        for (int shift = 0; shift < Long.SIZE; shift += DIGIT_BITS) {
+            Arrays.fill(counts, 0);
+            for (int i = 0; i < n; i++)
+                counts[digit(srcBits[i], shift)]++;
+            if (counts[digit(srcBits[0], shift)] == n)
+                continue;
+            for (int d = 0, total = 0; d < RADIX; d++) {
+                int c = counts[d];
+                counts[d] = total;
+                total += c;
+            }
+            for (int i = 0; i < n; i++) {
+                int pos = counts[digit(srcBits[i], shift)]++;
+                dstBits[pos] = srcBits[i];
+                dstOrder[pos] = srcOrder[i];
+            }
+            long[] b = srcBits;
+            srcBits = dstBits;
+            dstBits = b;
+            int[] o = srcOrder;
+            srcOrder = dstOrder;
+            dstOrder = o;
+        }
+        if (srcOrder != order) {
+            System.arraycopy(srcBits, 0, bits, 0, n);
+            System.arraycopy(srcOrder, 0, order, 0, n);
+        }
+    }
+
+    private static int digit(long bits, int shift) {
+        // flipping the sign bit turns the signed order of the keys into an unsigned one
+        return (int) (((bits ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1));
+    }
+
+    /**
+     * Rearranges the specified list so that its <code>i</code>-th element becomes <code>elements[order[i]]</code>.
+     */
+    static <T> void permute(List<T> list, Object[] elements, int[] order) {
+        ListIterator<T> it = list.listIterator();
+        for (int i : order) {
+            it.next();
+            @SuppressWarnings("unchecked") T t = (T) elements[i];
+            it.set(t);
+        }
+    }
+}
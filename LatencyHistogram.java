@@ -0,0 +1,100 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds with a fixed relative precision, in the manner of HdrHistogram: values below
+ * 2<sup>7</sup> have a bucket of their own, and every larger power of two is split into 2<sup>7</sup> buckets of equal
+ * width, so a recorded value is known to within 1/128 (0.8%) of itself over the whole range of <code>long</code>.
+ * Recording is a single atomic increment and never allocates, so it is safe and cheap to record from any number of
+ * threads; the counts are read one bucket at a time by {@link #counts()}, which is consistent enough for monitoring.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BITS    = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int SUB_MASK    = SUB_BUCKETS - 1;
+
+    /**
+     * The number of buckets, enough for every non-negative <code>long</code>.
+     */
+    static final int BUCKETS = (64 - SUB_BITS) << SUB_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    /**
+     * Records a value; negative values, such as those of a clock that went backwards, are recorded as zero.
+     */
+    void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(nanos, 0)));
+    }
+
+    /**
+     * @return a copy of the count of every bucket
+     */
+    long[] counts() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = counts.get(i);
+        return copy;
+    }
+
+    /**
+     * @return the index of the bucket of the specified non-negative value
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) | (int) ((value >>> (exponent - SUB_BITS)) & SUB_MASK);
+    }
+
+    /**
+     * @return the least value of the specified bucket
+     */
+    static long lowestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >>> SUB_BITS) - 1;
+        return (long) (SUB_BUCKETS | (bucket & SUB_MASK)) << shift;
+    }
+
+    /**
+     * @return the greatest value of the specified bucket, which is what percentiles report, as HdrHistogram does
+     */
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = (bucket >>> SUB_BITS) - 1;
+        return lowestValue(bucket) + (1L << shift) - 1;
+    }
+
+    /**
+     * @param counts the counts of a histogram, as per {@link #counts()}.
+     * @param p      the percentile, between 0 and 1.
+     * @return the greatest value of the bucket holding the value at the specified percentile, or zero if no value was
+     * recorded
+     */
+    static long percentile(long[] counts, double p) {
+        long total = 0;
+        for (long c : counts)
+            total += c;
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p * total)), seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank)
+                return highestValue(i);
+        }
+        return highestValue(counts.length - 1);
+    }
+
+    /**
+     * @return the greatest value of the highest non-empty bucket, or zero if no value was recorded
+     */
+    static long max(long[] counts) {
+        for (int i = counts.length - 1; i >= 0; i--)
+            if (counts[i] != 0)
+                return highestValue(i);
+        return 0;
+    }
+}
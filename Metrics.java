@@ -0,0 +1,323 @@
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * Opt-in counters and timers of the hot operations on shapes: the area, perimeter, comparisons and changes of
+ * position of two-dimensional shapes, the comparators, key sorts and <code>copy</code> of {@link Ordering}, and
+ * printing through a printer returned by {@link #metered(AbstractPrinter)}.
+ * <p>
+ * Metrics are off unless the JVM is started with <code>-Dshapes.metrics=true</code>. Every instrumented call site is
+ * guarded by <code>if (Metrics.ENABLED)</code>, and since {@link #ENABLED} is a <code>static final</code> constant, the
+ * JIT compiles the guarded code away entirely when metrics are off: the instrumented methods then run the same machine
+ * code as before they were instrumented, which {@code MetricsBenchmark} demonstrates.
+ * <p>
+ * When metrics are on, counters are {@link LongAdder}s and timers record into a {@link LatencyHistogram}, so neither
+ * allocates nor contends much across threads. The metrics can be read as a {@link Snapshot}, either at once with
+ * {@link #snapshot()} or periodically with {@link #report(long, TimeUnit, Consumer)}, and are also exported to Java
+ * Flight Recorder: a <code>shapes.Metric</code> event per metric every second, and, if enabled in the recording
+ * settings, a <code>shapes.Operation</code> event per timed operation.
+ */
+public final class Metrics {
+
+    /**
+     * Whether metrics are recorded, as per the system property <code>shapes.metrics</code>.
+     */
+    public static final boolean ENABLED = Boolean.getBoolean("shapes.metrics");
+
+    private static final Map<String, Counter> COUNTERS = new LinkedHashMap<>();
+    private static final Map<String, Timer>   TIMERS   = new LinkedHashMap<>();
+
+    static final Counter AREA         = counter("shape.area");
+    static final Counter PERIMETER    = counter("shape.perimeter");
+    static final Counter COMPARE_TO   = counter("shape.compareTo");
+    static final Counter SET_POSITION = counter("shape.setPosition");
+    static final Counter COMPARE      = counter("ordering.compare");
+
+    static final Timer SORT  = timer("ordering.sort");
+    static final Timer COPY  = timer("ordering.copy");
+    static final Timer PRINT = timer("printer.print");
+
+    static {
+        if (ENABLED)
+            FlightRecorder.addPeriodicEvent(MetricEvent.class, Metrics::emitMetricEvents);
+    }
+
+    private Metrics() {}
+
+    private static Counter counter(String name) {
+        Counter counter = new Counter(name);
+        COUNTERS.put(name, counter);
+        return counter;
+    }
+
+    private static Timer timer(String name) {
+        Timer timer = new Timer(name);
+        TIMERS.put(name, timer);
+        return timer;
+    }
+
+    /**
+     * A count of calls.
+     */
+    static final class Counter {
+        final String name;
+        private final LongAdder count = new LongAdder();
+
+        private Counter(String name) {this.name = name;}
+
+        void increment() {count.increment();}
+
+        long get() {return count.sum();}
+    }
+
+    /**
+     * A count of calls, of the elements they processed, and a histogram of their latencies.
+     */
+    static final class Timer {
+        final String name;
+        private final LongAdder        calls     = new LongAdder();
+        private final LongAdder        elements  = new LongAdder();
+        private final LongAdder        nanos     = new LongAdder();
+        private final LatencyHistogram histogram = new LatencyHistogram();
+
+        private Timer(String name) {this.name = name;}
+
+        /**
+         * Records a call that started at the specified value of {@link System#nanoTime()} and ends now.
+         *
+         * @param start    the value of {@link System#nanoTime()} when the call started.
+         * @param elements the number of elements processed by the call, such as the size of a sorted list.
+         */
+        void record(long start, long elements) {
+            long elapsed = System.nanoTime() - start;
+            calls.increment();
+            this.elements.add(elements);
+            nanos.add(elapsed);
+            histogram.record(elapsed);
+            OperationEvent event = new OperationEvent();
+            if (event.isEnabled()) {
+                event.operation = name;
+                event.elements = elements;
+                event.nanos = elapsed;
+                event.commit();
+            }
+        }
+
+        private TimerSnapshot snapshot() {
+            return new TimerSnapshot(calls.sum(), elements.sum(), nanos.sum(), histogram.counts());
+        }
+    }
+
+    /**
+     * The calls, elements, total time and latency histogram of a timer at some point in time, or over an interval.
+     */
+    static final class TimerSnapshot {
+        final long calls;
+        final long elements;
+        final long nanos;
+        private final long[] counts;
+
+        private TimerSnapshot(long calls, long elements, long nanos, long[] counts) {
+            this.calls = calls;
+            this.elements = elements;
+            this.nanos = nanos;
+            this.counts = counts;
+        }
+
+        /**
+         * @return the latency at the specified percentile, between 0 and 1, in nanoseconds, to within 0.8%
+         */
+        long percentile(double p) {return LatencyHistogram.percentile(counts, p);}
+
+        /**
+         * @return the greatest latency, in nanoseconds, to within 0.8%
+         */
+        long max() {return LatencyHistogram.max(counts);}
+
+        private TimerSnapshot since(TimerSnapshot earlier) {
+            long[] delta = new long[counts.length];
+            for (int i = 0; i < delta.length; i++)
+                delta[i] = counts[i] - earlier.counts[i];
+            return new TimerSnapshot(calls - earlier.calls, elements - earlier.elements, nanos - earlier.nanos, delta);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls %10d  elements %12d  mean %10.2f  p50 %10.2f  p99 %10.2f  p99.9 %10.2f  "
+                                 + "max %10.2f us", calls, elements, calls == 0 ? 0 : nanos / 1e3 / calls,
+                                 percentile(0.5) / 1e3, percentile(0.99) / 1e3, percentile(0.999) / 1e3, max() / 1e3);
+        }
+    }
+
+    /**
+     * The values of every counter and timer, in the order they were declared, since the start of the JVM or over an
+     * interval between two snapshots.
+     */
+    static final class Snapshot {
+        final Map<String, Long>          counters;
+        final Map<String, TimerSnapshot> timers;
+
+        private Snapshot(Map<String, Long> counters, Map<String, TimerSnapshot> timers) {
+            this.counters = Collections.unmodifiableMap(counters);
+            this.timers = Collections.unmodifiableMap(timers);
+        }
+
+        /**
+         * @return the metrics between the specified earlier snapshot and this one
+         */
+        Snapshot since(Snapshot earlier) {
+            Map<String, Long> counters = new LinkedHashMap<>();
+            this.counters.forEach((name, count) -> counters.put(name, count - earlier.counters.get(name)));
+            Map<String, TimerSnapshot> timers = new LinkedHashMap<>();
+            this.timers.forEach((name, timer) -> timers.put(name, timer.since(earlier.timers.get(name))));
+            return new Snapshot(counters, timers);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder s = new StringBuilder();
+            counters.forEach((name, count) -> s.append(String.format("%-20s %12d%n", name, count)));
+            timers.forEach((name, timer) -> s.append(String.format("%-20s %s%n", name, timer)));
+            return s.toString();
+        }
+    }
+
+    /**
+     * @return the current value of every metric, all zeros if metrics are off
+     */
+    static Snapshot snapshot() {
+        Map<String, Long> counters = new LinkedHashMap<>();
+        COUNTERS.forEach((name, counter) -> counters.put(name, counter.get()));
+        Map<String, TimerSnapshot> timers = new LinkedHashMap<>();
+        TIMERS.forEach((name, timer) -> timers.put(name, timer.snapshot()));
+        return new Snapshot(counters, timers);
+    }
+
+    /**
+     * Passes the metrics of every interval of the specified period to the specified consumer, from a daemon thread
+     * shared by all reports, until the returned future is cancelled.
+     *
+     * @throws IllegalArgumentException if the period is not positive.
+     */
+    static ScheduledFuture<?> report(long period, TimeUnit unit, Consumer<? super Snapshot> sink) {
+        if (period <= 0)
+            throw new IllegalArgumentException("Error: The period of a report must be positive.");
+        Snapshot[] last = {snapshot()};
+        return Reporter.EXECUTOR.scheduleAtFixedRate(() -> {
+            Snapshot current = snapshot();
+            sink.accept(current.since(last[0]));
+            last[0] = current;
+        }, period, period, unit);
+    }
+
+    private static final class Reporter {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "shapes-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return a printer recording every call of the specified printer with {@link #PRINT}, or the specified printer
+     * itself if metrics are off
+     */
+    static <T> AbstractPrinter<T> metered(AbstractPrinter<T> printer) {
+        return ENABLED ? new MeteredPrinter<>(printer) : printer;
+    }
+
+    private static final class MeteredPrinter<T> extends AbstractPrinter<T> {
+        private final AbstractPrinter<T> printer;
+
+        MeteredPrinter(AbstractPrinter<T> printer) {this.printer = printer;}
+
+        @Override
+        void print(T t) {
+            long start = System.nanoTime();
+            printer.print(t);
+            PRINT.record(start, 1);
+        }
+    }
+
+    private static void emitMetricEvents() {
+        Snapshot snapshot = snapshot();
+        snapshot.counters.forEach((name, count) -> {
+            MetricEvent event = new MetricEvent();
+            event.metric = name;
+            event.count = count;
+            event.commit();
+        });
+        snapshot.timers.forEach((name, timer) -> {
+            MetricEvent event = new MetricEvent();
+            event.metric = name;
+            event.count = timer.calls;
+            event.elements = timer.elements;
+            event.p50 = timer.percentile(0.5);
+            event.p99 = timer.percentile(0.99);
+            event.max = timer.max();
+            event.commit();
+        });
+    }
+
+    @Name("shapes.Metric")
+    @Label("Shape Metric")
+    @Category("Shapes")
+    @Description("The value of a counter or timer of shape operations since the start of the JVM")
+    @Period("1 s")
+    static final class MetricEvent extends Event {
+        @Label("Metric")
+        String metric;
+
+        @Label("Count")
+        long count;
+
+        @Label("Elements")
+        long elements;
+
+        @Label("50th Percentile")
+        @Timespan
+        long p50;
+
+        @Label("99th Percentile")
+        @Timespan
+        long p99;
+
+        @Label("Maximum")
+        @Timespan
+        long max;
+    }
+
+    @Name("shapes.Operation")
+    @Label("Shape Operation")
+    @Category("Shapes")
+    @Description("A timed operation on shapes, such as a sort or a print")
+    @Enabled(false)
+    static final class OperationEvent extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Elements")
+        long elements;
+
+        @Label("Latency")
+        @Timespan
+        long nanos;
+    }
+}
@@ -0,0 +1,170 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the {@link Metrics} instrumentation on the instrumented operations: the area and the natural
+ * order of shapes, sorting with a comparator and with a key sort, setting positions, <code>copy</code>, and printing
+ * through {@link Metrics#metered(AbstractPrinter)}. The operations are measured first with metrics off, in this JVM,
+ * then with metrics on, in a second JVM started with <code>-Dshapes.metrics=true</code> and the same options, since
+ * {@link Metrics#ENABLED} is fixed for the life of a JVM. With metrics off, the area of circles is also computed
+ * inline from their radius, which is the code <code>Circle.area()</code> ran before it was instrumented: the two rows
+ * should not differ by more than the noise of the measurement. The run with metrics on ends with a snapshot of the
+ * metrics it recorded.
+ * <p>
+ * Before measuring, the histogram buckets are checked to hold every value to within their precision, and the counters,
+ * timers and periodic reports are checked to count exactly the operations done, or nothing when metrics are off.
+ * <p>
+ * Usage: <code>java MetricsBenchmark [sizes]</code>.
+ */
+public class MetricsBenchmark {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "100k");
+        check();
+
+        String mode = Metrics.ENABLED ? ".on" : ".off";
+        if (!Metrics.ENABLED)
+            System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+            List<Circle> circles = new ArrayList<>(n);
+            for (int i = 0; i < n; i++)
+                circles.add(new Circle(i % 100, i % 37, 1 + i % 10));
+            if (!Metrics.ENABLED) {
+                System.out.println(Bench.measure("circle.area.inline" + mode, n, n, () -> {
+                    double sum = 0;
+                    for (Circle c : circles)
+                        sum += Math.PI * (c.getRadius() * c.getRadius());
+                    return Double.doubleToLongBits(sum);
+                }));
+            }
+            System.out.println(Bench.measure("circle.area" + mode, n, n, () -> {
+                double sum = 0;
+                for (Circle c : circles)
+                    sum += c.area();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("shape.area" + mode, n, n, () -> {
+                double sum = 0;
+                for (TwoDShape s : shapes)
+                    sum += s.area();
+                return Double.doubleToLongBits(sum);
+            }));
+
+            List<TwoDShape> work = new ArrayList<>(n);
+            Runnable reset = () -> {
+                work.clear();
+                work.addAll(shapes);
+            };
+            System.out.println(Bench.measure("sort.compareTo" + mode, n, n, reset, () -> {
+                Collections.sort(work);
+                return work.size();
+            }));
+            System.out.println(Bench.measure("sort.XLocationShapeComparator" + mode, n, n, reset, () -> {
+                work.sort(new Ordering.XLocationShapeComparator());
+                return work.size();
+            }));
+            System.out.println(Bench.measure("sort.sortByArea" + mode, n, n, reset, () -> {
+                Ordering.sortByArea(work);
+                return work.size();
+            }));
+
+            List<List<? extends Point>> positions = new ArrayList<>(n);
+            for (TwoDShape s : shapes)
+                positions.add(new ArrayList<>(((Positionable) s).getPosition()));
+            System.out.println(Bench.measure("setPosition" + mode, n, n, () -> {
+                for (int i = 0; i < n; i++)
+                    ((Positionable) shapes.get(i)).setPosition(positions.get(i));
+                return n;
+            }));
+            System.out.println(Bench.measure("copy" + mode, n, n, work::clear, () -> {
+                Ordering.copy(shapes, work);
+                return work.size();
+            }));
+            System.out.println(Bench.measure("print" + mode, n, n, () -> {
+                BufferedPrinter<TwoDShape> buffered = new BufferedPrinter<>(Writer.nullWriter());
+                AbstractPrinter<TwoDShape> printer = Metrics.metered(buffered);
+                for (TwoDShape s : shapes)
+                    printer.print(s);
+                buffered.flush();
+                return buffered.printed();
+            }));
+        }
+
+        if (Metrics.ENABLED) {
+            System.out.println();
+            System.out.print(Metrics.snapshot());
+        } else {
+            List<String> command = new ArrayList<>();
+            command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+            command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+            command.addAll(Arrays.asList("-Dshapes.metrics=true", "-cp", System.getProperty("java.class.path"),
+                                         MetricsBenchmark.class.getName()));
+            command.addAll(Arrays.asList(args));
+            int status = new ProcessBuilder(command).inheritIO().start().waitFor();
+            if (status != 0)
+                throw new IllegalStateException("Error: The run with metrics on exited with status " + status + ".");
+        }
+    }
+
+    private static void check() throws InterruptedException {
+        Random random = new Random(216);
+        for (int i = 0; i < 1_000_000; i++) {
+            long v = i < 10_000 ? i : random.nextLong() >>> (1 + random.nextInt(63));
+            int bucket = LatencyHistogram.bucket(v);
+            long low = LatencyHistogram.lowestValue(bucket), high = LatencyHistogram.highestValue(bucket);
+            if (bucket < 0 || bucket >= LatencyHistogram.BUCKETS || v < low || v > high || high - low > v / 128)
+                throw new AssertionError(v + " is in the bucket [" + low + ", " + high + "]");
+        }
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int v = 1; v <= 100_000; v++)
+            histogram.record(v);
+        long[] counts = histogram.counts();
+        long p50 = LatencyHistogram.percentile(counts, 0.5), p99 = LatencyHistogram.percentile(counts, 0.99);
+        if (p50 < 50_000 || p50 > 50_000 * 1.008 || p99 < 99_000 || p99 > 99_000 * 1.008
+                || LatencyHistogram.max(counts) < 100_000 || LatencyHistogram.max(counts) > 100_000 * 1.008)
+            throw new AssertionError("the percentiles of 1 to 100000 are " + p50 + " and " + p99);
+
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(3, random);
+        long expected = Metrics.ENABLED ? 1 : 0;
+        Metrics.Snapshot before = Metrics.snapshot();
+        Collections.sort(shapes);
+        shapes.sort(new Ordering.XLocationShapeComparator());
+        Ordering.sortByArea(shapes);
+        Ordering.copy(shapes, new ArrayList<>());
+        Circle circle = (Circle) shapes.stream().filter(s -> s instanceof Circle).findFirst().orElseThrow();
+        circle.setPosition(circle.getPosition());
+        BufferedPrinter<TwoDShape> buffered = new BufferedPrinter<>(Writer.nullWriter());
+        Metrics.metered(buffered).print(circle);
+        Metrics.Snapshot delta = Metrics.snapshot().since(before);
+        if (delta.counters.get("shape.compareTo") < 2 * expected || delta.counters.get("shape.area") < 3 * expected
+                || delta.counters.get("ordering.compare") < 2 * expected
+                || delta.counters.get("shape.setPosition") != expected
+                || delta.timers.get("ordering.sort").calls != expected
+                || delta.timers.get("ordering.sort").elements != 3 * expected
+                || delta.timers.get("ordering.copy").elements != 3 * expected
+                || delta.timers.get("printer.print").calls != expected || buffered.printed() != 1)
+            throw new AssertionError("the metrics of a few operations are" + System.lineSeparator() + delta);
+        if (!Metrics.ENABLED && !delta.toString().equals(Metrics.snapshot().since(Metrics.snapshot()).toString()))
+            throw new AssertionError("metrics were recorded while off");
+
+        BlockingQueue<Metrics.Snapshot> reports = new ArrayBlockingQueue<>(100);
+        ScheduledFuture<?> report = Metrics.report(20, TimeUnit.MILLISECONDS, reports::offer);
+        circle.setPosition(circle.getPosition());
+        Metrics.Snapshot first = reports.take(), second = reports.take();
+        report.cancel(false);
+        if (first.counters.get("shape.setPosition") != expected || second.counters.get("shape.setPosition") != 0)
+            throw new AssertionError("the periodic reports are" + System.lineSeparator() + first + second);
+    }
+}
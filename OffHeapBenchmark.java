@@ -0,0 +1,166 @@
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Compares keeping shapes on the heap, as objects or in a {@link ShapeStore}, with keeping them off the heap in an
+ * {@link OffHeapShapeStore}. For each representation, the shapes are built, then the benchmark reports the heap and
+ * direct memory retained, the time of full collections while the shapes are alive (which grows with the number of
+ * objects the collector has to trace), the collections caused by churning short-lived garbage, and the time of
+ * scanning the shapes for their total area.
+ * <p>
+ * Usage: <code>java -Xms1g -Xmx1g -XX:MaxDirectMemorySize=4g OffHeapBenchmark [shapes]</code>. A fixed heap size keeps
+ * the collections caused by churning comparable between representations; direct memory is limited to the
+ * maximum heap size by default.
+ */
+public class OffHeapBenchmark {
+
+    private static final int  FULL_COLLECTIONS = 5;
+    private static final long CHURN_BYTES      = 4L << 30;
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 2_000_000;
+        check();
+
+        System.out.printf("%-12s %10s %12s %12s %12s %10s %10s %12s%n", "storage", "shapes", "heap MB", "direct MB",
+                          "full gc ms", "churn gc", "churn ms", "area ns/op");
+        objects(n);
+        onHeap(n);
+        offHeap(n);
+    }
+
+    private static void objects(int n) {
+        List<TwoDShape> objects = ParallelOrdering.randomShapes(n, new Random(216));
+        report("objects", n, objects, () -> {
+            double sum = 0;
+            for (TwoDShape s : objects)
+                sum += s.area();
+            return Double.doubleToLongBits(sum);
+        });
+    }
+
+    private static void onHeap(int n) {
+        ShapeStore store = ParallelOrdering.randomShapes(n, new Random(216)).stream()
+                                           .collect(() -> new ShapeStore(n), ShapeStore::add, ShapeStore::addAll);
+        report("ShapeStore", n, store, () -> {
+            double sum = 0;
+            for (int i = 0; i < n; i++)
+                sum += store.area(i);
+            return Double.doubleToLongBits(sum);
+        });
+    }
+
+    private static void offHeap(int n) {
+        try (OffHeapShapeStore store = new OffHeapShapeStore()) {
+            store.addAll(ParallelOrdering.randomShapes(n, new Random(216)));
+            report("OffHeap", n, store, () -> Double.doubleToLongBits(store.totalArea()));
+        }
+    }
+
+    /**
+     * Measures the memory and collections of the specified representation of the shapes while it is alive.
+     *
+     * @param shapes the representation, only kept to keep it reachable until the measures are done.
+     * @param scan   a scan of the shapes for their total area.
+     */
+    private static void report(String name, int n, Object shapes, LongSupplier scan) {
+        System.gc();
+        long heap = usedHeap();
+        long direct = directMemory();
+
+        long fullGcNanos = 0;
+        for (int k = 0; k < FULL_COLLECTIONS; k++) {
+            long start = System.nanoTime();
+            System.gc();
+            fullGcNanos += System.nanoTime() - start;
+        }
+
+        long gcCount = Bench.gcCount(), gcMillis = Bench.gcMillis();
+        byte[][] recent = new byte[1 << 10][];
+        for (int k = 0; (long) k << 10 < CHURN_BYTES; k++)
+            recent[k & (recent.length - 1)] = new byte[1 << 10];
+        Bench.sink += recent[0].length;
+        gcCount = Bench.gcCount() - gcCount;
+        gcMillis = Bench.gcMillis() - gcMillis;
+
+        Bench.Result area = Bench.measure(name, n, n, scan);
+        System.out.printf("%-12s %10d %12.1f %12.1f %12.1f %10d %10d %12.2f%n", name, n, heap / 1e6, direct / 1e6,
+                          fullGcNanos / 1e6 / FULL_COLLECTIONS, gcCount, gcMillis, area.nsPerOp);
+        Bench.sink += shapes.hashCode();
+    }
+
+    private static long usedHeap() {
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long directMemory() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class))
+            if (pool.getName().equals("direct"))
+                return pool.getMemoryUsed();
+        return 0;
+    }
+
+    /**
+     * Checks that an off-heap store answers the same as a {@link ShapeStore} holding the same shapes, that it copies
+     * shapes and points back to the heap unchanged, that it writes a valid shape file, and that it cannot be used once
+     * closed.
+     */
+    private static void check() throws IOException {
+        Random random = new Random(216);
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(200_000, random);
+        // shapes whose vertices are out of order, which must not be sorted again when copied back
+        for (int i = 0; i < shapes.size(); i += 50) {
+            List<TwoDPoint> vertices = new ArrayList<>();
+            for (int k = 0; k < 4; k++)
+                vertices.add(new TwoDPoint(random.nextInt(2000) / 100.0, random.nextInt(2000) / 100.0));
+            shapes.set(i, i % 100 == 0 ? new Triangle(vertices) : new Quadrilateral(vertices));
+        }
+        ShapeStore store = new ShapeStore();
+        shapes.forEach(store::add);
+        OffHeapShapeStore offHeap = new OffHeapShapeStore();
+        offHeap.addAll(shapes);
+        offHeap.addAll(PointArray.twoD(new double[]{1.5, -2.5}));
+        offHeap.add(new ThreeDPoint(1, 2, 3));
+        for (int i = 0; i < shapes.size(); i++) {
+            if (offHeap.area(i) != store.area(i) || offHeap.perimeter(i) != store.perimeter(i)
+                    || offHeap.leastX(i) != store.leastX(i) || !offHeap.boundingBox(i).equals(store.boundingBox(i)))
+                throw new AssertionError("shape " + i + " differs from the on-heap one");
+            if (!offHeap.toShape(i).toString().equals(shapes.get(i).toString()))
+                throw new AssertionError("shape " + i + " is not copied back unchanged");
+        }
+        Point p = offHeap.point(shapes.size()), q = offHeap.point(shapes.size() + 1);
+        if (!(p instanceof TwoDPoint) || ((TwoDPoint) p).getY() != -2.5 || ((ThreeDPoint) q).getZ() != 3)
+            throw new AssertionError("the points differ from the ones added");
+        double total = 0;
+        for (TwoDShape s : offHeap.toStore().asList())
+            total += s.area();
+        if (offHeap.totalArea() != total)
+            throw new AssertionError("the total area differs");
+
+        Path path = Files.createTempFile("shapes", ".bin");
+        try {
+            offHeap.writeTo(path);
+            try (ShapeFile file = ShapeFile.open(path)) {
+                if (file.size() != offHeap.size() || file.area(7) != offHeap.area(7)
+                        || file.point(shapes.size() + 1).coordinates()[2] != 3)
+                    throw new AssertionError("the written file differs from the store");
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        offHeap.close();
+        try {
+            offHeap.area(0);
+            throw new AssertionError("a closed store can still be read");
+        } catch (IllegalStateException expected) {
+            // closed as expected
+        }
+    }
+}
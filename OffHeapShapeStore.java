@@ -0,0 +1,415 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A growable store of shapes and points kept outside of the Java heap, in direct buffers, so that hundreds of millions
+ * of vertices add nothing for the garbage collector to trace or copy. Every shape or point is a record of the binary
+ * shape file format described in {@link ShapeFile}, which makes {@link #writeTo(Path)} a plain copy of the buffers.
+ * <p>
+ * The area, perimeter, least x-value and bounding box of a stored shape are computed straight from its record, as in a
+ * {@link ShapeFile}; objects are only created when a shape or a point is explicitly copied back to the heap, with
+ * {@link #toShape(int)}, {@link #point(int)} or {@link #toStore()}.
+ * <p>
+ * A store must be closed once it is no longer needed. Closing drops the buffers at once, so that their memory is
+ * released at the next collection rather than whenever the store itself becomes unreachable, and any later access
+ * fails with an <code>IllegalStateException</code>. A store is not thread-safe.
+ */
+public class OffHeapShapeStore implements Closeable {
+
+    /**
+     * Records are allocated in chunks of this many records, of about 4.7 MB each.
+     */
+    private static final int CHUNK_SHIFT   = 16;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount;
+    private int size;
+
+    /**
+     * @return the number of records (shapes and points) of this store
+     */
+    public int size() {return size;}
+
+    /**
+     * @return <code>false</code> if and only if this store has been closed
+     */
+    public boolean isOpen() {return chunks != null;}
+
+    /**
+     * @return the number of bytes of direct memory allocated by this store, including unused capacity
+     */
+    public long bytesUsed() {return (long) chunkCount * CHUNK_RECORDS * ShapeFile.RECORD_SIZE;}
+
+    /**
+     * Releases the buffers of this store. Closing a store that is already closed has no effect.
+     */
+    @Override
+    public void close() {
+        chunks = null;
+        chunkCount = 0;
+        size = 0;
+    }
+
+    private ByteBuffer[] chunks() {
+        ByteBuffer[] c = chunks;
+        if (c == null)
+            throw new IllegalStateException("Error: The store is closed.");
+        return c;
+    }
+
+    private ByteBuffer chunk(int i) {
+        ByteBuffer[] c = chunks();
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        return c[i >>> CHUNK_SHIFT];
+    }
+
+    private static int position(int i) {
+        return (i & (CHUNK_RECORDS - 1)) * ShapeFile.RECORD_SIZE;
+    }
+
+    /**
+     * Starts a new record of the specified kind, with all of its values zero.
+     *
+     * @return the position in the current chunk of the new record
+     */
+    private int record(byte kind) {
+        ByteBuffer[] c = chunks();
+        if (size == Integer.MAX_VALUE)
+            throw new IllegalStateException("Error: The store is full.");
+        if (size == chunkCount << CHUNK_SHIFT) {
+            if (chunkCount == c.length)
+                chunks = c = Arrays.copyOf(c, 2 * c.length);
+            c[chunkCount++] = ByteBuffer.allocateDirect(CHUNK_RECORDS * ShapeFile.RECORD_SIZE)
+                                        .order(ByteOrder.LITTLE_ENDIAN);
+        }
+        int p = position(size++);
+        c[chunkCount - 1].put(p, kind);
+        return p;
+    }
+
+    private ByteBuffer last() {return chunks[chunkCount - 1];}
+
+    public int addCircle(double x, double y, double r) {
+        int p = record(ShapeFile.CIRCLE) + 8;
+        last().putDouble(p, x).putDouble(p + 8, y).putDouble(p + 16, r);
+        return size - 1;
+    }
+
+    public int addTriangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+        int p = record(ShapeFile.TRIANGLE) + 8;
+        last().putDouble(p, x1).putDouble(p + 8, y1).putDouble(p + 16, x2).putDouble(p + 24, y2)
+              .putDouble(p + 32, x3).putDouble(p + 40, y3);
+        return size - 1;
+    }
+
+    public int addQuadrilateral(double x1, double y1, double x2, double y2,
+                                 double x3, double y3, double x4, double y4) {
+        int p = record(ShapeFile.QUADRILATERAL) + 8;
+        last().putDouble(p, x1).putDouble(p + 8, y1).putDouble(p + 16, x2).putDouble(p + 24, y2)
+              .putDouble(p + 32, x3).putDouble(p + 40, y3).putDouble(p + 48, x4).putDouble(p + 56, y4);
+        return size - 1;
+    }
+
+    public int addPoint(double x, double y) {
+        int p = record(ShapeFile.POINT_2D) + 8;
+        last().putDouble(p, x).putDouble(p + 8, y);
+        return size - 1;
+    }
+
+    public int addPoint(double x, double y, double z) {
+        int p = record(ShapeFile.POINT_3D) + 8;
+        last().putDouble(p, x).putDouble(p + 8, y).putDouble(p + 16, z);
+        return size - 1;
+    }
+
+    /**
+     * Copies the specified shape into this store, with its vertices in the order given by its
+     * <code>getPosition</code> method.
+     *
+     * @return the index of the shape in this store.
+     * @param shape a {@link Circle}, {@link Triangle} or {@link Quadrilateral}, or a view of a {@link ShapeStore} or
+     *              of a {@link ShapeFile}.
+     * @throws IllegalArgumentException if the shape is not one of the supported kinds.
+     */
+    public int add(TwoDShape shape) {
+        if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            TwoDPoint center = (TwoDPoint) c.getPosition().get(0);
+            addCircle(center.getX(), center.getY(), c.getRadius());
+        } else if (shape instanceof ShapeStore.View) {
+            ShapeStore.View v = (ShapeStore.View) shape;
+            add(v.store(), v.index());
+        } else if (shape instanceof ShapeFile.View) {
+            ShapeFile.View v = (ShapeFile.View) shape;
+            ShapeFile file = v.file();
+            int i = v.index();
+            if (file.kind(i) == ShapeFile.CIRCLE)
+                addCircle(file.x(i, 0), file.y(i, 0), file.radius(i));
+            else
+                addVertices(v.getPosition());
+        } else if (shape instanceof Triangle || shape instanceof Quadrilateral) {
+            addVertices(((Positionable) shape).getPosition());
+        } else {
+            throw new IllegalArgumentException("Error: Only circles, triangles and quadrilaterals can be stored.");
+        }
+        return size - 1;
+    }
+
+    private void addVertices(List<? extends Point> vertices) {
+        int n = vertices.size();
+        int p = record(n == 3 ? ShapeFile.TRIANGLE : ShapeFile.QUADRILATERAL) + 8;
+        ByteBuffer b = last();
+        for (int k = 0; k < n; k++) {
+            TwoDPoint v = (TwoDPoint) vertices.get(k);
+            b.putDouble(p + 16 * k, v.getX()).putDouble(p + 16 * k + 8, v.getY());
+        }
+    }
+
+    /**
+     * Copies the shape at the specified index of the specified on-heap store into this store.
+     */
+    public int add(ShapeStore store, int i) {
+        switch (store.vertexCount(i)) {
+            case 1:
+                return addCircle(store.x(i, 0), store.y(i, 0), store.radius(i));
+            case 3:
+                return addTriangle(store.x(i, 0), store.y(i, 0), store.x(i, 1), store.y(i, 1),
+                                   store.x(i, 2), store.y(i, 2));
+            default:
+                return addQuadrilateral(store.x(i, 0), store.y(i, 0), store.x(i, 1), store.y(i, 1),
+                                        store.x(i, 2), store.y(i, 2), store.x(i, 3), store.y(i, 3));
+        }
+    }
+
+    /**
+     * Copies the specified point into this store.
+     *
+     * @param point a {@link TwoDPoint} or a {@link ThreeDPoint}.
+     * @throws IllegalArgumentException if the point is of another kind.
+     */
+    public int add(Point point) {
+        if (point instanceof TwoDPoint)
+            return addPoint(point.getX(), ((TwoDPoint) point).getY());
+        if (point instanceof ThreeDPoint)
+            return addPoint(point.getX(), ((ThreeDPoint) point).getY(), ((ThreeDPoint) point).getZ());
+        throw new IllegalArgumentException("Error: Only two- and three-dimensional points can be stored.");
+    }
+
+    public void addAll(Iterable<? extends TwoDShape> shapes) {
+        for (TwoDShape s : shapes)
+            add(s);
+    }
+
+    /**
+     * Copies every shape of the specified on-heap store into this store, in order.
+     */
+    public void addAll(ShapeStore store) {
+        for (int i = 0, n = store.size(); i < n; i++)
+            add(store, i);
+    }
+
+    /**
+     * Copies every point of the specified point array into this store, in order, without creating point objects.
+     */
+    public void addAll(PointArray<?> points) {
+        double[] a = points.array();
+        int n = points.size();
+        if (points.dimension() == 2) {
+            for (int i = 0, k = points.offset(); i < n; i++, k += 2)
+                addPoint(a[k], a[k + 1]);
+        } else {
+            for (int i = 0, k = points.offset(); i < n; i++, k += 3)
+                addPoint(a[k], a[k + 1], a[k + 2]);
+        }
+    }
+
+    byte kind(int i) {return ShapeRecord.kind(chunk(i), position(i));}
+
+    private double value(int i, int k) {return ShapeRecord.value(chunk(i), position(i), k);}
+
+    /**
+     * @return <code>true</code> if and only if the record at the specified index is a point rather than a shape
+     */
+    public boolean isPoint(int i) {
+        byte kind = kind(i);
+        return kind == ShapeFile.POINT_2D || kind == ShapeFile.POINT_3D;
+    }
+
+    /**
+     * @return the number of vertices stored for the shape at the specified index (one, the center, for a circle)
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public int vertexCount(int i) {
+        switch (kind(i)) {
+            case ShapeFile.CIRCLE:        return 1;
+            case ShapeFile.TRIANGLE:      return 3;
+            case ShapeFile.QUADRILATERAL: return 4;
+            default:                      throw new IllegalArgumentException("Error: Record " + i + " is not a shape.");
+        }
+    }
+
+    /**
+     * @return the x-value of the specified vertex of the shape at the specified index (of the center, for a circle), or
+     * the x-coordinate of the point at the specified index when the vertex is zero
+     */
+    public double x(int i, int vertex) {return value(i, 2 * vertex);}
+
+    /**
+     * @return the y-value of the specified vertex of the shape at the specified index, as per {@link #x(int, int)}
+     */
+    public double y(int i, int vertex) {return value(i, 2 * vertex + 1);}
+
+    /**
+     * @return the radius of the circle at the specified index, and zero for any other record
+     */
+    public double radius(int i) {return kind(i) == ShapeFile.CIRCLE ? value(i, 2) : 0;}
+
+    /**
+     * @return the area of the shape at the specified index, as computed by the corresponding shape class
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public double area(int i) {return ShapeRecord.area(chunk(i), position(i), i);}
+
+    /**
+     * @return the perimeter of the shape at the specified index, as computed by the corresponding shape class
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public double perimeter(int i) {return ShapeRecord.perimeter(chunk(i), position(i), i);}
+
+    /**
+     * @return the least x-value of the shape at the specified index, as defined by {@link ShapeStore#leastX(int)}, or
+     * the x-coordinate of the point at the specified index
+     */
+    public double leastX(int i) {return ShapeRecord.leastX(chunk(i), position(i));}
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing the shape at the specified index
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public BoundingBox boundingBox(int i) {
+        if (kind(i) == ShapeFile.CIRCLE) {
+            double x = value(i, 0), y = value(i, 1), r = value(i, 2);
+            return new BoundingBox(x - r, y - r, x + r, y + r);
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+               maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int k = 0, n = vertexCount(i); k < n; k++) {
+            minX = Math.min(minX, x(i, k));
+            minY = Math.min(minY, y(i, k));
+            maxX = Math.max(maxX, x(i, k));
+            maxY = Math.max(maxY, y(i, k));
+        }
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return the total area of every shape of this store, skipping points
+     */
+    public double totalArea() {
+        ByteBuffer[] c = chunks();
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            ByteBuffer b = c[i >>> CHUNK_SHIFT];
+            int p = position(i);
+            byte kind = ShapeRecord.kind(b, p);
+            if (kind != ShapeFile.POINT_2D && kind != ShapeFile.POINT_3D)
+                sum += ShapeRecord.area(b, p, i);
+        }
+        return sum;
+    }
+
+    /**
+     * @return the index of the shape or point with the least x-value, or <code>-1</code> if this store is empty; ties
+     * are resolved in favor of the first record
+     */
+    public int indexOfLeastX() {
+        ByteBuffer[] c = chunks();
+        int least = -1;
+        double leastX = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < size; i++) {
+            double x = ShapeRecord.leastX(c[i >>> CHUNK_SHIFT], position(i));
+            if (least < 0 || x < leastX) {
+                least = i;
+                leastX = x;
+            }
+        }
+        return least;
+    }
+
+    /**
+     * @return the point at the specified index, as a newly created {@link TwoDPoint} or {@link ThreeDPoint}
+     * @throws IllegalArgumentException if the record is a shape.
+     */
+    public Point point(int i) {
+        switch (kind(i)) {
+            case ShapeFile.POINT_2D: return new TwoDPoint(value(i, 0), value(i, 1));
+            case ShapeFile.POINT_3D: return new ThreeDPoint(value(i, 0), value(i, 1), value(i, 2));
+            default:                 throw new IllegalArgumentException("Error: Record " + i + " is not a point.");
+        }
+    }
+
+    /**
+     * Copies the shape at the specified index back to the heap, as a newly created {@link Circle}, {@link Triangle} or
+     * {@link Quadrilateral}. The vertices of a triangle or a quadrilateral are kept in the order of the record, so that
+     * the copy of a shape added to this store is the same as the shape.
+     *
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public TwoDShape toShape(int i) {
+        int n = vertexCount(i);
+        if (n == 1)
+            return new Circle(x(i, 0), y(i, 0), value(i, 2));
+        double[] coordinates = new double[2 * n];
+        for (int k = 0; k < coordinates.length; k++)
+            coordinates[k] = value(i, k);
+        List<TwoDPoint> vertices = PointArray.twoD(coordinates);
+        return n == 3 ? Triangle.inOrder(vertices) : Quadrilateral.inOrder(vertices);
+    }
+
+    /**
+     * Copies every shape of this store, skipping points, to a new on-heap {@link ShapeStore}.
+     */
+    public ShapeStore toStore() {
+        ShapeStore store = new ShapeStore(size);
+        for (int i = 0; i < size; i++) {
+            switch (kind(i)) {
+                case ShapeFile.CIRCLE:
+                    store.addCircle(x(i, 0), y(i, 0), value(i, 2));
+                    break;
+                case ShapeFile.TRIANGLE:
+                    store.addTriangle(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2));
+                    break;
+                case ShapeFile.QUADRILATERAL:
+                    store.addQuadrilateral(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2), x(i, 3), y(i, 3));
+                    break;
+                default:
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Writes every record of this store to the specified file, in the binary shape file format, by copying the
+     * buffers as they are.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public void writeTo(Path path) throws IOException {
+        ByteBuffer[] c = chunks();
+        try (ShapeFileWriter writer = new ShapeFileWriter(path)) {
+            for (int k = 0; k < chunkCount; k++) {
+                int records = Math.min(CHUNK_RECORDS, size - (k << CHUNK_SHIFT));
+                ByteBuffer chunk = c[k].duplicate();
+                chunk.position(0).limit(records * ShapeFile.RECORD_SIZE);
+                writer.writeRecords(chunk, records);
+            }
+        }
+    }
+}
@@ -1,4 +1,6 @@
 import java.util.*;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
 
 public class Ordering {
 
@@ -9,6 +11,8 @@ public class Ordering {
     static class XLocationShapeComparator implements Comparator<TwoDShape> {
         @Override
         public int compare(TwoDShape o1, TwoDShape o2) {
+            if (Metrics.ENABLED)
+                Metrics.COMPARE.increment();
             return Double.compare(o1.getLeastX(), o2.getLeastX());
         }
     }
@@ -16,12 +20,260 @@ public class Ordering {
     static class XLocationPointComparator implements Comparator<Point> {
         @Override
         public int compare(Point o1, Point o2) {
+            if (Metrics.ENABLED)
+                Metrics.COMPARE.increment();
             return Double.compare(o1.getLeastX(), o2.getLeastX());
         }
     }
 
+    /**
+     * A comparator for three-dimensional shapes, based on their volume, which is also their natural order.
+     */
+    static class VolumeComparator implements Comparator<ThreeDShape> {
+        @Override
+        public int compare(ThreeDShape o1, ThreeDShape o2) {
+            if (Metrics.ENABLED)
+                Metrics.COMPARE.increment();
+            return Double.compare(o1.volume(), o2.volume());
+        }
+    }
+
+    /**
+     * A comparator for three-dimensional shapes, based on their surface area.
+     */
+    static class SurfaceAreaComparator implements Comparator<ThreeDShape> {
+        @Override
+        public int compare(ThreeDShape o1, ThreeDShape o2) {
+            if (Metrics.ENABLED)
+                Metrics.COMPARE.increment();
+            return Double.compare(o1.surfaceArea(), o2.surfaceArea());
+        }
+    }
+
+    /**
+     * Sorts the specified shapes in increasing order of their least x-value. The result is the same as that of sorting
+     * with {@link XLocationShapeComparator}, but {@link TwoDShape#getLeastX()} is called only once per shape.
+     */
+    static <T extends TwoDShape> void sortByLeastX(List<T> shapes) {
+        keySort(shapes, TwoDShape::getLeastX);
+    }
+
+    /**
+     * Sorts the specified shapes in increasing order of their area, i.e., in their natural order. The result is the
+     * same as that of {@link Collections#sort(List)}, but {@link TwoDShape#area()} is called only once per shape
+     * instead of twice per comparison.
+     */
+    static <T extends TwoDShape> void sortByArea(List<T> shapes) {
+        keySort(shapes, TwoDShape::area);
+    }
+
+    /**
+     * Sorts the specified solids in increasing order of their volume, i.e., in their natural order. The result is the
+     * same as that of sorting with {@link VolumeComparator}, but {@link ThreeDShape#volume()} is called only once per
+     * solid.
+     */
+    static <T extends ThreeDShape> void sortByVolume(List<T> solids) {
+        keySort(solids, ThreeDShape::volume);
+    }
+
+    /**
+     * Sorts the specified solids in increasing order of their surface area. The result is the same as that of sorting
+     * with {@link SurfaceAreaComparator}, but {@link ThreeDShape#surfaceArea()} is called only once per solid.
+     */
+    static <T extends ThreeDShape> void sortBySurfaceArea(List<T> solids) {
+        keySort(solids, ThreeDShape::surfaceArea);
+    }
+
+    /**
+     * Sorts the specified points in increasing order of {@link Point#getLeastX()}. The result is the same as that of
+     * sorting with {@link XLocationPointComparator}.
+     */
+    static <T extends Point> void sortPointsByLeastX(List<T> points) {
+        keySort(points, Point::getLeastX);
+    }
+
+    /**
+     * Sorts the specified points in their natural order. Both {@link TwoDPoint} and {@link ThreeDPoint} compare
+     * points by the absolute value of their x-coordinates, which is the key used here, so the result is the same as
+     * that of {@link Collections#sort(List)}.
+     */
+    static <T extends Point> void sortPoints(List<T> points) {
+        keySort(points, p -> Math.abs(p.getX()));
+    }
+
+    /**
+     * Sorts the specified points in increasing order of their (Euclidean) distance from the origin.
+     */
+    static <T extends Point> void sortPointsByDistance(List<T> points) {
+        keySort(points, Ordering::squaredDistanceFromOrigin);
+    }
+
+    /**
+     * Sorts the specified list in increasing order of a <code>double</code> key, keeping elements with equal keys in
+     * their original relative order. The key of each element is extracted exactly once.
+     *
+     * @param list the list to sort.
+     * @param key  the function extracting the key of an element.
+     */
+    static <T> void sortByKey(List<T> list, ToDoubleFunction<? super T> key) {
+        keySort(list, key);
+    }
+
+    /**
+     * Sorts with {@link KeySort#sort(List, ToDoubleFunction)}, timed by {@link Metrics#SORT}.
+     */
+    private static <T> void keySort(List<T> list, ToDoubleFunction<? super T> key) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        KeySort.sort(list, key);
+        if (Metrics.ENABLED)
+            Metrics.SORT.record(start, list.size());
+    }
+
+    /**
+     * Returns the <code>k</code> shapes of least area, in increasing order of area, in a single pass over the specified
+     * shapes and keeping no more than <code>k</code> of them at a time. Shapes of equal area keep their encounter
+     * order, so the result is the same as the first <code>k</code> shapes of {@link #sortByArea(List)}.
+     *
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T extends TwoDShape> List<T> smallestByArea(Iterable<? extends T> shapes, int k) {
+        return TopK.heapSelect(shapes, k, TwoDShape::area, false);
+    }
+
+    /**
+     * Returns the <code>k</code> shapes of greatest area, in decreasing order of area, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T extends TwoDShape> List<T> largestByArea(Iterable<? extends T> shapes, int k) {
+        return TopK.heapSelect(shapes, k, TwoDShape::area, true);
+    }
+
+    /**
+     * Returns the <code>k</code> shapes of least x-value, in increasing order of {@link TwoDShape#getLeastX()}, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T extends TwoDShape> List<T> smallestByLeastX(Iterable<? extends T> shapes, int k) {
+        return TopK.heapSelect(shapes, k, TwoDShape::getLeastX, false);
+    }
+
+    /**
+     * Returns the <code>k</code> shapes of greatest least x-value, in decreasing order of
+     * {@link TwoDShape#getLeastX()}, as per {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T extends TwoDShape> List<T> largestByLeastX(Iterable<? extends T> shapes, int k) {
+        return TopK.heapSelect(shapes, k, TwoDShape::getLeastX, true);
+    }
+
+    /**
+     * Returns the <code>k</code> points of least x-value, in increasing order of {@link Point#getLeastX()}, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T extends Point> List<T> smallestPointsByLeastX(Iterable<? extends T> points, int k) {
+        return TopK.heapSelect(points, k, Point::getLeastX, false);
+    }
+
+    /**
+     * Returns the <code>k</code> points nearest to the origin, in increasing order of their distance from it, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T extends Point> List<T> nearestToOrigin(Iterable<? extends T> points, int k) {
+        return TopK.heapSelect(points, k, Ordering::squaredDistanceFromOrigin, false);
+    }
+
+    /**
+     * Returns the <code>k</code> elements of least key, in increasing order of the key, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T> List<T> smallestByKey(Iterable<? extends T> items, int k, ToDoubleFunction<? super T> key) {
+        return TopK.heapSelect(items, k, key, false);
+    }
+
+    /**
+     * Returns the <code>k</code> elements of greatest key, in decreasing order of the key, as per
+     * {@link #smallestByArea(Iterable, int)}.
+     */
+    static <T> List<T> largestByKey(Iterable<? extends T> items, int k, ToDoubleFunction<? super T> key) {
+        return TopK.heapSelect(items, k, key, true);
+    }
+
+    /**
+     * Returns the same elements as {@link #smallestByKey(Iterable, int, ToDoubleFunction)} using quickselect, which is
+     * faster than a heap when <code>k</code> is a sizable fraction of the size of the list, at the cost of memory
+     * proportional to the whole list. The list is not modified.
+     *
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T> List<T> selectSmallest(List<? extends T> list, int k, ToDoubleFunction<? super T> key) {
+        return TopK.quickSelect(list, k, key, false);
+    }
+
+    /**
+     * Returns the same elements as {@link #largestByKey(Iterable, int, ToDoubleFunction)} using quickselect, as per
+     * {@link #selectSmallest(List, int, ToDoubleFunction)}.
+     */
+    static <T> List<T> selectLargest(List<? extends T> list, int k, ToDoubleFunction<? super T> key) {
+        return TopK.quickSelect(list, k, key, true);
+    }
+
+    /**
+     * @return a collector of the <code>k</code> elements of a stream with the least key, as per
+     * {@link #smallestByKey(Iterable, int, ToDoubleFunction)}; parallel streams give the same result
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T> Collector<T, ?, List<T>> toSmallest(int k, ToDoubleFunction<? super T> key) {
+        return TopK.collector(k, key, false);
+    }
+
+    /**
+     * @return a collector of the <code>k</code> elements of a stream with the greatest key, as per
+     * {@link #largestByKey(Iterable, int, ToDoubleFunction)}; parallel streams give the same result
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T> Collector<T, ?, List<T>> toLargest(int k, ToDoubleFunction<? super T> key) {
+        return TopK.collector(k, key, true);
+    }
+
+    /**
+     * @return the first shape of least area, i.e., the least shape as per the natural order of shapes, in a single pass
+     * calling {@link TwoDShape#area()} once per shape, or <code>null</code> if there are no shapes
+     */
+    static <T extends TwoDShape> T leastByArea(Iterable<? extends T> shapes) {
+        return TopK.min(shapes, TwoDShape::area);
+    }
+
+    /**
+     * @return the first shape of least x-value, or <code>null</code> if there are no shapes
+     */
+    static <T extends TwoDShape> T leastByLeastX(Iterable<? extends T> shapes) {
+        return TopK.min(shapes, TwoDShape::getLeastX);
+    }
+
+    /**
+     * @return the squared distance of the specified point from the origin, without allocating its coordinate array for
+     * the point types of this package
+     */
+    static double squaredDistanceFromOrigin(Point p) {
+        if (p instanceof TwoDPoint) {
+            TwoDPoint q = (TwoDPoint) p;
+            return q.getX() * q.getX() + q.getY() * q.getY();
+        }
+        if (p instanceof ThreeDPoint) {
+            ThreeDPoint q = (ThreeDPoint) p;
+            return q.getX() * q.getX() + q.getY() * q.getY() + q.getZ() * q.getZ();
+        }
+        double d = 0;
+        for (double c : p.coordinates())
+            d += c * c;
+        return d;
+    }
+
     // TODO: There's a lot wrong with this method. correct it so that it can work properly with generics.
-    static <T> void copy(Collection<? extends T> source, List<T> destination) {destination.addAll(source);}
+    static <T> void copy(Collection<? extends T> source, List<T> destination) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        destination.addAll(source);
+        if (Metrics.ENABLED)
+            Metrics.COPY.record(start, source.size());
+    }
 
     /**
      * PLEASE READ ALL THE COMMENTS IN THIS CODE CAREFULLY BEFORE YOU START WRITING YOUR OWN CODE.
@@ -125,7 +377,7 @@ public class Ordering {
     static <T extends TwoDShape> TwoDShape printAllAndReturnLeast(List<T> aList, AbstractPrinter<T> aPrinter) {
         TwoDShape least = aList.get(0);
         for (TwoDShape t : aList) {
-            if (least.compareTo(t) < 0)
+            if (least.compareTo(t) > 0)
                 least = t;
             aPrinter.print((T) t);
         }
@@ -0,0 +1,56 @@
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares {@link OverlapDetector} with testing all pairs of shapes, for shapes spread over a square growing with
+ * their number so that every shape overlaps a few others on average. Times are per shape. All pairs are only tested
+ * up to {@value #MAX_ALL_PAIRS} shapes, and must then find exactly as many overlapping pairs as the sweep.
+ * <p>
+ * Usage: <code>java OverlapBenchmark [sizes]</code>, e.g. <code>java OverlapBenchmark 1k,10k,100k,1M</code>.
+ */
+public class OverlapBenchmark {
+
+    private static final int MAX_ALL_PAIRS = 20_000;
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "1k,10k,100k,1M");
+        System.out.printf("%s %12s%n", Bench.header(), "pairs");
+        for (int n : sizes) {
+            List<TwoDShape> shapes = SpatialIndexBenchmark.randomShapes(n, 10 * Math.sqrt(n), new Random(216));
+            ShapeStore store = new ShapeStore(n);
+            for (TwoDShape s : shapes)
+                store.add(s);
+
+            long pairs = OverlapDetector.countOverlaps(store);
+            report(Bench.measure("sweep (store)", n, n, () -> OverlapDetector.countOverlaps(store)), pairs);
+            report(Bench.measure("sweep (list)", n, n, () -> OverlapDetector.forEachOverlap(shapes, (a, b) -> {})),
+                   pairs);
+            if (n <= MAX_ALL_PAIRS) {
+                long all = allPairs(store);
+                if (all != pairs)
+                    throw new AssertionError("the sweep found " + pairs + " pairs instead of " + all);
+                report(Bench.measure("all pairs (store)", n, n, () -> allPairs(store)), all);
+            }
+        }
+    }
+
+    private static void report(Bench.Result result, long pairs) {
+        System.out.printf("%s %12d%n", result, pairs);
+    }
+
+    /**
+     * Tests every pair of shapes, checking the bounding boxes first like the sweep does.
+     */
+    private static long allPairs(ShapeStore store) {
+        int n = store.size();
+        double[] minX = new double[n], minY = new double[n], maxX = new double[n], maxY = new double[n];
+        store.extents(minX, minY, maxX, maxY);
+        long pairs = 0;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                if (minX[i] <= maxX[j] && minX[j] <= maxX[i] && minY[i] <= maxY[j] && minY[j] <= maxY[i]
+                        && store.overlaps(i, j))
+                    pairs++;
+        return pairs;
+    }
+}
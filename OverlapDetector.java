@@ -0,0 +1,120 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Finds every pair of overlapping shapes among many with a sweep line, instead of testing all pairs. Shapes are
+ * visited in increasing order of their least x-value; a shape stays in the <i>active set</i> until the sweep passes
+ * its greatest x-value, and is tested only against the shapes that become active while it is still active. The active
+ * set is kept in horizontal bands, so that a shape is only tested against active shapes at about the same height.
+ * Pairs whose bounding boxes overlap are then checked exactly (the narrow phase), so that a circle and a triangle are
+ * reported only if they actually have a point in common.
+ * <p>
+ * The sort takes <code>O(n log n)</code>. As long as few shapes are much taller than average, the sweep then takes
+ * time proportional to the number of shapes plus the number of overlapping pairs. Pairs are passed to a callback as
+ * they are found, so that millions of them can be processed without being collected.
+ */
+public final class OverlapDetector {
+
+    private OverlapDetector() {}
+
+    /**
+     * Receives the indices of two overlapping shapes of a {@link ShapeStore}.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second);
+    }
+
+    /**
+     * Passes every pair of overlapping shapes of the specified list to the specified action, the shape appearing first
+     * in the list first. Every pair is passed once, in no particular order. A shape touching another along its
+     * boundary overlaps it.
+     *
+     * @param shapes circles, triangles and quadrilaterals, or views of a {@link ShapeStore}.
+     * @param action the action receiving the overlapping pairs.
+     * @return the number of overlapping pairs
+     * @throws IllegalArgumentException if the list holds a shape of another kind.
+     */
+    public static <T extends TwoDShape> long forEachOverlap(List<T> shapes, BiConsumer<? super T, ? super T> action) {
+        ShapeStore store = new ShapeStore(shapes.size());
+        for (TwoDShape s : shapes)
+            store.add(s);
+        return forEachOverlap(store, (i, j) -> action.accept(shapes.get(i), shapes.get(j)));
+    }
+
+    /**
+     * Passes the indices of every pair of overlapping shapes of the specified store to the specified action, the lower
+     * index first. Every pair is passed once, in no particular order. A shape touching another along its boundary
+     * overlaps it.
+     *
+     * @return the number of overlapping pairs
+     */
+    public static long forEachOverlap(ShapeStore store, PairConsumer action) {
+        int n = store.size();
+        if (n < 2)
+            return 0;
+        double[] minX = new double[n], minY = new double[n], maxX = new double[n], maxY = new double[n];
+        store.extents(minX, minY, maxX, maxY);
+        int[] order = KeySort.order(minX);
+
+        // the active set is split into bands along the y-axis about as high as an average shape, and every active
+        // shape is listed in each band its bounding box spans
+        double bottom = Double.POSITIVE_INFINITY, top = Double.NEGATIVE_INFINITY, heights = 0;
+        for (int i = 0; i < n; i++) {
+            bottom = Math.min(bottom, minY[i]);
+            top = Math.max(top, maxY[i]);
+            heights += maxY[i] - minY[i];
+        }
+        int bandCount = (int) Math.max(1, Math.min(n, (top - bottom) / Math.max(heights / n, Double.MIN_NORMAL)));
+        double bandHeight = (top - bottom) / bandCount;
+        int[][] bands = new int[bandCount][];
+        int[] bandSizes = new int[bandCount];
+
+        long pairs = 0;
+        for (int i : order) {
+            double left = minX[i];
+            int b0 = band(minY[i], bottom, bandHeight, bandCount), b1 = band(maxY[i], bottom, bandHeight, bandCount);
+            for (int b = b0; b <= b1; b++) {
+                int[] band = bands[b];
+                for (int k = 0; k < bandSizes[b]; ) {
+                    int j = band[k];
+                    if (maxX[j] < left) {
+                        // the sweep has passed shape j, which cannot overlap any shape still to come
+                        band[k] = band[--bandSizes[b]];
+                        continue;
+                    }
+                    k++;
+                    // a pair listed in several bands is only tested in the band holding the greater of its least
+                    // y-values, which both shapes span when their boxes overlap
+                    if (minY[j] <= maxY[i] && minY[i] <= maxY[j]
+                            && band(Math.max(minY[i], minY[j]), bottom, bandHeight, bandCount) == b
+                            && store.overlaps(j, i)) {
+                        if (j < i) action.accept(j, i);
+                        else       action.accept(i, j);
+                        pairs++;
+                    }
+                }
+            }
+            for (int b = b0; b <= b1; b++) {
+                if (bands[b] == null)
+                    bands[b] = new int[4];
+                else if (bandSizes[b] == bands[b].length)
+                    bands[b] = Arrays.copyOf(bands[b], bands[b].length * 2);
+                bands[b][bandSizes[b]++] = i;
+            }
+        }
+        return pairs;
+    }
+
+    private static int band(double y, double bottom, double bandHeight, int bandCount) {
+        return (int) Math.max(0, Math.min(bandCount - 1, (y - bottom) / bandHeight));
+    }
+
+    /**
+     * @return the number of pairs of overlapping shapes of the specified store
+     */
+    public static long countOverlaps(ShapeStore store) {
+        return forEachOverlap(store, (i, j) -> {});
+    }
+}
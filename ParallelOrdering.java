@@ -0,0 +1,505 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntPredicate;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Parallel counterparts of the sorts of {@link Ordering}, together with parallel aggregates over lists of shapes and
+ * bulk snapping of lists and stores of shapes, built on a {@link ForkJoinPool}. Work is split in halves until a range
+ * is no longer than the <i>sequential cutoff</i>, at which point it is processed sequentially.
+ * <p>
+ * The results never depend on the parallelism. The sorts are stable and yield exactly the same order as the
+ * corresponding sorts of {@link Ordering}. The totals are summed along a fixed tree whose shape depends only on the
+ * size of the list and on the cutoff, so they are bit-for-bit the same for any parallelism, including one.
+ */
+public class ParallelOrdering implements AutoCloseable {
+
+    static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 13;
+
+    private static final int MIN_PARALLEL_MERGE = 64;
+
+    private final ForkJoinPool pool;
+    private final boolean      ownsPool;
+    private final int          cutoff;
+
+    /**
+     * Creates an instance running on the common pool with the default sequential cutoff.
+     */
+    public ParallelOrdering() {
+        this.pool     = ForkJoinPool.commonPool();
+        this.ownsPool = false;
+        this.cutoff   = DEFAULT_SEQUENTIAL_CUTOFF;
+    }
+
+    /**
+     * Creates an instance running on its own pool of the specified parallelism. The pool is shut down by
+     * {@link #close()}.
+     *
+     * @param parallelism      the number of worker threads.
+     * @param sequentialCutoff the length below which a range is no longer split.
+     * @throws IllegalArgumentException if either argument is not positive.
+     */
+    public ParallelOrdering(int parallelism, int sequentialCutoff) {
+        if (parallelism < 1 || sequentialCutoff < 1)
+            throw new IllegalArgumentException("Error: The parallelism and the cutoff must be positive.");
+        this.pool     = new ForkJoinPool(parallelism);
+        this.ownsPool = true;
+        this.cutoff   = sequentialCutoff;
+    }
+
+    public int parallelism() {return pool.getParallelism();}
+
+    public int sequentialCutoff() {return cutoff;}
+
+    /**
+     * Sorts the specified shapes in increasing order of their least x-value, like {@link Ordering#sortByLeastX(List)}.
+     */
+    public <T extends TwoDShape> void sortByLeastX(List<T> shapes) {
+        sortByKey(shapes, TwoDShape::getLeastX);
+    }
+
+    /**
+     * Sorts the specified shapes in increasing order of their area, like {@link Ordering#sortByArea(List)}.
+     */
+    public <T extends TwoDShape> void sortByArea(List<T> shapes) {
+        sortByKey(shapes, TwoDShape::area);
+    }
+
+    /**
+     * Sorts the specified points in increasing order of their distance from the origin, like
+     * {@link Ordering#sortPointsByDistance(List)}.
+     */
+    public <T extends Point> void sortPointsByDistance(List<T> points) {
+        sortByKey(points, Ordering::squaredDistanceFromOrigin);
+    }
+
+    /**
+     * Sorts the specified list in increasing order of a <code>double</code> key, keeping elements with equal keys in
+     * their original relative order. Keys are extracted in parallel, exactly once per element, so the key function
+     * must be safe to call from several threads at once.
+     *
+     * @param list the list to sort.
+     * @param key  the function extracting the key of an element.
+     */
+    public <T> void sortByKey(List<T> list, ToDoubleFunction<? super T> key) {
+        int n = list.size();
+        if (n < 2)
+            return;
+        Object[] elements = list.toArray();
+        long[] bits = new long[n];
+        int[] order = new int[n];
+        pool.invoke(new ExtractKeys<>(elements, key, bits, order, 0, n));
+        pool.invoke(new MergeSort(bits, order, new long[n], new int[n], 0, n, false));
+        if (list instanceof RandomAccess)
+            pool.invoke(new Permute<>(list, elements, order, 0, n));
+        else
+            KeySort.permute(list, elements, order);
+    }
+
+    /**
+     * @return the sum of the areas of the specified shapes
+     */
+    public double totalArea(List<? extends TwoDShape> shapes) {
+        return pool.invoke(new Sum(shapes, TwoDShape::area, 0, shapes.size()));
+    }
+
+    /**
+     * @return the sum of the perimeters of the specified shapes
+     */
+    public double totalPerimeter(List<? extends TwoDShape> shapes) {
+        return pool.invoke(new Sum(shapes, TwoDShape::perimeter, 0, shapes.size()));
+    }
+
+    /**
+     * @return the least of the specified shapes as per their natural order (the first one, if several are least), or
+     * <code>null</code> if the list is empty
+     */
+    public <T extends TwoDShape> T min(List<T> shapes) {
+        return shapes.isEmpty() ? null : pool.invoke(new Extreme<>(shapes, false, 0, shapes.size()));
+    }
+
+    /**
+     * @return the greatest of the specified shapes as per their natural order (the first one, if several are
+     * greatest), or <code>null</code> if the list is empty
+     */
+    public <T extends TwoDShape> T max(List<T> shapes) {
+        return shapes.isEmpty() ? null : pool.invoke(new Extreme<>(shapes, true, 0, shapes.size()));
+    }
+
+    /**
+     * Snaps every triangle and quadrilateral of the specified list, as per {@link Triangle#snap()} and
+     * {@link Quadrilateral#snap()}, in parallel. The snapped vertices are tested before any point is created, and a
+     * shape is left unchanged if it would become invalid. Views of a {@link ShapeStore} are snapped in place in their
+     * store. A shape must not appear twice in the list.
+     *
+     * @return the indices of the shapes left unchanged: those that would have become invalid, and those that cannot be
+     * snapped, such as circles.
+     */
+    public BitSet snapAll(List<? extends TwoDShape> shapes) {
+        List<? extends TwoDShape> list = shapes instanceof RandomAccess ? shapes : new ArrayList<>(shapes);
+        return snapAll(list.size(), i -> snap(list.get(i)));
+    }
+
+    /**
+     * Snaps every shape of the specified store in place, as per {@link ShapeStore#snap(int)}, in parallel.
+     *
+     * @return the indices of the shapes left unchanged, like {@link ShapeStore#snapAll()}.
+     */
+    public BitSet snapAll(ShapeStore store) {
+        return snapAll(store.size(), store::snap);
+    }
+
+    private BitSet snapAll(int n, IntPredicate snap) {
+        long[] unchanged = new long[(n + 63) >>> 6];
+        pool.invoke(new Snap(snap, unchanged, 0, n));
+        return BitSet.valueOf(unchanged);
+    }
+
+    /**
+     * @return <code>true</code> if the specified shape was snapped, or <code>false</code> if it was left unchanged
+     */
+    static boolean snap(TwoDShape shape) {
+        if (shape instanceof Triangle)
+            return ((Triangle) shape).trySnap();
+        if (shape instanceof Quadrilateral)
+            return ((Quadrilateral) shape).trySnap();
+        if (shape instanceof ShapeStore.View) {
+            ShapeStore.View v = (ShapeStore.View) shape;
+            return v.store().snap(v.index());
+        }
+        return false;
+    }
+
+    /**
+     * Shuts down the pool of this instance, if it has its own.
+     */
+    @Override
+    public void close() {
+        if (ownsPool)
+            pool.shutdown();
+    }
+
+    @SuppressWarnings("serial")
+    private class ExtractKeys<T> extends RecursiveAction {
+        private final Object[] elements;
+        private final ToDoubleFunction<? super T> key;
+        private final long[] bits;
+        private final int[] order;
+        private final int lo, hi;
+
+        ExtractKeys(Object[] elements, ToDoubleFunction<? super T> key, long[] bits, int[] order, int lo, int hi) {
+            this.elements = elements;
+            this.key = key;
+            this.bits = bits;
+            this.order = order;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                for (int i = lo; i < hi; i++) {
+                    @SuppressWarnings("unchecked") T t = (T) elements[i];
+                    bits[i] = KeySort.sortableBits(key.applyAsDouble(t));
+                    order[i] = i;
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new ExtractKeys<>(elements, key, bits, order, lo, mid),
+                      new ExtractKeys<>(elements, key, bits, order, mid, hi));
+        }
+    }
+
+    /**
+     * A stable merge sort of <code>[lo, hi)</code> that leaves its result in the buffers if <code>intoBuffer</code>
+     * is set, and in the main arrays otherwise. The two halves are sorted into the other pair of arrays, so no copying
+     * back is ever needed.
+     */
+    @SuppressWarnings("serial")
+    private class MergeSort extends RecursiveAction {
+        private final long[] bits, bitsBuffer;
+        private final int[] order, orderBuffer;
+        private final int lo, hi;
+        private final boolean intoBuffer;
+
+        MergeSort(long[] bits, int[] order, long[] bitsBuffer, int[] orderBuffer, int lo, int hi, boolean intoBuffer) {
+            this.bits = bits;
+            this.order = order;
+            this.bitsBuffer = bitsBuffer;
+            this.orderBuffer = orderBuffer;
+            this.lo = lo;
+            this.hi = hi;
+            this.intoBuffer = intoBuffer;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                KeySort.sortRange(bits, order, lo, hi);
+                if (intoBuffer) {
+                    System.arraycopy(bits, lo, bitsBuffer, lo, hi - lo);
+                    System.arraycopy(order, lo, orderBuffer, lo, hi - lo);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new MergeSort(bits, order, bitsBuffer, orderBuffer, lo, mid, !intoBuffer),
+                      new MergeSort(bits, order, bitsBuffer, orderBuffer, mid, hi, !intoBuffer));
+            if (intoBuffer)
+                new Merge(bits, order, bitsBuffer, orderBuffer, lo, mid, mid, hi, lo).compute();
+            else
+                new Merge(bitsBuffer, orderBuffer, bits, order, lo, mid, mid, hi, lo).compute();
+        }
+    }
+
+    /**
+     * A stable parallel merge of the sorted runs <code>[aLo, aHi)</code> and <code>[bLo, bHi)</code> of the source
+     * arrays into the destination arrays starting at <code>to</code>. Elements of the first run go before equal
+     * elements of the second.
+     */
+    @SuppressWarnings("serial")
+    private class Merge extends RecursiveAction {
+        private final long[] srcBits, dstBits;
+        private final int[] srcOrder, dstOrder;
+        private final int aLo, aHi, bLo, bHi, to;
+
+        Merge(long[] srcBits, int[] srcOrder, long[] dstBits, int[] dstOrder,
+              int aLo, int aHi, int bLo, int bHi, int to) {
+            this.srcBits = srcBits;
+            this.srcOrder = srcOrder;
+            this.dstBits = dstBits;
+            this.dstOrder = dstOrder;
+            this.aLo = aLo;
+            this.aHi = aHi;
+            this.bLo = bLo;
+            this.bHi = bHi;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            int na = aHi - aLo, nb = bHi - bLo;
+            // both runs are split strictly only when they are not too short, whatever the cutoff
+            if (na + nb <= Math.max(cutoff, MIN_PARALLEL_MERGE)) {
+                mergeSequentially();
+                return;
+            }
+            int aMid, bMid;
+            if (na >= nb) {
+                aMid = (aLo + aHi) >>> 1;
+                bMid = lowerBound(srcBits, bLo, bHi, srcBits[aMid]);
+            } else {
+                bMid = (bLo + bHi) >>> 1;
+                aMid = upperBound(srcBits, aLo, aHi, srcBits[bMid]);
+            }
+            int split = to + (aMid - aLo) + (bMid - bLo);
+            invokeAll(new Merge(srcBits, srcOrder, dstBits, dstOrder, aLo, aMid, bLo, bMid, to),
+                      new Merge(srcBits, srcOrder, dstBits, dstOrder, aMid, aHi, bMid, bHi, split));
+        }
+
+        private void mergeSequentially() {
+            int i = aLo, j = bLo, k = to;
+            while (i < aHi && j < bHi) {
+                if (srcBits[j] < srcBits[i]) {
+                    dstBits[k] = srcBits[j];
+                    dstOrder[k++] = srcOrder[j++];
+                } else {
+                    dstBits[k] = srcBits[i];
+                    dstOrder[k++] = srcOrder[i++];
+                }
+            }
+            System.arraycopy(srcBits, i, dstBits, k, aHi - i);
+            System.arraycopy(srcOrder, i, dstOrder, k, aHi - i);
+            k += aHi - i;
+            System.arraycopy(srcBits, j, dstBits, k, bHi - j);
+            System.arraycopy(srcOrder, j, dstOrder, k, bHi - j);
+        }
+    }
+
+    /**
+     * @return the first index in <code>[lo, hi)</code> whose bits are not less than <code>key</code>
+     */
+    private static int lowerBound(long[] bits, int lo, int hi, long key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bits[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * @return the first index in <code>[lo, hi)</code> whose bits are greater than <code>key</code>
+     */
+    private static int upperBound(long[] bits, int lo, int hi, long key) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bits[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    @SuppressWarnings("serial")
+    private class Permute<T> extends RecursiveAction {
+        private final List<T> list;
+        private final Object[] elements;
+        private final int[] order;
+        private final int lo, hi;
+
+        Permute(List<T> list, Object[] elements, int[] order, int lo, int hi) {
+            this.list = list;
+            this.elements = elements;
+            this.order = order;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= cutoff) {
+                for (int i = lo; i < hi; i++) {
+                    @SuppressWarnings("unchecked") T t = (T) elements[order[i]];
+                    list.set(i, t);
+                }
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new Permute<>(list, elements, order, lo, mid), new Permute<>(list, elements, order, mid, hi));
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Sum extends RecursiveTask<Double> {
+        private final List<? extends TwoDShape> shapes;
+        private final ToDoubleFunction<TwoDShape> metric;
+        private final int lo, hi;
+
+        Sum(List<? extends TwoDShape> shapes, ToDoubleFunction<TwoDShape> metric, int lo, int hi) {
+            this.shapes = shapes;
+            this.metric = metric;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected Double compute() {
+            if (hi - lo <= cutoff) {
+                double sum = 0;
+                for (TwoDShape s : shapes.subList(lo, hi))
+                    sum += metric.applyAsDouble(s);
+                return sum;
+            }
+            int mid = (lo + hi) >>> 1;
+            Sum left = new Sum(shapes, metric, lo, mid);
+            left.fork();
+            double right = new Sum(shapes, metric, mid, hi).compute();
+            return left.join() + right;
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class Extreme<T extends TwoDShape> extends RecursiveTask<T> {
+        private final List<T> shapes;
+        private final boolean greatest;
+        private final int lo, hi;
+
+        Extreme(List<T> shapes, boolean greatest, int lo, int hi) {
+            this.shapes = shapes;
+            this.greatest = greatest;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected T compute() {
+            if (hi - lo <= cutoff) {
+                T best = null;
+                for (T t : shapes.subList(lo, hi))
+                    if (best == null || better(t, best))
+                        best = t;
+                return best;
+            }
+            int mid = (lo + hi) >>> 1;
+            Extreme<T> left = new Extreme<>(shapes, greatest, lo, mid);
+            left.fork();
+            T right = new Extreme<>(shapes, greatest, mid, hi).compute();
+            T l = left.join();
+            return better(right, l) ? right : l;
+        }
+
+        private boolean better(T candidate, T best) {
+            int c = candidate.compareTo(best);
+            return greatest ? c > 0 : c < 0;
+        }
+    }
+
+    /**
+     * Snaps the shapes of <code>[lo, hi)</code>, setting the bits of those left unchanged. Ranges are split at
+     * multiples of 64, so that no two tasks ever write to the same word of the bit set.
+     */
+    @SuppressWarnings("serial")
+    private class Snap extends RecursiveAction {
+        private final IntPredicate snap;
+        private final long[] unchanged;
+        private final int lo, hi;
+
+        Snap(IntPredicate snap, long[] unchanged, int lo, int hi) {
+            this.snap = snap;
+            this.unchanged = unchanged;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            int mid = ((lo + hi) >>> 1) & ~63;
+            if (hi - lo <= cutoff || mid <= lo) {
+                for (int i = lo; i < hi; i++)
+                    if (!snap.test(i))
+                        unchanged[i >>> 6] |= 1L << i;
+                return;
+            }
+            invokeAll(new Snap(snap, unchanged, lo, mid), new Snap(snap, unchanged, mid, hi));
+        }
+    }
+
+    /**
+     * @return <code>n</code> random circles, triangles and quadrilaterals of moderate size, with their centers or lower
+     * left corners in a square of side 20, shared by the benchmarks
+     */
+    static List<TwoDShape> randomShapes(int n, Random random) {
+        List<TwoDShape> shapes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextInt(2000) / 100.0, y = random.nextInt(2000) / 100.0;
+            double w = 1 + random.nextInt(500) / 100.0, h = 1 + random.nextInt(500) / 100.0;
+            List<TwoDPoint> vertices = new ArrayList<>(4);
+            switch (i % 3) {
+                case 0:
+                    shapes.add(new Circle(x, y, w));
+                    break;
+                case 1:
+                    vertices.add(new TwoDPoint(x, y));
+                    vertices.add(new TwoDPoint(x, y + h));
+                    vertices.add(new TwoDPoint(x + w, y));
+                    shapes.add(new Triangle(vertices));
+                    break;
+                default:
+                    vertices.add(new TwoDPoint(x, y));
+                    vertices.add(new TwoDPoint(x, y + h));
+                    vertices.add(new TwoDPoint(x + w, y + h));
+                    vertices.add(new TwoDPoint(x + w, y));
+                    shapes.add(new Quadrilateral(vertices));
+            }
+        }
+        return shapes;
+    }
+}
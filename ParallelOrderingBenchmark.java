@@ -0,0 +1,73 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures how the sort by area and the total area of {@link ParallelOrdering} scale from one to all the available
+ * cores, against {@link Ordering#sortByArea(List)} and a sequential sum. Before measuring, both are checked against
+ * their sequential versions at several parallelisms, with a cutoff small enough for the work to be split many times:
+ * the sort must give the very same order, and the total must be within rounding of the sequential sum. The B/op column
+ * only counts the allocations of the calling thread, not those of the threads of a pool.
+ * <p>
+ * Usage: <code>java ParallelOrderingBenchmark [sizes]</code>.
+ */
+public class ParallelOrderingBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "100k,2M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+            List<TwoDShape> copy = new ArrayList<>(n);
+            Runnable reset = () -> {
+                copy.clear();
+                copy.addAll(shapes);
+            };
+
+            System.out.println(Bench.measure("sortByArea.sequential", n, n, reset, () -> {
+                Ordering.sortByArea(copy);
+                return copy.size();
+            }));
+            System.out.println(Bench.measure("totalArea.sequential", n, n, () -> {
+                double total = 0;
+                for (TwoDShape s : shapes)
+                    total += s.area();
+                return Double.doubleToLongBits(total);
+            }));
+            for (int p = 1; p <= Runtime.getRuntime().availableProcessors(); p++) {
+                try (ParallelOrdering ordering = new ParallelOrdering(p, ParallelOrdering.DEFAULT_SEQUENTIAL_CUTOFF)) {
+                    System.out.println(Bench.measure("sortByArea(" + p + ")", n, n, reset, () -> {
+                        ordering.sortByArea(copy);
+                        return copy.size();
+                    }));
+                    System.out.println(Bench.measure("totalArea(" + p + ")", n, n,
+                                                     () -> Double.doubleToLongBits(ordering.totalArea(shapes))));
+                }
+            }
+        }
+    }
+
+    private static void check() {
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(50_000, new Random(216));
+        List<TwoDShape> expected = new ArrayList<>(shapes);
+        Ordering.sortByArea(expected);
+        double total = 0;
+        for (TwoDShape s : shapes)
+            total += s.area();
+
+        for (int p = 1; p <= 4; p++) {
+            try (ParallelOrdering ordering = new ParallelOrdering(p, 64)) {
+                List<TwoDShape> copy = new ArrayList<>(shapes);
+                ordering.sortByArea(copy);
+                if (!copy.equals(expected))
+                    throw new AssertionError("the parallel sort differs from the sequential one at parallelism " + p);
+                double parallel = ordering.totalArea(shapes);
+                if (Math.abs(parallel - total) > 1e-9 * total)
+                    throw new AssertionError("the total area is " + parallel + " instead of " + total
+                                             + " at parallelism " + p);
+            }
+        }
+    }
+}
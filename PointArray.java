@@ -0,0 +1,234 @@
+import java.util.AbstractList;
+import java.util.Collection;
+import java.util.RandomAccess;
+
+/**
+ * A list of points packed into a single array of interleaved coordinates: <code>x0, y0, x1, y1, ...</code> for
+ * two-dimensional points, and <code>x0, y0, z0, x1, y1, z1, ...</code> for three-dimensional ones. No point object is
+ * kept; {@link #get(int)} creates a new {@link TwoDPoint} or {@link ThreeDPoint} from the coordinates whenever it is
+ * called, so that a point array can be passed anywhere a list of points is expected, e.g. to
+ * {@link Positionable#setPosition(List)}, while code that only reads coordinates can use {@link #x(int)},
+ * {@link #y(int)} and {@link #z(int)} without creating any object at all.
+ * <p>
+ * A point array is a view of the array it wraps: changes to the array are visible through the list, and
+ * {@link #set(int, Point)} writes the coordinates of the specified point into the array. Its size cannot change.
+ * Slices obtained with {@link #slice(int, int)} or {@link #subList(int, int)} share the same array, so no coordinate is
+ * copied.
+ *
+ * @param <P> {@link TwoDPoint} or {@link ThreeDPoint}, according to the dimension of the points.
+ */
+public final class PointArray<P extends Point> extends AbstractList<P> implements RandomAccess {
+
+    private final double[] coords;
+    private final int      offset;
+    private final int      size;
+    private final int      dimension;
+
+    private PointArray(double[] coords, int offset, int size, int dimension) {
+        this.coords    = coords;
+        this.offset    = offset;
+        this.size      = size;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Wraps the specified array of interleaved <code>x</code> and <code>y</code> values, without copying it.
+     *
+     * @throws IllegalArgumentException if the array has an odd number of doubles.
+     */
+    public static PointArray<TwoDPoint> twoD(double[] coordinates) {
+        return wrap(coordinates, 0, coordinates.length, 2);
+    }
+
+    /**
+     * Wraps the specified range of an array of interleaved <code>x</code> and <code>y</code> values, without copying
+     * it.
+     *
+     * @param from the index of the <code>x</code> value of the first point.
+     * @param to   the index after the <code>y</code> value of the last point.
+     * @throws IllegalArgumentException if the range is out of the bounds of the array, or has an odd number of doubles.
+     */
+    public static PointArray<TwoDPoint> twoD(double[] coordinates, int from, int to) {
+        return wrap(coordinates, from, to, 2);
+    }
+
+    /**
+     * Wraps the specified array of interleaved <code>x</code>, <code>y</code> and <code>z</code> values, without
+     * copying it.
+     *
+     * @throws IllegalArgumentException if the length of the array is not a multiple of three.
+     */
+    public static PointArray<ThreeDPoint> threeD(double[] coordinates) {
+        return wrap(coordinates, 0, coordinates.length, 3);
+    }
+
+    /**
+     * Wraps the specified range of an array of interleaved <code>x</code>, <code>y</code> and <code>z</code> values,
+     * without copying it.
+     *
+     * @param from the index of the <code>x</code> value of the first point.
+     * @param to   the index after the <code>z</code> value of the last point.
+     * @throws IllegalArgumentException if the range is out of the bounds of the array, or if its length is not a
+     *                                  multiple of three.
+     */
+    public static PointArray<ThreeDPoint> threeD(double[] coordinates, int from, int to) {
+        return wrap(coordinates, from, to, 3);
+    }
+
+    private static <P extends Point> PointArray<P> wrap(double[] coordinates, int from, int to, int dimension) {
+        if (from < 0 || to > coordinates.length || from > to)
+            throw new IllegalArgumentException("Error: The range [" + from + ", " + to + ") is out of the bounds of "
+                                               + "an array of " + coordinates.length + " doubles.");
+        if ((to - from) % dimension != 0)
+            throw new IllegalArgumentException("Error: The number of doubles must be a multiple of " + dimension + ".");
+        return new PointArray<>(coordinates, from, (to - from) / dimension, dimension);
+    }
+
+    /**
+     * Packs the coordinates of the specified two-dimensional points into a new point array.
+     */
+    public static PointArray<TwoDPoint> copyOfTwoD(Collection<? extends TwoDPoint> points) {
+        double[] coordinates = new double[points.size() * 2];
+        int k = 0;
+        for (TwoDPoint p : points) {
+            coordinates[k++] = p.getX();
+            coordinates[k++] = p.getY();
+        }
+        return twoD(coordinates);
+    }
+
+    /**
+     * Packs the coordinates of the specified three-dimensional points into a new point array.
+     */
+    public static PointArray<ThreeDPoint> copyOfThreeD(Collection<? extends ThreeDPoint> points) {
+        double[] coordinates = new double[points.size() * 3];
+        int k = 0;
+        for (ThreeDPoint p : points) {
+            coordinates[k++] = p.getX();
+            coordinates[k++] = p.getY();
+            coordinates[k++] = p.getZ();
+        }
+        return threeD(coordinates);
+    }
+
+    /**
+     * @return <code>2</code> for two-dimensional points, or <code>3</code> for three-dimensional ones
+     */
+    public int dimension() {return dimension;}
+
+    @Override
+    public int size() {return size;}
+
+    public double x(int i) {return coords[index(i)];}
+
+    public double y(int i) {return coords[index(i) + 1];}
+
+    /**
+     * @throws UnsupportedOperationException if the points are two-dimensional.
+     */
+    public double z(int i) {
+        if (dimension == 2)
+            throw new UnsupportedOperationException("Error: Two-dimensional points have no z-value.");
+        return coords[index(i) + 2];
+    }
+
+    /**
+     * @return the index in the wrapped array of the <code>x</code> value of the i-th point
+     */
+    private int index(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index " + i + " out of bounds for length " + size);
+        return offset + i * dimension;
+    }
+
+    /**
+     * @return a new point with the coordinates of the i-th point; the point is not backed by this array
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public P get(int i) {
+        int k = index(i);
+        if (dimension == 2)
+            return (P) new TwoDPoint(coords[k], coords[k + 1]);
+        return (P) new ThreeDPoint(coords[k], coords[k + 1], coords[k + 2]);
+    }
+
+    /**
+     * Writes the coordinates of the specified point into the i-th position of this array.
+     *
+     * @return a new point with the previous coordinates of the i-th point.
+     */
+    @Override
+    public P set(int i, P point) {
+        P previous = get(i);
+        int k = index(i);
+        coords[k] = point.getX();
+        if (dimension == 2) {
+            coords[k + 1] = ((TwoDPoint) point).getY();
+        } else {
+            coords[k + 1] = ((ThreeDPoint) point).getY();
+            coords[k + 2] = ((ThreeDPoint) point).getZ();
+        }
+        return previous;
+    }
+
+    /**
+     * @return a point array of the points from index <code>from</code>, inclusive, to index <code>to</code>, exclusive,
+     * which shares the array of this one
+     */
+    public PointArray<P> slice(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") out of bounds for length " + size);
+        return new PointArray<>(coords, offset + from * dimension, to - from, dimension);
+    }
+
+    @Override
+    public PointArray<P> subList(int from, int to) {
+        return slice(from, to);
+    }
+
+    /**
+     * @return a copy of the interleaved coordinates of the points of this array
+     */
+    public double[] toDoubleArray() {
+        double[] copy = new double[size * dimension];
+        System.arraycopy(coords, offset, copy, 0, copy.length);
+        return copy;
+    }
+
+    /**
+     * Copies the interleaved coordinates of the points of this array into the specified array.
+     *
+     * @param destination the array to copy to.
+     * @param from        the index in the destination of the first coordinate copied.
+     */
+    public void copyTo(double[] destination, int from) {
+        System.arraycopy(coords, offset, destination, from, size * dimension);
+    }
+
+    /**
+     * @return the array wrapped by this point array, for kernels that work directly over the coordinates
+     */
+    double[] array() {return coords;}
+
+    /**
+     * @return the index in {@link #array()} of the <code>x</code> value of the first point of this array
+     */
+    int offset() {return offset;}
+
+    /**
+     * @return the index of the point with the least x-value, or <code>-1</code> if this array is empty; ties are
+     * resolved in favor of the first of the points
+     */
+    public int indexOfLeastX() {
+        int least = -1;
+        double leastX = Double.POSITIVE_INFINITY;
+        for (int i = 0, k = offset; i < size; i++, k += dimension) {
+            if (least < 0 || coords[k] < leastX) {
+                least = i;
+                leastX = coords[k];
+            }
+        }
+        return least;
+    }
+}
@@ -0,0 +1,90 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares passing vertices around as lists of {@link TwoDPoint} objects, built with {@link TwoDPoint#ofDoubles},
+ * with wrapping the same coordinates in a {@link PointArray}: the time and allocation of building the list, of reading
+ * every coordinate, and of positioning triangles from consecutive triples of vertices.
+ * <p>
+ * Usage: <code>java PointArrayBenchmark [sizes]</code>, where each size is a number of points.
+ */
+public class PointArrayBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "1k,100k,1M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            double[] coordinates = new double[2 * n];
+            Random random = new Random(216);
+            for (int k = 0; k < coordinates.length; k++)
+                coordinates[k] = random.nextInt(100_000) / 100.0;
+            List<TwoDPoint> objects = TwoDPoint.ofDoubles(coordinates);
+            PointArray<TwoDPoint> packed = PointArray.twoD(coordinates);
+
+            System.out.println(Bench.measure("build.ofDoubles", n, n,
+                                             () -> TwoDPoint.ofDoubles(coordinates).size()));
+            System.out.println(Bench.measure("build.PointArray", n, n,
+                                             () -> PointArray.twoD(coordinates).size()));
+            System.out.println(Bench.measure("sumX.objects", n, n, () -> {
+                double sum = 0;
+                for (TwoDPoint p : objects)
+                    sum += p.getX();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("sumX.PointArray.x", n, n, () -> {
+                double sum = 0;
+                for (int i = 0; i < packed.size(); i++)
+                    sum += packed.x(i);
+                return Double.doubleToLongBits(sum);
+            }));
+            int triangles = n / 3;
+            Triangle triangle = new Triangle(objects.subList(0, 3));
+            System.out.println(Bench.measure("triangles.ofDoubles", n, triangles, () -> {
+                List<TwoDPoint> points = TwoDPoint.ofDoubles(coordinates);
+                double sum = 0;
+                for (int t = 0; t < triangles; t++) {
+                    triangle.setPosition(points.subList(3 * t, 3 * t + 3));
+                    sum += triangle.getLeastX();
+                }
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("triangles.PointArray.slice", n, triangles, () -> {
+                PointArray<TwoDPoint> points = PointArray.twoD(coordinates);
+                double sum = 0;
+                for (int t = 0; t < triangles; t++) {
+                    triangle.setPosition(points.slice(3 * t, 3 * t + 3));
+                    sum += triangle.getLeastX();
+                }
+                return Double.doubleToLongBits(sum);
+            }));
+        }
+    }
+
+    /**
+     * Checks that a point array reads, writes and slices the coordinates it wraps, and agrees with
+     * {@link TwoDPoint#ofDoubles}.
+     */
+    private static void check() {
+        double[] coordinates = {1, 2, 3, 4, 5, 6, 7, 8};
+        List<TwoDPoint> objects = TwoDPoint.ofDoubles(coordinates);
+        PointArray<TwoDPoint> packed = PointArray.twoD(coordinates);
+        if (objects.size() != 4 || packed.size() != 4)
+            throw new AssertionError("expected four points");
+        for (int i = 0; i < 4; i++)
+            if (objects.get(i).getX() != packed.get(i).getX() || objects.get(i).getY() != packed.y(i))
+                throw new AssertionError("point " + i + " differs");
+        PointArray<TwoDPoint> slice = packed.slice(1, 3);
+        slice.set(0, new TwoDPoint(-3, -4));
+        if (coordinates[2] != -3 || coordinates[3] != -4 || slice.size() != 2 || slice.x(1) != 5
+                || packed.subList(2, 4).subList(1, 2).x(0) != 7)
+            throw new AssertionError("slices do not share the wrapped array");
+        PointArray<ThreeDPoint> points3 = PointArray.threeD(new double[]{1, 2, 3, 4, 5, 6});
+        if (points3.size() != 2 || points3.get(1).getZ() != 6 || points3.indexOfLeastX() != 0)
+            throw new AssertionError("three-dimensional points differ");
+        if (!Arrays.equals(PointArray.copyOfTwoD(packed).toDoubleArray(), coordinates))
+            throw new AssertionError("copies differ");
+    }
+}
@@ -0,0 +1,250 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pool of canonical {@link TwoDPoint} and {@link ThreeDPoint} instances, keyed by their exact coordinates, so that
+ * shapes sharing a vertex, as the triangles and quadrilaterals of a mesh do, share a single point object instead of
+ * each keeping its own. Two points obtained from the same pool have the same coordinates if and only if they are the
+ * same instance, so they can be compared with <code>==</code>.
+ * <p>
+ * Coordinates are compared by their bits, as per {@link Double#doubleToLongBits(double)}: <code>0.0</code> and
+ * <code>-0.0</code> are different keys, while all NaNs are the same key. Points are stored in open-addressing hash
+ * tables of primitive <code>long</code> keys, so that looking a point up boxes nothing and, on a hit, allocates
+ * nothing. The tables are split into segments, each guarded by its own lock, so that threads interning different
+ * points rarely contend.
+ * <p>
+ * The pool only ever grows; it keeps every point interned in it reachable until the pool itself is unreachable. The
+ * points it hands out are immutable, so sharing them is safe, and equal points are the same instance.
+ */
+public final class PointPool {
+
+    /**
+     * The estimated sizes of a point object, with compressed class pointers: a 12-byte header, the coordinates and
+     * the cached hash code, rounded up to a multiple of 8 bytes.
+     */
+    static final int TWO_D_POINT_BYTES   = 32;
+    static final int THREE_D_POINT_BYTES = 40;
+
+    private static final int SEGMENT_BITS     = 4;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Segment[] twoD   = new Segment[1 << SEGMENT_BITS];
+    private final Segment[] threeD = new Segment[1 << SEGMENT_BITS];
+
+    public PointPool() {
+        for (int s = 0; s < twoD.length; s++) {
+            twoD[s] = new Segment(2);
+            threeD[s] = new Segment(3);
+        }
+    }
+
+    /**
+     * @return the canonical point at (x,y), created and added to this pool if there is none yet.
+     */
+    public TwoDPoint twoD(double x, double y) {
+        long a = Double.doubleToLongBits(x), b = Double.doubleToLongBits(y);
+        long h = hash(a, b, 0);
+        return (TwoDPoint) twoD[segment(h)].intern(a, b, 0, (int) h, null);
+    }
+
+    /**
+     * @return the canonical point at (x,y,z), created and added to this pool if there is none yet.
+     */
+    public ThreeDPoint threeD(double x, double y, double z) {
+        long a = Double.doubleToLongBits(x), b = Double.doubleToLongBits(y), c = Double.doubleToLongBits(z);
+        long h = hash(a, b, c);
+        return (ThreeDPoint) threeD[segment(h)].intern(a, b, c, (int) h, null);
+    }
+
+    /**
+     * @return the canonical point with the coordinates of the specified point; the specified point itself becomes the
+     * canonical one if there is none yet.
+     */
+    public TwoDPoint intern(TwoDPoint p) {
+        long a = Double.doubleToLongBits(p.getX()), b = Double.doubleToLongBits(p.getY());
+        long h = hash(a, b, 0);
+        return (TwoDPoint) twoD[segment(h)].intern(a, b, 0, (int) h, p);
+    }
+
+    /**
+     * @return the canonical point with the coordinates of the specified point; the specified point itself becomes the
+     * canonical one if there is none yet.
+     */
+    public ThreeDPoint intern(ThreeDPoint p) {
+        long a = Double.doubleToLongBits(p.getX()), b = Double.doubleToLongBits(p.getY()),
+             c = Double.doubleToLongBits(p.getZ());
+        long h = hash(a, b, c);
+        return (ThreeDPoint) threeD[segment(h)].intern(a, b, c, (int) h, p);
+    }
+
+    /**
+     * Returns a new list of the canonical points with the coordinates of the points of the specified list, in the
+     * same order. This is how the vertices of a shape are shared, e.g. with {@link Triangle#Triangle(List, PointPool)}.
+     *
+     * @param points the specified list of points.
+     * @return a new list of canonical points.
+     */
+    public List<TwoDPoint> internAll(List<? extends TwoDPoint> points) {
+        List<TwoDPoint> canonical = new ArrayList<>(points.size());
+        for (TwoDPoint p : points)
+            canonical.add(intern(p));
+        return canonical;
+    }
+
+    /**
+     * @return the number of distinct points in this pool
+     */
+    public long size() {
+        return count(twoD, 0) + count(threeD, 0);
+    }
+
+    /**
+     * @return the number of points looked up in this pool so far
+     */
+    public long lookups() {
+        return count(twoD, 1) + count(threeD, 1);
+    }
+
+    /**
+     * @return the number of points looked up in this pool so far that were already in it
+     */
+    public long hits() {
+        return count(twoD, 2) + count(threeD, 2);
+    }
+
+    /**
+     * @return the fraction of the lookups that were hits, or zero if there was none yet
+     */
+    public double hitRate() {
+        long lookups = lookups();
+        return lookups == 0 ? 0 : (double) hits() / lookups;
+    }
+
+    /**
+     * Estimates the memory saved by this pool: every hit is a point object that is either not created, or left to
+     * the garbage collector instead of being kept by a shape, less the memory of the hash tables of the pool.
+     *
+     * @return the estimated number of bytes saved, which is negative while the pool costs more than it saves.
+     */
+    public long bytesSaved() {
+        return count(twoD, 2) * TWO_D_POINT_BYTES + count(threeD, 2) * THREE_D_POINT_BYTES - tableBytes();
+    }
+
+    /**
+     * @return the estimated number of bytes of the hash tables of this pool, not counting the points in it
+     */
+    public long tableBytes() {
+        return count(twoD, 3) + count(threeD, 3);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PointPool[points=%d, lookups=%d, hits=%d, hit rate=%.1f%%, bytes saved=%d]",
+                             size(), lookups(), hits(), 100 * hitRate(), bytesSaved());
+    }
+
+    /**
+     * @param what 0 for the number of points, 1 for the lookups, 2 for the hits and 3 for the bytes of the tables.
+     * @return the sum of the specified statistic over the specified segments
+     */
+    private static long count(Segment[] segments, int what) {
+        long sum = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                switch (what) {
+                    case 0:  sum += s.size; break;
+                    case 1:  sum += s.lookups; break;
+                    case 2:  sum += s.hits; break;
+                    default: sum += 8L * s.keys.length + 4L * s.points.length;
+                }
+            }
+        }
+        return sum;
+    }
+
+    private static long hash(long a, long b, long c) {
+        long h = a * 0x9E3779B97F4A7C15L;
+        h = (h ^ (h >>> 32) ^ b) * 0xC2B2AE3D27D4EB4FL;
+        h = (h ^ (h >>> 29) ^ c) * 0x165667B19E3779F9L;
+        return h ^ (h >>> 32);
+    }
+
+    /**
+     * @return the segment of the specified hash, taken from its high bits, the low bits being used for slots
+     */
+    private static int segment(long h) {
+        return (int) (h >>> (64 - SEGMENT_BITS));
+    }
+
+    /**
+     * An open-addressing hash table with linear probing, holding the coordinate bits of each slot at
+     * <code>keys[slot * dimension]</code> onwards, and the point of the slot, or <code>null</code> for an empty slot,
+     * at <code>points[slot]</code>.
+     */
+    private static final class Segment {
+        private final int dimension;
+        private long[]    keys;
+        private Point[]   points;
+        private int       size;
+        private long      lookups, hits;
+
+        Segment(int dimension) {
+            this.dimension = dimension;
+            this.keys = new long[INITIAL_CAPACITY * dimension];
+            this.points = new Point[INITIAL_CAPACITY];
+        }
+
+        /**
+         * @param candidate the point to add if there is none with these coordinates, or <code>null</code> to create
+         *                  one.
+         * @return the point with the specified coordinate bits
+         */
+        synchronized Point intern(long a, long b, long c, int hash, Point candidate) {
+            lookups++;
+            int mask = points.length - 1;
+            int slot = hash & mask;
+            for (Point p; (p = points[slot]) != null; slot = (slot + 1) & mask) {
+                int k = slot * dimension;
+                if (keys[k] == a && keys[k + 1] == b && (dimension == 2 || keys[k + 2] == c)) {
+                    hits++;
+                    return p;
+                }
+            }
+            Point p = candidate != null ? candidate
+                    : dimension == 2 ? new TwoDPoint(Double.longBitsToDouble(a), Double.longBitsToDouble(b))
+                    : new ThreeDPoint(Double.longBitsToDouble(a), Double.longBitsToDouble(b),
+                                      Double.longBitsToDouble(c));
+            put(slot, a, b, c, p);
+            if (++size > points.length >>> 1)
+                grow();
+            return p;
+        }
+
+        private void put(int slot, long a, long b, long c, Point p) {
+            int k = slot * dimension;
+            keys[k] = a;
+            keys[k + 1] = b;
+            if (dimension == 3)
+                keys[k + 2] = c;
+            points[slot] = p;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Point[] oldPoints = points;
+            keys = new long[oldKeys.length * 2];
+            points = new Point[oldPoints.length * 2];
+            int mask = points.length - 1;
+            for (int s = 0; s < oldPoints.length; s++) {
+                if (oldPoints[s] == null)
+                    continue;
+                int k = s * dimension;
+                long a = oldKeys[k], b = oldKeys[k + 1], c = dimension == 3 ? oldKeys[k + 2] : 0;
+                int slot = (int) hash(a, b, c) & mask;
+                while (points[slot] != null)
+                    slot = (slot + 1) & mask;
+                put(slot, a, b, c, oldPoints[s]);
+            }
+        }
+    }
+}
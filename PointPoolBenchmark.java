@@ -0,0 +1,172 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compares building a mesh of triangles and quadrilaterals with one point object per vertex of every shape, as the
+ * shape constructors do, with building it on the canonical points of a {@link PointPool}. The mesh is a square grid
+ * whose cells alternate between a quadrilateral and two triangles, so that every inner grid point is a vertex of four
+ * to eight shapes. The benchmark reports the heap retained by each mesh, the hit rate and estimated savings of the
+ * pool, the time of building each mesh, and the time of finding the shapes sharing a vertex with a given one, by
+ * comparing coordinates and by comparing references. It then measures interning from several threads at once.
+ * <p>
+ * Usage: <code>java PointPoolBenchmark [grid side]</code>.
+ */
+public class PointPoolBenchmark {
+
+    public static void main(String[] args) {
+        int side = args.length > 0 ? Bench.sizes(args[0])[0] : 600;
+        check();
+
+        long before = retainedHeap();
+        List<TwoDShape> plain = mesh(side, null);
+        long plainBytes = retainedHeap() - before;
+        PointPool pool = new PointPool();
+        before = retainedHeap();
+        List<TwoDShape> pooled = mesh(side, pool);
+        long pooledBytes = retainedHeap() - before;
+        System.out.printf("%-8s %10s %14s%n", "mesh", "shapes", "retained MB");
+        System.out.printf("%-8s %10d %14.1f%n", "plain", plain.size(), plainBytes / 1e6);
+        System.out.printf("%-8s %10d %14.1f%n", "pooled", pooled.size(), pooledBytes / 1e6);
+        System.out.println(pool);
+        System.out.println();
+
+        int n = pooled.size();
+        System.out.println(Bench.header());
+        System.out.println(Bench.measure("mesh.plain", n, n, () -> mesh(side, null).size()));
+        System.out.println(Bench.measure("mesh.pooled", n, n, () -> mesh(side, new PointPool()).size()));
+        Point plainVertex = vertex(plain.get(n / 2)), pooledVertex = vertex(pooled.get(n / 2));
+        System.out.println(Bench.measure("shared.coordinates", n, n, () -> {
+            long count = 0;
+            for (TwoDShape s : plain)
+                for (Point p : ((Positionable) s).getPosition())
+                    if (p.getX() == plainVertex.getX()
+                            && ((TwoDPoint) p).getY() == ((TwoDPoint) plainVertex).getY())
+                        count++;
+            return count;
+        }));
+        System.out.println(Bench.measure("shared.reference", n, n, () -> {
+            long count = 0;
+            for (TwoDShape s : pooled)
+                for (Point p : ((Positionable) s).getPosition())
+                    if (p == pooledVertex)
+                        count++;
+            return count;
+        }));
+
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            System.out.println(Bench.measure("intern(" + threads + " threads)", n, (long) threads * n, () -> {
+                PointPool shared = new PointPool();
+                List<Future<Integer>> done = new ArrayList<>();
+                for (int t = 0; t < threads; t++)
+                    done.add(executor.submit(() -> mesh(side, shared).size()));
+                long sum = 0;
+                for (Future<Integer> f : done)
+                    sum += join(f);
+                return sum + shared.size();
+            }));
+        } finally {
+            executor.shutdown();
+        }
+        Bench.sink += plain.size() + pooled.size();
+    }
+
+    /**
+     * @param pool the pool of the vertices, or <code>null</code> to create one point per vertex of every shape.
+     * @return a mesh over a grid of the specified number of cells per side
+     */
+    private static List<TwoDShape> mesh(int side, PointPool pool) {
+        List<TwoDShape> shapes = new ArrayList<>(side * side * 3 / 2);
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                if ((i + j) % 2 == 0) {
+                    shapes.add(new Quadrilateral(Arrays.asList(point(i, j, pool), point(i, j + 1, pool),
+                                                               point(i + 1, j + 1, pool), point(i + 1, j, pool))));
+                } else {
+                    shapes.add(new Triangle(Arrays.asList(point(i, j, pool), point(i, j + 1, pool),
+                                                          point(i + 1, j + 1, pool))));
+                    shapes.add(new Triangle(Arrays.asList(point(i, j, pool), point(i + 1, j + 1, pool),
+                                                          point(i + 1, j, pool))));
+                }
+            }
+        }
+        return shapes;
+    }
+
+    private static TwoDPoint point(int i, int j, PointPool pool) {
+        double x = i * 0.5, y = j * 0.25;
+        return pool == null ? new TwoDPoint(x, y) : pool.twoD(x, y);
+    }
+
+    private static Point vertex(TwoDShape s) {
+        return ((Positionable) s).getPosition().get(0);
+    }
+
+    private static int join(Future<Integer> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private static long retainedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Checks that a pool hands out one instance per distinct coordinates, including signed zeros and NaN, that it keeps
+     * the points it is given, and that its statistics add up, also when interning from several threads at once.
+     */
+    private static void check() {
+        PointPool pool = new PointPool();
+        TwoDPoint given = new TwoDPoint(1, 2);
+        if (pool.intern(given) != given || pool.twoD(1, 2) != given || pool.intern(new TwoDPoint(1, 2)) != given)
+            throw new AssertionError("a point is not canonical");
+        if (pool.twoD(0.0, 1) == pool.twoD(-0.0, 1) || pool.twoD(Double.NaN, 1) != pool.twoD(0.0 / 0.0, 1))
+            throw new AssertionError("coordinates are not compared by their bits");
+        if (pool.threeD(1, 2, 3) != pool.intern(new ThreeDPoint(1, 2, 3)) || pool.threeD(1, 2, 3).getZ() != 3)
+            throw new AssertionError("a three-dimensional point is not canonical");
+        if (pool.size() != 5 || pool.lookups() != 10 || pool.hits() != 5)
+            throw new AssertionError("the statistics are off: " + pool);
+
+        int side = 300, threads = 4;
+        PointPool shared = new PointPool();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Integer>> done = new ArrayList<>();
+            for (int t = 0; t < threads; t++)
+                done.add(executor.submit(() -> mesh(side, shared).size()));
+            for (Future<Integer> f : done)
+                join(f);
+        } finally {
+            executor.shutdown();
+        }
+        if (shared.size() != (side + 1) * (side + 1))
+            throw new AssertionError("the pool holds " + shared.size() + " points instead of "
+                                     + (side + 1) * (side + 1));
+        for (int i = 0; i <= side; i++)
+            for (int j = 0; j <= side; j++)
+                if (shared.twoD(i * 0.5, j * 0.25) != shared.twoD(i * 0.5, j * 0.25))
+                    throw new AssertionError("a point is not canonical");
+        if (shared.hits() != shared.lookups() - shared.size() || shared.bytesSaved() <= 0)
+            throw new AssertionError("the statistics are off: " + shared);
+
+        Triangle t = new Triangle(Arrays.asList(new TwoDPoint(0, 0), new TwoDPoint(0.5, 0.25), new TwoDPoint(0.5, 0)),
+                                  shared);
+        for (Point p : t.getPosition())
+            if (p != shared.twoD(p.getX(), ((TwoDPoint) p).getY()))
+                throw new AssertionError("a vertex is not the canonical point");
+    }
+}
@@ -0,0 +1,461 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * A polygon with any number of vertices, of at least three. Its vertices are kept in a clockwise manner around the
+ * vertex with the least x-value, by sorting them by the angle they make with it, so that any set of points that are
+ * distinct and not all in a straight line forms a simple polygon, i.e., one whose edges meet only at their common
+ * vertices. Every method runs in time linear in the number of vertices, except for those sorting them, which run in
+ * O(n log n) time.
+ */
+public class Polygon implements TwoDShape, Positionable {
+
+    private double leastX;
+
+    private List<TwoDPoint> vertices = new ArrayList<>();
+
+    // the coordinates of the vertices, interleaved for the kernels of Geometry
+    private double[] xy = new double[0];
+
+    // derived metrics, computed on first use and invalidated whenever the vertices change; volatile, so that threads
+    // sharing a shape that is no longer modified never read a torn value, at worst computing a metric more than once
+    private volatile double      area      = Double.NaN;
+    private volatile double      perimeter = Double.NaN;
+    private volatile BoundingBox bounds;
+    private volatile TwoDPoint   centroid;
+
+    public Polygon(List<TwoDPoint> vertices) {
+        setPosition(vertices);
+    }
+
+    /**
+     * Sets the position of this polygon to all the points in the specified list, taken in a clockwise manner on the
+     * two-dimensional x-y plane as described in {@link #getPosition()}, whatever their order in the list.
+     *
+     * @param points the specified list of points.
+     */
+    @Override
+    public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        if (Metrics.ENABLED)
+            Metrics.SET_POSITION.increment();
+        List<TwoDPoint> position = new ArrayList<>(points.size());
+        try {
+            if (points.size() < 3)
+                throw new IllegalArgumentException("Error: A polygon must have at least three vertices.");
+            for (Point p : points) {
+                if (p instanceof TwoDPoint) {
+                    position.add((TwoDPoint) p);
+                }
+                else throw new IllegalArgumentException("Error: The list must consist of TwoDPoint instances.");
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        sortVertices(position);
+        vertices = position;
+        xy = coordinates(vertices);
+        leastX = vertices.isEmpty() ? Double.NaN : vertices.get(0).getX();
+        area      = Double.NaN;
+        perimeter = Double.NaN;
+        bounds    = null;
+        centroid  = null;
+    }
+
+    /**
+     * Sorts the specified points in a clockwise manner around the one with the least x-value, or the lower y-value of
+     * those with the least x-value: in decreasing order of the angle from the positive x-axis of the line joining them
+     * to it, which lies between -90 and 90 degrees, and in increasing order of their distance from it for equal angles,
+     * except for the last angle, where the points are taken back towards it in decreasing order of their distance.
+     */
+    static void sortVertices(List<TwoDPoint> points) {
+        TwoDPoint first = points.get(0);
+        for (TwoDPoint p : points)
+            if (p.getX() < first.getX() || p.getX() == first.getX() && p.getY() < first.getY())
+                first = p;
+        double px = first.getX(), py = first.getY();
+        Comparator<TwoDPoint> clockwise = (a, b) -> {
+            boolean atA = a.getX() == px && a.getY() == py, atB = b.getX() == px && b.getY() == py;
+            if (atA || atB)
+                return atA == atB ? 0 : atA ? -1 : 1;
+            // exact, as a comparator whose signs are rounded is not transitive for points nearly in a straight line
+            int turn = Geometry.orientation(px, py, a.getX(), a.getY(), b.getX(), b.getY());
+            if (turn != 0)
+                return turn;
+            return Double.compare(squaredDistance(px, py, a), squaredDistance(px, py, b));
+        };
+        points.sort(clockwise);
+        int n = points.size(), from = n - 1;
+        TwoDPoint last = points.get(n - 1);
+        while (from > 1 && Geometry.orientation(px, py, last.getX(), last.getY(),
+                                                points.get(from - 1).getX(), points.get(from - 1).getY()) == 0)
+            from--;
+        if (from > 1)
+            Collections.reverse(points.subList(from, n));
+    }
+
+    private static double squaredDistance(double px, double py, TwoDPoint p) {
+        double dx = p.getX() - px, dy = p.getY() - py;
+        return dx * dx + dy * dy;
+    }
+
+    private static double[] coordinates(List<? extends Point> vertices) {
+        double[] xy = new double[2 * vertices.size()];
+        for (int i = 0; i < vertices.size(); i++) {
+            TwoDPoint p = (TwoDPoint) vertices.get(i);
+            xy[2 * i] = p.getX();
+            xy[2 * i + 1] = p.getY();
+        }
+        return xy;
+    }
+
+    /**
+     * Retrieve the position of an object as a list of points. The points are be retrieved and added to the returned
+     * list in a clockwise manner on the two-dimensional x-y plane, starting with the point with the least x-value. If
+     * two points have the same least x-value, then the clockwise direction starts with the point with the lower
+     * y-value.
+     *
+     * @return the retrieved list of points.
+     */
+    @Override
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(vertices);}
+
+    /**
+     * @return the number of sides of this polygon, which is its number of vertices
+     */
+    @Override
+    public int numSides() {
+        return vertices.size();
+    }
+
+    /**
+     * Checks whether or not a list of vertices forms a valid polygon: at least three {@link TwoDPoint} instances that,
+     * once ordered as per {@link #getPosition()}, form a simple polygon of positive area. The order around the vertex
+     * with the least x-value makes the polygon simple as long as its vertices are distinct, and equal vertices end up
+     * next to each other, so this takes a single pass over the ordered vertices rather than the sweep of
+     * {@link #isSimple(List)}.
+     *
+     * @param vertices the list of vertices to check against, where each vertex is a <code>Point</code> type.
+     */
+    @Override
+    public boolean isMember(List<? extends Point> vertices) {
+        if (vertices.size() < 3)
+            return false;
+        List<TwoDPoint> position = new ArrayList<>(vertices.size());
+        for (Point p : vertices) {
+            if (!(p instanceof TwoDPoint))
+                return false;
+            position.add((TwoDPoint) p);
+        }
+        sortVertices(position);
+        double[] c = coordinates(position);
+        for (int k = 1; k < position.size(); k++)
+            if (!Double.isFinite(c[2 * k]) || !Double.isFinite(c[2 * k + 1])
+                    || c[2 * k] == c[2 * k - 2] && c[2 * k + 1] == c[2 * k - 1])
+                return false;
+        // the area is positive unless every vertex is in a straight line with the first two
+        for (int k = 2; k < position.size(); k++)
+            if (Geometry.orientation(c[0], c[1], c[2], c[3], c[2 * k], c[2 * k + 1]) != 0)
+                return true;
+        return false;
+    }
+
+    /**
+     * Checks whether the polygon with the specified vertices, taken in the order given, is simple: its vertices are
+     * distinct and finite, and its edges have no point in common other than the vertex shared by consecutive edges.
+     */
+    static boolean isSimple(List<? extends TwoDPoint> vertices) {
+        return isSimple(coordinates(vertices));
+    }
+
+    /**
+     * Checks whether the polygon whose vertices are interleaved in <code>xy</code> is simple, as per
+     * {@link #isSimple(List)}, in O(n log n) time with the sweep of Shamos and Hoey: a vertical line sweeps the plane
+     * from left to right, keeping the edges it crosses ordered from bottom to top. Two edges that intersect are
+     * neighbours in that order at some point before the sweep passes the leftmost intersection, so it is enough to test
+     * every edge against its neighbours when it is inserted, and the two neighbours of an edge against each other when
+     * it is removed. Every test uses {@link Geometry#orientation}, which is exact: with rounded signs, the order of the
+     * sweep would not be consistent for edges nearly in a straight line.
+     */
+    static boolean isSimple(double[] xy) {
+        int n = xy.length / 2;
+        if (n < 3)
+            return false;
+        for (double c : xy)
+            if (!Double.isFinite(c))
+                return false;
+        int[] order = lexicographicOrder(xy);
+        for (int k = 1; k < n; k++)
+            if (xy[2 * order[k]] == xy[2 * order[k - 1]] && xy[2 * order[k] + 1] == xy[2 * order[k - 1] + 1])
+                return false;
+
+        // edge e joins vertex e to vertex e + 1, and starts at whichever of them comes first in the sweep
+        int[] rank = new int[n];
+        for (int k = 0; k < n; k++)
+            rank[order[k]] = k;
+        int[] left = new int[n], right = new int[n];
+        for (int e = 0; e < n; e++) {
+            int a = e, b = (e + 1) % n;
+            left[e] = rank[a] < rank[b] ? a : b;
+            right[e] = rank[a] < rank[b] ? b : a;
+        }
+        TreeSet<Integer> sweep = new TreeSet<>((e, f) -> compareEdges(xy, left, right, rank, e, f));
+        for (int k = 0; k < n; k++) {
+            int v = order[k];
+            // the two edges meeting at v, removed first if they end there, then inserted if they start there
+            int[] edges = {(v + n - 1) % n, v};
+            for (int e : edges) {
+                if (right[e] != v)
+                    continue;
+                Integer below = sweep.lower(e), above = sweep.higher(e);
+                sweep.remove(e);
+                if (below != null && above != null && intersect(xy, n, below, above))
+                    return false;
+            }
+            for (int e : edges) {
+                if (left[e] != v)
+                    continue;
+                sweep.add(e);
+                Integer below = sweep.lower(e), above = sweep.higher(e);
+                if (below != null && intersect(xy, n, below, e) || above != null && intersect(xy, n, e, above))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the indices of the vertices interleaved in <code>xy</code>, in increasing order of their x-values, then
+     * of their y-values, by sorting them stably by y-value, then by x-value
+     */
+    private static int[] lexicographicOrder(double[] xy) {
+        int n = xy.length / 2;
+        double[] keys = new double[n];
+        for (int i = 0; i < n; i++)
+            keys[i] = xy[2 * i + 1];
+        int[] byY = KeySort.order(keys);
+        for (int k = 0; k < n; k++)
+            keys[k] = xy[2 * byY[k]];
+        int[] byX = KeySort.order(keys);
+        int[] order = new int[n];
+        for (int k = 0; k < n; k++)
+            order[k] = byY[byX[k]];
+        return order;
+    }
+
+    /**
+     * Compares two edges crossed by the sweep line, which do not intersect unless the sweep is about to find it, by
+     * testing the first endpoint of the edge that starts later against the line of the other edge, or the second
+     * endpoints if they start at the same vertex. The order does not depend on the
+     * position of the sweep line, as two edges that do not intersect keep the same order across the range of x-values
+     * they share.
+     */
+    private static int compareEdges(double[] xy, int[] left, int[] right, int[] rank, int e, int f) {
+        if (e == f)
+            return 0;
+        if (rank[left[e]] < rank[left[f]])
+            return -compareEdges(xy, left, right, rank, f, e);
+        int a = 2 * left[f], b = 2 * right[f], p = 2 * left[e], q = 2 * right[e];
+        int side;
+        if (a == p) {
+            // both start at the same vertex: the one turning counter-clockwise from the other is above it
+            side = Geometry.orientation(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[q], xy[q + 1]);
+        } else if (xy[a] == xy[b]) {
+            // f is vertical, and so is the part of it that e starts from
+            side = xy[p + 1] > xy[b + 1] ? 1 : xy[p + 1] < xy[a + 1] ? -1 : 0;
+        } else {
+            side = Geometry.orientation(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[p], xy[p + 1]);
+            if (side == 0)
+                side = Geometry.orientation(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[q], xy[q + 1]);
+        }
+        return side != 0 ? side : Integer.compare(e, f);
+    }
+
+    /**
+     * @return <code>true</code> if edges e and f have a point in common other than the vertex they share if they are
+     * consecutive
+     */
+    private static boolean intersect(double[] xy, int n, int e, int f) {
+        int e1 = 2 * e, e2 = 2 * ((e + 1) % n), f1 = 2 * f, f2 = 2 * ((f + 1) % n);
+        if (e2 == f1)
+            return overlap(xy, e1, e2, f2);
+        if (f2 == e1)
+            return overlap(xy, f1, f2, e2);
+        return Geometry.segmentsIntersect(xy[e1], xy[e1 + 1], xy[e2], xy[e2 + 1],
+                                          xy[f1], xy[f1 + 1], xy[f2], xy[f2 + 1]);
+    }
+
+    /**
+     * @return <code>true</code> if the consecutive edges from vertex a to vertex b and from b to vertex c, given by the
+     * offsets of their coordinates, fold back onto each other
+     */
+    private static boolean overlap(double[] xy, int a, int b, int c) {
+        if (Geometry.orientation(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[c], xy[c + 1]) != 0)
+            return false;
+        // in a straight line: the edges overlap unless b lies between a and c
+        double dot = (xy[a] - xy[b]) * (xy[c] - xy[b]) + (xy[a + 1] - xy[b + 1]) * (xy[c + 1] - xy[b + 1]);
+        return dot > 0;
+    }
+
+    /**
+     * Returns the convex hull of the specified points, i.e., the smallest convex polygon containing all of them, with
+     * Andrew's monotone chain algorithm in O(n log n) time: the points are sorted by x-value, then by y-value, and the
+     * upper and lower chains of the hull are built in one pass each, popping every point that does not make a clockwise
+     * turn. Points on the edges of the hull are not among its vertices.
+     *
+     * @return the vertices of the hull in the order of {@link #getPosition()}; fewer than three if all the points are
+     * in a straight line
+     */
+    public static List<TwoDPoint> convexHull(Collection<? extends TwoDPoint> points) {
+        double[] xy = new double[2 * points.size()];
+        int i = 0;
+        for (TwoDPoint p : points) {
+            xy[i++] = p.getX();
+            xy[i++] = p.getY();
+        }
+        double[] hull = convexHull(xy);
+        List<TwoDPoint> vertices = new ArrayList<>(hull.length / 2);
+        for (int k = 0; k < hull.length; k += 2)
+            vertices.add(new TwoDPoint(hull[k], hull[k + 1]));
+        return vertices;
+    }
+
+    /**
+     * Returns the convex hull of the points interleaved in <code>xy</code>, as per {@link #convexHull(Collection)}.
+     *
+     * @return the interleaved coordinates of the vertices of the hull
+     */
+    static double[] convexHull(double[] xy) {
+        int n = xy.length / 2;
+        if (n < 2)
+            return xy.clone();
+        int[] order = lexicographicOrder(xy);
+        int[] hull = new int[2 * n + 1];
+        int size = 0;
+        // the upper chain from left to right, then the lower chain from right to left, both turning clockwise
+        for (int pass = 0; pass < 2; pass++) {
+            int start = size;
+            for (int k = 0; k < n; k++) {
+                int v = order[pass == 0 ? k : n - 1 - k];
+                while (size >= start + 2 && Geometry.orientation(xy[2 * hull[size - 2]], xy[2 * hull[size - 2] + 1],
+                                                                 xy[2 * hull[size - 1]], xy[2 * hull[size - 1] + 1],
+                                                                 xy[2 * v], xy[2 * v + 1]) >= 0)
+                    size--;
+                hull[size++] = v;
+            }
+            // the last point of each chain is the first of the other
+            size--;
+        }
+        if (size == 2 && xy[2 * hull[0]] == xy[2 * hull[1]] && xy[2 * hull[0] + 1] == xy[2 * hull[1] + 1])
+            size = 1;
+        double[] vertices = new double[2 * size];
+        for (int k = 0; k < size; k++) {
+            vertices[2 * k] = xy[2 * hull[k]];
+            vertices[2 * k + 1] = xy[2 * hull[k] + 1];
+        }
+        return vertices;
+    }
+
+    @Override
+    public double getLeastX() {return leastX;}
+
+    @Override
+    public int compareTo(TwoDShape s) {
+        if (Metrics.ENABLED)
+            Metrics.COMPARE_TO.increment();
+        return Double.compare(this.area(), s.area());
+    }
+
+    /**
+     * @return the area of this polygon; computed once per position
+     */
+    @Override
+    public double area() {
+        if (Metrics.ENABLED)
+            Metrics.AREA.increment();
+        if (Double.isNaN(area))
+            area = Geometry.polygonArea(xy, 0, vertices.size());
+        return area;
+    }
+
+    /**
+     * @return the perimeter (i.e., the total length of the boundary) of this polygon; computed once per position
+     */
+    @Override
+    public double perimeter() {
+        if (Metrics.ENABLED)
+            Metrics.PERIMETER.increment();
+        if (Double.isNaN(perimeter))
+            perimeter = Geometry.perimeter(xy, 0, vertices.size());
+        return perimeter;
+    }
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing this polygon; computed once per position
+     */
+    @Override
+    public BoundingBox boundingBox() {
+        if (bounds == null)
+            bounds = BoundingBox.of(xy, 0, vertices.size());
+        return bounds;
+    }
+
+    /**
+     * @return the centroid of the region enclosed by this polygon, as the average of the centroids of the triangles
+     * formed by its first vertex with each of its edges, weighted by their signed areas; computed once per position
+     */
+    @Override
+    public TwoDPoint centroid() {
+        if (centroid == null) {
+            int n = vertices.size();
+            double ox = xy[0], oy = xy[1], cx = 0, cy = 0, twice = 0;
+            for (int k = 2; k < n; k++) {
+                double ax = xy[2 * k - 2] - ox, ay = xy[2 * k - 1] - oy, bx = xy[2 * k] - ox, by = xy[2 * k + 1] - oy;
+                double w = ax * by - bx * ay;
+                twice += w;
+                cx += w * (ax + bx);
+                cy += w * (ay + by);
+            }
+            if (twice == 0) {
+                double sx = 0, sy = 0;
+                for (int k = 0; k < n; k++) {
+                    sx += xy[2 * k];
+                    sy += xy[2 * k + 1];
+                }
+                centroid = new TwoDPoint(sx / n, sy / n);
+            } else
+                centroid = new TwoDPoint(ox + cx / (3 * twice), oy + cy / (3 * twice));
+        }
+        return centroid;
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
+        return boundingBox().contains(x, y) && Geometry.polygonContains(xy, 0, vertices.size(), x, y);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        return Geometry.polygonDistance(xy, 0, vertices.size(), x, y);
+    }
+
+    @Override
+    public boolean intersects(BoundingBox box) {
+        return boundingBox().intersects(box) && Geometry.polygonIntersectsBox(xy, 0, vertices.size(), box);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("Polygon[");
+        for (int i = 0; i < vertices.size(); i++) {
+            TwoDPoint p = vertices.get(i);
+            s.append(i == 0 ? "(" : ", (").append(String.format("%.2f", p.getX())).append(',')
+             .append(String.format("%.2f", p.getY())).append(')');
+        }
+        return s.append(']').toString();
+    }
+}
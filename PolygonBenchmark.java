@@ -0,0 +1,269 @@
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures {@link Polygon} on polygons of thousands of vertices and more: ordering the vertices when the polygon is
+ * built, its area and perimeter, the membership test, and the test of simplicity with the sweep of Shamos and Hoey
+ * against testing every pair of edges. It also measures building the convex hull of a point set with Andrew's monotone
+ * chain. The ns/op column is per vertex or point, so linear and O(n log n) methods show as nearly constant across
+ * sizes, unlike the quadratic pairwise test, which is only run on the smaller sizes. Before measuring, the vertex
+ * order, simplicity test and hull are checked against brute force with exact arithmetic on small point sets with many
+ * coincident and collinear points, on integer and decimal grids and on lines whose slopes cannot be represented
+ * exactly, so that many points are nearly but not quite in a straight line.
+ * <p>
+ * Usage: <code>java PolygonBenchmark [sizes]</code>.
+ */
+public class PolygonBenchmark {
+
+    private static final int PAIRWISE_LIMIT = 20_000;
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "1k,10k,100k");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<TwoDPoint> points = star(n, new Random(216));
+            Polygon polygon = new Polygon(points);
+            double[] xy = coordinates(polygon.getPosition());
+            System.out.println(Bench.measure("construct", n, n, () -> new Polygon(points).numSides()));
+            System.out.println(Bench.measure("area", n, n,
+                                             () -> Double.doubleToLongBits(Geometry.polygonArea(xy, 0, n))));
+            System.out.println(Bench.measure("perimeter", n, n,
+                                             () -> Double.doubleToLongBits(Geometry.perimeter(xy, 0, n))));
+            System.out.println(Bench.measure("contains", n, n, () -> polygon.contains(0.5, 0.25) ? 1 : 0));
+            System.out.println(Bench.measure("isMember", n, n, () -> polygon.isMember(points) ? 1 : 0));
+            System.out.println(Bench.measure("isSimple.sweep", n, n, () -> Polygon.isSimple(xy) ? 1 : 0));
+            if (n <= PAIRWISE_LIMIT)
+                System.out.println(Bench.measure("isSimple.pairwise", n, n, () -> isSimplePairwise(xy) ? 1 : 0));
+            Random random = new Random(216);
+            double[] cloud = new double[2 * n];
+            for (int i = 0; i < cloud.length; i++)
+                cloud[i] = random.nextGaussian();
+            System.out.println(Bench.measure("convexHull", n, n, () -> Polygon.convexHull(cloud).length));
+        }
+    }
+
+    /**
+     * @return <code>n</code> points in random order around the origin, at random distances between 0.5 and 1, which
+     * form a star-shaped polygon once ordered
+     */
+    private static List<TwoDPoint> star(int n, Random random) {
+        List<TwoDPoint> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double angle = 2 * Math.PI * i / n, r = 0.5 + random.nextDouble() / 2;
+            points.add(new TwoDPoint(r * Math.cos(angle), r * Math.sin(angle)));
+        }
+        Collections.shuffle(points, random);
+        return points;
+    }
+
+    private static double[] coordinates(List<? extends Point> points) {
+        double[] xy = new double[2 * points.size()];
+        for (int i = 0; i < points.size(); i++) {
+            xy[2 * i] = points.get(i).getX();
+            xy[2 * i + 1] = ((TwoDPoint) points.get(i)).getY();
+        }
+        return xy;
+    }
+
+    /**
+     * Tests every pair of edges of the polygon, and every pair of vertices, as per {@link Polygon#isSimple(List)}.
+     */
+    private static boolean isSimplePairwise(double[] xy) {
+        int n = xy.length / 2;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                if (xy[2 * i] == xy[2 * j] && xy[2 * i + 1] == xy[2 * j + 1])
+                    return false;
+        for (int e = 0; e < n; e++) {
+            for (int f = e + 1; f < n; f++) {
+                int e1 = 2 * e, e2 = 2 * ((e + 1) % n), f1 = 2 * f, f2 = 2 * ((f + 1) % n);
+                boolean consecutive = e2 == f1 || f2 == e1;
+                if (!consecutive && Geometry.segmentsIntersect(xy[e1], xy[e1 + 1], xy[e2], xy[e2 + 1],
+                                                               xy[f1], xy[f1 + 1], xy[f2], xy[f2 + 1]))
+                    return false;
+                if (consecutive) {
+                    // consecutive edges may only share their common vertex
+                    int a = e2 == f1 ? e1 : f1, b = e2 == f1 ? e2 : f2, c = e2 == f1 ? f2 : e2;
+                    if (Geometry.segmentDistance(xy[b], xy[b + 1], xy[c], xy[c + 1], xy[a], xy[a + 1]) == 0
+                            || Geometry.segmentDistance(xy[a], xy[a + 1], xy[b], xy[b + 1], xy[c], xy[c + 1]) == 0)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void check() {
+        Polygon rectangle = new Polygon(Arrays.asList(new TwoDPoint(4, 0), new TwoDPoint(0, 2), new TwoDPoint(4, 2),
+                                                      new TwoDPoint(0, 0)));
+        if (!rectangle.toString().equals("Polygon[(0.00,0.00), (0.00,2.00), (4.00,2.00), (4.00,0.00)]")
+                || rectangle.area() != 8 || rectangle.perimeter() != 12 || rectangle.numSides() != 4)
+            throw new AssertionError("the rectangle is " + rectangle);
+        int n = 1000;
+        List<TwoDPoint> regular = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            regular.add(new TwoDPoint(3 + 2 * Math.cos(2 * Math.PI * i / n), -1 + 2 * Math.sin(2 * Math.PI * i / n)));
+        Collections.shuffle(regular, new Random(216));
+        Polygon circle = new Polygon(regular);
+        TwoDPoint c = circle.centroid();
+        if (Math.abs(circle.area() - 4 * Math.PI) > 1e-4 || Math.abs(c.getX() - 3) > 1e-9
+                || Math.abs(c.getY() + 1) > 1e-9 || !circle.contains(3, -1) || circle.contains(5.1, -1)
+                || Math.abs(circle.distanceTo(6, -1) - 1) > 1e-9 || !circle.intersects(new BoundingBox(4.9, -1, 6, 0))
+                || !Polygon.convexHull(regular).equals(circle.getPosition()))
+            throw new AssertionError("the regular polygon is not ordered around its center");
+
+        Random random = new Random(216);
+        for (int trial = 0; trial < 30_000; trial++) {
+            int count = 3 + random.nextInt(trial < 15_000 ? 6 : 40), grid = 2 + random.nextInt(6);
+            List<TwoDPoint> points = new ArrayList<>(count);
+            if (trial % 3 == 2) {
+                points = nearlyCollinear(count, grid, random);
+            } else {
+                // an integer grid, or a grid of tenths, which are not exact in binary
+                double step = trial % 3 == 0 ? 1 : 0.1;
+                for (int i = 0; i < count; i++)
+                    points.add(new TwoDPoint(random.nextInt(grid) * step, random.nextInt(grid) * step));
+            }
+            double[] xy = coordinates(points);
+            if (Polygon.isSimple(xy) != isSimpleExact(xy))
+                throw new AssertionError("the simplicity of " + Arrays.toString(xy) + " is misjudged");
+
+            List<TwoDPoint> ordered = new ArrayList<>(points);
+            Polygon.sortVertices(ordered);
+            double[] sorted = coordinates(ordered);
+            boolean distinct = new HashSet<>(points).size() == count;
+            boolean flat = true;
+            for (int k = 2; k < count; k++)
+                flat &= exactOrientation(sorted, 0, 2, 2 * k) == 0;
+            if (distinct && !flat && !isSimpleExact(sorted))
+                throw new AssertionError("the ordered vertices " + ordered + " do not form a simple polygon");
+            Polygon polygon = new Polygon(points);
+            if (polygon.numSides() != count)
+                throw new AssertionError("the polygon of " + points + " is " + polygon);
+            if (polygon.isMember(points) != (distinct && !flat))
+                throw new AssertionError("the membership of " + points + " is misjudged");
+
+            checkHull(points);
+        }
+    }
+
+    /**
+     * @return <code>count</code> points on two or three lines from a point of a grid of tenths, at distances along the
+     * x-axis taken from that grid, with slopes that are not exact in binary and some points moved by one unit in the
+     * last place, so that the points of a line are nearly but not quite in a straight line
+     */
+    private static List<TwoDPoint> nearlyCollinear(int count, int grid, Random random) {
+        double[] slopes = {0.1, 1 / 3.0, Math.sqrt(2)};
+        int lines = 2 + random.nextInt(2);
+        double ox = random.nextInt(10 * grid) / 10.0, oy = random.nextInt(10 * grid) / 10.0;
+        List<TwoDPoint> points = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            double t = random.nextInt(10 * grid) / 10.0, y = oy + t * slopes[random.nextInt(lines)];
+            switch (random.nextInt(4)) {
+                case 0:  y = Math.nextUp(y); break;
+                case 1:  y = Math.nextDown(y); break;
+                default: break;
+            }
+            points.add(new TwoDPoint(ox + t, y));
+        }
+        return points;
+    }
+
+    /**
+     * Tests every pair of edges of the polygon, and every pair of vertices, as per {@link Polygon#isSimple(List)}, with
+     * exact arithmetic.
+     */
+    private static boolean isSimpleExact(double[] xy) {
+        int n = xy.length / 2;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++)
+                if (xy[2 * i] == xy[2 * j] && xy[2 * i + 1] == xy[2 * j + 1])
+                    return false;
+        for (int e = 0; e < n; e++) {
+            for (int f = e + 1; f < n; f++) {
+                int e1 = 2 * e, e2 = 2 * ((e + 1) % n), f1 = 2 * f, f2 = 2 * ((f + 1) % n);
+                if (e2 == f1 || f2 == e1) {
+                    // consecutive edges may only share their common vertex b
+                    int a = e2 == f1 ? e1 : f1, b = e2 == f1 ? e2 : f2, c = e2 == f1 ? f2 : e2;
+                    if (exactOrientation(xy, a, b, c) == 0 && (between(xy, b, c, a) || between(xy, a, b, c)))
+                        return false;
+                } else {
+                    int d1 = exactOrientation(xy, f1, f2, e1), d2 = exactOrientation(xy, f1, f2, e2);
+                    int d3 = exactOrientation(xy, e1, e2, f1), d4 = exactOrientation(xy, e1, e2, f2);
+                    if (d1 * d2 < 0 && d3 * d4 < 0 || d1 == 0 && between(xy, f1, f2, e1)
+                            || d2 == 0 && between(xy, f1, f2, e2) || d3 == 0 && between(xy, e1, e2, f1)
+                            || d4 == 0 && between(xy, e1, e2, f2))
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the sign of the cross product of the vectors from point a to points b and c, given by the offsets of
+     * their coordinates, computed exactly
+     */
+    private static int exactOrientation(double[] xy, int a, int b, int c) {
+        BigDecimal x = new BigDecimal(xy[a]), y = new BigDecimal(xy[a + 1]);
+        return new BigDecimal(xy[b]).subtract(x).multiply(new BigDecimal(xy[c + 1]).subtract(y))
+                .subtract(new BigDecimal(xy[c]).subtract(x).multiply(new BigDecimal(xy[b + 1]).subtract(y))).signum();
+    }
+
+    /**
+     * @return <code>true</code> if point c, known to be in a straight line with points a and b, lies on the segment
+     * from a to b
+     */
+    private static boolean between(double[] xy, int a, int b, int c) {
+        return Math.min(xy[a], xy[b]) <= xy[c] && xy[c] <= Math.max(xy[a], xy[b])
+                && Math.min(xy[a + 1], xy[b + 1]) <= xy[c + 1] && xy[c + 1] <= Math.max(xy[a + 1], xy[b + 1]);
+    }
+
+    /**
+     * Checks that the hull of the specified points is strictly convex, turning clockwise, contains all the points, and
+     * has only the points as vertices, which makes it the convex hull.
+     */
+    private static void checkHull(List<TwoDPoint> points) {
+        List<TwoDPoint> hull = Polygon.convexHull(points);
+        if (!points.containsAll(hull))
+            throw new AssertionError("the hull of " + points + " has other vertices");
+        double[] xy = coordinates(hull);
+        int h = hull.size();
+        double[] all = coordinates(points);
+        if (h < 3) {
+            for (int i = 0; i < all.length; i += 2) {
+                // the point is appended to the hull, so that the exact tests can take it by offset
+                double[] test = Arrays.copyOf(xy, xy.length + 2);
+                test[xy.length] = all[i];
+                test[xy.length + 1] = all[i + 1];
+                if (h == 1 ? xy[0] != all[i] || xy[1] != all[i + 1]
+                           : exactOrientation(test, 0, 2, 4) != 0 || !between(test, 0, 2, 4))
+                    throw new AssertionError("the flat hull " + hull + " misses points of " + points);
+            }
+            return;
+        }
+        for (int k = 0; k < h; k++) {
+            int a = 2 * k, b = 2 * ((k + 1) % h), d = 2 * ((k + 2) % h);
+            if (exactOrientation(xy, a, b, d) >= 0)
+                throw new AssertionError("the hull " + hull + " is not strictly convex and clockwise");
+        }
+        // a point is in a convex polygon turning clockwise if it is on or to the right of every edge
+        double[] test = Arrays.copyOf(xy, xy.length + 2);
+        for (int i = 0; i < all.length; i += 2) {
+            test[2 * h] = all[i];
+            test[2 * h + 1] = all[i + 1];
+            for (int k = 0; k < h; k++)
+                if (exactOrientation(test, 2 * k, 2 * ((k + 1) % h), 2 * h) > 0)
+                    throw new AssertionError("the hull " + hull + " misses " + points.get(i / 2));
+        }
+        if (!new Polygon(hull).getPosition().equals(hull))
+            throw new AssertionError("the hull " + hull + " is not in the order of a polygon");
+    }
+}
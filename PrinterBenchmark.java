@@ -0,0 +1,119 @@
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the throughput, in shapes per second, of printing shapes with {@link Printer} and with
+ * {@link BufferedPrinter}, both writing to a stream that discards its output so that only formatting and buffering
+ * are measured. Before measuring, the output of both printers is checked to be identical, byte for byte, for shapes
+ * with two-decimal coordinates, with arbitrary coordinates, and with coordinates right on the rounding ties of
+ * <code>%.2f</code>.
+ * <p>
+ * Usage: <code>java PrinterBenchmark [sizes]</code>.
+ */
+public class PrinterBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "1k,100k,1M");
+        checkIdentical(ParallelOrdering.randomShapes(100_000, new Random(216)));
+        checkIdentical(arbitraryShapes(100_000, new Random(216)));
+        checkIdentical(tieShapes());
+
+        System.out.printf("%s %14s%n", Bench.header(), "shapes/s");
+        for (int n : sizes) {
+            List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+            PrintStream out = System.out;
+            report(Bench.measure("Printer", n, n, () -> {
+                System.setOut(Bench.NULL_OUT);
+                try {
+                    Printer<TwoDShape> printer = new Printer<>();
+                    for (TwoDShape s : shapes)
+                        printer.print(s);
+                    return shapes.size();
+                } finally {
+                    System.setOut(out);
+                }
+            }));
+            BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(OutputStream.nullOutputStream(),
+                                                                       Charset.defaultCharset());
+            report(Bench.measure("BufferedPrinter", n, n, () -> {
+                printer.printAll(shapes);
+                printer.flush();
+                return printer.printed();
+            }));
+        }
+    }
+
+    private static void report(Bench.Result result) {
+        System.out.printf("%s %14.0f%n", result, result.opsPerSecond());
+    }
+
+    private static void checkIdentical(List<TwoDShape> shapes) {
+        Charset charset = Charset.defaultCharset();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        PrintStream out = System.out;
+        System.setOut(new PrintStream(expected, false, charset));
+        try {
+            Printer<TwoDShape> printer = new Printer<>();
+            for (TwoDShape s : shapes)
+                printer.print(s);
+            System.out.flush();
+        } finally {
+            System.setOut(out);
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(actual, charset)) {
+            printer.printAll(shapes);
+        }
+        if (!Arrays.equals(expected.toByteArray(), actual.toByteArray()))
+            throw new AssertionError("the outputs of Printer and BufferedPrinter differ");
+    }
+
+    private static List<TwoDShape> arbitraryShapes(int n, Random random) {
+        List<TwoDShape> shapes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double scale = Math.pow(10, random.nextInt(12) - 3);
+            double[] c = new double[8];
+            for (int k = 0; k < c.length; k++)
+                c[k] = (random.nextDouble() - 0.5) * scale;
+            shapes.add(shape(i, c));
+        }
+        return shapes;
+    }
+
+    /**
+     * @return shapes whose coordinates are all of the form <code>k / 1000</code> with an odd last digit of five, which
+     * are the ones where rounding the binary value differs from rounding the decimal representation
+     */
+    private static List<TwoDShape> tieShapes() {
+        List<TwoDShape> shapes = new ArrayList<>();
+        double[] c = new double[8];
+        for (int k = -200_000, i = 0; k <= 200_000; k += 10) {
+            c[i % 8] = (k + 5) / 1000.0;
+            if (++i % 8 == 0)
+                shapes.add(shape(i / 8, c));
+        }
+        return shapes;
+    }
+
+    private static TwoDShape shape(int i, double[] c) {
+        List<TwoDPoint> vertices = new ArrayList<>(4);
+        switch (i % 3) {
+            case 0:
+                return new Circle(c[0], c[1], Math.abs(c[2]));
+            case 1:
+                for (int k = 0; k < 3; k++)
+                    vertices.add(new TwoDPoint(c[2 * k], c[2 * k + 1]));
+                return new Triangle(vertices);
+            default:
+                for (int k = 0; k < 4; k++)
+                    vertices.add(new TwoDPoint(c[2 * k], c[2 * k + 1]));
+                return new Quadrilateral(vertices);
+        }
+    }
+}
@@ -1,16 +1,46 @@
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class Quadrilateral implements TwoDShape, Positionable {
 
     private double leastX;
 
-    List<TwoDPoint> vertices;
+    List<TwoDPoint> vertices = new ArrayList<>();
+
+    // derived metrics, computed on first use and invalidated whenever the vertices change; volatile, so that threads
+    // sharing a shape that is no longer modified never read a torn value, at worst computing a metric more than once
+    private volatile double      area      = Double.NaN;
+    private volatile double      perimeter = Double.NaN;
+    private volatile BoundingBox bounds;
+    private volatile TwoDPoint   centroid;
 
     public Quadrilateral(List<TwoDPoint> vertices) {
         setPosition(vertices);
     }
 
+    /**
+     * Creates a quadrilateral whose vertices are the canonical points of the specified pool with the coordinates of the
+     * specified vertices, so that the quadrilaterals sharing a vertex share a single point object.
+     */
+    public Quadrilateral(List<TwoDPoint> vertices, PointPool pool) {
+        setPosition(pool.internAll(vertices));
+    }
+
+    private Quadrilateral() {}
+
+    /**
+     * Creates a quadrilateral with the first four of the specified vertices in the same order. Unlike the public
+     * constructors, it does not sort the vertices, since {@link #sortVertices()} may reorder vertices it has already
+     * sorted: it is meant for the vertices of another quadrilateral, or of a quadrilateral kept in a store.
+     */
+    static Quadrilateral inOrder(List<TwoDPoint> vertices) {
+        Quadrilateral q = new Quadrilateral();
+        q.vertices = new ArrayList<>(vertices.subList(0, 4));
+        q.leastX = leastX(q.vertices);
+        return q;
+    }
+
     /**
      * Sets the position of this quadrilateral according to the first four elements in the specified list of points. The
      * quadrilateral is formed on the basis of these four points taken in a clockwise manner on the two-dimensional
@@ -20,20 +50,43 @@ public class Quadrilateral implements TwoDShape, Positionable {
      */
     @Override
     public void setPosition(List<? extends Point> points) throws IllegalArgumentException{
+        if (Metrics.ENABLED)
+            Metrics.SET_POSITION.increment();
         try {
-            if (this.vertices == null)
-                vertices = new ArrayList<>();
+            List<TwoDPoint> position = new ArrayList<>(4);
             for (int i = 0; i < 4; i++) {
                 if (points.get(i) instanceof TwoDPoint) {
-                    vertices.add((TwoDPoint) points.get(i));
+                    position.add((TwoDPoint) points.get(i));
                 }
                 else throw new IllegalArgumentException();
             }
+            vertices = position;
         } catch (IllegalArgumentException e) {
             System.out.println("Error: The list must consist of TwoDPoint instances.");
         }
         sortVertices();
-        leastX = vertices.get(0).getX();
+        leastX = leastX(vertices);
+        invalidate();
+    }
+
+    /**
+     * @return the least x-value of the specified vertices, which the single pass of {@link #sortVertices()} does not
+     * always bring first
+     */
+    private static double leastX(List<TwoDPoint> vertices) {
+        return Math.min(Math.min(vertices.get(0).getX(), vertices.get(1).getX()),
+                        Math.min(vertices.get(2).getX(), vertices.get(3).getX()));
+    }
+
+    /**
+     * Discards the cached area, perimeter, bounding box and centroid of this quadrilateral. Must be called whenever the
+     * vertices change.
+     */
+    private void invalidate() {
+        area      = Double.NaN;
+        perimeter = Double.NaN;
+        bounds    = null;
+        centroid  = null;
     }
 
     /**
@@ -44,7 +97,7 @@ public class Quadrilateral implements TwoDShape, Positionable {
      * @return the retrieved list of points.
      */
     @Override
-    public List<? extends Point> getPosition() {return vertices;}
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(vertices);}
 
     /**
      * @return the number of sides of this quadrilateral, which is always set to four
@@ -64,16 +117,32 @@ public class Quadrilateral implements TwoDShape, Positionable {
      */
     @Override
     public boolean isMember(List<? extends Point> vertices) {
+        return isValid(vertices);
+    }
+
+    /**
+     * Checks whether or not a list of vertices forms a valid quadrilateral, as specified by {@link #isMember(List)}.
+     */
+    static boolean isValid(List<? extends Point> vertices) {
         TwoDPoint p1 = (TwoDPoint) vertices.get(0),
                   p2 = (TwoDPoint) vertices.get(1),
                   p3 = (TwoDPoint) vertices.get(2),
                   p4 = (TwoDPoint) vertices.get(3);
 
-        if (p1.getX() == p2.getX() && p2.getX() == p3.getX() && p3.getX() == p4.getX())
+        return isValid(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), p4.getX(), p4.getY());
+    }
+
+    /**
+     * Checks whether or not the four specified vertices form a valid quadrilateral, as specified by
+     * {@link #isMember(List)}, without creating any object.
+     */
+    static boolean isValid(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4) {
+        if (x1 == x2 && x2 == x3 && x3 == x4)
             return false;
-        else if (p1.getY() == p2.getY() && p2.getY() == p3.getY() && p3.getY() == p4.getY())
+        else if (y1 == y2 && y2 == y3 && y3 == y4)
             return false;
-        else return slope(p1, p2) != slope(p2, p3) && slope(p2, p3) != slope(p3, p4);
+        else return slopeOf(x1, y1, x2, y2) != slopeOf(x2, y2, x3, y3)
+                    && slopeOf(x2, y2, x3, y3) != slopeOf(x3, y3, x4, y4);
     }
 
     @Override
@@ -81,6 +150,8 @@ public class Quadrilateral implements TwoDShape, Positionable {
 
     @Override
     public int compareTo(TwoDShape s) {
+        if (Metrics.ENABLED)
+            Metrics.COMPARE_TO.increment();
         return Double.compare(this.area(), s.area());
     }
 
@@ -92,65 +163,170 @@ public class Quadrilateral implements TwoDShape, Positionable {
      * Snapping is an in-place procedure, and the current instance is modified.
      */
     public void snap() {
+        trySnap();
+    }
+
+    /**
+     * Snaps this quadrilateral as per {@link #snap()}, testing the snapped vertices before creating any point.
+     *
+     * @return <code>true</code> if the quadrilateral was snapped, or <code>false</code> if it was left unchanged
+     * because the snapped quadrilateral would be invalid.
+     */
+    boolean trySnap() {
         TwoDPoint o1 = vertices.get(0),
                   o2 = vertices.get(1),
                   o3 = vertices.get(2),
                   o4 = vertices.get(3);
 
+        double x1 = Math.round(o1.getX()), y1 = Math.round(o1.getY()),
+               x2 = Math.round(o2.getX()), y2 = Math.round(o2.getY()),
+               x3 = Math.round(o3.getX()), y3 = Math.round(o3.getY()),
+               x4 = Math.round(o4.getX()), y4 = Math.round(o4.getY());
+        if (!isValid(x1, y1, x2, y2, x3, y3, x4, y4))
+            return false;
 
-        TwoDPoint p1 = new TwoDPoint(Math.round(o1.getX()), Math.round(o1.getY())),
-                  p2 = new TwoDPoint(Math.round(o2.getX()), Math.round(o2.getY())),
-                  p3 = new TwoDPoint(Math.round(o3.getX()), Math.round(o3.getY())),
-                  p4 = new TwoDPoint(Math.round(o4.getX()), Math.round(o4.getY()));
-
-        List<TwoDPoint> temp = new ArrayList<>(3);
-        temp.add(p1);
-        temp.add(p2);
-        temp.add(p3);
-        temp.add(p4);
-
-        if (isMember(temp)) {
-            vertices = temp;
-            leastX = temp.get(0).getX();
-        }
+        List<TwoDPoint> temp = new ArrayList<>(4);
+        temp.add(new TwoDPoint(x1, y1));
+        temp.add(new TwoDPoint(x2, y2));
+        temp.add(new TwoDPoint(x3, y3));
+        temp.add(new TwoDPoint(x4, y4));
+        vertices = temp;
+        leastX = Math.min(Math.min(x1, x2), Math.min(x3, x4));
+        invalidate();
+        return true;
     }
 
     /**
-     * @return the area of this quadrilateral
+     * @return the area of this quadrilateral; computed once per position
      */
     @Override
     public double area() {
-        List<TwoDPoint> h1 = new ArrayList<>();
-        h1.add(vertices.get(0));
-        h1.add(vertices.get(1));
-        h1.add(vertices.get(2));
-
-        List<TwoDPoint> h2 = new ArrayList<>();
-        h2.add(vertices.get(0));
-        h2.add(vertices.get(3));
-        h2.add(vertices.get(2));
+        if (Metrics.ENABLED)
+            Metrics.AREA.increment();
+        if (Double.isNaN(area))
+            area = computeArea();
+        return area;
+    }
 
-        Triangle t1 = new Triangle(h1),
-                 t2 = new Triangle(h2);
+    private double computeArea() {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2),
+                  p4 = vertices.get(3);
 
-        return t1.area() + t2.area();
+        return Geometry.quadrilateralArea(p1.getX(), p1.getY(), p2.getX(), p2.getY(),
+                                          p3.getX(), p3.getY(), p4.getX(), p4.getY());
     }
 
     /**
-     * @return the perimeter (i.e., the total length of the boundary) of this quadrilateral
+     * @return the perimeter (i.e., the total length of the boundary) of this quadrilateral; computed once per position
      */
     public double perimeter() {
+        if (Metrics.ENABLED)
+            Metrics.PERIMETER.increment();
+        if (Double.isNaN(perimeter))
+            perimeter = computePerimeter();
+        return perimeter;
+    }
+
+    private double computePerimeter() {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2),
+                  p4 = vertices.get(3);
+
+        return Geometry.quadrilateralPerimeter(p1.getX(), p1.getY(), p2.getX(), p2.getY(),
+                                               p3.getX(), p3.getY(), p4.getX(), p4.getY());
+    }
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing the vertices of this quadrilateral; computed once per
+     * position
+     */
+    @Override
+    public BoundingBox boundingBox() {
+        if (bounds == null) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+                   maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (TwoDPoint v : vertices) {
+                minX = Math.min(minX, v.getX());
+                minY = Math.min(minY, v.getY());
+                maxX = Math.max(maxX, v.getX());
+                maxY = Math.max(maxY, v.getY());
+            }
+            bounds = new BoundingBox(minX, minY, maxX, maxY);
+        }
+        return bounds;
+    }
+
+    /**
+     * Returns the centroid of this quadrilateral, as the average of the centroids of the two triangles formed by the
+     * first and third vertices with each of the other two (the same triangles that make up its area), weighted by their
+     * areas. If both triangles are degenerate, this is the average of the four vertices.
+     *
+     * @return the centroid of this quadrilateral; computed once per position
+     */
+    @Override
+    public TwoDPoint centroid() {
+        if (centroid == null) {
+            TwoDPoint p1 = vertices.get(0),
+                      p2 = vertices.get(1),
+                      p3 = vertices.get(2),
+                      p4 = vertices.get(3);
+            double a1 = Geometry.triangleArea(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY()),
+                   a2 = Geometry.triangleArea(p1.getX(), p1.getY(), p4.getX(), p4.getY(), p3.getX(), p3.getY());
+            if (a1 + a2 == 0)
+                centroid = new TwoDPoint((p1.getX() + p2.getX() + p3.getX() + p4.getX()) / 4,
+                                         (p1.getY() + p2.getY() + p3.getY() + p4.getY()) / 4);
+            else {
+                double w = 3 * (a1 + a2);
+                double x = a1 * (p1.getX() + p2.getX() + p3.getX()) + a2 * (p1.getX() + p4.getX() + p3.getX());
+                double y = a1 * (p1.getY() + p2.getY() + p3.getY()) + a2 * (p1.getY() + p4.getY() + p3.getY());
+                centroid = new TwoDPoint(x / w, y / w);
+            }
+        }
+        return centroid;
+    }
+
+    /**
+     * Checks whether the point (x,y) lies in this quadrilateral. The region of a quadrilateral is the union of the two
+     * triangles that make up its area, which is the enclosed region whenever the vertices are in clockwise order.
+     */
+    @Override
+    public boolean contains(double x, double y) {
         TwoDPoint p1 = vertices.get(0),
                   p2 = vertices.get(1),
                   p3 = vertices.get(2),
                   p4 = vertices.get(3);
 
-        double a = distance(p1, p2);
-        double b = distance(p2, p3);
-        double c = distance(p3, p4);
-        double d = distance(p4, p1);
+        return Geometry.triangleContains(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), x, y)
+                || Geometry.triangleContains(p1.getX(), p1.getY(), p4.getX(), p4.getY(), p3.getX(), p3.getY(), x, y);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2),
+                  p4 = vertices.get(3);
+
+        return Math.min(
+                Geometry.triangleDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), x, y),
+                Geometry.triangleDistance(p1.getX(), p1.getY(), p4.getX(), p4.getY(), p3.getX(), p3.getY(), x, y));
+    }
+
+    @Override
+    public boolean intersects(BoundingBox box) {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2),
+                  p4 = vertices.get(3);
 
-        return a + b + c + d;
+        if (!boundingBox().intersects(box))
+            return false;
+        return Geometry.triangleIntersectsBox(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), box)
+                || Geometry.triangleIntersectsBox(p1.getX(), p1.getY(), p4.getX(), p4.getY(), p3.getX(), p3.getY(),
+                                                  box);
     }
 
     public List<TwoDPoint> sortVertices() {
@@ -184,13 +360,19 @@ public class Quadrilateral implements TwoDShape, Positionable {
     }
 
     public double slope (TwoDPoint p1, TwoDPoint p2) {
-        return (p2.getY() - p1.getY())/(p2.getX() - p1.getX());
+        return slopeOf(p1, p2);
+    }
+
+    private static double slopeOf(TwoDPoint p1, TwoDPoint p2) {
+        return slopeOf(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+    }
+
+    private static double slopeOf(double x1, double y1, double x2, double y2) {
+        return (y2 - y1)/(x2 - x1);
     }
 
     public double distance (TwoDPoint p1, TwoDPoint p2) {
-        double a = p2.getX() - p1.getX();
-        double b = p2.getY() - p1.getY();
-        return Math.sqrt((a*a)+(b*b));
+        return Geometry.distance(p1.getX(), p1.getY(), p2.getX(), p2.getY());
     }
 
     @Override
@@ -0,0 +1,192 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Measures {@link ShapeQuery} against the queries it replaces, written by hand: the hundred largest shapes, by copying
+ * the shapes, sorting the copy and keeping its first hundred, against a query fusing the order and the limit into a
+ * heap; the number of shapes in a narrow range of least x-values, by a scan against a lookup in the index of an
+ * {@link ShapeQuery#indexed() indexed} query; and all the shapes by area, by sorting a copy against a query sorting its
+ * positions. The plan of each query is printed before its measurements.
+ * <p>
+ * Before measuring, random queries over lists, stores, off-heap stores, files and their indexed versions are checked
+ * to return the same shapes in the same order as the same filters, stable sort and limit written with streams.
+ * <p>
+ * Usage: <code>java QueryBenchmark [sizes]</code>.
+ */
+public class QueryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "100k,1M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+            ShapeQuery query = ShapeQuery.of(shapes);
+            ShapeQuery indexed = query.indexed();
+
+            ShapeQuery largest = query.orderByDescending(ShapeQuery.Metric.AREA).limit(100);
+            System.out.println("# " + largest.plan());
+            System.out.println(Bench.measure("largest100.handwritten", n, n, () -> {
+                List<TwoDShape> copy = new ArrayList<>(shapes);
+                copy.sort(Comparator.comparingDouble(TwoDShape::area).reversed());
+                return copy.subList(0, 100).size();
+            }));
+            System.out.println(Bench.measure("largest100.query", n, n, () -> largest.toList().size()));
+
+            ShapeQuery range = indexed.leastXBetween(10, 10.5);
+            System.out.println("# " + range.plan());
+            System.out.println(Bench.measure("leastXRange.scan", n, n, () -> {
+                int count = 0;
+                for (TwoDShape s : shapes)
+                    if (s.getLeastX() >= 10 && s.getLeastX() <= 10.5)
+                        count++;
+                return count;
+            }));
+            System.out.println(Bench.measure("leastXRange.query", n, n, range::count));
+
+            ShapeQuery all = query.orderBy(ShapeQuery.Metric.AREA);
+            System.out.println("# " + all.plan());
+            System.out.println(Bench.measure("byArea.handwritten", n, n, () -> {
+                List<TwoDShape> copy = new ArrayList<>(shapes);
+                Ordering.sortByArea(copy);
+                return copy.size();
+            }));
+            System.out.println(Bench.measure("byArea.query", n, n, () -> all.toList().size()));
+        }
+    }
+
+    private static void check() throws IOException {
+        Random random = new Random(216);
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(20_000, random);
+        // shapes whose vertices are out of order must have the same least x-value in every source
+        for (int i = 0; i < shapes.size(); i += 50) {
+            List<TwoDPoint> vertices = new ArrayList<>();
+            for (int k = 0; k < 4; k++)
+                vertices.add(new TwoDPoint(random.nextInt(2000) / 100.0, random.nextInt(2000) / 100.0));
+            shapes.set(i, i % 100 == 0 ? new Triangle(vertices) : new Quadrilateral(vertices));
+        }
+        ShapeStore store = new ShapeStore();
+        Path path = Files.createTempFile("shapes-", ".bin");
+        path.toFile().deleteOnExit();
+        try (ShapeFileWriter writer = new ShapeFileWriter(path)) {
+            for (TwoDShape s : shapes) {
+                store.add(s);
+                writer.write(s);
+                // points are skipped by queries over files and off-heap stores
+                if (random.nextInt(10) == 0)
+                    writer.writePoint(s.getLeastX(), 0);
+            }
+        }
+        try (ShapeFile file = ShapeFile.open(path); OffHeapShapeStore offHeap = new OffHeapShapeStore()) {
+            offHeap.addAll(shapes);
+            offHeap.addAll(PointArray.twoD(new double[] {1, 2, 3, 4}));
+            List<ShapeQuery> sources = Arrays.asList(ShapeQuery.of(shapes), ShapeQuery.of(store),
+                                                     ShapeQuery.of(offHeap), ShapeQuery.of(file));
+            for (int q = 0; q < 2_000; q++)
+                checkQuery(shapes, sources.get(q % 4), q % 8 >= 4, random);
+        }
+
+        List<TwoDShape> polygons = new ArrayList<>(shapes.subList(0, 100));
+        polygons.add(new Polygon(Arrays.asList(new TwoDPoint(0, 0), new TwoDPoint(2, 0), new TwoDPoint(3, 1),
+                                               new TwoDPoint(2, 2), new TwoDPoint(0, 2))));
+        polygons.add(new Polygon(Arrays.asList(new TwoDPoint(0, 0), new TwoDPoint(2, 0), new TwoDPoint(1, 2))));
+        polygons.add(new Polygon(Arrays.asList(new TwoDPoint(0, 0), new TwoDPoint(2, 0), new TwoDPoint(2, 2),
+                                               new TwoDPoint(0, 2))));
+        ShapeQuery query = ShapeQuery.of(polygons);
+        if (query.kind(ShapeQuery.Kind.POLYGON).count() != 3
+                || query.kind(ShapeQuery.Kind.TRIANGLE).count() != ShapeQuery.of(polygons.subList(0, 100))
+                                                                            .kind(ShapeQuery.Kind.TRIANGLE).count())
+            throw new AssertionError("polygons of three, four and five vertices are not all polygons, and only them");
+
+        List<TwoDShape> growing = new ArrayList<>(shapes.subList(0, 100));
+        ShapeQuery indexed = ShapeQuery.of(growing).indexed();
+        growing.add(shapes.get(100));
+        try {
+            indexed.count();
+            throw new AssertionError("an outdated index was used");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Checks a random query over the specified source, indexed or not, against the same query on streams over the
+     * specified shapes, which are those of the source.
+     */
+    private static void checkQuery(List<TwoDShape> shapes, ShapeQuery query, boolean indexed, Random random) {
+        if (indexed)
+            query = query.indexed();
+        Predicate<TwoDShape> expected = s -> true;
+        if (random.nextBoolean()) {
+            ShapeQuery.Kind kind = ShapeQuery.Kind.values()[random.nextInt(3)];
+            query = query.kind(kind);
+            expected = expected.and(s -> ShapeQuery.Kind.of(s) == kind);
+        }
+        for (ShapeQuery.Metric metric : ShapeQuery.Metric.values()) {
+            for (int r = random.nextInt(3); r > 0; r--) {
+                double min = random.nextInt(400) / 10.0 - 5, max = min + random.nextInt(400) / 10.0;
+                ToDoubleFunction<TwoDShape> value = value(metric);
+                if (metric == ShapeQuery.Metric.AREA && random.nextBoolean())
+                    query = query.areaBetween(min, max);
+                else if (metric == ShapeQuery.Metric.LEAST_X && random.nextBoolean())
+                    query = query.leastXBetween(min, max);
+                else
+                    query = query.where(metric, min, max);
+                expected = expected.and(s -> value.applyAsDouble(s) >= min && value.applyAsDouble(s) <= max);
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            Predicate<TwoDShape> perimeter = s -> s.perimeter() > 10;
+            query = query.filter(perimeter);
+            expected = expected.and(perimeter);
+        }
+        Comparator<TwoDShape> order = null;
+        if (random.nextInt(3) > 0) {
+            ShapeQuery.Metric metric = ShapeQuery.Metric.values()[random.nextInt(3)];
+            order = Comparator.comparingDouble(value(metric));
+            if (random.nextBoolean()) {
+                query = query.orderByDescending(metric);
+                order = order.reversed();
+            } else {
+                query = query.orderBy(metric);
+            }
+        }
+        long limit = Long.MAX_VALUE;
+        if (random.nextBoolean()) {
+            limit = random.nextInt(4) == 0 ? random.nextInt(5000) : random.nextInt(50);
+            query = query.limit((int) limit);
+        }
+
+        List<String> expectedShapes = shapes.stream().filter(expected).sorted(order == null ? (a, b) -> 0 : order)
+                                            .limit(limit).map(Object::toString).collect(Collectors.toList());
+        List<String> actual = new ArrayList<>();
+        for (TwoDShape s : query.toList())
+            actual.add(s.toString());
+        if (!expectedShapes.equals(actual))
+            throw new AssertionError(query.plan() + " returned " + actual.size() + " shapes instead of "
+                                     + expectedShapes.size() + ", or other shapes or in another order");
+        if (query.count() != expectedShapes.size())
+            throw new AssertionError(query.plan() + " counted other shapes");
+        if (query.summary(ShapeQuery.Metric.AREA).getCount() != expectedShapes.size()
+                || query.values(ShapeQuery.Metric.LEAST_X).length != expectedShapes.size())
+            throw new AssertionError(query.plan() + " aggregated other shapes");
+    }
+
+    private static ToDoubleFunction<TwoDShape> value(ShapeQuery.Metric metric) {
+        switch (metric) {
+            case AREA:      return TwoDShape::area;
+            case PERIMETER: return TwoDShape::perimeter;
+            default:        return TwoDShape::getLeastX;
+        }
+    }
+}
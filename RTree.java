@@ -0,0 +1,446 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * An R-tree over two-dimensional shapes. Every node holds between {@value #MIN_ENTRIES} and {@value #MAX_ENTRIES}
+ * children (the root may hold fewer), each with the bounding box of everything below it. Shapes can be inserted and
+ * removed one at a time, in which case overflowing nodes are split with the quadratic split of Guttman and
+ * underflowing nodes are dissolved and their shapes inserted again, or loaded all at once with
+ * {@link #bulkLoad(Collection)}, which packs them with the Sort-Tile-Recursive (STR) algorithm.
+ *
+ * @param <T> the type of the indexed shapes
+ */
+public class RTree<T extends TwoDShape> implements SpatialIndex<T> {
+
+    static final int MAX_ENTRIES = 16;
+    static final int MIN_ENTRIES = 6;
+
+    private Node root   = new Node(true);
+    private int  height = 0;
+
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+
+    /**
+     * Something with a bounding box: either a node or an entry of a leaf.
+     */
+    private abstract static class Bounded {
+        double minX, minY, maxX, maxY;
+
+        double area() {return (maxX - minX) * (maxY - minY);}
+
+        double enlargedArea(Bounded b) {
+            double width = Math.max(maxX, b.maxX) - Math.min(minX, b.minX);
+            return width * (Math.max(maxY, b.maxY) - Math.min(minY, b.minY));
+        }
+
+        boolean intersects(BoundingBox b) {
+            return minX <= b.getMaxX() && b.getMinX() <= maxX && minY <= b.getMaxY() && b.getMinY() <= maxY;
+        }
+
+        boolean contains(Bounded b) {
+            return minX <= b.minX && b.maxX <= maxX && minY <= b.minY && b.maxY <= maxY;
+        }
+
+        boolean contains(double x, double y) {
+            return minX <= x && x <= maxX && minY <= y && y <= maxY;
+        }
+
+        double squaredDistance(double x, double y) {
+            double dx = Math.max(Math.max(minX - x, 0), x - maxX);
+            double dy = Math.max(Math.max(minY - y, 0), y - maxY);
+            return dx * dx + dy * dy;
+        }
+    }
+
+    private static final class Entry<T> extends Bounded {
+        final T shape;
+
+        Entry(T shape, BoundingBox box) {
+            this.shape = shape;
+            this.minX = box.getMinX();
+            this.minY = box.getMinY();
+            this.maxX = box.getMaxX();
+            this.maxY = box.getMaxY();
+        }
+    }
+
+    private static final class Node extends Bounded {
+        final boolean leaf;
+        final Bounded[] children = new Bounded[MAX_ENTRIES + 1];
+        int count;
+
+        Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        void add(Bounded child) {
+            children[count++] = child;
+        }
+
+        void removeAt(int i) {
+            children[i] = children[--count];
+            children[count] = null;
+        }
+
+        void recomputeBounds() {
+            minX = minY = Double.POSITIVE_INFINITY;
+            maxX = maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < count; i++) {
+                Bounded c = children[i];
+                minX = Math.min(minX, c.minX);
+                minY = Math.min(minY, c.minY);
+                maxX = Math.max(maxX, c.maxX);
+                maxY = Math.max(maxY, c.maxY);
+            }
+        }
+    }
+
+    /**
+     * Creates a tree holding the specified shapes, packed into full nodes with the Sort-Tile-Recursive algorithm: the
+     * shapes are sorted by the x-value of the centers of their bounding boxes, cut into vertical slices, each slice is
+     * sorted by y-value and cut into leaves, and the same is repeated on the leaves until a single root is left.
+     *
+     * @param shapes the shapes to index.
+     * @return a new tree holding the shapes.
+     */
+    public static <T extends TwoDShape> RTree<T> bulkLoad(Collection<? extends T> shapes) {
+        RTree<T> tree = new RTree<>();
+        List<Bounded> level = new ArrayList<>(shapes.size());
+        for (T shape : shapes) {
+            Entry<T> e = new Entry<>(shape, shape.boundingBox());
+            if (tree.entries.put(shape, e) == null)
+                level.add(e);
+        }
+        if (level.isEmpty())
+            return tree;
+        boolean leaf = true;
+        do {
+            level = pack(level, leaf);
+            if (!leaf)
+                tree.height++;
+            leaf = false;
+        } while (level.size() > 1);
+        tree.root = (Node) level.get(0);
+        return tree;
+    }
+
+    private static List<Bounded> pack(List<Bounded> items, boolean leaf) {
+        int n = items.size();
+        int nodes = (n + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int slices = (int) Math.ceil(Math.sqrt(nodes));
+        int sliceSize = slices * MAX_ENTRIES;
+        KeySort.sort(items, b -> b.minX + b.maxX);
+        List<Bounded> packed = new ArrayList<>(nodes);
+        for (int s = 0; s < n; s += sliceSize) {
+            List<Bounded> slice = items.subList(s, Math.min(s + sliceSize, n));
+            KeySort.sort(slice, b -> b.minY + b.maxY);
+            for (int i = 0; i < slice.size(); i += MAX_ENTRIES) {
+                Node node = new Node(leaf);
+                for (Bounded b : slice.subList(i, Math.min(i + MAX_ENTRIES, slice.size())))
+                    node.add(b);
+                node.recomputeBounds();
+                packed.add(node);
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * Adds the specified shape to this tree, or brings its location up to date if it is already there.
+     */
+    @Override
+    public void insert(T shape) {
+        if (entries.containsKey(shape)) {
+            update(shape);
+            return;
+        }
+        Entry<T> e = new Entry<>(shape, shape.boundingBox());
+        entries.put(shape, e);
+        insert(e, 0);
+    }
+
+    /**
+     * Inserts an entry (at level 0) or a subtree (at its own level) below the root, growing the tree if the root
+     * splits.
+     */
+    private void insert(Bounded item, int level) {
+        Node sibling = insert(root, height, item, level);
+        if (sibling != null) {
+            Node newRoot = new Node(false);
+            newRoot.add(root);
+            newRoot.add(sibling);
+            newRoot.recomputeBounds();
+            root = newRoot;
+            height++;
+        }
+    }
+
+    /**
+     * @return the new sibling of <code>node</code> if it had to be split, and <code>null</code> otherwise
+     */
+    private Node insert(Node node, int nodeLevel, Bounded item, int level) {
+        if (nodeLevel == level) {
+            node.add(item);
+        } else {
+            Node child = chooseSubtree(node, item);
+            Node sibling = insert(child, nodeLevel - 1, item, level);
+            if (sibling != null)
+                node.add(sibling);
+        }
+        if (node.count > MAX_ENTRIES)
+            return split(node);
+        node.recomputeBounds();
+        return null;
+    }
+
+    /**
+     * @return the child of <code>node</code> whose bounding box needs the least enlargement to include the item, the
+     * one of least area among those needing the same enlargement
+     */
+    private static Node chooseSubtree(Node node, Bounded item) {
+        Node best = null;
+        double bestEnlargement = Double.POSITIVE_INFINITY, bestArea = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < node.count; i++) {
+            Node child = (Node) node.children[i];
+            double area = child.area();
+            double enlargement = child.enlargedArea(item) - area;
+            if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                best = child;
+                bestEnlargement = enlargement;
+                bestArea = area;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Splits an overflowing node with the quadratic split: the two children that would waste the most area together
+     * seed two groups, and the remaining children are assigned one at a time, the one with the strongest preference
+     * first, while making sure that each group ends up with at least {@value #MIN_ENTRIES} children.
+     *
+     * @return the new node holding the second group; the first group stays in <code>node</code>
+     */
+    private static Node split(Node node) {
+        Bounded[] items = node.children.clone();
+        int n = node.count;
+        int seedA = 0, seedB = 1;
+        double worst = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++)
+            for (int j = i + 1; j < n; j++) {
+                double waste = items[i].enlargedArea(items[j]) - items[i].area() - items[j].area();
+                if (waste > worst) {
+                    worst = waste;
+                    seedA = i;
+                    seedB = j;
+                }
+            }
+
+        Node a = node, b = new Node(node.leaf);
+        a.count = 0;
+        Arrays.fill(a.children, null);
+        a.add(items[seedA]);
+        b.add(items[seedB]);
+        a.recomputeBounds();
+        b.recomputeBounds();
+        boolean[] assigned = new boolean[n];
+        assigned[seedA] = assigned[seedB] = true;
+
+        for (int remaining = n - 2; remaining > 0; remaining--) {
+            Node forced = a.count + remaining == MIN_ENTRIES ? a : b.count + remaining == MIN_ENTRIES ? b : null;
+            int next = -1;
+            double strongest = Double.NEGATIVE_INFINITY, costA = 0, costB = 0;
+            for (int i = 0; i < n; i++) {
+                if (assigned[i])
+                    continue;
+                double da = a.enlargedArea(items[i]) - a.area(), db = b.enlargedArea(items[i]) - b.area();
+                if (Math.abs(da - db) > strongest) {
+                    strongest = Math.abs(da - db);
+                    next = i;
+                    costA = da;
+                    costB = db;
+                }
+            }
+            Node target = forced != null ? forced
+                    : costA < costB ? a : costB < costA ? b
+                    : a.area() < b.area() ? a : b.area() < a.area() ? b
+                    : a.count <= b.count ? a : b;
+            target.add(items[next]);
+            target.recomputeBounds();
+            assigned[next] = true;
+        }
+        return b;
+    }
+
+    @Override
+    public boolean remove(T shape) {
+        Entry<T> e = entries.remove(shape);
+        if (e == null)
+            return false;
+        List<Bounded> orphans = new ArrayList<>();
+        remove(root, e, orphans);
+        if (!root.leaf && root.count == 1) {
+            root = (Node) root.children[0];
+            height--;
+        } else if (root.count == 0) {
+            root = new Node(true);
+            height = 0;
+        }
+        for (Bounded orphan : orphans)
+            insert(orphan, 0);
+        return true;
+    }
+
+    /**
+     * Removes the specified entry from the subtree of <code>node</code>, dissolving every node left with fewer than
+     * {@value #MIN_ENTRIES} children and collecting the entries below it into <code>orphans</code>.
+     *
+     * @return <code>true</code> if the entry was found in the subtree
+     */
+    private static boolean remove(Node node, Bounded e, List<Bounded> orphans) {
+        if (node.leaf) {
+            for (int i = 0; i < node.count; i++)
+                if (node.children[i] == e) {
+                    node.removeAt(i);
+                    node.recomputeBounds();
+                    return true;
+                }
+            return false;
+        }
+        for (int i = 0; i < node.count; i++) {
+            Node child = (Node) node.children[i];
+            if (child.contains(e) && remove(child, e, orphans)) {
+                if (child.count < MIN_ENTRIES) {
+                    node.removeAt(i);
+                    collectEntries(child, orphans);
+                }
+                node.recomputeBounds();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void collectEntries(Node node, List<Bounded> entries) {
+        for (int i = 0; i < node.count; i++) {
+            if (node.leaf)
+                entries.add(node.children[i]);
+            else
+                collectEntries((Node) node.children[i], entries);
+        }
+    }
+
+    @Override
+    public boolean update(T shape) {
+        Entry<T> e = entries.get(shape);
+        if (e == null)
+            return false;
+        BoundingBox box = shape.boundingBox();
+        if (box.getMinX() == e.minX && box.getMinY() == e.minY && box.getMaxX() == e.maxX && box.getMaxY() == e.maxY)
+            return true;
+        remove(shape);
+        insert(shape);
+        return true;
+    }
+
+    @Override
+    public int size() {return entries.size();}
+
+    /**
+     * @return the number of levels of nodes of this tree
+     */
+    public int height() {return height + 1;}
+
+    @Override
+    public void query(BoundingBox window, Consumer<? super T> action) {
+        if (root.count > 0)
+            query(root, window, action);
+    }
+
+    private void query(Node node, BoundingBox window, Consumer<? super T> action) {
+        for (int i = 0; i < node.count; i++) {
+            Bounded child = node.children[i];
+            if (!child.intersects(window))
+                continue;
+            if (node.leaf) {
+                @SuppressWarnings("unchecked") T shape = ((Entry<T>) child).shape;
+                if (shape.intersects(window))
+                    action.accept(shape);
+            } else {
+                query((Node) child, window, action);
+            }
+        }
+    }
+
+    @Override
+    public void containing(double x, double y, Consumer<? super T> action) {
+        if (root.count > 0)
+            containing(root, x, y, action);
+    }
+
+    private void containing(Node node, double x, double y, Consumer<? super T> action) {
+        for (int i = 0; i < node.count; i++) {
+            Bounded child = node.children[i];
+            if (!child.contains(x, y))
+                continue;
+            if (node.leaf) {
+                @SuppressWarnings("unchecked") T shape = ((Entry<T>) child).shape;
+                if (shape.contains(x, y))
+                    action.accept(shape);
+            } else {
+                containing((Node) child, x, y, action);
+            }
+        }
+    }
+
+    /**
+     * Finds the nearest shape with a best-first search: nodes are visited in increasing order of the distance from the
+     * point to their bounding boxes, which never exceeds the distance to any shape below them, so the first shape taken
+     * from the queue is the nearest one.
+     */
+    @Override
+    public T nearest(double x, double y) {
+        if (root.count == 0)
+            return null;
+        PriorityQueue<Candidate> queue = new PriorityQueue<>();
+        queue.add(new Candidate(root, 0));
+        while (!queue.isEmpty()) {
+            Candidate c = queue.poll();
+            if (c.item instanceof Entry) {
+                @SuppressWarnings("unchecked") T shape = ((Entry<T>) c.item).shape;
+                return shape;
+            }
+            Node node = (Node) c.item;
+            for (int i = 0; i < node.count; i++) {
+                Bounded child = node.children[i];
+                if (node.leaf) {
+                    @SuppressWarnings("unchecked") T shape = ((Entry<T>) child).shape;
+                    queue.add(new Candidate(child, shape.distanceTo(x, y)));
+                } else {
+                    queue.add(new Candidate(child, Math.sqrt(child.squaredDistance(x, y))));
+                }
+            }
+        }
+        return null;
+    }
+
+    private static final class Candidate implements Comparable<Candidate> {
+        final Bounded item;
+        final double distance;
+
+        Candidate(Bounded item, double distance) {
+            this.item = item;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(Candidate c) {
+            return Double.compare(distance, c.distance);
+        }
+    }
+}
@@ -0,0 +1,223 @@
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.LongSupplier;
+
+/**
+ * Benchmarks of shape construction through <code>setPosition</code>, area and perimeter of every kind of shape, the
+ * comparators, sorts and top-k selections of {@link Ordering}, {@link Ordering#copy},
+ * {@link Ordering#printAllAndReturnLeast} and <code>toString</code>, for a range of input sizes. Times are reported
+ * per shape (or per point).
+ * <p>
+ * Usage: <code>java ShapeBenchmark [sizes] [filter]</code>, where <code>sizes</code> is a comma-separated list such as
+ * <code>10,1k,100k,10M</code> and <code>filter</code> only keeps the benchmarks whose name contains it. The results
+ * of a run are kept in <code>benchmarks/baseline.txt</code> so that regressions are visible in review.
+ */
+public class ShapeBenchmark {
+
+    private static final String DEFAULT_SIZES = "10,1k,100k,1M";
+
+    /**
+     * Small inputs are processed repeatedly within a single run so that every run lasts long enough to be timed.
+     */
+    private static final int MIN_OPS_PER_RUN = 100_000;
+
+    private static final int TOP_K = 10;
+
+    private final String filter;
+
+    private ShapeBenchmark(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : DEFAULT_SIZES);
+        ShapeBenchmark benchmark = new ShapeBenchmark(args.length > 1 ? args[1] : "");
+        System.out.println(Bench.header());
+        for (int size : sizes)
+            benchmark.runAll(size);
+    }
+
+    private void runAll(int n) {
+        Random random = new Random(216);
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, random);
+        List<Circle> circles = new ArrayList<>();
+        List<Triangle> triangles = new ArrayList<>();
+        List<Quadrilateral> quads = new ArrayList<>();
+        for (TwoDShape s : shapes) {
+            if (s instanceof Circle) circles.add((Circle) s);
+            else if (s instanceof Triangle) triangles.add((Triangle) s);
+            else quads.add((Quadrilateral) s);
+        }
+        List<Point> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            points.add(new TwoDPoint(random.nextInt(20000) / 100.0 - 100, random.nextInt(20000) / 100.0 - 100));
+
+        int reps = Math.max(1, MIN_OPS_PER_RUN / n);
+
+        constructionBenchmarks(n, reps, triangles, quads);
+        metricBenchmarks("circle", n, reps, circles);
+        metricBenchmarks("triangle", n, reps, triangles);
+        metricBenchmarks("quadrilateral", n, reps, quads);
+        sortBenchmarks(n, shapes, points);
+        selectBenchmarks(n, shapes, points);
+
+        List<TwoDShape> destination = new ArrayList<>(n);
+        run("copy", n, n, destination::clear, () -> {
+            Ordering.copy(shapes, destination);
+            return destination.size();
+        });
+
+        PrintStream out = System.out;
+        run("printAllAndReturnLeast", n, n, () -> {
+            System.setOut(Bench.NULL_OUT);
+            try {
+                return System.identityHashCode(Ordering.printAllAndReturnLeast(shapes, new Printer<>()));
+            } finally {
+                System.setOut(out);
+            }
+        });
+
+        toStringBenchmark("circle", n, reps, circles);
+        toStringBenchmark("triangle", n, reps, triangles);
+        toStringBenchmark("quadrilateral", n, reps, quads);
+    }
+
+    private void constructionBenchmarks(int n, int reps, List<Triangle> triangles, List<Quadrilateral> quads) {
+        List<List<TwoDPoint>> triangleVertices = vertexLists(triangles);
+        List<List<TwoDPoint>> quadVertices = vertexLists(quads);
+        run("construct.triangle", n, (long) reps * triangleVertices.size(), () -> {
+            long h = 0;
+            for (int r = 0; r < reps; r++)
+                for (List<TwoDPoint> v : triangleVertices)
+                    h += System.identityHashCode(new Triangle(v));
+            return h;
+        });
+        run("construct.quadrilateral", n, (long) reps * quadVertices.size(), () -> {
+            long h = 0;
+            for (int r = 0; r < reps; r++)
+                for (List<TwoDPoint> v : quadVertices)
+                    h += System.identityHashCode(new Quadrilateral(v));
+            return h;
+        });
+        Circle circle = new Circle(0, 0, 1);
+        List<List<TwoDPoint>> centers = new ArrayList<>(n);
+        for (int i = 0; i < n; i++)
+            centers.add(Collections.singletonList(new TwoDPoint(i, -i)));
+        run("setPosition.circle", n, (long) reps * n, () -> {
+            for (int r = 0; r < reps; r++)
+                for (List<TwoDPoint> c : centers)
+                    circle.setPosition(c);
+            return (long) circle.getPosition().get(0).getX();
+        });
+    }
+
+    private static List<List<TwoDPoint>> vertexLists(List<? extends Positionable> shapes) {
+        List<List<TwoDPoint>> lists = new ArrayList<>(shapes.size());
+        for (Positionable p : shapes) {
+            List<TwoDPoint> vertices = new ArrayList<>();
+            for (Point v : p.getPosition())
+                vertices.add((TwoDPoint) v);
+            lists.add(vertices);
+        }
+        return lists;
+    }
+
+    private void metricBenchmarks(String kind, int n, int reps, List<? extends TwoDShape> shapes) {
+        if (shapes.isEmpty())
+            return;
+        run("area." + kind, n, (long) reps * shapes.size(), () -> {
+            double sum = 0;
+            for (int r = 0; r < reps; r++)
+                for (TwoDShape s : shapes)
+                    sum += s.area();
+            return Double.doubleToLongBits(sum);
+        });
+        run("perimeter." + kind, n, (long) reps * shapes.size(), () -> {
+            double sum = 0;
+            for (int r = 0; r < reps; r++)
+                for (TwoDShape s : shapes)
+                    sum += s.perimeter();
+            return Double.doubleToLongBits(sum);
+        });
+    }
+
+    private void sortBenchmarks(int n, List<TwoDShape> shapes, List<Point> points) {
+        List<TwoDShape> shapeCopy = new ArrayList<>(shapes);
+        List<Point> pointCopy = new ArrayList<>(points);
+        Runnable resetShapes = () -> Collections.copy(shapeCopy, shapes);
+        Runnable resetPoints = () -> Collections.copy(pointCopy, points);
+
+        run("sort.XLocationShapeComparator", n, n, resetShapes, () -> {
+            shapeCopy.sort(new Ordering.XLocationShapeComparator());
+            return System.identityHashCode(shapeCopy.get(0));
+        });
+        run("sort.naturalShapeOrder", n, n, resetShapes, () -> {
+            Collections.sort(shapeCopy);
+            return System.identityHashCode(shapeCopy.get(0));
+        });
+        run("sort.sortByLeastX", n, n, resetShapes, () -> {
+            Ordering.sortByLeastX(shapeCopy);
+            return System.identityHashCode(shapeCopy.get(0));
+        });
+        run("sort.sortByArea", n, n, resetShapes, () -> {
+            Ordering.sortByArea(shapeCopy);
+            return System.identityHashCode(shapeCopy.get(0));
+        });
+        run("sort.XLocationPointComparator", n, n, resetPoints, () -> {
+            pointCopy.sort(new Ordering.XLocationPointComparator());
+            return System.identityHashCode(pointCopy.get(0));
+        });
+        run("sort.naturalPointOrder", n, n, resetPoints, () -> {
+            Collections.sort(pointCopy);
+            return System.identityHashCode(pointCopy.get(0));
+        });
+        run("sort.sortPoints", n, n, resetPoints, () -> {
+            Ordering.sortPoints(pointCopy);
+            return System.identityHashCode(pointCopy.get(0));
+        });
+    }
+
+    private void selectBenchmarks(int n, List<TwoDShape> shapes, List<Point> points) {
+        int k = Math.min(TOP_K, n);
+        List<TwoDShape> shapeCopy = new ArrayList<>(shapes);
+        run("top" + TOP_K + ".sortByArea", n, n, () -> Collections.copy(shapeCopy, shapes), () -> {
+            Ordering.sortByArea(shapeCopy);
+            return System.identityHashCode(shapeCopy.subList(0, k).get(k - 1));
+        });
+        run("top" + TOP_K + ".smallestByArea", n, n,
+            () -> System.identityHashCode(Ordering.smallestByArea(shapes, k).get(k - 1)));
+        run("top" + TOP_K + ".selectSmallest", n, n,
+            () -> System.identityHashCode(Ordering.selectSmallest(shapes, k, TwoDShape::area).get(k - 1)));
+        run("top" + TOP_K + ".stream", n, n, () -> System.identityHashCode(
+                shapes.stream().collect(Ordering.toSmallest(k, TwoDShape::area)).get(k - 1)));
+        run("top" + TOP_K + ".nearestToOrigin", n, n,
+            () -> System.identityHashCode(Ordering.nearestToOrigin(points, k).get(k - 1)));
+        run("least.leastByArea", n, n, () -> System.identityHashCode(Ordering.leastByArea(shapes)));
+    }
+
+    private void toStringBenchmark(String kind, int n, int reps, List<? extends TwoDShape> shapes) {
+        if (shapes.isEmpty())
+            return;
+        int r = Math.max(1, reps / 100);
+        run("toString." + kind, n, (long) r * shapes.size(), () -> {
+            long length = 0;
+            for (int i = 0; i < r; i++)
+                for (TwoDShape s : shapes)
+                    length += s.toString().length();
+            return length;
+        });
+    }
+
+    private void run(String name, int size, long ops, LongSupplier body) {
+        run(name, size, ops, () -> {}, body);
+    }
+
+    private void run(String name, int size, long ops, Runnable setup, LongSupplier body) {
+        if (!name.contains(filter))
+            return;
+        System.out.println(Bench.measure(name, size, ops, setup, body));
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * A read-only snapshot of the shapes of a {@link ShapeStore}, split by kind into columnar arrays for the batch kernels
+ * of {@link BatchGeometry}: the centers and radii of the circles, and one array per vertex coordinate of the triangles
+ * and of the quadrilaterals. Each kind also keeps the index in the store of each of its shapes, so that results can be
+ * reported in the order of the store.
+ */
+public final class ShapeColumns {
+
+    private final int size;
+
+    final double[] cx, cy, r;
+    final int[]    circles;
+
+    /**
+     * The x- and y-values of the k-th vertex of every triangle are in <code>tx[k]</code> and <code>ty[k]</code>.
+     */
+    final double[][] tx, ty;
+    final int[]      triangles;
+
+    /**
+     * The x- and y-values of the k-th vertex of every quadrilateral are in <code>qx[k]</code> and <code>qy[k]</code>.
+     */
+    final double[][] qx, qy;
+    final int[]      quadrilaterals;
+
+    private ShapeColumns(ShapeStore store) {
+        size = store.size();
+        int[] counts = new int[5];
+        for (int i = 0; i < size; i++)
+            counts[store.vertexCount(i)]++;
+        cx = new double[counts[1]];
+        cy = new double[counts[1]];
+        r  = new double[counts[1]];
+        circles = new int[counts[1]];
+        tx = new double[3][counts[3]];
+        ty = new double[3][counts[3]];
+        triangles = new int[counts[3]];
+        qx = new double[4][counts[4]];
+        qy = new double[4][counts[4]];
+        quadrilaterals = new int[counts[4]];
+
+        int c = 0, t = 0, q = 0;
+        for (int i = 0; i < size; i++) {
+            switch (store.vertexCount(i)) {
+                case 1:
+                    cx[c] = store.x(i, 0);
+                    cy[c] = store.y(i, 0);
+                    r[c] = store.radius(i);
+                    circles[c++] = i;
+                    break;
+                case 3:
+                    for (int k = 0; k < 3; k++) {
+                        tx[k][t] = store.x(i, k);
+                        ty[k][t] = store.y(i, k);
+                    }
+                    triangles[t++] = i;
+                    break;
+                default:
+                    for (int k = 0; k < 4; k++) {
+                        qx[k][q] = store.x(i, k);
+                        qy[k][q] = store.y(i, k);
+                    }
+                    quadrilaterals[q++] = i;
+            }
+        }
+    }
+
+    /**
+     * Copies the shapes of the specified store into columns.
+     */
+    public static ShapeColumns of(ShapeStore store) {
+        return new ShapeColumns(store);
+    }
+
+    /**
+     * Copies the specified shapes into columns, through a {@link ShapeStore}.
+     *
+     * @throws IllegalArgumentException if one of the shapes cannot be added to a {@link ShapeStore}.
+     */
+    public static ShapeColumns of(Iterable<? extends TwoDShape> shapes) {
+        ShapeStore store = new ShapeStore();
+        for (TwoDShape s : shapes)
+            store.add(s);
+        return new ShapeColumns(store);
+    }
+
+    /**
+     * @return the number of shapes of this snapshot
+     */
+    public int size() {return size;}
+
+    public int circleCount() {return circles.length;}
+
+    public int triangleCount() {return triangles.length;}
+
+    public int quadrilateralCount() {return quadrilaterals.length;}
+
+    /**
+     * @return the areas of the circles, in the order of the store
+     */
+    public double[] circleAreas() {
+        double[] areas = new double[circles.length];
+        BatchGeometry.circleAreas(r, areas, 0, areas.length);
+        return areas;
+    }
+
+    /**
+     * @return the areas of the triangles, in the order of the store
+     */
+    public double[] triangleAreas() {
+        double[] areas = new double[triangles.length];
+        BatchGeometry.triangleAreas(tx[0], ty[0], tx[1], ty[1], tx[2], ty[2], areas, 0, areas.length);
+        return areas;
+    }
+
+    /**
+     * @return the areas of the quadrilaterals, in the order of the store
+     */
+    public double[] quadrilateralAreas() {
+        double[] areas = new double[quadrilaterals.length];
+        BatchGeometry.quadrilateralAreas(qx[0], qy[0], qx[1], qy[1], qx[2], qy[2], qx[3], qy[3], areas, 0,
+                                         areas.length);
+        return areas;
+    }
+
+    /**
+     * @return the area of every shape, in the order of the store; identical to {@link ShapeStore#area(int)}
+     */
+    public double[] areas() {
+        return scatter(circleAreas(), triangleAreas(), quadrilateralAreas());
+    }
+
+    /**
+     * @return the perimeter of every shape, in the order of the store; identical to {@link ShapeStore#perimeter(int)}
+     */
+    public double[] perimeters() {
+        double[] circle = new double[circles.length];
+        BatchGeometry.circlePerimeters(r, circle, 0, circle.length);
+        double[] triangle = new double[triangles.length];
+        BatchGeometry.trianglePerimeters(tx[0], ty[0], tx[1], ty[1], tx[2], ty[2], triangle, 0, triangle.length);
+        double[] quadrilateral = new double[quadrilaterals.length];
+        BatchGeometry.quadrilateralPerimeters(qx[0], qy[0], qx[1], qy[1], qx[2], qy[2], qx[3], qy[3], quadrilateral,
+                                              0, quadrilateral.length);
+        return scatter(circle, triangle, quadrilateral);
+    }
+
+    /**
+     * @return the values computed for each kind, moved to the indices of their shapes in the store
+     */
+    private double[] scatter(double[] circle, double[] triangle, double[] quadrilateral) {
+        double[] values = new double[size];
+        for (int c = 0; c < circle.length; c++)
+            values[circles[c]] = circle[c];
+        for (int t = 0; t < triangle.length; t++)
+            values[triangles[t]] = triangle[t];
+        for (int q = 0; q < quadrilateral.length; q++)
+            values[quadrilaterals[q]] = quadrilateral[q];
+        return values;
+    }
+}
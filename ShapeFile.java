@@ -0,0 +1,474 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A read-only, memory-mapped file of shapes and points in the binary shape file format, as written by
+ * {@link ShapeFileWriter}. Opening a file maps it into memory without reading it, so it takes the same time whatever
+ * the size of the file; records are then decoded on access, straight from the mapped pages.
+ * <p>
+ * The format is little-endian and made of
+ * <ul>
+ *     <li>a header of {@value #HEADER_SIZE} bytes: the magic number <code>SHPF</code>, the format version (a
+ *     <code>short</code>), the size of a record (a <code>short</code>), the number of records (a <code>long</code>),
+ *     and reserved bytes, which are zero, and</li>
+ *     <li>records of {@value #RECORD_SIZE} bytes each: a kind tag (a byte), seven reserved bytes, and eight
+ *     <code>double</code>s. A circle stores its center and radius, a triangle or a quadrilateral its vertices as
+ *     interleaved <code>x</code> and <code>y</code> values, and a point its coordinates. Unused values are zero.</li>
+ * </ul>
+ * Fixed-width records keep every value aligned and make the position of any record a multiplication away.
+ * <p>
+ * Records are exposed as {@link TwoDShape} views, which hold nothing but their index. {@link #forEach(Consumer)} goes
+ * further and moves a single view over every record.
+ */
+public class ShapeFile implements Closeable {
+
+    static final int   MAGIC       = 'S' | 'H' << 8 | 'P' << 16 | 'F' << 24;
+    static final short VERSION     = 1;
+    static final int   HEADER_SIZE = 32;
+    static final int   RECORD_SIZE = 72;
+
+    static final byte CIRCLE        = ShapeStore.CIRCLE;
+    static final byte TRIANGLE      = ShapeStore.TRIANGLE;
+    static final byte QUADRILATERAL = ShapeStore.QUADRILATERAL;
+    static final byte POINT_2D      = 3;
+    static final byte POINT_3D      = 4;
+
+    /**
+     * A file is mapped in chunks of this many records, since a single mapping cannot exceed two gigabytes.
+     */
+    private static final int CHUNK_SHIFT   = 24;
+    private static final int CHUNK_RECORDS = 1 << CHUNK_SHIFT;
+
+    private final FileChannel  channel;
+    private final ByteBuffer[] chunks;
+    private final int          size;
+
+    private ShapeFile(FileChannel channel, ByteBuffer[] chunks, int size) {
+        this.channel = channel;
+        this.chunks = chunks;
+        this.size = size;
+    }
+
+    /**
+     * Maps the specified shape file into memory.
+     *
+     * @param path the path of the file.
+     * @return the mapped file
+     * @throws IOException if the file cannot be read, or is not a shape file of a supported version.
+     */
+    public static ShapeFile open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length < HEADER_SIZE)
+                throw new IOException("Error: " + path + " is too short to be a shape file.");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                                       .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC)
+                throw new IOException("Error: " + path + " is not a shape file.");
+            if (header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE)
+                throw new IOException("Error: " + path + " has an unsupported version " + header.getShort(4) + ".");
+            long count = header.getLong(8);
+            if (count < 0 || count > Integer.MAX_VALUE || length != HEADER_SIZE + count * RECORD_SIZE)
+                throw new IOException("Error: " + path + " is truncated or has a corrupt header.");
+
+            int size = (int) count;
+            ByteBuffer[] chunks = new ByteBuffer[(size + CHUNK_RECORDS - 1) >>> CHUNK_SHIFT];
+            for (int c = 0; c < chunks.length; c++) {
+                long records = Math.min(CHUNK_RECORDS, size - ((long) c << CHUNK_SHIFT));
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_SIZE + ((long) c << CHUNK_SHIFT) * RECORD_SIZE, records * RECORD_SIZE);
+                chunks[c] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+            }
+            return new ShapeFile(channel, chunks, size);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the file. The mapping itself is released once no view of this file is reachable anymore.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * @return the number of records of this file
+     */
+    public int size() {return size;}
+
+    private ByteBuffer chunk(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        return chunks[i >>> CHUNK_SHIFT];
+    }
+
+    private static int position(int i) {
+        return (i & (CHUNK_RECORDS - 1)) * RECORD_SIZE;
+    }
+
+    /**
+     * @return the <code>k</code>-th value of the record at the specified index
+     */
+    private double value(int i, int k) {
+        return ShapeRecord.value(chunk(i), position(i), k);
+    }
+
+    byte kind(int i) {return ShapeRecord.kind(chunk(i), position(i));}
+
+    /**
+     * @return <code>true</code> if and only if the record at the specified index is a point rather than a shape
+     */
+    public boolean isPoint(int i) {
+        byte kind = kind(i);
+        return kind == POINT_2D || kind == POINT_3D;
+    }
+
+    /**
+     * @return the number of vertices stored for the shape at the specified index (one, the center, for a circle)
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public int vertexCount(int i) {
+        switch (kind(i)) {
+            case CIRCLE:        return 1;
+            case TRIANGLE:      return 3;
+            case QUADRILATERAL: return 4;
+            default:            throw new IllegalArgumentException("Error: Record " + i + " is not a shape.");
+        }
+    }
+
+    /**
+     * @return the number of sides of the shape at the specified index, following the conventions of {@link Circle},
+     * {@link Triangle} and {@link Quadrilateral}
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public int numSides(int i) {
+        return kind(i) == CIRCLE ? (int) Double.POSITIVE_INFINITY : vertexCount(i);
+    }
+
+    /**
+     * @return the x-value of the specified vertex of the shape at the specified index (of the center, for a circle), or
+     * the x-coordinate of the point at the specified index when the vertex is zero
+     */
+    public double x(int i, int vertex) {return value(i, 2 * vertex);}
+
+    /**
+     * @return the y-value of the specified vertex of the shape at the specified index, as per {@link #x(int, int)}
+     */
+    public double y(int i, int vertex) {return value(i, 2 * vertex + 1);}
+
+    /**
+     * @return the radius of the circle at the specified index, and zero for any other record
+     */
+    public double radius(int i) {return kind(i) == CIRCLE ? value(i, 2) : 0;}
+
+    /**
+     * @return the point at the specified index, as a newly created {@link TwoDPoint} or {@link ThreeDPoint}
+     * @throws IllegalArgumentException if the record is a shape.
+     */
+    public Point point(int i) {
+        switch (kind(i)) {
+            case POINT_2D: return new TwoDPoint(value(i, 0), value(i, 1));
+            case POINT_3D: return new ThreeDPoint(value(i, 0), value(i, 1), value(i, 2));
+            default:       throw new IllegalArgumentException("Error: Record " + i + " is not a point.");
+        }
+    }
+
+    /**
+     * @return the area of the shape at the specified index, as computed by the corresponding shape class
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public double area(int i) {
+        return ShapeRecord.area(chunk(i), position(i), i);
+    }
+
+    /**
+     * @return the perimeter of the shape at the specified index, as computed by the corresponding shape class
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public double perimeter(int i) {
+        return ShapeRecord.perimeter(chunk(i), position(i), i);
+    }
+
+    /**
+     * @return the least x-value of the shape at the specified index, as defined by {@link ShapeStore#leastX(int)}, or
+     * the x-coordinate of the point at the specified index
+     */
+    public double leastX(int i) {
+        return ShapeRecord.leastX(chunk(i), position(i));
+    }
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing the shape at the specified index
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public BoundingBox boundingBox(int i) {
+        if (kind(i) == CIRCLE) {
+            double x = value(i, 0), y = value(i, 1), r = value(i, 2);
+            return new BoundingBox(x - r, y - r, x + r, y + r);
+        }
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+               maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int k = 0, n = vertexCount(i); k < n; k++) {
+            minX = Math.min(minX, x(i, k));
+            minY = Math.min(minY, y(i, k));
+            maxX = Math.max(maxX, x(i, k));
+            maxY = Math.max(maxY, y(i, k));
+        }
+        return new BoundingBox(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * @return the centroid of the shape at the specified index, following the conventions of {@link Circle},
+     * {@link Triangle} and {@link Quadrilateral}
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public TwoDPoint centroid(int i) {
+        switch (kind(i)) {
+            case CIRCLE:
+                return new TwoDPoint(x(i, 0), y(i, 0));
+            case TRIANGLE:
+                return new TwoDPoint((x(i, 0) + x(i, 1) + x(i, 2)) / 3, (y(i, 0) + y(i, 1) + y(i, 2)) / 3);
+            case QUADRILATERAL:
+                double x1 = x(i, 0), y1 = y(i, 0), x2 = x(i, 1), y2 = y(i, 1),
+                       x3 = x(i, 2), y3 = y(i, 2), x4 = x(i, 3), y4 = y(i, 3);
+                double a1 = Geometry.triangleArea(x1, y1, x2, y2, x3, y3);
+                double a2 = Geometry.triangleArea(x1, y1, x4, y4, x3, y3);
+                if (a1 + a2 == 0)
+                    return new TwoDPoint((x1 + x2 + x3 + x4) / 4, (y1 + y2 + y3 + y4) / 4);
+                double w = 3 * (a1 + a2);
+                return new TwoDPoint((a1 * (x1 + x2 + x3) + a2 * (x1 + x4 + x3)) / w,
+                                     (a1 * (y1 + y2 + y3) + a2 * (y1 + y4 + y3)) / w);
+            default:
+                throw new IllegalArgumentException("Error: Record " + i + " is not a shape.");
+        }
+    }
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the shape at the specified index
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public boolean contains(int i, double x, double y) {
+        if (kind(i) == CIRCLE)
+            return Geometry.distance(x(i, 0), y(i, 0), x, y) <= value(i, 2);
+        if (Geometry.triangleContains(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2), x, y))
+            return true;
+        return vertexCount(i) == 4
+                && Geometry.triangleContains(x(i, 0), y(i, 0), x(i, 3), y(i, 3), x(i, 2), y(i, 2), x, y);
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the nearest point of the shape at the specified index
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public double distanceTo(int i, double x, double y) {
+        if (kind(i) == CIRCLE)
+            return Math.max(0, Geometry.distance(x(i, 0), y(i, 0), x, y) - value(i, 2));
+        double d = Geometry.triangleDistance(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2), x, y);
+        if (vertexCount(i) == 4 && d > 0)
+            d = Math.min(d, Geometry.triangleDistance(x(i, 0), y(i, 0), x(i, 3), y(i, 3), x(i, 2), y(i, 2), x, y));
+        return d;
+    }
+
+    /**
+     * @return <code>true</code> if and only if the shape at the specified index and the specified box have at least one
+     * point in common
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public boolean intersects(int i, BoundingBox box) {
+        if (kind(i) == CIRCLE)
+            return Geometry.circleIntersectsBox(x(i, 0), y(i, 0), value(i, 2), box);
+        if (Geometry.triangleIntersectsBox(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2), box))
+            return true;
+        return vertexCount(i) == 4
+                && Geometry.triangleIntersectsBox(x(i, 0), y(i, 0), x(i, 3), y(i, 3), x(i, 2), y(i, 2), box);
+    }
+
+    /**
+     * Returns a view of the shape at the specified index. The view holds nothing but the index, so every call to its
+     * methods decodes the mapped record.
+     *
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    public View get(int i) {
+        vertexCount(i);
+        return new View(i);
+    }
+
+    /**
+     * @return a list of views of every record of this file, all of which must be shapes
+     */
+    public List<View> asList() {
+        return new AbstractList<View>() {
+            @Override
+            public View get(int i) {return ShapeFile.this.get(i);}
+
+            @Override
+            public int size() {return size;}
+        };
+    }
+
+    /**
+     * Passes every shape of this file to the specified action, skipping points. A single view is moved from record to
+     * record, so the action must not keep a reference to the shape it is given beyond the call.
+     */
+    public void forEach(Consumer<? super View> action) {
+        View view = new View(0);
+        for (int i = 0; i < size; i++) {
+            if (isPoint(i))
+                continue;
+            view.index = i;
+            action.accept(view);
+        }
+    }
+
+    /**
+     * Copies every shape of this file, skipping points, to a new {@link ShapeStore}, e.g. to modify them.
+     */
+    public ShapeStore toStore() {
+        ShapeStore store = new ShapeStore(size);
+        for (int i = 0; i < size; i++) {
+            switch (kind(i)) {
+                case CIRCLE:
+                    store.addCircle(x(i, 0), y(i, 0), value(i, 2));
+                    break;
+                case TRIANGLE:
+                    store.addTriangle(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2));
+                    break;
+                case QUADRILATERAL:
+                    store.addQuadrilateral(x(i, 0), y(i, 0), x(i, 1), y(i, 1), x(i, 2), y(i, 2), x(i, 3), y(i, 3));
+                    break;
+                default:
+            }
+        }
+        return store;
+    }
+
+    /**
+     * A read-only {@link TwoDShape} view of a shape record of this file.
+     */
+    public class View implements TwoDShape, Positionable {
+
+        private int index;
+
+        private View(int index) {
+            this.index = index;
+        }
+
+        public int index() {return index;}
+
+        ShapeFile file() {return ShapeFile.this;}
+
+        /**
+         * @throws UnsupportedOperationException always, since a shape file is read-only
+         */
+        @Override
+        public void setPosition(List<? extends Point> points) {
+            throw new UnsupportedOperationException("Error: A shape file is read-only.");
+        }
+
+        /**
+         * @return a newly created list of the vertices of the viewed shape (its center, for a circle)
+         */
+        @Override
+        public List<TwoDPoint> getPosition() {
+            int n = vertexCount(index);
+            if (n == 1)
+                return Collections.singletonList(new TwoDPoint(x(index, 0), y(index, 0)));
+            List<TwoDPoint> vertices = new ArrayList<>(n);
+            for (int k = 0; k < n; k++)
+                vertices.add(new TwoDPoint(x(index, k), y(index, k)));
+            return vertices;
+        }
+
+        @Override
+        public int numSides() {return ShapeFile.this.numSides(index);}
+
+        @Override
+        public boolean isMember(List<? extends Point> vertices) {
+            switch (kind(index)) {
+                case CIRCLE:   return vertices.size() == 1 && radius(index) > 0;
+                case TRIANGLE: return Triangle.isValid(vertices);
+                default:       return Quadrilateral.isValid(vertices);
+            }
+        }
+
+        @Override
+        public double getLeastX() {return leastX(index);}
+
+        @Override
+        public int compareTo(TwoDShape s) {
+            return Double.compare(this.area(), s.area());
+        }
+
+        @Override
+        public double area() {return ShapeFile.this.area(index);}
+
+        @Override
+        public double perimeter() {return ShapeFile.this.perimeter(index);}
+
+        @Override
+        public BoundingBox boundingBox() {return ShapeFile.this.boundingBox(index);}
+
+        @Override
+        public TwoDPoint centroid() {return ShapeFile.this.centroid(index);}
+
+        @Override
+        public boolean contains(double x, double y) {return ShapeFile.this.contains(index, x, y);}
+
+        @Override
+        public double distanceTo(double x, double y) {return ShapeFile.this.distanceTo(index, x, y);}
+
+        @Override
+        public boolean intersects(BoundingBox box) {return ShapeFile.this.intersects(index, box);}
+
+        /**
+         * @return the same human-readable form as the corresponding {@link Circle}, {@link Triangle} or
+         * {@link Quadrilateral} would have
+         */
+        @Override
+        public String toString() {
+            if (kind(index) == CIRCLE)
+                return "Circle[center: (" + String.format("%.2f", x(index, 0)) + "," +
+                        String.format("%.2f", y(index, 0)) + "); radius: " + radius(index) + "]";
+            StringBuilder sb = new StringBuilder(kind(index) == TRIANGLE ? "Triangle[" : "Quadrilateral[");
+            for (int k = 0, n = vertexCount(index); k < n; k++) {
+                if (k > 0)
+                    sb.append(", ");
+                sb.append('(').append(String.format("%.2f", x(index, k))).append(',')
+                        .append(String.format("%.2f", y(index, k))).append(')');
+            }
+            return sb.append(']').toString();
+        }
+
+        /**
+         * Appends the same characters as {@link #toString()} to the specified builder, formatting numbers with
+         * {@link ShapeFormat#appendTwoDecimals(StringBuilder, double)}.
+         */
+        StringBuilder appendTo(StringBuilder sb) {
+            if (kind(index) == CIRCLE)
+                return ShapeFormat.appendCircle(sb, x(index, 0), y(index, 0), radius(index));
+            sb.append(kind(index) == TRIANGLE ? "Triangle[" : "Quadrilateral[");
+            for (int k = 0, n = vertexCount(index); k < n; k++) {
+                if (k > 0)
+                    sb.append(", ");
+                ShapeFormat.appendVertex(sb, x(index, k), y(index, k));
+            }
+            return sb.append(']');
+        }
+    }
+}
@@ -0,0 +1,145 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a binary shape file, checks that every record reads back as it was written, and reports the time taken to
+ * write and to open the file, and the throughput of scanning it for the total area or the least x-value, compared to
+ * the same scans over a {@link ShapeStore} in memory. Throughputs are in bytes of the file per second.
+ * <p>
+ * Usage: <code>java ShapeFileBenchmark [records] [directory]</code>, e.g. <code>java ShapeFileBenchmark 15M</code> for
+ * a file of about 1 GB.
+ */
+public class ShapeFileBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 2_000_000;
+        Path directory = Path.of(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+        Path path = Files.createTempFile(directory, "shapes", ".bin");
+        try {
+            checkLeastX(path);
+            run(n, path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void run(int n, Path path) throws IOException {
+        ShapeStore store = new ShapeStore(n);
+        Random random = new Random(216);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000, w = 1 + random.nextDouble() * 9;
+            switch (i % 3) {
+                case 0:  store.addCircle(x, y, w / 2); break;
+                case 1:  store.addTriangle(x, y, x, y + w, x + w, y); break;
+                default: store.addQuadrilateral(x, y, x, y + w, x + w, y + w, x + w, y);
+            }
+        }
+
+        long start = System.nanoTime();
+        try (ShapeFileWriter writer = new ShapeFileWriter(path)) {
+            for (int i = 0; i < n; i++)
+                writer.write(store, i);
+            writer.writePoint(1.5, -2.5);
+            writer.writePoint(1, 2, 3);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long bytes = Files.size(path);
+        System.out.printf("wrote %d records, %.1f MB in %.1f ms (%.0f MB/s)%n", n + 2, bytes / 1e6, seconds * 1e3,
+                          bytes / 1e6 / seconds);
+
+        start = System.nanoTime();
+        try (ShapeFile file = ShapeFile.open(path)) {
+            System.out.printf("opened in %.1f us%n", (System.nanoTime() - start) / 1e3);
+            check(store, file);
+
+            System.out.printf("%s %12s%n", Bench.header(), "MB/s");
+            report(Bench.measure("file.area", n, n, () -> {
+                double sum = 0;
+                for (int i = 0; i < n; i++)
+                    sum += file.area(i);
+                return Double.doubleToLongBits(sum);
+            }));
+            report(Bench.measure("store.area", n, n, () -> {
+                double sum = 0;
+                for (int i = 0; i < n; i++)
+                    sum += store.area(i);
+                return Double.doubleToLongBits(sum);
+            }));
+            report(Bench.measure("file.leastX", n, n, () -> {
+                double least = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n; i++)
+                    least = Math.min(least, file.leastX(i));
+                return Double.doubleToLongBits(least);
+            }));
+            report(Bench.measure("store.leastX", n, n, () -> {
+                double least = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < n; i++)
+                    least = Math.min(least, store.leastX(i));
+                return Double.doubleToLongBits(least);
+            }));
+            report(Bench.measure("file.forEach.area", n, n, () -> {
+                double[] sum = new double[1];
+                file.forEach(s -> sum[0] += s.area());
+                return Double.doubleToLongBits(sum[0]);
+            }));
+        }
+    }
+
+    /**
+     * Checks that shapes whose vertices are given out of order have the same least x-value as objects, as views of a
+     * store and as views of a file.
+     */
+    private static void checkLeastX(Path path) throws IOException {
+        List<TwoDShape> shapes = new ArrayList<>();
+        shapes.add(new Triangle(Arrays.asList(new TwoDPoint(3, 0), new TwoDPoint(2, 5), new TwoDPoint(1, 1))));
+        shapes.add(new Quadrilateral(Arrays.asList(new TwoDPoint(4, 0), new TwoDPoint(3, 3), new TwoDPoint(0, 4),
+                                                   new TwoDPoint(1, 1))));
+        Random random = new Random(216);
+        for (int i = 0; i < 1000; i++) {
+            List<TwoDPoint> vertices = new ArrayList<>();
+            for (int k = 0; k < 4; k++)
+                vertices.add(new TwoDPoint(random.nextInt(100), random.nextInt(100)));
+            shapes.add(i % 2 == 0 ? new Triangle(vertices) : new Quadrilateral(vertices));
+        }
+        ShapeStore store = new ShapeStore();
+        try (ShapeFileWriter writer = new ShapeFileWriter(path)) {
+            for (TwoDShape s : shapes) {
+                store.add(s);
+                writer.write(s);
+            }
+        }
+        try (ShapeFile file = ShapeFile.open(path)) {
+            for (int i = 0; i < shapes.size(); i++) {
+                double leastX = shapes.get(i).getLeastX();
+                if (store.get(i).getLeastX() != leastX || file.get(i).getLeastX() != leastX)
+                    throw new AssertionError(shapes.get(i) + " has the least x-value " + leastX + " but its views have "
+                                             + store.get(i).getLeastX() + " and " + file.get(i).getLeastX());
+            }
+        }
+    }
+
+    private static void report(Bench.Result result) {
+        System.out.printf("%s %12.0f%n", result, ShapeFile.RECORD_SIZE * 1e3 / result.nsPerOp);
+    }
+
+    private static void check(ShapeStore store, ShapeFile file) {
+        if (file.size() != store.size() + 2)
+            throw new AssertionError("the file has " + file.size() + " records instead of " + (store.size() + 2));
+        for (int i = 0; i < store.size(); i++) {
+            if (file.area(i) != store.area(i) || file.perimeter(i) != store.perimeter(i)
+                    || file.leastX(i) != store.leastX(i) || !file.boundingBox(i).equals(store.boundingBox(i)))
+                throw new AssertionError("record " + i + " differs from the shape written");
+            if (i < 1000 && !file.get(i).toString().equals(store.get(i).toString()))
+                throw new AssertionError("record " + i + " prints differently from the shape written");
+        }
+        Point p = file.point(store.size()), q = file.point(store.size() + 1);
+        if (!(p instanceof TwoDPoint) || p.getX() != 1.5 || ((TwoDPoint) p).getY() != -2.5
+                || !(q instanceof ThreeDPoint) || ((ThreeDPoint) q).getZ() != 3)
+            throw new AssertionError("the points differ from the ones written");
+    }
+}
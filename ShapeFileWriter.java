@@ -0,0 +1,209 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes shapes and points to a file in the binary shape file format described in {@link ShapeFile}. Records are
+ * encoded into a direct buffer and written to the file whenever the buffer is full; the number of records is filled in
+ * the header when the writer is closed, so a file is only valid once its writer has been closed.
+ */
+public class ShapeFileWriter implements Closeable {
+
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final FileChannel channel;
+    private final ByteBuffer  buffer;
+    private long count;
+
+    /**
+     * Creates the specified file, or truncates it if it exists, and writes a provisional header.
+     *
+     * @throws IOException if the file cannot be written.
+     */
+    public ShapeFileWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                                        StandardOpenOption.WRITE);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * ShapeFile.RECORD_SIZE)
+                                .order(ByteOrder.LITTLE_ENDIAN);
+        writeHeader();
+        channel.position(ShapeFile.HEADER_SIZE);
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(ShapeFile.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(ShapeFile.MAGIC).putShort(ShapeFile.VERSION).putShort((short) ShapeFile.RECORD_SIZE)
+              .putLong(count).flip();
+        header.limit(ShapeFile.HEADER_SIZE);
+        channel.write(header, 0);
+    }
+
+    /**
+     * @return the number of records written so far
+     */
+    public long count() {return count;}
+
+    /**
+     * Starts a record of the specified kind, leaving the buffer positioned at its first value.
+     */
+    private ByteBuffer record(byte kind) throws IOException {
+        if (!buffer.hasRemaining())
+            drain();
+        int p = buffer.position();
+        buffer.putLong(p, 0).put(p, kind);
+        buffer.position(p + 8);
+        count++;
+        return buffer;
+    }
+
+    /**
+     * Fills the unused values of the current record with zeros.
+     */
+    private void pad(int values) {
+        for (int k = values; k < 8; k++)
+            buffer.putDouble(0);
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    public void writeCircle(double x, double y, double r) throws IOException {
+        record(ShapeFile.CIRCLE).putDouble(x).putDouble(y).putDouble(r);
+        pad(3);
+    }
+
+    public void writeTriangle(double x1, double y1, double x2, double y2, double x3, double y3) throws IOException {
+        record(ShapeFile.TRIANGLE).putDouble(x1).putDouble(y1).putDouble(x2).putDouble(y2).putDouble(x3).putDouble(y3);
+        pad(6);
+    }
+
+    public void writeQuadrilateral(double x1, double y1, double x2, double y2,
+                                   double x3, double y3, double x4, double y4) throws IOException {
+        record(ShapeFile.QUADRILATERAL).putDouble(x1).putDouble(y1).putDouble(x2).putDouble(y2)
+                                       .putDouble(x3).putDouble(y3).putDouble(x4).putDouble(y4);
+    }
+
+    public void writePoint(double x, double y) throws IOException {
+        record(ShapeFile.POINT_2D).putDouble(x).putDouble(y);
+        pad(2);
+    }
+
+    public void writePoint(double x, double y, double z) throws IOException {
+        record(ShapeFile.POINT_3D).putDouble(x).putDouble(y).putDouble(z);
+        pad(3);
+    }
+
+    /**
+     * Writes the specified shape, with its vertices in the order given by its <code>getPosition</code> method.
+     *
+     * @param shape a {@link Circle}, {@link Triangle} or {@link Quadrilateral}, or a view of a {@link ShapeStore} or
+     *              of a {@link ShapeFile}.
+     * @throws IllegalArgumentException if the shape is not one of the supported kinds.
+     */
+    public void write(TwoDShape shape) throws IOException {
+        if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            TwoDPoint center = (TwoDPoint) c.getPosition().get(0);
+            writeCircle(center.getX(), center.getY(), c.getRadius());
+            return;
+        }
+        if (shape instanceof ShapeStore.View) {
+            ShapeStore.View v = (ShapeStore.View) shape;
+            write(v.store(), v.index());
+            return;
+        }
+        if (shape instanceof ShapeFile.View) {
+            ShapeFile.View v = (ShapeFile.View) shape;
+            ShapeFile file = v.file();
+            int i = v.index();
+            if (file.kind(i) == ShapeFile.CIRCLE)
+                writeCircle(file.x(i, 0), file.y(i, 0), file.radius(i));
+            else
+                writeVertices(file.kind(i), v.getPosition());
+            return;
+        }
+        if (shape instanceof Triangle)
+            writeVertices(ShapeFile.TRIANGLE, ((Triangle) shape).getPosition());
+        else if (shape instanceof Quadrilateral)
+            writeVertices(ShapeFile.QUADRILATERAL, ((Quadrilateral) shape).getPosition());
+        else
+            throw new IllegalArgumentException("Error: Only circles, triangles and quadrilaterals can be written.");
+    }
+
+    private void writeVertices(byte kind, List<? extends Point> vertices) throws IOException {
+        int n = kind == ShapeFile.TRIANGLE ? 3 : 4;
+        ByteBuffer b = record(kind);
+        for (int k = 0; k < n; k++) {
+            TwoDPoint p = (TwoDPoint) vertices.get(k);
+            b.putDouble(p.getX()).putDouble(p.getY());
+        }
+        pad(2 * n);
+    }
+
+    /**
+     * Writes the shape at the specified index of the specified store.
+     */
+    public void write(ShapeStore store, int i) throws IOException {
+        int n = store.vertexCount(i);
+        if (n == 1) {
+            writeCircle(store.x(i, 0), store.y(i, 0), store.radius(i));
+            return;
+        }
+        ByteBuffer b = record(n == 3 ? ShapeFile.TRIANGLE : ShapeFile.QUADRILATERAL);
+        for (int k = 0; k < n; k++)
+            b.putDouble(store.x(i, k)).putDouble(store.y(i, k));
+        pad(2 * n);
+    }
+
+    /**
+     * Writes the specified point.
+     *
+     * @param point a {@link TwoDPoint} or a {@link ThreeDPoint}.
+     * @throws IllegalArgumentException if the point is of another kind.
+     */
+    public void write(Point point) throws IOException {
+        if (point instanceof TwoDPoint)
+            writePoint(point.getX(), ((TwoDPoint) point).getY());
+        else if (point instanceof ThreeDPoint)
+            writePoint(point.getX(), ((ThreeDPoint) point).getY(), ((ThreeDPoint) point).getZ());
+        else
+            throw new IllegalArgumentException("Error: Only two- and three-dimensional points can be written.");
+    }
+
+    /**
+     * Writes records that are already encoded in the format of this file, from the position to the limit of the
+     * specified buffer, which must hold the specified number of whole records.
+     */
+    void writeRecords(ByteBuffer records, int count) throws IOException {
+        drain();
+        while (records.hasRemaining())
+            channel.write(records);
+        this.count += count;
+    }
+
+    public void writeAll(Iterable<? extends TwoDShape> shapes) throws IOException {
+        for (TwoDShape s : shapes)
+            write(s);
+    }
+
+    /**
+     * Writes the remaining records and the final header, and closes the file.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            writeHeader();
+        } finally {
+            channel.close();
+        }
+    }
+}
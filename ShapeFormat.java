@@ -0,0 +1,100 @@
+import java.text.DecimalFormatSymbols;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Appends the human-readable forms of shapes to a {@link StringBuilder} without going through
+ * {@link String#format(String, Object...)}. The output is the same, character for character, as that of the
+ * <code>toString</code> methods of {@link Circle}, {@link Triangle}, {@link Quadrilateral} and the views of a
+ * {@link ShapeStore} or a {@link ShapeFile}; other shapes are appended through their own <code>toString</code>.
+ * <p>
+ * The format <code>%.2f</code> rounds the shortest decimal representation of a <code>double</code> (the digits of
+ * {@link Double#toString(double)}) half-up to two decimals, so that <code>1.005</code> becomes <code>1.01</code> even
+ * though the nearest <code>double</code> is slightly less than 1.005. Rounding the binary value directly gives the same
+ * digits unless the value lies within a few ulps of a tie, which this class leaves to <code>String.format</code>, as
+ * well as very large, infinite and NaN values.
+ */
+final class ShapeFormat {
+
+    /**
+     * Values at least this large, once scaled by 100, are formatted by <code>String.format</code>.
+     */
+    private static final double MAX_SCALED = 1e15;
+
+    private ShapeFormat() {}
+
+    /**
+     * @return <code>true</code> if and only if <code>String.format</code> currently writes numbers with ASCII digits
+     * and a period as decimal separator, which is what the appending methods of this class assume
+     */
+    static boolean isDefaultLocaleAscii() {
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+        return symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.';
+    }
+
+    /**
+     * Appends the specified value with exactly two decimals, as <code>String.format("%.2f", d)</code> does in a
+     * locale using ASCII digits and a period as decimal separator.
+     */
+    static StringBuilder appendTwoDecimals(StringBuilder sb, double d) {
+        double scaled = Math.abs(d) * 100;
+        if (!(scaled < MAX_SCALED))
+            return sb.append(String.format("%.2f", d));
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        // the error of the scaling is at most an ulp of the scaled value, so only near ties can round either way
+        if (Math.abs(fraction - 0.5) <= Math.ulp(scaled) * 4)
+            return sb.append(String.format("%.2f", d));
+        long cents = fraction > 0.5 ? whole + 1 : whole;
+        if (Double.doubleToRawLongBits(d) < 0)
+            sb.append('-');
+        int c = (int) (cents % 100);
+        return sb.append(cents / 100).append('.').append((char) ('0' + c / 10)).append((char) ('0' + c % 10));
+    }
+
+    /**
+     * Appends the human-readable form of the specified shape, as returned by its <code>toString</code> method.
+     *
+     * @param ascii whether numbers may be appended with {@link #appendTwoDecimals(StringBuilder, double)} rather than
+     *              <code>String.format</code>; see {@link #isDefaultLocaleAscii()}.
+     */
+    static StringBuilder append(StringBuilder sb, TwoDShape shape, boolean ascii) {
+        if (!ascii)
+            return sb.append(shape);
+        if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            TwoDPoint center = (TwoDPoint) c.getPosition().get(0);
+            return appendCircle(sb, center.getX(), center.getY(), c.getRadius());
+        }
+        if (shape instanceof Triangle)
+            return appendVertices(sb.append("Triangle["), ((Triangle) shape).vertices, 3).append(']');
+        if (shape instanceof Quadrilateral)
+            return appendVertices(sb.append("Quadrilateral["), ((Quadrilateral) shape).vertices, 4).append(']');
+        if (shape instanceof ShapeStore.View)
+            return ((ShapeStore.View) shape).appendTo(sb);
+        if (shape instanceof ShapeFile.View)
+            return ((ShapeFile.View) shape).appendTo(sb);
+        return sb.append(shape);
+    }
+
+    static StringBuilder appendCircle(StringBuilder sb, double x, double y, double radius) {
+        sb.append("Circle[center: (");
+        appendTwoDecimals(sb, x).append(',');
+        return appendTwoDecimals(sb, y).append("); radius: ").append(radius).append(']');
+    }
+
+    static StringBuilder appendVertex(StringBuilder sb, double x, double y) {
+        appendTwoDecimals(sb.append('('), x).append(',');
+        return appendTwoDecimals(sb, y).append(')');
+    }
+
+    private static StringBuilder appendVertices(StringBuilder sb, List<TwoDPoint> vertices, int count) {
+        for (int i = 0; i < count; i++) {
+            if (i > 0)
+                sb.append(", ");
+            TwoDPoint p = vertices.get(i);
+            appendVertex(sb, p.getX(), p.getY());
+        }
+        return sb;
+    }
+}
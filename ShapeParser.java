@@ -0,0 +1,503 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * A streaming parser of the human-readable forms of shapes, as returned by the <code>toString</code> methods of
+ * {@link Circle}, {@link Triangle} and {@link Quadrilateral} (and printed by {@link Printer}), one shape per line:
+ * <pre>
+ *     Circle[center: (x,y); radius: r]
+ *     Triangle[(x1,y1), (x2,y2), (x3,y3)]
+ *     Quadrilateral[(x1,y1), (x2,y2), (x3,y3), (x4,y4)]
+ * </pre>
+ * The input is read in chunks into a single fixed buffer, so memory use does not depend on the size of the input, and
+ * lines are decoded in place: there are no regular expressions and no strings per line or per number. Numbers whose
+ * digits fit in 53 bits and whose exponent is small, which covers everything printed with <code>%.2f</code>, are
+ * converted exactly with a single floating-point multiplication or division; the others are handed to
+ * {@link Double#parseDouble(String)}. Blank lines are skipped, and lines may end with <code>\n</code> or
+ * <code>\r\n</code>.
+ * <p>
+ * Parsed shapes are passed to a {@link Handler} as plain <code>double</code>s, from which they can be appended to a
+ * {@link ShapeStore} with {@link #into(ShapeStore)} or constructed as objects with {@link #into(Consumer)}. A file can
+ * also be cut into byte ranges parsed in parallel with {@link #read(Path, int)}.
+ * <p>
+ * A parser is not thread-safe, but may be reused for several inputs.
+ */
+public class ShapeParser {
+
+    /**
+     * Receives the shapes parsed from an input, with their values in the order in which they appear.
+     */
+    public interface Handler {
+        void circle(double x, double y, double r);
+
+        void triangle(double x1, double y1, double x2, double y2, double x3, double y3);
+
+        void quadrilateral(double x1, double y1, double x2, double y2, double x3, double y3, double x4, double y4);
+    }
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte[] CIRCLE        = ascii("Circle[center: (");
+    private static final byte[] RADIUS        = ascii("); radius: ");
+    private static final byte[] TRIANGLE      = ascii("Triangle[");
+    private static final byte[] QUADRILATERAL = ascii("Quadrilateral[");
+    private static final byte[] NAN           = ascii("NaN");
+    private static final byte[] INFINITY      = ascii("Infinity");
+
+    /**
+     * The powers of ten that are exactly representable as <code>double</code>s.
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * The most shapes a store is sized for before parsing, however large the input: stores grow as needed, so sizing
+     * them for a huge input up front would only reserve memory that may never be used.
+     */
+    private static final int MAX_EXPECTED_SHAPES = 1 << 16;
+
+    private final byte[]   buffer = new byte[BUFFER_SIZE];
+    private final double[] values = new double[8];
+
+    // the line being decoded: its offset in the input, and its start, current position and end in the buffer
+    private long lineOffset;
+    private int  lineFrom, pos, end;
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Reads bytes into a buffer, like {@link InputStream#read(byte[], int, int)}.
+     */
+    private interface Source {
+        int read(byte[] b, int offset, int length) throws IOException;
+    }
+
+    /**
+     * Parses every line of the specified stream, which is not closed.
+     *
+     * @return the number of shapes parsed
+     * @throws IOException              if the stream cannot be read.
+     * @throws IllegalArgumentException if a line is not the human-readable form of a shape.
+     */
+    public long parse(InputStream in, Handler handler) throws IOException {
+        return parse(in::read, 0, false, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Parses every line of the specified stream, which holds the bytes of a larger input from the specified offset on,
+     * so that errors report the offset of a malformed line in the larger input. The stream is not closed.
+     *
+     * @return the number of shapes parsed
+     */
+    long parse(InputStream in, long offset, Handler handler) throws IOException {
+        return parse(in::read, offset, false, Long.MAX_VALUE, handler);
+    }
+
+    /**
+     * Parses every line of the specified file.
+     *
+     * @return the number of shapes parsed
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not the human-readable form of a shape.
+     */
+    public long parse(Path path, Handler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return parse(channel, 0, channel.size(), handler);
+        }
+    }
+
+    /**
+     * Parses the lines of the specified file that start within the byte range <code>[from, to)</code>. The last of
+     * them is read to its end even past <code>to</code>, so that splitting a file into consecutive ranges parses every
+     * line exactly once.
+     *
+     * @return the number of shapes parsed
+     */
+    long parse(FileChannel channel, long from, long to, Handler handler) throws IOException {
+        // reading from the byte before the range tells whether the range starts a line
+        long start = Math.max(0, from - 1);
+        long[] position = {start};
+        Source source = (b, offset, length) -> {
+            int n = channel.read(ByteBuffer.wrap(b, offset, length), position[0]);
+            if (n > 0)
+                position[0] += n;
+            return n;
+        };
+        return parse(source, start, from > 0, to, handler);
+    }
+
+    /**
+     * The main loop: finds the lines in the buffer, refilling it as needed, and decodes those starting before the
+     * limit.
+     *
+     * @param base      the offset in the input of the first byte read from the source.
+     * @param skipFirst whether the first line, which starts before the range to parse, must be skipped.
+     * @param limit     the offset in the input at or after which no line is decoded.
+     */
+    private long parse(Source source, long base, boolean skipFirst, long limit, Handler handler) throws IOException {
+        int lineStart = 0, scan = 0, filled = 0;
+        long shapes = 0;
+        boolean eof = false;
+        while (true) {
+            int newline = -1;
+            for (int i = scan; i < filled; i++)
+                if (buffer[i] == '\n') {
+                    newline = i;
+                    break;
+                }
+            if (newline < 0) {
+                if (eof) {
+                    if (lineStart < filled && base + lineStart < limit && !skipFirst)
+                        shapes += decode(base + lineStart, lineStart, filled, handler);
+                    return shapes;
+                }
+                // move the partial line to the front of the buffer and read more
+                if (lineStart > 0) {
+                    System.arraycopy(buffer, lineStart, buffer, 0, filled - lineStart);
+                    base += lineStart;
+                    filled -= lineStart;
+                    lineStart = 0;
+                }
+                if (filled == buffer.length)
+                    throw new IllegalArgumentException("Error: The line at byte " + base + " is too long.");
+                scan = filled;
+                int n = source.read(buffer, filled, buffer.length - filled);
+                if (n < 0)
+                    eof = true;
+                else
+                    filled += n;
+                continue;
+            }
+            if (base + lineStart >= limit)
+                return shapes;
+            if (skipFirst)
+                skipFirst = false;
+            else
+                shapes += decode(base + lineStart, lineStart, newline, handler);
+            lineStart = scan = newline + 1;
+        }
+    }
+
+    /**
+     * Decodes the line held in <code>buffer[from, to)</code>.
+     *
+     * @return the number of shapes on the line, one or zero if it is blank
+     */
+    private int decode(long offset, int from, int to, Handler handler) {
+        lineOffset = offset;
+        lineFrom = pos = from;
+        end = to;
+        if (end > pos && buffer[end - 1] == '\r')
+            end--;
+        skipSpaces();
+        if (pos == end)
+            return 0;
+
+        if (matches(CIRCLE)) {
+            double x = number();
+            expect(',');
+            double y = number();
+            expect(RADIUS);
+            double r = number();
+            expect(']');
+            finish();
+            handler.circle(x, y, r);
+        } else if (matches(TRIANGLE)) {
+            vertices(3);
+            handler.triangle(values[0], values[1], values[2], values[3], values[4], values[5]);
+        } else if (matches(QUADRILATERAL)) {
+            vertices(4);
+            handler.quadrilateral(values[0], values[1], values[2], values[3],
+                                  values[4], values[5], values[6], values[7]);
+        } else {
+            throw malformed();
+        }
+        return 1;
+    }
+
+    /**
+     * Decodes the specified number of vertices of the form <code>(x,y)</code> separated by commas, and the closing
+     * bracket.
+     */
+    private void vertices(int count) {
+        for (int k = 0; k < count; k++) {
+            if (k > 0) {
+                expect(',');
+                skipSpaces();
+            }
+            expect('(');
+            values[2 * k] = number();
+            expect(',');
+            values[2 * k + 1] = number();
+            expect(')');
+        }
+        expect(']');
+        finish();
+    }
+
+    private boolean matches(byte[] expected) {
+        if (end - pos < expected.length)
+            return false;
+        for (int i = 0; i < expected.length; i++)
+            if (buffer[pos + i] != expected[i])
+                return false;
+        pos += expected.length;
+        return true;
+    }
+
+    private void expect(byte[] expected) {
+        if (!matches(expected))
+            throw malformed();
+    }
+
+    private void expect(char c) {
+        if (pos == end || buffer[pos] != c)
+            throw malformed();
+        pos++;
+    }
+
+    private void skipSpaces() {
+        while (pos < end && buffer[pos] == ' ')
+            pos++;
+    }
+
+    private void finish() {
+        skipSpaces();
+        if (pos != end)
+            throw malformed();
+    }
+
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Error: Malformed shape at byte " + (lineOffset + pos - lineFrom) + ".");
+    }
+
+    /**
+     * Decodes a number of the form <code>[-]digits[.digits][(e|E)[+|-]digits]</code>, as well as <code>NaN</code> and
+     * <code>Infinity</code>, starting at the current position.
+     */
+    private double number() {
+        int start = pos;
+        boolean negative = false;
+        if (pos < end && (buffer[pos] == '-' || buffer[pos] == '+'))
+            negative = buffer[pos++] == '-';
+        long mantissa = 0;
+        int digits = 0, scale = 0;
+        boolean exact = true;
+        int first = pos;
+        while (pos < end && isDigit(buffer[pos])) {
+            if (digits < 18) {
+                mantissa = 10 * mantissa + (buffer[pos] - '0');
+                if (mantissa != 0)
+                    digits++;
+            } else {
+                exact = false;
+            }
+            pos++;
+        }
+        if (pos < end && buffer[pos] == '.') {
+            pos++;
+            while (pos < end && isDigit(buffer[pos])) {
+                if (digits < 18) {
+                    mantissa = 10 * mantissa + (buffer[pos] - '0');
+                    if (mantissa != 0)
+                        digits++;
+                    scale--;
+                } else {
+                    exact = false;
+                }
+                pos++;
+            }
+        }
+        if (pos == first || (pos == first + 1 && buffer[first] == '.'))
+            return special(start);
+        if (pos < end && (buffer[pos] == 'e' || buffer[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < end && (buffer[pos] == '-' || buffer[pos] == '+'))
+                negativeExponent = buffer[pos++] == '-';
+            int exponent = 0, exponentStart = pos;
+            while (pos < end && isDigit(buffer[pos])) {
+                exponent = Math.min(10 * exponent + (buffer[pos] - '0'), 100_000);
+                pos++;
+            }
+            if (pos == exponentStart)
+                throw malformed();
+            scale += negativeExponent ? -exponent : exponent;
+        }
+
+        if (exact && mantissa < MAX_EXACT_MANTISSA && Math.abs(scale) < POWERS_OF_TEN.length) {
+            // both operands are exact, so the result is correctly rounded
+            double value = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(new String(buffer, start, pos - start, StandardCharsets.US_ASCII));
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    /**
+     * Decodes <code>NaN</code> or <code>Infinity</code>, with an optional sign, starting at the specified position.
+     */
+    private double special(int start) {
+        pos = start;
+        boolean negative = false;
+        if (pos < end && (buffer[pos] == '-' || buffer[pos] == '+'))
+            negative = buffer[pos++] == '-';
+        if (matches(INFINITY))
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        if (pos == start && matches(NAN))
+            return Double.NaN;
+        throw malformed();
+    }
+
+    /**
+     * @return the number of shapes to size a store for before parsing the specified number of bytes into it, at about
+     * 32 bytes per shape and no more than {@link #MAX_EXPECTED_SHAPES}
+     */
+    static int expectedShapes(long bytes) {
+        return (int) Math.min(MAX_EXPECTED_SHAPES, bytes / 32);
+    }
+
+    /**
+     * @return a handler appending every parsed shape to the specified store, keeping its vertices in the order in which
+     * they were parsed
+     */
+    public static Handler into(ShapeStore store) {
+        return new Handler() {
+            @Override
+            public void circle(double x, double y, double r) {store.addCircle(x, y, r);}
+
+            @Override
+            public void triangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+                store.addTriangle(x1, y1, x2, y2, x3, y3);
+            }
+
+            @Override
+            public void quadrilateral(double x1, double y1, double x2, double y2,
+                                      double x3, double y3, double x4, double y4) {
+                store.addQuadrilateral(x1, y1, x2, y2, x3, y3, x4, y4);
+            }
+        };
+    }
+
+    /**
+     * @return a handler constructing a {@link Circle}, {@link Triangle} or {@link Quadrilateral} for every parsed
+     * shape, and passing it to the specified action. The vertices are ordered by the constructors of the shapes.
+     */
+    public static Handler into(Consumer<? super TwoDShape> action) {
+        return new Handler() {
+            @Override
+            public void circle(double x, double y, double r) {action.accept(new Circle(x, y, r));}
+
+            @Override
+            public void triangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+                action.accept(new Triangle(Arrays.asList(new TwoDPoint(x1, y1), new TwoDPoint(x2, y2),
+                                                         new TwoDPoint(x3, y3))));
+            }
+
+            @Override
+            public void quadrilateral(double x1, double y1, double x2, double y2,
+                                      double x3, double y3, double x4, double y4) {
+                action.accept(new Quadrilateral(Arrays.asList(new TwoDPoint(x1, y1), new TwoDPoint(x2, y2),
+                                                              new TwoDPoint(x3, y3), new TwoDPoint(x4, y4))));
+            }
+        };
+    }
+
+    /**
+     * @return a handler like {@link #into(Consumer)}, except that the vertices of the triangles and quadrilaterals are
+     * the canonical points of the specified pool, so that the shapes of a mesh share their vertices.
+     */
+    public static Handler into(Consumer<? super TwoDShape> action, PointPool pool) {
+        return new Handler() {
+            @Override
+            public void circle(double x, double y, double r) {action.accept(new Circle(x, y, r));}
+
+            @Override
+            public void triangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+                action.accept(new Triangle(Arrays.asList(pool.twoD(x1, y1), pool.twoD(x2, y2), pool.twoD(x3, y3))));
+            }
+
+            @Override
+            public void quadrilateral(double x1, double y1, double x2, double y2,
+                                      double x3, double y3, double x4, double y4) {
+                action.accept(new Quadrilateral(Arrays.asList(pool.twoD(x1, y1), pool.twoD(x2, y2),
+                                                              pool.twoD(x3, y3), pool.twoD(x4, y4))));
+            }
+        };
+    }
+
+    /**
+     * Parses the specified file into a new store, cutting it into byte ranges that are parsed in parallel into stores
+     * of their own, then appended in order. The result is the same as parsing the file sequentially.
+     *
+     * @param path        the path of the file.
+     * @param parallelism the number of ranges.
+     * @return a store of every shape of the file, in the order of the file
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not the human-readable form of a shape, or if the parallelism is
+     *                                  less than one.
+     */
+    public static ShapeStore read(Path path, int parallelism) throws IOException {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Error: The parallelism must be at least one.");
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<Callable<ShapeStore>> splits = new ArrayList<>(parallelism);
+            for (int s = 0; s < parallelism; s++) {
+                long from = size * s / parallelism, to = size * (s + 1) / parallelism;
+                splits.add(() -> {
+                    ShapeStore store = new ShapeStore(expectedShapes(to - from));
+                    new ShapeParser().parse(channel, from, to, into(store));
+                    return store;
+                });
+            }
+            ShapeStore result = null;
+            for (Future<ShapeStore> split : ForkJoinPool.commonPool().invokeAll(splits)) {
+                ShapeStore store = join(split);
+                if (result == null)
+                    result = store;
+                else
+                    result.addAll(store);
+            }
+            return result;
+        }
+    }
+
+    private static ShapeStore join(Future<ShapeStore> split) throws IOException {
+        try {
+            return split.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        }
+    }
+}
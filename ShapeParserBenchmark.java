@@ -0,0 +1,136 @@
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes shapes to a text file with {@link BufferedPrinter}, checks that {@link ShapeParser} reads every shape back as
+ * it was printed, sequentially and in parallel, and reports the throughput, in megabytes and shapes per second, of
+ * parsing the file into a {@link ShapeStore}, into shape objects, and in parallel, compared to reading it line by line
+ * with a regular expression and <code>Double.parseDouble</code>.
+ * <p>
+ * Usage: <code>java ShapeParserBenchmark [shapes] [directory]</code>.
+ */
+public class ShapeParserBenchmark {
+
+    private static final Pattern NUMBER = Pattern.compile("-?[0-9][0-9.Ee+-]*|NaN|-?Infinity");
+
+    public static void main(String[] args) throws IOException {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 2_000_000;
+        Path directory = Path.of(args.length > 1 ? args[1] : System.getProperty("java.io.tmpdir"));
+        Path path = Files.createTempFile(directory, "shapes", ".txt");
+        try {
+            run(n, path);
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void run(int n, Path path) throws IOException {
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+        try (BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(Files.newOutputStream(path),
+                                                                        StandardCharsets.US_ASCII)) {
+            printer.printAll(shapes);
+        }
+        long bytes = Files.size(path);
+        System.out.printf("%d shapes, %.1f MB%n", n, bytes / 1e6);
+        check(shapes, path);
+
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        System.out.printf("%s %10s %14s%n", Bench.header(), "MB/s", "shapes/s");
+        report(bytes, Bench.measure("parse.store", n, n, () -> {
+            ShapeStore store = new ShapeStore(n);
+            return parse(path, ShapeParser.into(store));
+        }));
+        report(bytes, Bench.measure("parse.objects", n, n, () -> {
+            List<TwoDShape> parsed = new ArrayList<>(n);
+            return parse(path, ShapeParser.into(parsed::add));
+        }));
+        report(bytes, Bench.measure("read.parallel(" + parallelism + ")", n, n,
+                                    () -> read(path, parallelism).size()));
+        report(bytes, Bench.measure("regex.store", n, n, () -> regex(path).size()));
+    }
+
+    private static void report(long bytes, Bench.Result result) {
+        System.out.printf("%s %10.0f %14.0f%n", result, bytes / 1e6 / (result.nsPerOp * result.size / 1e9),
+                          result.opsPerSecond());
+    }
+
+    private static long parse(Path path, ShapeParser.Handler handler) {
+        try {
+            return new ShapeParser().parse(path, handler);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ShapeStore read(Path path, int parallelism) {
+        try {
+            return ShapeParser.read(path, parallelism);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Reads the file the way one would without a dedicated parser: line by line, finding the numbers with a regular
+     * expression.
+     */
+    private static ShapeStore regex(Path path) {
+        ShapeStore store = new ShapeStore();
+        double[] c = new double[8];
+        try (BufferedReader in = Files.newBufferedReader(path, StandardCharsets.US_ASCII)) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                Matcher m = NUMBER.matcher(line);
+                int k = 0;
+                while (m.find())
+                    c[k++] = Double.parseDouble(m.group());
+                if (k == 3)
+                    store.addCircle(c[0], c[1], c[2]);
+                else if (k == 6)
+                    store.addTriangle(c[0], c[1], c[2], c[3], c[4], c[5]);
+                else
+                    store.addQuadrilateral(c[0], c[1], c[2], c[3], c[4], c[5], c[6], c[7]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return store;
+    }
+
+    /**
+     * Checks that the sequential parse prints exactly as the original shapes, that the shape objects and the parallel
+     * parses agree with it, and that the regular-expression baseline reads the same values.
+     */
+    private static void check(List<TwoDShape> shapes, Path path) throws IOException {
+        ShapeStore store = new ShapeStore();
+        new ShapeParser().parse(path, ShapeParser.into(store));
+        List<TwoDShape> objects = new ArrayList<>();
+        new ShapeParser().parse(path, ShapeParser.into(objects::add));
+        if (store.size() != shapes.size() || objects.size() != shapes.size())
+            throw new AssertionError("parsed " + store.size() + " shapes instead of " + shapes.size());
+        byte[] expected = Files.readAllBytes(path);
+        if (!Arrays.equals(expected, print(store.asList())) || !Arrays.equals(expected, print(objects)))
+            throw new AssertionError("the parsed shapes print differently from the original ones");
+        for (ShapeStore other : List.of(read(path, 1), read(path, 3), read(path, 64), regex(path)))
+            if (!Arrays.equals(expected, print(other.asList())))
+                throw new AssertionError("a parallel or regular-expression parse differs from the sequential one");
+    }
+
+    private static byte[] print(List<? extends TwoDShape> shapes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BufferedPrinter<TwoDShape> printer = new BufferedPrinter<>(out, StandardCharsets.US_ASCII)) {
+            printer.printAll(shapes);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,665 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * A lazy query over a sequence of two-dimensional shapes: an in-memory list, a {@link ShapeStore}, an
+ * {@link OffHeapShapeStore} or a {@link ShapeFile}. A query is built by chaining filters on the kind of the shapes, on
+ * ranges of their area, perimeter or least x-value, or on any predicate, an order on one of these metrics, and a
+ * limit, then run by one of the terminal methods: {@link #toList()}, {@link #forEach(Consumer)}, {@link #count()},
+ * {@link #values(Metric)} or {@link #summary(Metric)}. For example, the ten largest circles of a store are
+ * <pre>
+ *     ShapeQuery.of(store).kind(Kind.CIRCLE).orderByDescending(Metric.AREA).limit(10).toList()
+ * </pre>
+ * As in SQL, the clauses apply in a fixed order whatever the order of the calls: first the filters, then the order,
+ * then the limit. Shapes that compare equal on the order keep the order of the sequence.
+ * <p>
+ * Nothing is read until a terminal method runs, and the query is then planned as a whole rather than one step at a
+ * time:
+ * <ul>
+ *     <li>every filter is checked in a single pass, and the ranges on a metric are intersected into one range, which
+ *     is checked on the primitive values of a store or a file without creating a view of the shape; only a predicate
+ *     needs the shape itself, and is checked last;</li>
+ *     <li>without an order, the pass stops as soon as the limit is reached;</li>
+ *     <li>an order with a limit much smaller than the sequence keeps a bounded heap of the best shapes seen so far, as
+ *     {@link Ordering#smallestByKey(Iterable, int, java.util.function.ToDoubleFunction)} does, rather than sorting;
+ *     other orders sort the positions of the matching shapes on their primitive keys with {@link KeySort};</li>
+ *     <li>on a query made {@link #indexed()}, a range of least x-values is found by binary search in the index and
+ *     only the shapes within it are checked, and an increasing order on the least x-value is read straight from the
+ *     index, so that with a limit the pass stops after the first matching shapes.</li>
+ * </ul>
+ * {@link #plan()} describes how a query will run. Queries are immutable: every clause returns a new query, so a query
+ * can be shared and refined by several others, and an index is built once for all of them.
+ * <p>
+ * A query reads its source every time it runs, so it sees the shapes of the source at that time. The index, however,
+ * is a snapshot of the least x-values when it was built: running an indexed query after shapes were added to or
+ * removed from the source fails, and moving shapes makes its results incorrect.
+ */
+public final class ShapeQuery {
+
+    /**
+     * The kinds of shapes: every {@link Polygon} is a polygon, whatever its number of vertices, and other shapes are
+     * classified by {@link TwoDShape#numSides()}.
+     */
+    public enum Kind {
+        CIRCLE, TRIANGLE, QUADRILATERAL, POLYGON;
+
+        static Kind of(TwoDShape shape) {
+            return shape instanceof Polygon ? POLYGON : of(shape.numSides());
+        }
+
+        /**
+         * @return the kind of a shape of a store or a file with the specified number of sides, which is never a
+         * polygon
+         */
+        static Kind of(int numSides) {
+            switch (numSides) {
+                case (int) Double.POSITIVE_INFINITY: return CIRCLE;
+                case 3:                              return TRIANGLE;
+                case 4:                              return QUADRILATERAL;
+                default:                             return POLYGON;
+            }
+        }
+    }
+
+    /**
+     * The metrics of a shape that a query can filter, order or aggregate on.
+     */
+    public enum Metric {AREA, PERIMETER, LEAST_X}
+
+    private static final int ALL_KINDS = (1 << Kind.values().length) - 1;
+
+    private static final Metric[] METRICS = Metric.values();
+
+    /**
+     * A sequence of shapes with random access, and primitive access to their metrics.
+     */
+    private interface Source {
+        String name();
+
+        int size();
+
+        /**
+         * @return <code>false</code> if the element at the specified position is not a shape, such as a point of a
+         * shape file, which queries skip
+         */
+        boolean isShape(int i);
+
+        Kind kind(int i);
+
+        double area(int i);
+
+        double perimeter(int i);
+
+        double leastX(int i);
+
+        TwoDShape shape(int i);
+
+        /**
+         * @return the shapes at the specified positions, in order
+         */
+        default List<TwoDShape> shapes(int[] positions) {
+            List<TwoDShape> shapes = new ArrayList<>(positions.length);
+            for (int i : positions)
+                shapes.add(shape(i));
+            return shapes;
+        }
+    }
+
+    private final Source                       source;
+    private final LeastXIndex                  index;
+    private final int                          kinds;
+    private final double[]                     min;
+    private final double[]                     max;
+    private final Predicate<? super TwoDShape> predicate;
+    private final Metric                       orderBy;
+    private final boolean                      descending;
+    private final int                          limit;
+
+    private ShapeQuery(Source source, LeastXIndex index, int kinds, double[] min, double[] max,
+                       Predicate<? super TwoDShape> predicate, Metric orderBy, boolean descending, int limit) {
+        this.source = source;
+        this.index = index;
+        this.kinds = kinds;
+        this.min = min;
+        this.max = max;
+        this.predicate = predicate;
+        this.orderBy = orderBy;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    private static ShapeQuery of(Source source) {
+        int metrics = METRICS.length;
+        double[] min = new double[metrics], max = new double[metrics];
+        Arrays.fill(min, Double.NEGATIVE_INFINITY);
+        Arrays.fill(max, Double.POSITIVE_INFINITY);
+        return new ShapeQuery(source, null, ALL_KINDS, min, max, null, null, false, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return a query over the specified list, which is copied first if it does not support fast random access
+     */
+    public static ShapeQuery of(List<? extends TwoDShape> shapes) {
+        List<? extends TwoDShape> list = shapes instanceof RandomAccess ? shapes : new ArrayList<>(shapes);
+        return of(new Source() {
+            @Override
+            public String name() {return "list";}
+
+            @Override
+            public int size() {return list.size();}
+
+            @Override
+            public boolean isShape(int i) {return true;}
+
+            @Override
+            public Kind kind(int i) {return Kind.of(list.get(i));}
+
+            @Override
+            public double area(int i) {return list.get(i).area();}
+
+            @Override
+            public double perimeter(int i) {return list.get(i).perimeter();}
+
+            @Override
+            public double leastX(int i) {return list.get(i).getLeastX();}
+
+            @Override
+            public TwoDShape shape(int i) {return list.get(i);}
+        });
+    }
+
+    /**
+     * @return a query over the specified store, whose shapes are returned as views
+     */
+    public static ShapeQuery of(ShapeStore store) {
+        return of(new Source() {
+            @Override
+            public String name() {return "ShapeStore";}
+
+            @Override
+            public int size() {return store.size();}
+
+            @Override
+            public boolean isShape(int i) {return true;}
+
+            @Override
+            public Kind kind(int i) {return Kind.of(store.numSides(i));}
+
+            @Override
+            public double area(int i) {return store.area(i);}
+
+            @Override
+            public double perimeter(int i) {return store.perimeter(i);}
+
+            @Override
+            public double leastX(int i) {return store.leastX(i);}
+
+            @Override
+            public TwoDShape shape(int i) {return store.get(i);}
+        });
+    }
+
+    /**
+     * @return a query over the shapes of the specified store, skipping its points, which are returned as copies on the
+     * heap
+     */
+    public static ShapeQuery of(OffHeapShapeStore store) {
+        return of(new Source() {
+            @Override
+            public String name() {return "OffHeapShapeStore";}
+
+            @Override
+            public int size() {return store.size();}
+
+            @Override
+            public boolean isShape(int i) {return !store.isPoint(i);}
+
+            @Override
+            public Kind kind(int i) {
+                int n = store.vertexCount(i);
+                return Kind.of(n == 1 ? (int) Double.POSITIVE_INFINITY : n);
+            }
+
+            @Override
+            public double area(int i) {return store.area(i);}
+
+            @Override
+            public double perimeter(int i) {return store.perimeter(i);}
+
+            @Override
+            public double leastX(int i) {return store.leastX(i);}
+
+            @Override
+            public TwoDShape shape(int i) {return store.toShape(i);}
+        });
+    }
+
+    /**
+     * @return a query over the shapes of the specified file, skipping its points, which are returned as views
+     */
+    public static ShapeQuery of(ShapeFile file) {
+        return of(new Source() {
+            @Override
+            public String name() {return "ShapeFile";}
+
+            @Override
+            public int size() {return file.size();}
+
+            @Override
+            public boolean isShape(int i) {return !file.isPoint(i);}
+
+            @Override
+            public Kind kind(int i) {return Kind.of(file.numSides(i));}
+
+            @Override
+            public double area(int i) {return file.area(i);}
+
+            @Override
+            public double perimeter(int i) {return file.perimeter(i);}
+
+            @Override
+            public double leastX(int i) {return file.leastX(i);}
+
+            @Override
+            public TwoDShape shape(int i) {return file.get(i);}
+        });
+    }
+
+    /**
+     * @return this query over an index of the least x-values of the current shapes of the source, built now in
+     * <code>O(n log n)</code> time and shared by every query derived from the result
+     */
+    public ShapeQuery indexed() {
+        return new ShapeQuery(source, new LeastXIndex(source), kinds, min, max, predicate, orderBy, descending, limit);
+    }
+
+    /**
+     * @return this query restricted to shapes of the specified kinds, and of the kinds it was already restricted to
+     */
+    public ShapeQuery kind(Kind... kinds) {
+        int mask = 0;
+        for (Kind k : kinds)
+            mask |= 1 << k.ordinal();
+        return new ShapeQuery(source, index, this.kinds & mask, min, max, predicate, orderBy, descending, limit);
+    }
+
+    /**
+     * @return this query restricted to shapes whose value of the specified metric is between <code>min</code> and
+     * <code>max</code>, inclusive, and within the ranges the query was already restricted to
+     * @throws IllegalArgumentException if a bound is NaN.
+     */
+    public ShapeQuery where(Metric metric, double min, double max) {
+        if (Double.isNaN(min) || Double.isNaN(max))
+            throw new IllegalArgumentException("Error: The bounds of a range cannot be NaN.");
+        double[] mins = this.min.clone(), maxs = this.max.clone();
+        mins[metric.ordinal()] = Math.max(mins[metric.ordinal()], min);
+        maxs[metric.ordinal()] = Math.min(maxs[metric.ordinal()], max);
+        return new ShapeQuery(source, index, kinds, mins, maxs, predicate, orderBy, descending, limit);
+    }
+
+    public ShapeQuery areaBetween(double min, double max) {return where(Metric.AREA, min, max);}
+
+    public ShapeQuery leastXBetween(double min, double max) {return where(Metric.LEAST_X, min, max);}
+
+    /**
+     * @return this query restricted to shapes satisfying the specified predicate, checked after every other filter
+     */
+    public ShapeQuery filter(Predicate<? super TwoDShape> predicate) {
+        Predicate<? super TwoDShape> p = this.predicate == null ? predicate : and(this.predicate, predicate);
+        return new ShapeQuery(source, index, kinds, min, max, p, orderBy, descending, limit);
+    }
+
+    private static Predicate<TwoDShape> and(Predicate<? super TwoDShape> a, Predicate<? super TwoDShape> b) {
+        return s -> a.test(s) && b.test(s);
+    }
+
+    /**
+     * @return this query ordered by increasing values of the specified metric, instead of any previous order
+     */
+    public ShapeQuery orderBy(Metric metric) {
+        return new ShapeQuery(source, index, kinds, min, max, predicate, metric, false, limit);
+    }
+
+    /**
+     * @return this query ordered by decreasing values of the specified metric, instead of any previous order
+     */
+    public ShapeQuery orderByDescending(Metric metric) {
+        return new ShapeQuery(source, index, kinds, min, max, predicate, metric, true, limit);
+    }
+
+    /**
+     * @return this query returning no more than the specified number of shapes, and no more than before
+     * @throws IllegalArgumentException if the limit is negative.
+     */
+    public ShapeQuery limit(int limit) {
+        if (limit < 0)
+            throw new IllegalArgumentException("Error: The limit must not be negative.");
+        return new ShapeQuery(source, index, kinds, min, max, predicate, orderBy, descending,
+                              Math.min(this.limit, limit));
+    }
+
+    /**
+     * @return the matching shapes, in order
+     */
+    public List<TwoDShape> toList() {
+        return source.shapes(run());
+    }
+
+    /**
+     * Passes the matching shapes, in order, to the specified action. Without an order, shapes are passed as they are
+     * found, without collecting them first.
+     */
+    public void forEach(Consumer<? super TwoDShape> action) {
+        if (orderBy == null) {
+            int[] remaining = {limit};
+            if (remaining[0] > 0)
+                scan(false, i -> {
+                    action.accept(source.shape(i));
+                    return --remaining[0] > 0;
+                });
+        } else {
+            for (int i : run())
+                action.accept(source.shape(i));
+        }
+    }
+
+    /**
+     * @return the number of matching shapes, up to the limit
+     */
+    public int count() {
+        int[] count = {0};
+        if (limit > 0)
+            scan(false, i -> ++count[0] < limit);
+        return count[0];
+    }
+
+    /**
+     * @return the value of the specified metric of every matching shape, in order
+     */
+    public double[] values(Metric metric) {
+        int[] positions = run();
+        double[] values = new double[positions.length];
+        for (int k = 0; k < positions.length; k++)
+            values[k] = value(metric, positions[k]);
+        return values;
+    }
+
+    /**
+     * @return the count, sum, minimum, average and maximum of the specified metric over the matching shapes
+     */
+    public DoubleSummaryStatistics summary(Metric metric) {
+        DoubleSummaryStatistics summary = new DoubleSummaryStatistics();
+        if (orderBy == null) {
+            int[] remaining = {limit};
+            if (remaining[0] > 0)
+                scan(false, i -> {
+                    summary.accept(value(metric, i));
+                    return --remaining[0] > 0;
+                });
+        } else {
+            for (int i : run())
+                summary.accept(value(metric, i));
+        }
+        return summary;
+    }
+
+    /**
+     * @return a description of how this query runs: the shapes it reads, the filters it checks on them, and how it
+     * orders and limits the matching ones
+     */
+    public String plan() {
+        StringBuilder s = new StringBuilder();
+        if (pushdown())
+            s.append("index range of LEAST_X in [").append(min[Metric.LEAST_X.ordinal()]).append(", ")
+             .append(max[Metric.LEAST_X.ordinal()]).append("] of ").append(source.name());
+        else if (indexOrder())
+            s.append("index of ").append(source.name()).append(" in order of LEAST_X");
+        else
+            s.append("scan of ").append(source.name());
+        if (kinds != ALL_KINDS) {
+            Set<Kind> set = EnumSet.noneOf(Kind.class);
+            for (Kind k : Kind.values())
+                if ((kinds & 1 << k.ordinal()) != 0)
+                    set.add(k);
+            s.append("; kind in ").append(set);
+        }
+        for (Metric m : Metric.values())
+            if (bounded(m))
+                s.append("; ").append(m).append(" in [").append(min[m.ordinal()]).append(", ")
+                 .append(max[m.ordinal()]).append(']');
+        if (predicate != null)
+            s.append("; predicate");
+        if (orderBy == null || indexOrder())
+            s.append(limit < Integer.MAX_VALUE ? "; stop after " + limit : "");
+        else if (topK())
+            s.append("; top ").append(limit).append(" by ").append(orderBy).append(descending ? " descending" : "");
+        else
+            s.append("; sort by ").append(orderBy).append(descending ? " descending" : "")
+             .append(limit < Integer.MAX_VALUE ? "; first " + limit : "");
+        return s.toString();
+    }
+
+    private boolean bounded(Metric m) {
+        return min[m.ordinal()] > Double.NEGATIVE_INFINITY || max[m.ordinal()] < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * @return whether the range of least x-values is looked up in the index rather than checked on every shape
+     */
+    private boolean pushdown() {return index != null && bounded(Metric.LEAST_X);}
+
+    /**
+     * @return whether the order is read from the index rather than computed
+     */
+    private boolean indexOrder() {return index != null && orderBy == Metric.LEAST_X && !descending;}
+
+    /**
+     * @return whether the order and the limit are fused into the selection of the best shapes with a bounded heap
+     */
+    private boolean topK() {return limit <= source.size() / 8;}
+
+    private double value(Metric metric, int i) {
+        switch (metric) {
+            case AREA:      return source.area(i);
+            case PERIMETER: return source.perimeter(i);
+            default:        return source.leastX(i);
+        }
+    }
+
+    /**
+     * @return whether the shape at the specified position passes every filter
+     */
+    private boolean matches(int i) {
+        if (!source.isShape(i))
+            return false;
+        if (kinds != ALL_KINDS && (kinds & 1 << source.kind(i).ordinal()) == 0)
+            return false;
+        for (Metric m : METRICS) {
+            if (bounded(m)) {
+                double v = value(m, i);
+                if (!(v >= min[m.ordinal()] && v <= max[m.ordinal()]))
+                    return false;
+            }
+        }
+        return predicate == null || predicate.test(source.shape(i));
+    }
+
+    /**
+     * Passes the position of every matching shape to the specified action until it returns <code>false</code>: in the
+     * order of the index if <code>inIndexOrder</code>, and in the order of the source otherwise.
+     */
+    private void scan(boolean inIndexOrder, IntPredicate action) {
+        if (index != null) {
+            index.check(source);
+            int from = 0, to = index.positions.length;
+            if (pushdown()) {
+                from = index.from(min[Metric.LEAST_X.ordinal()]);
+                to = index.to(max[Metric.LEAST_X.ordinal()]);
+            }
+            if (inIndexOrder) {
+                for (int k = from; k < to; k++)
+                    if (matches(index.positions[k]) && !action.test(index.positions[k]))
+                        return;
+                return;
+            }
+            if (pushdown()) {
+                int[] positions = Arrays.copyOfRange(index.positions, from, Math.max(from, to));
+                Arrays.sort(positions);
+                for (int i : positions)
+                    if (matches(i) && !action.test(i))
+                        return;
+                return;
+            }
+        }
+        for (int i = 0, n = source.size(); i < n; i++)
+            if (matches(i) && !action.test(i))
+                return;
+    }
+
+    /**
+     * @return the positions of the matching shapes, in order and up to the limit
+     */
+    private int[] run() {
+        if (limit == 0)
+            return new int[0];
+        IntList matches = new IntList();
+        if (orderBy == null || indexOrder()) {
+            scan(indexOrder(), i -> {
+                matches.add(i);
+                return matches.size < limit;
+            });
+            return matches.toArray();
+        }
+        if (topK()) {
+            TopK.Heap<Integer> heap = new TopK.Heap<>(limit, descending);
+            scan(false, i -> {
+                double key = value(orderBy, i);
+                if (heap.accepts(key))
+                    heap.offer(i, key);
+                return true;
+            });
+            List<Integer> best = heap.toList();
+            int[] positions = new int[best.size()];
+            for (int k = 0; k < positions.length; k++)
+                positions[k] = best.get(k);
+            return positions;
+        }
+        // the key of a shape is read while the shape is at hand, and the positions are sorted along with the keys
+        scan(false, i -> {
+            long b = KeySort.sortableBits(value(orderBy, i));
+            // reversing the bits reverses their order, and the sort stays stable
+            matches.add(i, descending ? ~b : b);
+            return true;
+        });
+        int n = matches.size;
+        // arrays of the exact size are sorted in place
+        long[] bits = n == 0 ? new long[0] : Arrays.copyOf(matches.keys, n);
+        int[] order = matches.toArray();
+        KeySort.sortRange(bits, order, 0, n);
+        return n > limit ? Arrays.copyOf(order, limit) : order;
+    }
+
+    /**
+     * A growable array of positions, and optionally of their sort keys.
+     */
+    private static final class IntList {
+        int[]  values = new int[16];
+        long[] keys;
+        int    size;
+
+        void add(int value) {
+            if (size == values.length)
+                values = Arrays.copyOf(values, 2 * size);
+            values[size++] = value;
+        }
+
+        void add(int value, long key) {
+            if (keys == null)
+                keys = new long[values.length];
+            if (size == values.length)
+                keys = Arrays.copyOf(keys, 2 * size);
+            keys[size] = key;
+            add(value);
+        }
+
+        int[] toArray() {return Arrays.copyOf(values, size);}
+    }
+
+    /**
+     * The positions of the shapes of a source in increasing order of their least x-value, shapes of equal least
+     * x-values in the order of the source, and these least x-values.
+     */
+    private static final class LeastXIndex {
+        final int      size;
+        final int[]    positions;
+        final double[] keys;
+
+        // the keys before this position are numbers, and those after are NaN
+        final int numbers;
+
+        LeastXIndex(Source source) {
+            size = source.size();
+            IntList shapes = new IntList();
+            for (int i = 0; i < size; i++)
+                if (source.isShape(i))
+                    shapes.add(i);
+            double[] unsorted = new double[shapes.size];
+            for (int k = 0; k < unsorted.length; k++)
+                unsorted[k] = source.leastX(shapes.values[k]);
+            int[] order = KeySort.order(unsorted);
+            positions = new int[order.length];
+            keys = new double[order.length];
+            for (int k = 0; k < order.length; k++) {
+                positions[k] = shapes.values[order[k]];
+                keys[k] = unsorted[order[k]];
+            }
+            int n = keys.length;
+            while (n > 0 && Double.isNaN(keys[n - 1]))
+                n--;
+            numbers = n;
+        }
+
+        void check(Source source) {
+            if (source.size() != size)
+                throw new IllegalStateException("Error: The source has changed since it was indexed.");
+        }
+
+        /**
+         * @return the first position of the index whose key is at least the specified value
+         */
+        int from(double value) {
+            int lo = 0, hi = numbers;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] < value)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+
+        /**
+         * @return the first position of the index whose key is greater than the specified value, or NaN
+         */
+        int to(double value) {
+            int lo = 0, hi = numbers;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (keys[mid] <= value)
+                    lo = mid + 1;
+                else
+                    hi = mid;
+            }
+            return lo;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Kernels over a single record of the binary shape file format described in {@link ShapeFile}, given the buffer
+ * holding it and its position in that buffer. They are shared by {@link ShapeFile}, which reads records from mapped
+ * pages, and {@link OffHeapShapeStore}, which keeps them in direct buffers.
+ */
+final class ShapeRecord {
+
+    private ShapeRecord() {}
+
+    static byte kind(ByteBuffer b, int p) {return b.get(p);}
+
+    /**
+     * @return the <code>k</code>-th value of the record at position <code>p</code>
+     */
+    static double value(ByteBuffer b, int p, int k) {return b.getDouble(p + 8 + 8 * k);}
+
+    /**
+     * @param i the index of the record, for error messages.
+     * @return the area of the shape in the record at position <code>p</code>
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    static double area(ByteBuffer b, int p, int i) {
+        switch (b.get(p)) {
+            case ShapeFile.CIRCLE:
+                double r = b.getDouble(p + 24);
+                return Math.PI * (r * r);
+            case ShapeFile.TRIANGLE:
+                return Geometry.triangleArea(b.getDouble(p + 8), b.getDouble(p + 16), b.getDouble(p + 24),
+                                             b.getDouble(p + 32), b.getDouble(p + 40), b.getDouble(p + 48));
+            case ShapeFile.QUADRILATERAL:
+                return Geometry.quadrilateralArea(b.getDouble(p + 8), b.getDouble(p + 16), b.getDouble(p + 24),
+                                                  b.getDouble(p + 32), b.getDouble(p + 40), b.getDouble(p + 48),
+                                                  b.getDouble(p + 56), b.getDouble(p + 64));
+            default:
+                throw new IllegalArgumentException("Error: Record " + i + " is not a shape.");
+        }
+    }
+
+    /**
+     * @param i the index of the record, for error messages.
+     * @return the perimeter of the shape in the record at position <code>p</code>
+     * @throws IllegalArgumentException if the record is a point.
+     */
+    static double perimeter(ByteBuffer b, int p, int i) {
+        switch (b.get(p)) {
+            case ShapeFile.CIRCLE:
+                return 2 * Math.PI * b.getDouble(p + 24);
+            case ShapeFile.TRIANGLE:
+                return Geometry.trianglePerimeter(b.getDouble(p + 8), b.getDouble(p + 16), b.getDouble(p + 24),
+                                                  b.getDouble(p + 32), b.getDouble(p + 40), b.getDouble(p + 48));
+            case ShapeFile.QUADRILATERAL:
+                return Geometry.quadrilateralPerimeter(b.getDouble(p + 8), b.getDouble(p + 16), b.getDouble(p + 24),
+                                                       b.getDouble(p + 32), b.getDouble(p + 40), b.getDouble(p + 48),
+                                                       b.getDouble(p + 56), b.getDouble(p + 64));
+            default:
+                throw new IllegalArgumentException("Error: Record " + i + " is not a shape.");
+        }
+    }
+
+    /**
+     * @return the least x-value of the shape in the record at position <code>p</code>, as defined by
+     * {@link ShapeStore#leastX(int)}, or the x-coordinate of the point in that record
+     */
+    static double leastX(ByteBuffer b, int p) {
+        switch (b.get(p)) {
+            case ShapeFile.CIRCLE:
+                return b.getDouble(p + 8) - b.getDouble(p + 24);
+            case ShapeFile.TRIANGLE:
+                return Math.min(b.getDouble(p + 8), Math.min(b.getDouble(p + 24), b.getDouble(p + 40)));
+            case ShapeFile.QUADRILATERAL:
+                return Math.min(Math.min(b.getDouble(p + 8), b.getDouble(p + 24)),
+                                Math.min(b.getDouble(p + 40), b.getDouble(p + 56)));
+            default:
+                return b.getDouble(p + 8);
+        }
+    }
+}
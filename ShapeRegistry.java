@@ -0,0 +1,376 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A registry of shapes by id, safe for many threads adding, moving, removing and querying shapes at once.
+ * <p>
+ * Ids are spread over a number of <i>stripes</i>, each a hash table guarded by its own {@link StampedLock}, so that
+ * writers to different stripes never contend. Every shape is held in an immutable {@link Entry} together with its
+ * area, least x-value and position, computed once when the shape is added or moved: a move replaces the entry rather
+ * than modifying the shape, and the registry keeps its own copy of every shape, so no shape it holds is ever modified
+ * or seen by another object. Queries of a single shape are therefore lock-free in the common case: they look the entry
+ * up under an optimistic read stamp, and only take the read lock of the stripe when a writer got in the way.
+ * <p>
+ * Snapshots hold the read locks of all stripes while they collect the entries, so they are consistent: a snapshot
+ * reflects all the writes completed before it started, and none of those that started after it.
+ */
+public final class ShapeRegistry {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Stripe[]   stripes;
+    private final AtomicLong nextId = new AtomicLong(1);
+
+    /**
+     * Creates a registry with four stripes per available processor.
+     */
+    public ShapeRegistry() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes the number of stripes, rounded up to a power of two.
+     * @throws IllegalArgumentException if the number of stripes is not positive.
+     */
+    public ShapeRegistry(int stripes) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("Error: The number of stripes must be positive.");
+        int n = Integer.highestOneBit(stripes);
+        this.stripes = new Stripe[n < stripes ? 2 * n : n];
+        for (int s = 0; s < this.stripes.length; s++)
+            this.stripes[s] = new Stripe();
+    }
+
+    /**
+     * An immutable shape of the registry, with its id, area, least x-value and position.
+     */
+    public static final class Entry {
+        private final long                  id;
+        private final TwoDShape             shape;
+        private final double                area;
+        private final double                leastX;
+        private final List<? extends Point> position;
+
+        /**
+         * @param shape a shape that is never modified nor seen outside of the registry once the entry is created.
+         */
+        private Entry(long id, TwoDShape shape) {
+            this.id = id;
+            this.shape = shape;
+            this.area = shape.area();
+            this.leastX = shape.getLeastX();
+            this.position = ((Positionable) shape).getPosition();
+        }
+
+        public long id() {return id;}
+
+        public double area() {return area;}
+
+        public double leastX() {return leastX;}
+
+        /**
+         * @return the vertices of the shape, or the center of a circle, as an unmodifiable list of immutable points
+         */
+        public List<? extends Point> position() {return position;}
+
+        /**
+         * @return a new copy of the shape, which the caller is free to modify
+         */
+        public TwoDShape shape() {return copyOf(shape);}
+    }
+
+    /**
+     * Adds a copy of the specified shape to this registry.
+     *
+     * @param shape a {@link Circle}, {@link Triangle} or {@link Quadrilateral}.
+     * @return the id of the added shape
+     * @throws IllegalArgumentException if the shape is not one of the supported kinds.
+     */
+    public long add(TwoDShape shape) {
+        Entry e = new Entry(nextId.getAndIncrement(), copyOf(shape));
+        Stripe s = stripe(e.id);
+        long stamp = s.lock.writeLock();
+        try {
+            s.put(e);
+        } finally {
+            s.lock.unlockWrite(stamp);
+        }
+        return e.id;
+    }
+
+    /**
+     * Moves the shape with the specified id to the specified position, as per {@link Positionable#setPosition(List)}.
+     * The moved shape and its entry are built before the stripe is locked, so the lock is only held to replace the
+     * entry; of concurrent moves of the same shape, the last to replace its entry wins.
+     *
+     * @return <code>true</code> if the shape was moved, or <code>false</code> if there is no shape with this id.
+     */
+    public boolean move(long id, List<? extends Point> points) {
+        Entry current = get(id);
+        if (current == null)
+            return false;
+        Entry e = new Entry(id, moved(current.shape, points));
+        Stripe s = stripe(id);
+        long stamp = s.lock.writeLock();
+        try {
+            if (s.find(id) == null)
+                return false;
+            s.put(e);
+            return true;
+        } finally {
+            s.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the shape with the specified id was removed, or <code>false</code> if there is none.
+     */
+    public boolean remove(long id) {
+        Stripe s = stripe(id);
+        long stamp = s.lock.writeLock();
+        try {
+            return s.remove(id);
+        } finally {
+            s.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Returns the entry of the shape with the specified id, without locking unless a writer to the same stripe is
+     * active.
+     *
+     * @return the entry, or <code>null</code> if there is no shape with this id.
+     */
+    public Entry get(long id) {
+        Stripe s = stripe(id);
+        long stamp = s.lock.tryOptimisticRead();
+        Entry e = s.find(id);
+        if (!s.lock.validate(stamp)) {
+            stamp = s.lock.readLock();
+            try {
+                e = s.find(id);
+            } finally {
+                s.lock.unlockRead(stamp);
+            }
+        }
+        return e;
+    }
+
+    /**
+     * @return the area of the shape with the specified id
+     * @throws IllegalArgumentException if there is no shape with this id.
+     */
+    public double area(long id) {return entry(id).area;}
+
+    /**
+     * @return the least x-value of the shape with the specified id
+     * @throws IllegalArgumentException if there is no shape with this id.
+     */
+    public double leastX(long id) {return entry(id).leastX;}
+
+    /**
+     * @return the position of the shape with the specified id, as per {@link Entry#position()}
+     * @throws IllegalArgumentException if there is no shape with this id.
+     */
+    public List<? extends Point> position(long id) {return entry(id).position;}
+
+    /**
+     * @return the number of shapes in this registry
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe s : stripes) {
+            long stamp = s.lock.readLock();
+            try {
+                size += s.size;
+            } finally {
+                s.lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return a consistent snapshot of all the entries, ordered by least x-value, then by id
+     */
+    public List<Entry> snapshotByLeastX() {
+        List<Entry> entries = snapshot();
+        KeySort.sort(entries, Entry::leastX);
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return a consistent snapshot of all the entries, ordered by area, then by id
+     */
+    public List<Entry> snapshotByArea() {
+        List<Entry> entries = snapshot();
+        KeySort.sort(entries, Entry::area);
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return all the entries, ordered by id, collected while holding the read locks of all stripes
+     */
+    private List<Entry> snapshot() {
+        long[] stamps = new long[stripes.length];
+        List<Entry> entries;
+        try {
+            int size = 0;
+            for (int s = 0; s < stripes.length; s++) {
+                stamps[s] = stripes[s].lock.readLock();
+                size += stripes[s].size;
+            }
+            entries = new ArrayList<>(size);
+            for (Stripe s : stripes)
+                for (Entry e : s.table)
+                    if (e != null)
+                        entries.add(e);
+        } finally {
+            for (int s = 0; s < stripes.length; s++)
+                if (stamps[s] != 0)
+                    stripes[s].lock.unlockRead(stamps[s]);
+        }
+        KeySort.sort(entries, e -> e.id);
+        return entries;
+    }
+
+    @Override
+    public String toString() {
+        return "ShapeRegistry[size=" + size() + ", stripes=" + stripes.length + "]";
+    }
+
+    private Entry entry(long id) {
+        Entry e = get(id);
+        if (e == null)
+            throw new IllegalArgumentException("Error: There is no shape with id " + id + ".");
+        return e;
+    }
+
+    private Stripe stripe(long id) {
+        return stripes[(int) (hash(id) >>> 32) & (stripes.length - 1)];
+    }
+
+    private static long hash(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * @return a copy of the specified shape with its vertices in the same order, sharing only its immutable points
+     */
+    private static TwoDShape copyOf(TwoDShape shape) {
+        if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            TwoDPoint center = (TwoDPoint) c.getPosition().get(0);
+            return new Circle(center.getX(), center.getY(), c.getRadius());
+        }
+        if (shape instanceof Triangle)
+            return Triangle.inOrder(((Triangle) shape).vertices);
+        if (shape instanceof Quadrilateral)
+            return Quadrilateral.inOrder(((Quadrilateral) shape).vertices);
+        throw new IllegalArgumentException("Error: Only circles, triangles and quadrilaterals can be registered.");
+    }
+
+    /**
+     * @return a copy of the specified shape moved to the specified position by {@link Positionable#setPosition(List)},
+     * so that its vertices are sorted exactly once, as those of the caller's own shape would be
+     * @throws IllegalArgumentException if the points are not {@link TwoDPoint} instances.
+     */
+    private static TwoDShape moved(TwoDShape shape, List<? extends Point> points) {
+        int n = shape instanceof Circle ? 1 : shape.numSides();
+        for (int k = 0; k < n; k++)
+            if (!(points.get(k) instanceof TwoDPoint))
+                throw new IllegalArgumentException("Error: The list must consist of TwoDPoint instances.");
+        TwoDShape moved = copyOf(shape);
+        ((Positionable) moved).setPosition(points);
+        return moved;
+    }
+
+    /**
+     * An open-addressing hash table of entries with linear probing, keyed by the id of the entries. Readers holding
+     * only an optimistic stamp may see the table while it is being modified, so a lookup reads the table once, and
+     * never probes more slots than it has; whatever it finds is discarded if the stamp turns out to be invalid.
+     */
+    private static final class Stripe {
+        final StampedLock lock = new StampedLock();
+        Entry[]           table = new Entry[INITIAL_CAPACITY];
+        int               size;
+
+        Entry find(long id) {
+            Entry[] t = table;
+            int mask = t.length - 1;
+            for (int k = 0, slot = (int) hash(id) & mask; k < t.length; k++, slot = (slot + 1) & mask) {
+                Entry e = t[slot];
+                if (e == null || e.id == id)
+                    return e;
+            }
+            return null;
+        }
+
+        /**
+         * Adds the specified entry, or replaces the entry with the same id.
+         */
+        void put(Entry entry) {
+            int slot = slot(entry.id);
+            if (table[slot] == null) {
+                if (size + 1 > table.length >>> 1) {
+                    grow();
+                    slot = slot(entry.id);
+                }
+                size++;
+            }
+            table[slot] = entry;
+        }
+
+        /**
+         * Removes the entry with the specified id, shifting the entries that follow it in its probe sequence back so
+         * that no lookup ever stops at the emptied slot too early.
+         */
+        boolean remove(long id) {
+            int mask = table.length - 1;
+            int slot = slot(id);
+            if (table[slot] == null)
+                return false;
+            for (int next = (slot + 1) & mask; table[next] != null; next = (next + 1) & mask) {
+                int home = (int) hash(table[next].id) & mask;
+                // moves the entry at next to the emptied slot unless its home lies cyclically in (slot, next]
+                if (slot <= next ? home <= slot || home > next : home <= slot && home > next) {
+                    table[slot] = table[next];
+                    slot = next;
+                }
+            }
+            table[slot] = null;
+            size--;
+            return true;
+        }
+
+        private void grow() {
+            Entry[] old = table;
+            Entry[] grown = new Entry[old.length * 2];
+            int mask = grown.length - 1;
+            for (Entry e : old) {
+                if (e == null)
+                    continue;
+                int slot = (int) hash(e.id) & mask;
+                while (grown[slot] != null)
+                    slot = (slot + 1) & mask;
+                grown[slot] = e;
+            }
+            table = grown;
+        }
+
+        /**
+         * @return the slot of the entry with the specified id, or the empty slot ending its probe sequence
+         */
+        private int slot(long id) {
+            int mask = table.length - 1;
+            int slot = (int) hash(id) & mask;
+            while (table[slot] != null && table[slot].id != id)
+                slot = (slot + 1) & mask;
+            return slot;
+        }
+    }
+}
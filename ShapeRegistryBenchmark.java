@@ -0,0 +1,287 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the throughput of a {@link ShapeRegistry} under a mixed load of threads querying the area, least x-value
+ * or position of random shapes (90% of the operations), moving them (9%), and adding and removing shapes (1%),
+ * against a map of mutable shapes guarded by a single lock, for one thread up to twice the number of available
+ * processors. Every run performs the same number of operations per thread, so ideal scaling shows as a constant
+ * ns/op per thread. Before measuring, the registry is checked against a plain map, and for consistent reads and
+ * snapshots while other threads write.
+ * <p>
+ * Usage: <code>java ShapeRegistryBenchmark [shapes]</code>.
+ */
+public class ShapeRegistryBenchmark {
+
+    private static final int OPERATIONS_PER_THREAD = 200_000;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 100_000;
+        checkRoundTrip();
+        checkSequential();
+        checkConcurrent();
+
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+        int cores = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(2 * cores);
+        try {
+            System.out.println(Bench.header());
+            for (int threads = 1; threads <= 2 * cores; threads *= 2) {
+                int t = threads;
+                long ops = (long) t * OPERATIONS_PER_THREAD;
+                ShapeRegistry registry = new ShapeRegistry();
+                shapes.forEach(registry::add);
+                System.out.println(Bench.measure("registry(" + t + " threads)", n, ops,
+                                                 () -> run(executor, t, seed -> registryLoad(registry, n, seed))));
+                Map<Long, TwoDShape> locked = new HashMap<>();
+                for (int i = 0; i < n; i++)
+                    locked.put(i + 1L, shapes.get(i));
+                System.out.println(Bench.measure("singleLock(" + t + " threads)", n, ops,
+                                                 () -> run(executor, t, seed -> lockedLoad(locked, n, seed))));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    interface Load {
+        long run(long seed);
+    }
+
+    private static long run(ExecutorService executor, int threads, Load load) {
+        List<Callable<Long>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t * 0x9E3779B97F4A7C15L;
+            tasks.add(() -> load.run(seed));
+        }
+        long sum = 0;
+        try {
+            for (Future<Long> f : executor.invokeAll(tasks))
+                sum += join(f);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        return sum;
+    }
+
+    private static long registryLoad(ShapeRegistry registry, int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double sum = 0;
+        long added = 0;
+        for (int k = 0; k < OPERATIONS_PER_THREAD; k++) {
+            int op = random.nextInt(100);
+            long id = 1 + random.nextInt(n);
+            if (op < 90) {
+                ShapeRegistry.Entry e = registry.get(id);
+                if (e != null)
+                    sum += op % 3 == 0 ? e.area() : op % 3 == 1 ? e.leastX() : e.position().size();
+            } else if (op < 99) {
+                double x = random.nextInt(1000), y = random.nextInt(1000);
+                registry.move(id, Arrays.asList(new TwoDPoint(x, y), new TwoDPoint(x, y + 2),
+                                                new TwoDPoint(x + 2, y + 2), new TwoDPoint(x + 2, y)));
+            } else if (op == 99 && random.nextBoolean()) {
+                registry.remove(registry.add(new Circle(random.nextInt(1000), 0, 1)));
+                added++;
+            }
+        }
+        return Double.doubleToLongBits(sum) + added;
+    }
+
+    /**
+     * The same load as {@link #registryLoad}, on a map of mutable shapes where every operation holds the lock of the
+     * map, since a shape may be read while another thread moves it.
+     */
+    private static long lockedLoad(Map<Long, TwoDShape> map, int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double sum = 0;
+        long added = 0;
+        for (int k = 0; k < OPERATIONS_PER_THREAD; k++) {
+            int op = random.nextInt(100);
+            long id = 1 + random.nextInt(n);
+            if (op < 90) {
+                synchronized (map) {
+                    TwoDShape s = map.get(id);
+                    if (s != null)
+                        sum += op % 3 == 0 ? s.area() : op % 3 == 1 ? s.getLeastX()
+                                           : ((Positionable) s).getPosition().size();
+                }
+            } else if (op < 99) {
+                double x = random.nextInt(1000), y = random.nextInt(1000);
+                List<TwoDPoint> points = Arrays.asList(new TwoDPoint(x, y), new TwoDPoint(x, y + 2),
+                                                       new TwoDPoint(x + 2, y + 2), new TwoDPoint(x + 2, y));
+                synchronized (map) {
+                    TwoDShape s = map.get(id);
+                    if (s != null)
+                        ((Positionable) s).setPosition(points);
+                }
+            } else if (op == 99 && random.nextBoolean()) {
+                long newId = -1 - (seed ^ k);
+                synchronized (map) {
+                    map.put(newId, new Circle(random.nextInt(1000), 0, 1));
+                    map.remove(newId);
+                }
+                added++;
+            }
+        }
+        return Double.doubleToLongBits(sum) + added;
+    }
+
+    private static long join(Future<Long> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks that shapes whose vertices were given out of order read back from the registry exactly as they were added,
+     * however many times they are copied.
+     */
+    private static void checkRoundTrip() {
+        List<TwoDShape> shapes = new ArrayList<>();
+        shapes.add(new Triangle(Arrays.asList(new TwoDPoint(3, 0), new TwoDPoint(2, 5), new TwoDPoint(1, 1))));
+        shapes.add(new Quadrilateral(Arrays.asList(new TwoDPoint(4, 0), new TwoDPoint(3, 3), new TwoDPoint(0, 4),
+                                                   new TwoDPoint(1, 1))));
+        Random random = new Random(216);
+        for (int i = 0; i < 1000; i++) {
+            List<TwoDPoint> vertices = new ArrayList<>();
+            for (int k = 0; k < 4; k++)
+                vertices.add(new TwoDPoint(random.nextInt(100), random.nextInt(100)));
+            shapes.add(i % 2 == 0 ? new Triangle(vertices) : new Quadrilateral(vertices));
+        }
+        ShapeRegistry registry = new ShapeRegistry();
+        for (TwoDShape s : shapes) {
+            ShapeRegistry.Entry e = registry.get(registry.add(s));
+            TwoDShape copy = e.shape();
+            if (e.leastX() != s.getLeastX() || !e.position().equals(((Positionable) s).getPosition())
+                    || !copy.toString().equals(s.toString())
+                    || !registry.get(registry.add(copy)).shape().toString().equals(s.toString()))
+                throw new AssertionError(s + " reads back from the registry as " + copy);
+        }
+    }
+
+    /**
+     * Checks random adds, moves and removes against a plain map, including the ordering of snapshots.
+     */
+    private static void checkSequential() {
+        ShapeRegistry registry = new ShapeRegistry(4);
+        Map<Long, TwoDShape> expected = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        Random random = new Random(216);
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(20_000, random);
+        for (int k = 0; k < 100_000; k++) {
+            int op = random.nextInt(10);
+            if (op < 4 || ids.isEmpty()) {
+                TwoDShape s = shapes.get(random.nextInt(shapes.size()));
+                long id = registry.add(s);
+                expected.put(id, s);
+                ids.add(id);
+            } else if (op < 7) {
+                long id = ids.remove(random.nextInt(ids.size()));
+                if (!registry.remove(id) || registry.remove(id) || registry.get(id) != null)
+                    throw new AssertionError("shape " + id + " is not removed");
+                expected.remove(id);
+            } else {
+                long id = ids.get(random.nextInt(ids.size()));
+                TwoDShape s = shapes.get(random.nextInt(shapes.size()));
+                if (s instanceof Circle || expected.get(id).numSides() != s.numSides())
+                    continue;
+                if (!registry.move(id, ((Positionable) s).getPosition()))
+                    throw new AssertionError("shape " + id + " is not moved");
+                expected.put(id, s);
+            }
+        }
+        if (registry.size() != expected.size() || registry.move(0, Collections.emptyList()))
+            throw new AssertionError("the registry holds " + registry.size() + " shapes instead of " + expected.size());
+        for (Map.Entry<Long, TwoDShape> e : expected.entrySet()) {
+            ShapeRegistry.Entry entry = registry.get(e.getKey());
+            if (entry == null || entry.area() != e.getValue().area() || entry.leastX() != e.getValue().getLeastX()
+                    || !entry.shape().toString().equals(e.getValue().toString()))
+                throw new AssertionError("shape " + e.getKey() + " differs from the one expected");
+        }
+        checkOrder(registry.snapshotByLeastX(), true);
+        checkOrder(registry.snapshotByArea(), false);
+    }
+
+    private static void checkOrder(List<ShapeRegistry.Entry> snapshot, boolean byLeastX) {
+        for (int i = 1; i < snapshot.size(); i++) {
+            ShapeRegistry.Entry a = snapshot.get(i - 1), b = snapshot.get(i);
+            int c = byLeastX ? Double.compare(a.leastX(), b.leastX()) : Double.compare(a.area(), b.area());
+            if (c > 0 || c == 0 && a.id() >= b.id())
+                throw new AssertionError("the snapshot is out of order at " + i);
+        }
+    }
+
+    /**
+     * Moves squares back and forth between two positions of different sizes from several threads, while other threads
+     * check that every entry they read, and every snapshot, is one of the two states and never a mix of them.
+     */
+    private static void checkConcurrent() {
+        ShapeRegistry registry = new ShapeRegistry(2);
+        List<TwoDPoint> small = square(0, 1), large = square(10, 3);
+        int n = 1_000;
+        for (int i = 0; i < n; i++)
+            registry.add(new Quadrilateral(small));
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Long>> writers = new ArrayList<>(), readers = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                long seed = t;
+                writers.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed);
+                    for (int k = 0; k < 200_000; k++) {
+                        long id = 1 + random.nextInt(n);
+                        registry.move(id, random.nextBoolean() ? small : large);
+                        if (k % 1000 == 0)
+                            registry.remove(registry.add(new Circle(0, 0, 1)));
+                    }
+                    return 0L;
+                }));
+                readers.add(executor.submit(() -> {
+                    SplittableRandom random = new SplittableRandom(seed + 2);
+                    long reads = 0;
+                    while (!done.get() || reads == 0) {
+                        ShapeRegistry.Entry e = registry.get(1 + random.nextInt(n));
+                        boolean isSmall = e.leastX() == 0 && e.area() == 1 && e.position().get(0).getX() == 0;
+                        boolean isLarge = e.leastX() == 10 && e.area() == 9 && e.position().get(0).getX() == 10;
+                        if (!isSmall && !isLarge)
+                            throw new AssertionError("entry " + e.id() + " mixes two states");
+                        if (++reads % 20_000 == 0 && registry.snapshotByArea().size() < n)
+                            throw new AssertionError("a snapshot misses shapes");
+                    }
+                    return reads;
+                }));
+            }
+            for (Future<Long> f : writers)
+                join(f);
+            done.set(true);
+            for (Future<Long> f : readers)
+                join(f);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<TwoDPoint> square(double x, double side) {
+        return Arrays.asList(new TwoDPoint(x, x), new TwoDPoint(x, x + side), new TwoDPoint(x + side, x + side),
+                             new TwoDPoint(x + side, x));
+    }
+}
@@ -0,0 +1,657 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A columnar (structure-of-arrays) store for large numbers of two-dimensional shapes. Instead of keeping one object per
+ * shape and one {@link TwoDPoint} per vertex, every circle, triangle and quadrilateral added to this store is kept in a
+ * handful of primitive arrays:
+ * <ul>
+ *     <li><code>kinds</code>, a tag specifying whether the shape is a circle, a triangle or a quadrilateral,</li>
+ *     <li><code>offsets</code>, the index of the first coordinate of the shape in <code>coords</code>,</li>
+ *     <li><code>coords</code>, the interleaved <code>x</code> and <code>y</code> values of every vertex (or of the
+ *     center, for a circle), and</li>
+ *     <li><code>radii</code>, the radius of every circle (zero for the other shapes).</li>
+ * </ul>
+ * The area, perimeter and least x-value of a stored shape are computed directly over these arrays. Lightweight
+ * {@link TwoDShape} views of individual shapes can be obtained with {@link #get(int)}, but none of the queries of this
+ * class need them.
+ */
+public class ShapeStore {
+
+    static final byte CIRCLE        = 0;
+    static final byte TRIANGLE      = 1;
+    static final byte QUADRILATERAL = 2;
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private byte[]   kinds;
+    private int[]    offsets;
+    private double[] radii;
+    private double[] coords;
+
+    private int size;
+    private int coordCount;
+
+    public ShapeStore() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty store with enough room for the specified number of shapes, assuming an average of three
+     * vertices per shape.
+     *
+     * @param expectedShapes the number of shapes this store is expected to hold.
+     * @throws IllegalArgumentException if the expected number of shapes is negative.
+     */
+    public ShapeStore(int expectedShapes) {
+        if (expectedShapes < 0)
+            throw new IllegalArgumentException("Error: The expected number of shapes cannot be negative.");
+        int capacity = Math.max(expectedShapes, 1);
+        this.kinds   = new byte[capacity];
+        this.offsets = new int[capacity];
+        this.radii   = new double[capacity];
+        this.coords  = new double[capacity * 6];
+    }
+
+    /**
+     * Adds a circle centered at (x,y) of radius r to this store.
+     *
+     * @return the index of the added circle
+     */
+    public int addCircle(double x, double y, double r) {
+        int i = append(CIRCLE, 1);
+        int o = offsets[i];
+        coords[o]     = x;
+        coords[o + 1] = y;
+        radii[i]      = r;
+        return i;
+    }
+
+    /**
+     * Adds a triangle with the three specified vertices to this store. The vertices are kept in the given order.
+     *
+     * @return the index of the added triangle
+     */
+    public int addTriangle(double x1, double y1, double x2, double y2, double x3, double y3) {
+        int i = append(TRIANGLE, 3);
+        int o = offsets[i];
+        coords[o]     = x1;
+        coords[o + 1] = y1;
+        coords[o + 2] = x2;
+        coords[o + 3] = y2;
+        coords[o + 4] = x3;
+        coords[o + 5] = y3;
+        return i;
+    }
+
+    /**
+     * Adds a quadrilateral with the four specified vertices to this store. The vertices are kept in the given order.
+     *
+     * @return the index of the added quadrilateral
+     */
+    public int addQuadrilateral(double x1, double y1, double x2, double y2,
+                                double x3, double y3, double x4, double y4) {
+        int i = append(QUADRILATERAL, 4);
+        int o = offsets[i];
+        coords[o]     = x1;
+        coords[o + 1] = y1;
+        coords[o + 2] = x2;
+        coords[o + 3] = y2;
+        coords[o + 4] = x3;
+        coords[o + 5] = y3;
+        coords[o + 6] = x4;
+        coords[o + 7] = y4;
+        return i;
+    }
+
+    /**
+     * Adds a copy of the specified shape to this store. The vertices are copied in the order given by the shape's
+     * {@link Positionable#getPosition()} method.
+     *
+     * @param shape a {@link Circle}, {@link Triangle} or {@link Quadrilateral}, or a view of another store or of a
+     *              {@link ShapeFile}.
+     * @return the index of the added shape
+     * @throws IllegalArgumentException if the shape is not one of the supported kinds.
+     */
+    public int add(TwoDShape shape) {
+        if (shape instanceof Circle) {
+            Circle c = (Circle) shape;
+            Point center = c.getPosition().get(0);
+            return addCircle(center.getX(), ((TwoDPoint) center).getY(), c.getRadius());
+        }
+        if (shape instanceof View) {
+            View v = (View) shape;
+            return copyFrom(v.store(), v.index());
+        }
+        if (shape instanceof ShapeFile.View) {
+            ShapeFile.View v = (ShapeFile.View) shape;
+            ShapeFile file = v.file();
+            int j = v.index(), n = file.vertexCount(j);
+            int i = append(n == 1 ? CIRCLE : n == 3 ? TRIANGLE : QUADRILATERAL, n);
+            for (int k = 0, o = offsets[i]; k < n; k++) {
+                coords[o + 2 * k]     = file.x(j, k);
+                coords[o + 2 * k + 1] = file.y(j, k);
+            }
+            radii[i] = file.radius(j);
+            return i;
+        }
+        if (shape instanceof Triangle || shape instanceof Quadrilateral) {
+            List<? extends Point> vertices = ((Positionable) shape).getPosition();
+            int n = shape.numSides();
+            int i = append(n == 3 ? TRIANGLE : QUADRILATERAL, n);
+            int o = offsets[i];
+            for (int k = 0; k < n; k++) {
+                TwoDPoint p = (TwoDPoint) vertices.get(k);
+                coords[o + 2 * k]     = p.getX();
+                coords[o + 2 * k + 1] = p.getY();
+            }
+            return i;
+        }
+        throw new IllegalArgumentException("Error: Only circles, triangles and quadrilaterals can be stored.");
+    }
+
+    /**
+     * Appends a copy of every shape of the specified store to this store, in order.
+     */
+    public void addAll(ShapeStore other) {
+        int n = other.size, coordinates = other.coordCount;
+        if (size + n > kinds.length) {
+            int capacity = Math.max(size + n, kinds.length + (kinds.length >> 1) + 1);
+            kinds   = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            radii   = Arrays.copyOf(radii, capacity);
+        }
+        if (coordCount + coordinates > coords.length)
+            coords = Arrays.copyOf(coords, Math.max(coordCount + coordinates, coords.length + (coords.length >> 1)));
+        System.arraycopy(other.kinds, 0, kinds, size, n);
+        System.arraycopy(other.radii, 0, radii, size, n);
+        for (int i = 0; i < n; i++)
+            offsets[size + i] = other.offsets[i] + coordCount;
+        System.arraycopy(other.coords, 0, coords, coordCount, coordinates);
+        size += n;
+        coordCount += coordinates;
+    }
+
+    private int copyFrom(ShapeStore other, int j) {
+        int n = other.vertexCount(j);
+        int i = append(other.kinds[j], n);
+        System.arraycopy(other.coords, other.offsets[j], coords, offsets[i], 2 * n);
+        radii[i] = other.radii[j];
+        return i;
+    }
+
+    private int append(byte kind, int vertexCount) {
+        if (size == kinds.length) {
+            int capacity = kinds.length + (kinds.length >> 1) + 1;
+            kinds   = Arrays.copyOf(kinds, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            radii   = Arrays.copyOf(radii, capacity);
+        }
+        int needed = coordCount + 2 * vertexCount;
+        if (needed > coords.length)
+            coords = Arrays.copyOf(coords, Math.max(needed, coords.length + (coords.length >> 1)));
+        kinds[size]   = kind;
+        offsets[size] = coordCount;
+        radii[size]   = 0;
+        coordCount    = needed;
+        return size++;
+    }
+
+    /**
+     * @return the number of shapes in this store
+     */
+    public int size() {return size;}
+
+    /**
+     * @return the number of vertices stored for the shape at the specified index (one, the center, for a circle)
+     */
+    public int vertexCount(int i) {
+        switch (kind(i)) {
+            case CIRCLE:   return 1;
+            case TRIANGLE: return 3;
+            default:       return 4;
+        }
+    }
+
+    /**
+     * @return the number of sides of the shape at the specified index, following the conventions of {@link Circle},
+     * {@link Triangle} and {@link Quadrilateral}
+     */
+    public int numSides(int i) {
+        return kind(i) == CIRCLE ? (int) Double.POSITIVE_INFINITY : vertexCount(i);
+    }
+
+    byte kind(int i) {
+        checkIndex(i);
+        return kinds[i];
+    }
+
+    public double x(int i, int vertex) {return coords[offsets[i] + 2 * vertex];}
+
+    public double y(int i, int vertex) {return coords[offsets[i] + 2 * vertex + 1];}
+
+    public double radius(int i) {
+        checkIndex(i);
+        return radii[i];
+    }
+
+    /**
+     * @return the area of the shape at the specified index
+     */
+    public double area(int i) {
+        int o = offsets[i];
+        double[] c = coords;
+        switch (kind(i)) {
+            case CIRCLE:
+                return Math.PI * (radii[i] * radii[i]);
+            case TRIANGLE:
+                return Geometry.triangleArea(c, o);
+            default:
+                return Geometry.quadrilateralArea(c, o);
+        }
+    }
+
+    /**
+     * @return the perimeter (i.e., the total length of the boundary) of the shape at the specified index
+     */
+    public double perimeter(int i) {
+        if (kind(i) == CIRCLE)
+            return 2 * Math.PI * radii[i];
+        return Geometry.perimeter(coords, offsets[i], vertexCount(i));
+    }
+
+    /**
+     * @return the least x-value of the shape at the specified index; the leftmost point of the boundary for a circle
+     * and the least x-value among the vertices otherwise
+     */
+    public double leastX(int i) {
+        int o = offsets[i];
+        if (kind(i) == CIRCLE)
+            return coords[o] - radii[i];
+        double least = coords[o];
+        for (int k = 1, n = vertexCount(i); k < n; k++)
+            least = Math.min(least, coords[o + 2 * k]);
+        return least;
+    }
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing the shape at the specified index
+     */
+    public BoundingBox boundingBox(int i) {
+        int o = offsets[i];
+        if (kind(i) == CIRCLE) {
+            double r = radii[i];
+            return new BoundingBox(coords[o] - r, coords[o + 1] - r, coords[o] + r, coords[o + 1] + r);
+        }
+        return BoundingBox.of(coords, o, vertexCount(i));
+    }
+
+    /**
+     * @return the centroid of the shape at the specified index, following the conventions of {@link Circle},
+     * {@link Triangle} and {@link Quadrilateral}
+     */
+    public TwoDPoint centroid(int i) {
+        int o = offsets[i];
+        double[] c = coords;
+        switch (kind(i)) {
+            case CIRCLE:
+                return new TwoDPoint(c[o], c[o + 1]);
+            case TRIANGLE:
+                return new TwoDPoint((c[o] + c[o + 2] + c[o + 4]) / 3, (c[o + 1] + c[o + 3] + c[o + 5]) / 3);
+            default:
+                double a1 = Geometry.triangleArea(c[o], c[o + 1], c[o + 2], c[o + 3], c[o + 4], c[o + 5]);
+                double a2 = Geometry.triangleArea(c[o], c[o + 1], c[o + 6], c[o + 7], c[o + 4], c[o + 5]);
+                if (a1 + a2 == 0)
+                    return new TwoDPoint((c[o] + c[o + 2] + c[o + 4] + c[o + 6]) / 4,
+                                         (c[o + 1] + c[o + 3] + c[o + 5] + c[o + 7]) / 4);
+                double w = 3 * (a1 + a2);
+                double x = a1 * (c[o] + c[o + 2] + c[o + 4]) + a2 * (c[o] + c[o + 6] + c[o + 4]);
+                double y = a1 * (c[o + 1] + c[o + 3] + c[o + 5]) + a2 * (c[o + 1] + c[o + 7] + c[o + 5]);
+                return new TwoDPoint(x / w, y / w);
+        }
+    }
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the shape at the specified index
+     */
+    public boolean contains(int i, double x, double y) {
+        int o = offsets[i];
+        if (kind(i) == CIRCLE)
+            return Geometry.distance(coords[o], coords[o + 1], x, y) <= radii[i];
+        return Geometry.contains(coords, o, vertexCount(i), x, y);
+    }
+
+    /**
+     * @return the distance from the point (x,y) to the nearest point of the shape at the specified index
+     */
+    public double distanceTo(int i, double x, double y) {
+        int o = offsets[i];
+        if (kind(i) == CIRCLE)
+            return Math.max(0, Geometry.distance(coords[o], coords[o + 1], x, y) - radii[i]);
+        return Geometry.distance(coords, o, vertexCount(i), x, y);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the shape at the specified index and the specified box have at least one
+     * point in common
+     */
+    public boolean intersects(int i, BoundingBox box) {
+        int o = offsets[i];
+        if (kind(i) == CIRCLE)
+            return Geometry.circleIntersectsBox(coords[o], coords[o + 1], radii[i], box);
+        return Geometry.intersects(coords, o, vertexCount(i), box);
+    }
+
+    /**
+     * @return <code>true</code> if and only if the shapes at the two specified indices have at least one point in
+     * common
+     */
+    public boolean overlaps(int i, int j) {
+        int o = offsets[i], p = offsets[j];
+        double[] c = coords;
+        if (kind(i) == CIRCLE && kind(j) == CIRCLE)
+            return Geometry.distance(c[o], c[o + 1], c[p], c[p + 1]) <= radii[i] + radii[j];
+        if (kind(i) == CIRCLE)
+            return Geometry.distance(c, p, vertexCount(j), c[o], c[o + 1]) <= radii[i];
+        if (kind(j) == CIRCLE)
+            return Geometry.distance(c, o, vertexCount(i), c[p], c[p + 1]) <= radii[j];
+        return Geometry.overlaps(c, o, vertexCount(i), c, p, vertexCount(j));
+    }
+
+    /**
+     * Writes the bounds of the bounding box of every shape of this store to the specified arrays, without creating
+     * {@link BoundingBox} instances.
+     */
+    void extents(double[] minX, double[] minY, double[] maxX, double[] maxY) {
+        for (int i = 0; i < size; i++) {
+            int o = offsets[i];
+            if (kind(i) == CIRCLE) {
+                double r = radii[i];
+                minX[i] = coords[o] - r;
+                minY[i] = coords[o + 1] - r;
+                maxX[i] = coords[o] + r;
+                maxY[i] = coords[o + 1] + r;
+                continue;
+            }
+            double x0 = coords[o], y0 = coords[o + 1], x1 = x0, y1 = y0;
+            for (int k = 1, n = vertexCount(i); k < n; k++) {
+                double x = coords[o + 2 * k], y = coords[o + 2 * k + 1];
+                x0 = Math.min(x0, x);
+                y0 = Math.min(y0, y);
+                x1 = Math.max(x1, x);
+                y1 = Math.max(y1, y);
+            }
+            minX[i] = x0;
+            minY[i] = y0;
+            maxX[i] = x1;
+            maxY[i] = y1;
+        }
+    }
+
+    /**
+     * Snaps every vertex of the triangle or quadrilateral at the specified index to its nearest integer-valued x-y
+     * coordinate, in place, with the same semantics as {@link Triangle#snap()} and {@link Quadrilateral#snap()}: the
+     * shape is left unchanged if the snapped shape would be invalid. Circles are never snapped.
+     *
+     * @return <code>true</code> if the shape was snapped, or <code>false</code> if it was left unchanged.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public boolean snap(int i) {
+        checkIndex(i);
+        int o = offsets[i];
+        double[] c = coords;
+        switch (kinds[i]) {
+            case TRIANGLE: {
+                double x1 = Math.round(c[o]),     y1 = Math.round(c[o + 1]),
+                       x2 = Math.round(c[o + 2]), y2 = Math.round(c[o + 3]),
+                       x3 = Math.round(c[o + 4]), y3 = Math.round(c[o + 5]);
+                if (!Triangle.isValid(x1, y1, x2, y2, x3, y3))
+                    return false;
+                c[o]     = x1;
+                c[o + 1] = y1;
+                c[o + 2] = x2;
+                c[o + 3] = y2;
+                c[o + 4] = x3;
+                c[o + 5] = y3;
+                return true;
+            }
+            case QUADRILATERAL: {
+                double x1 = Math.round(c[o]),     y1 = Math.round(c[o + 1]),
+                       x2 = Math.round(c[o + 2]), y2 = Math.round(c[o + 3]),
+                       x3 = Math.round(c[o + 4]), y3 = Math.round(c[o + 5]),
+                       x4 = Math.round(c[o + 6]), y4 = Math.round(c[o + 7]);
+                if (!Quadrilateral.isValid(x1, y1, x2, y2, x3, y3, x4, y4))
+                    return false;
+                c[o]     = x1;
+                c[o + 1] = y1;
+                c[o + 2] = x2;
+                c[o + 3] = y2;
+                c[o + 4] = x3;
+                c[o + 5] = y3;
+                c[o + 6] = x4;
+                c[o + 7] = y4;
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Snaps every shape of this store as per {@link #snap(int)}.
+     *
+     * @return the indices of the shapes left unchanged: circles, and the shapes that would have become invalid.
+     */
+    public BitSet snapAll() {
+        BitSet unchanged = new BitSet(size);
+        for (int i = 0; i < size; i++)
+            if (!snap(i))
+                unchanged.set(i);
+        return unchanged;
+    }
+
+    /**
+     * Returns a lightweight view of the shape at the specified index. The view holds no data of its own, so every call
+     * to its methods reads the arrays of this store.
+     *
+     * @param i the index of the shape.
+     * @return a view of the shape at index <code>i</code>.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    public View get(int i) {
+        checkIndex(i);
+        return new View(i);
+    }
+
+    /**
+     * @return an unmodifiable list of views over every shape of this store; the views are created lazily
+     */
+    public List<View> asList() {
+        return new AbstractList<View>() {
+            @Override
+            public View get(int index) {return ShapeStore.this.get(index);}
+
+            @Override
+            public int size() {return size;}
+        };
+    }
+
+    /**
+     * @return the number of bytes taken by the arrays of this store, including unused capacity
+     */
+    public long bytesUsed() {
+        return arrayBytes(kinds.length, 1) + arrayBytes(offsets.length, 4)
+                + arrayBytes(radii.length, 8) + arrayBytes(coords.length, 8);
+    }
+
+    /**
+     * @return the average number of bytes taken per stored shape, or <code>0</code> if the store is empty
+     */
+    public double bytesPerShape() {
+        return size == 0 ? 0 : (double) bytesUsed() / size;
+    }
+
+    /**
+     * Estimates the number of bytes taken by the object graph of the specified shape, assuming a 64-bit JVM with
+     * compressed references (12-byte object headers, 4-byte references, 8-byte alignment). This is the figure to
+     * compare against {@link #bytesPerShape()}.
+     *
+     * @param shape a {@link Circle}, {@link Triangle} or {@link Quadrilateral}.
+     * @return the estimated number of bytes retained by the shape.
+     */
+    public static long objectGraphBytes(TwoDShape shape) {
+        long point = align(12 + 2 * 8);
+        if (shape instanceof Circle)
+            return align(12 + 4 + 2 * 8) + point;
+        int n = shape.numSides();
+        long list = align(12 + 4 + 4 + 4) + arrayBytes(Math.max(n, 10), 4);
+        return align(12 + 8 + 4) + list + n * point;
+    }
+
+    private static long arrayBytes(int length, int elementSize) {
+        return align(16 + (long) length * elementSize);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+    }
+
+    /**
+     * A {@link TwoDShape} view of a single shape of this store. Setting the position of a view overwrites the
+     * coordinates of the underlying shape in place.
+     */
+    public class View implements TwoDShape, Positionable {
+
+        private final int index;
+
+        private View(int index) {
+            this.index = index;
+        }
+
+        public int index() {return index;}
+
+        ShapeStore store() {return ShapeStore.this;}
+
+        /**
+         * Overwrites the vertices of the viewed shape with the first elements of the specified list of points (only the
+         * first one, the center, for a circle).
+         *
+         * @param points the specified list of points.
+         * @throws IllegalArgumentException if the input does not consist of enough {@link TwoDPoint} instances
+         */
+        @Override
+        public void setPosition(List<? extends Point> points) {
+            int n = vertexCount(index), o = offsets[index];
+            if (points.size() < n)
+                throw new IllegalArgumentException("Error: The list must consist of at least " + n + " points.");
+            for (int k = 0; k < n; k++) {
+                if (!(points.get(k) instanceof TwoDPoint))
+                    throw new IllegalArgumentException("Error: The list must consist of TwoDPoint instances.");
+            }
+            for (int k = 0; k < n; k++) {
+                TwoDPoint p = (TwoDPoint) points.get(k);
+                coords[o + 2 * k]     = p.getX();
+                coords[o + 2 * k + 1] = p.getY();
+            }
+        }
+
+        /**
+         * @return a newly created list of the vertices of the viewed shape (its center, for a circle)
+         */
+        @Override
+        public List<TwoDPoint> getPosition() {
+            int n = vertexCount(index);
+            if (n == 1)
+                return Collections.singletonList(new TwoDPoint(x(index, 0), y(index, 0)));
+            List<TwoDPoint> vertices = new ArrayList<>(n);
+            for (int k = 0; k < n; k++)
+                vertices.add(new TwoDPoint(x(index, k), y(index, k)));
+            return vertices;
+        }
+
+        @Override
+        public int numSides() {return ShapeStore.this.numSides(index);}
+
+        @Override
+        public boolean isMember(List<? extends Point> vertices) {
+            switch (kind(index)) {
+                case CIRCLE:   return vertices.size() == 1 && radii[index] > 0;
+                case TRIANGLE: return Triangle.isValid(vertices);
+                default:       return Quadrilateral.isValid(vertices);
+            }
+        }
+
+        @Override
+        public double getLeastX() {return leastX(index);}
+
+        @Override
+        public int compareTo(TwoDShape s) {
+            return Double.compare(this.area(), s.area());
+        }
+
+        @Override
+        public double area() {return ShapeStore.this.area(index);}
+
+        @Override
+        public double perimeter() {return ShapeStore.this.perimeter(index);}
+
+        @Override
+        public BoundingBox boundingBox() {return ShapeStore.this.boundingBox(index);}
+
+        @Override
+        public TwoDPoint centroid() {return ShapeStore.this.centroid(index);}
+
+        @Override
+        public boolean contains(double x, double y) {return ShapeStore.this.contains(index, x, y);}
+
+        @Override
+        public double distanceTo(double x, double y) {return ShapeStore.this.distanceTo(index, x, y);}
+
+        @Override
+        public boolean intersects(BoundingBox box) {return ShapeStore.this.intersects(index, box);}
+
+        /**
+         * @return the same human-readable form as the corresponding {@link Circle}, {@link Triangle} or
+         * {@link Quadrilateral} would have
+         */
+        @Override
+        public String toString() {
+            if (kind(index) == CIRCLE)
+                return "Circle[center: (" + String.format("%.2f", x(index, 0)) + "," +
+                        String.format("%.2f", y(index, 0)) + "); radius: " + radii[index] + "]";
+            StringBuilder sb = new StringBuilder(kind(index) == TRIANGLE ? "Triangle[" : "Quadrilateral[");
+            for (int k = 0, n = vertexCount(index); k < n; k++) {
+                if (k > 0)
+                    sb.append(", ");
+                sb.append('(').append(String.format("%.2f", x(index, k))).append(',')
+                        .append(String.format("%.2f", y(index, k))).append(')');
+            }
+            return sb.append(']').toString();
+        }
+
+        /**
+         * Appends the same characters as {@link #toString()} to the specified builder, formatting numbers with
+         * {@link ShapeFormat#appendTwoDecimals(StringBuilder, double)}.
+         */
+        StringBuilder appendTo(StringBuilder sb) {
+            if (kind(index) == CIRCLE)
+                return ShapeFormat.appendCircle(sb, x(index, 0), y(index, 0), radii[index]);
+            sb.append(kind(index) == TRIANGLE ? "Triangle[" : "Quadrilateral[");
+            for (int k = 0, n = vertexCount(index); k < n; k++) {
+                if (k > 0)
+                    sb.append(", ");
+                ShapeFormat.appendVertex(sb, x(index, k), y(index, k));
+            }
+            return sb.append(']');
+        }
+    }
+}
@@ -0,0 +1,151 @@
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures what immutable points save on a multi-threaded workload: a producer thread hands batches of shapes to worker
+ * threads, which compute their total area and bounding box. While points could be modified, the producer had to hand
+ * each worker a deep copy of its batch, with new points and new shapes; now it hands over the shapes themselves, which
+ * is safe since the executor publishes them safely and no thread modifies them while they are shared. The B/op column
+ * counts the allocations of the producer only, which is where the copies are made. The benchmark also compares
+ * counting the distinct vertices of the shapes in a hash set of points, which relies on the new <code>equals</code>
+ * and <code>hashCode</code>, with a hash set of boxed coordinate lists, which was needed before.
+ * <p>
+ * Usage: <code>java SharedPointBenchmark [shapes]</code>.
+ */
+public class SharedPointBenchmark {
+
+    private static final int BATCH = 4096;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 1_000_000;
+        check();
+        List<TwoDShape> shapes = ParallelOrdering.randomShapes(n, new Random(216));
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        try {
+            System.out.println(Bench.header());
+            System.out.println(Bench.measure("handoff.copied(" + threads + " threads)", n, n,
+                                             () -> handOff(shapes, workers, true)));
+            System.out.println(Bench.measure("handoff.shared(" + threads + " threads)", n, n,
+                                             () -> handOff(shapes, workers, false)));
+        } finally {
+            workers.shutdown();
+        }
+        System.out.println(Bench.measure("distinct.boxedKeys", n, n, () -> {
+            Set<List<Double>> distinct = new HashSet<>();
+            for (TwoDShape s : shapes)
+                for (Point p : ((Positionable) s).getPosition())
+                    distinct.add(Arrays.asList(p.getX(), ((TwoDPoint) p).getY()));
+            return distinct.size();
+        }));
+        System.out.println(Bench.measure("distinct.points", n, n, () -> {
+            Set<Point> distinct = new HashSet<>();
+            for (TwoDShape s : shapes)
+                distinct.addAll(((Positionable) s).getPosition());
+            return distinct.size();
+        }));
+    }
+
+    /**
+     * Hands the shapes to the workers in batches, copied or not, and combines the results of the workers.
+     */
+    private static long handOff(List<TwoDShape> shapes, ExecutorService workers, boolean copied) {
+        List<Future<Double>> results = new ArrayList<>();
+        for (int from = 0; from < shapes.size(); from += BATCH) {
+            List<TwoDShape> batch = shapes.subList(from, Math.min(from + BATCH, shapes.size()));
+            if (copied) {
+                List<TwoDShape> copy = new ArrayList<>(batch.size());
+                for (TwoDShape s : batch)
+                    copy.add(deepCopy(s));
+                batch = copy;
+            }
+            List<TwoDShape> work = batch;
+            results.add(workers.submit(() -> {
+                double total = 0;
+                BoundingBox box = null;
+                for (TwoDShape s : work) {
+                    total += s.area();
+                    box = box == null ? s.boundingBox() : box.union(s.boundingBox());
+                }
+                return total + box.getMaxX();
+            }));
+        }
+        double sum = 0;
+        for (Future<Double> f : results)
+            sum += join(f);
+        return Double.doubleToLongBits(sum);
+    }
+
+    /**
+     * @return a copy of the specified shape sharing no point with it, as was needed before points were immutable
+     */
+    private static TwoDShape deepCopy(TwoDShape s) {
+        if (s instanceof Circle) {
+            Circle c = (Circle) s;
+            TwoDPoint center = (TwoDPoint) c.getPosition().get(0);
+            return new Circle(center.getX(), center.getY(), c.getRadius());
+        }
+        List<TwoDPoint> vertices = new ArrayList<>(4);
+        for (Point p : ((Positionable) s).getPosition())
+            vertices.add(new TwoDPoint(p.getX(), ((TwoDPoint) p).getY()));
+        return s instanceof Triangle ? new Triangle(vertices) : new Quadrilateral(vertices);
+    }
+
+    private static double join(Future<Double> f) {
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks that points have no modifiable state, and that they are equal if and only if their coordinates are, with
+     * the same hash codes, consistently with the canonical points of a {@link PointPool}.
+     */
+    private static void check() {
+        for (Class<?> type : Arrays.asList(TwoDPoint.class, ThreeDPoint.class)) {
+            if (!Modifier.isFinal(type.getModifiers()))
+                throw new AssertionError(type.getName() + " can be subclassed");
+            for (Field field : type.getDeclaredFields())
+                if (!Modifier.isFinal(field.getModifiers()))
+                    throw new AssertionError(type.getName() + "." + field.getName() + " is not final");
+        }
+        TwoDPoint p = new TwoDPoint(1.5, -2), q = new TwoDPoint(1.5, -2);
+        if (!p.equals(q) || p.hashCode() != q.hashCode() || p.equals(new TwoDPoint(-2, 1.5))
+                || p.equals(new ThreeDPoint(1.5, -2, 0)))
+            throw new AssertionError("two-dimensional points are not compared by their coordinates");
+        if (new TwoDPoint(0.0, 1).equals(new TwoDPoint(-0.0, 1))
+                || !new TwoDPoint(Double.NaN, 1).equals(new TwoDPoint(0.0 / 0.0, 1)))
+            throw new AssertionError("signed zeros or NaN are not compared as by Double.compare");
+        ThreeDPoint r = new ThreeDPoint(1, 2, 3);
+        if (!r.equals(new ThreeDPoint(1, 2, 3)) || r.hashCode() != new ThreeDPoint(1, 2, 3).hashCode()
+                || r.equals(new ThreeDPoint(1, 2, 4)))
+            throw new AssertionError("three-dimensional points are not compared by their coordinates");
+
+        PointPool pool = new PointPool();
+        Random random = new Random(216);
+        Set<TwoDPoint> distinct = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            TwoDPoint point = new TwoDPoint(random.nextInt(100), random.nextInt(100) - 0.5);
+            if (!pool.intern(point).equals(point))
+                throw new AssertionError("a canonical point differs from its original");
+            distinct.add(point);
+        }
+        if (distinct.size() != pool.size())
+            throw new AssertionError("equal points are not the ones the pool considers equal");
+    }
+}
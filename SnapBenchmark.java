@@ -0,0 +1,159 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares snapping a scene of triangles and quadrilaterals one shape at a time, as <code>snap()</code> used to do it,
+ * with the bulk snapping of {@link ParallelOrdering} over objects and over a {@link ShapeStore}, sequentially and in
+ * parallel. The scene is made of small shapes, a fair share of which would collapse when snapped and must be left
+ * unchanged. Before measuring, every bulk variant is checked to snap and to leave unchanged exactly the shapes that the
+ * former <code>snap()</code> did, with the same snapped coordinates. The B/op column only counts the allocations of
+ * the calling thread, not those of the threads of a pool.
+ * <p>
+ * Usage: <code>java SnapBenchmark [sizes]</code>.
+ */
+public class SnapBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "10k,1M");
+        check(100_000, 7);
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            ShapeStore pristine = new ShapeStore(n);
+            scene(n, new Random(216)).forEach(pristine::add);
+            List<TwoDShape> shapes = new ArrayList<>(n);
+            ShapeStore[] store = new ShapeStore[1];
+            Runnable resetShapes = () -> {
+                shapes.clear();
+                shapes.addAll(scene(n, new Random(216)));
+            };
+            Runnable resetStore = () -> {
+                store[0] = new ShapeStore(n);
+                store[0].addAll(pristine);
+            };
+
+            System.out.println(Bench.measure("snap.legacy", n, n, resetShapes, () -> {
+                long valid = 0;
+                for (TwoDShape s : shapes)
+                    if (legacySnapped(s) != null)
+                        valid++;
+                return valid;
+            }));
+            System.out.println(Bench.measure("snap.loop", n, n, resetShapes, () -> {
+                for (TwoDShape s : shapes)
+                    ParallelOrdering.snap(s);
+                return shapes.size();
+            }));
+            try (ParallelOrdering sequential = new ParallelOrdering(1, ParallelOrdering.DEFAULT_SEQUENTIAL_CUTOFF)) {
+                System.out.println(Bench.measure("snapAll.objects(1)", n, n, resetShapes,
+                                                 () -> sequential.snapAll(shapes).cardinality()));
+            }
+            ParallelOrdering parallel = new ParallelOrdering();
+            System.out.println(Bench.measure("snapAll.objects(" + parallel.parallelism() + ")", n, n, resetShapes,
+                                             () -> parallel.snapAll(shapes).cardinality()));
+            System.out.println(Bench.measure("ShapeStore.snapAll", n, n, resetStore,
+                                             () -> store[0].snapAll().cardinality()));
+            System.out.println(Bench.measure("snapAll.store(" + parallel.parallelism() + ")", n, n, resetStore,
+                                             () -> parallel.snapAll(store[0]).cardinality()));
+        }
+    }
+
+    /**
+     * @return triangles and quadrilaterals of a few units, with coordinates of one decimal
+     */
+    private static List<TwoDShape> scene(int n, Random random) {
+        List<TwoDShape> shapes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextInt(10_000) / 10.0, y = random.nextInt(10_000) / 10.0;
+            int count = i % 2 == 0 ? 3 : 4;
+            List<TwoDPoint> vertices = new ArrayList<>(count);
+            for (int k = 0; k < count; k++)
+                vertices.add(new TwoDPoint(x + random.nextInt(30) / 10.0, y + random.nextInt(30) / 10.0));
+            shapes.add(count == 3 ? new Triangle(vertices) : new Quadrilateral(vertices));
+        }
+        return shapes;
+    }
+
+    /**
+     * Snaps the vertices of the specified shape the way <code>snap()</code> did before bulk snapping: by creating the
+     * snapped points and a list of them, then validating the list with the former slope comparisons.
+     *
+     * @return the snapped vertices, or <code>null</code> if the shape must be left unchanged
+     */
+    private static List<TwoDPoint> legacySnapped(TwoDShape s) {
+        List<TwoDPoint> temp = new ArrayList<>(4);
+        for (Point p : ((Positionable) s).getPosition())
+            temp.add(new TwoDPoint(Math.round(p.getX()), Math.round(((TwoDPoint) p).getY())));
+        TwoDPoint p1 = temp.get(0), p2 = temp.get(1), p3 = temp.get(2);
+        if (temp.size() == 3) {
+            if (p1.getX() == p2.getX() && p2.getX() == p3.getX())
+                return null;
+            else if (p1.getY() == p2.getY() && p2.getY() == p3.getY())
+                return null;
+            else return slope(p1, p2) != slope(p2, p3) ? temp : null;
+        }
+        TwoDPoint p4 = temp.get(3);
+        if (p1.getX() == p2.getX() && p2.getX() == p3.getX() && p3.getX() == p4.getX())
+            return null;
+        else if (p1.getY() == p2.getY() && p2.getY() == p3.getY() && p3.getY() == p4.getY())
+            return null;
+        else return slope(p1, p2) != slope(p2, p3) && slope(p2, p3) != slope(p3, p4) ? temp : null;
+    }
+
+    private static double slope(TwoDPoint p1, TwoDPoint p2) {
+        return (p2.getY() - p1.getY())/(p2.getX() - p1.getX());
+    }
+
+    /**
+     * Checks the bulk variants against the former <code>snap()</code>. Each variant snaps its own copy of the scene,
+     * built anew from the same seed rather than copied from another shape: the vertices of a shape are sorted when it
+     * is built, and the slope comparisons that validate a snapped shape depend on their order.
+     */
+    private static void check(int n, long seed) {
+        List<TwoDShape> original = scene(n, new Random(seed)), objects = scene(n, new Random(seed)),
+                        sequential = scene(n, new Random(seed)), parallel = scene(n, new Random(seed));
+        ShapeStore store = new ShapeStore(), parallelStore = new ShapeStore();
+        original.forEach(store::add);
+        original.forEach(parallelStore::add);
+
+        BitSet expected = new BitSet();
+        for (int i = 0; i < objects.size(); i++) {
+            if (legacySnapped(original.get(i)) == null)
+                expected.set(i);
+            if (objects.get(i) instanceof Triangle)
+                ((Triangle) objects.get(i)).snap();
+            else
+                ((Quadrilateral) objects.get(i)).snap();
+        }
+        try (ParallelOrdering one = new ParallelOrdering(1, 1000);
+             ParallelOrdering many = new ParallelOrdering(4, 100)) {
+            BitSet byObjects = one.snapAll(sequential), byParallelObjects = many.snapAll(parallel);
+            BitSet byStore = store.snapAll(), byParallelStore = many.snapAll(parallelStore);
+            if (expected.isEmpty() || expected.cardinality() == original.size() || !expected.equals(byObjects)
+                    || !expected.equals(byParallelObjects) || !expected.equals(byStore)
+                    || !expected.equals(byParallelStore))
+                throw new AssertionError("the shapes left unchanged differ from the ones that cannot be snapped");
+        }
+        for (int i = 0; i < original.size(); i++) {
+            List<TwoDPoint> snapped = legacySnapped(original.get(i));
+            if (snapped == null ? !objects.get(i).toString().equals(original.get(i).toString())
+                                : !samePoints(objects.get(i), snapped))
+                throw new AssertionError("shape " + i + " is snapped differently");
+            String want = objects.get(i).toString();
+            if (!sequential.get(i).toString().equals(want) || !parallel.get(i).toString().equals(want)
+                    || !store.get(i).toString().equals(want) || !parallelStore.get(i).toString().equals(want))
+                throw new AssertionError("shape " + i + " is snapped differently in bulk");
+        }
+    }
+
+    private static boolean samePoints(TwoDShape s, List<TwoDPoint> points) {
+        List<? extends Point> vertices = ((Positionable) s).getPosition();
+        for (int k = 0; k < points.size(); k++)
+            if (vertices.get(k).getX() != points.get(k).getX()
+                    || ((TwoDPoint) vertices.get(k)).getY() != points.get(k).getY())
+                return false;
+        return true;
+    }
+}
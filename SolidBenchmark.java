@@ -0,0 +1,227 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Measures the volume and surface area of solids, computed one object at a time and by the batch kernels of
+ * {@link BatchGeometry} over {@link SolidColumns}, on an equal mix of spheres, boxes, tetrahedra and convex hexahedra,
+ * then on hexahedra alone, which have the most expensive kernels. It also compares sorting the solids by volume and by
+ * surface area with {@link Ordering.VolumeComparator} and {@link Ordering.SurfaceAreaComparator} against the primitive
+ * key sorts {@link Ordering#sortByVolume} and {@link Ordering#sortBySurfaceArea}. The object loops invalidate the
+ * cached metrics of every solid before each run. Before measuring, the volumes and surface areas are checked against
+ * known values, the batch kernels against the scalar ones, bit for bit, and the key sorts against the comparator sorts.
+ * <p>
+ * Usage: <code>java SolidBenchmark [sizes]</code>; the default size of 1M solids needs a heap of about 1 GB, and
+ * <code>-XX:-UseSuperWord</code> measures the batch kernels without SIMD instructions.
+ */
+public class SolidBenchmark {
+
+    public static void main(String[] args) {
+        int[] sizes = Bench.sizes(args.length > 0 ? args[0] : "1M");
+        check();
+
+        System.out.println(Bench.header());
+        for (int n : sizes) {
+            List<ThreeDShape> solids = randomSolids(n, new Random(216));
+            SolidColumns columns = SolidColumns.of(solids);
+            System.out.println(Bench.measure("volume.objects", n, n, () -> invalidate(solids), () -> {
+                double sum = 0;
+                for (ThreeDShape s : solids)
+                    sum += s.volume();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("volume.batch", n, n,
+                                             () -> Double.doubleToLongBits(columns.volumes()[0])));
+            System.out.println(Bench.measure("surfaceArea.objects", n, n, () -> invalidate(solids), () -> {
+                double sum = 0;
+                for (ThreeDShape s : solids)
+                    sum += s.surfaceArea();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("surfaceArea.batch", n, n,
+                                             () -> Double.doubleToLongBits(columns.surfaceAreas()[0])));
+
+            List<ThreeDShape> hexahedra = new ArrayList<>(n / 4);
+            for (ThreeDShape s : solids)
+                if (s instanceof Hexahedron)
+                    hexahedra.add(s);
+            int h = hexahedra.size();
+            double[] out = new double[h];
+            System.out.println(Bench.measure("hexahedron.volume.objects", h, h, () -> invalidate(hexahedra), () -> {
+                double sum = 0;
+                for (ThreeDShape s : hexahedra)
+                    sum += s.volume();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("hexahedron.volume.batch", h, h, () -> {
+                BatchGeometry.hexahedronVolumes(columns.hx, columns.hy, columns.hz, out, 0, h);
+                return Double.doubleToLongBits(out[h - 1]);
+            }));
+            System.out.println(Bench.measure("hexahedron.surfaceArea.objects", h, h, () -> invalidate(hexahedra),
+                                             () -> {
+                double sum = 0;
+                for (ThreeDShape s : hexahedra)
+                    sum += s.surfaceArea();
+                return Double.doubleToLongBits(sum);
+            }));
+            System.out.println(Bench.measure("hexahedron.surfaceArea.batch", h, h, () -> {
+                BatchGeometry.hexahedronSurfaceAreas(columns.hx, columns.hy, columns.hz, out, 0, h);
+                return Double.doubleToLongBits(out[h - 1]);
+            }));
+
+            List<ThreeDShape> work = new ArrayList<>(solids);
+            Runnable reset = () -> {
+                work.clear();
+                work.addAll(solids);
+            };
+            System.out.println(Bench.measure("sort.VolumeComparator", n, n, reset, () -> {
+                work.sort(new Ordering.VolumeComparator());
+                return work.size();
+            }));
+            System.out.println(Bench.measure("sort.sortByVolume", n, n, reset, () -> {
+                Ordering.sortByVolume(work);
+                return work.size();
+            }));
+            System.out.println(Bench.measure("sort.SurfaceAreaComparator", n, n, reset, () -> {
+                work.sort(new Ordering.SurfaceAreaComparator());
+                return work.size();
+            }));
+            System.out.println(Bench.measure("sort.sortBySurfaceArea", n, n, reset, () -> {
+                Ordering.sortBySurfaceArea(work);
+                return work.size();
+            }));
+        }
+    }
+
+    /**
+     * @return <code>n</code> random solids, one of each kind in turn: spheres, boxes, tetrahedra, and hexahedra that
+     * are parallelepipeds or frusta of pyramids with a parallelogram base
+     */
+    static List<ThreeDShape> randomSolids(int n, Random random) {
+        List<ThreeDShape> solids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextDouble() * 1000, y = random.nextDouble() * 1000, z = random.nextDouble() * 1000;
+            switch (i % 4) {
+                case 0:
+                    solids.add(new Sphere(x, y, z, 0.5 + random.nextDouble() * 10));
+                    break;
+                case 1:
+                    solids.add(new Box(Arrays.asList(new ThreeDPoint(x, y, z),
+                                                     new ThreeDPoint(x + 1 + random.nextDouble() * 20,
+                                                                     y + 1 + random.nextDouble() * 20,
+                                                                     z + 1 + random.nextDouble() * 20))));
+                    break;
+                case 2:
+                    List<ThreeDPoint> vertices = new ArrayList<>(4);
+                    for (int k = 0; k < 4; k++)
+                        vertices.add(new ThreeDPoint(x + random.nextDouble() * 20, y + random.nextDouble() * 20,
+                                                     z + random.nextDouble() * 20));
+                    solids.add(new Tetrahedron(vertices));
+                    break;
+                default:
+                    solids.add(new Hexahedron(frustum(x, y, z, random)));
+            }
+        }
+        return solids;
+    }
+
+    /**
+     * @return the vertices of a frustum of a pyramid with its base at (x,y,z), spanned by random edges, and its top
+     * face scaled down from the base by a random factor, which is a parallelepiped when the factor is one
+     */
+    private static List<ThreeDPoint> frustum(double x, double y, double z, Random random) {
+        double[] a = new double[3], b = new double[3], c = new double[3];
+        do {
+            for (int d = 0; d < 3; d++) {
+                a[d] = (random.nextDouble() - 0.5) * 20;
+                b[d] = (random.nextDouble() - 0.5) * 20;
+                c[d] = (random.nextDouble() - 0.5) * 20;
+            }
+        } while (Math.abs(SolidGeometry.triple(0, 0, 0, a[0], a[1], a[2], b[0], b[1], b[2], c[0], c[1], c[2])) < 10);
+        double s = random.nextInt(4) == 0 ? 1 : 0.3 + random.nextDouble() * 0.7;
+        double[][] base = {{0, 0, 0}, a, {a[0] + b[0], a[1] + b[1], a[2] + b[2]}, b};
+        List<ThreeDPoint> vertices = new ArrayList<>(8);
+        for (double[] v : base)
+            vertices.add(new ThreeDPoint(x + v[0], y + v[1], z + v[2]));
+        for (double[] v : base) {
+            double[] top = new double[3];
+            for (int d = 0; d < 3; d++) {
+                double center = (a[d] + b[d]) / 2;
+                top[d] = center + c[d] + s * (v[d] - center);
+            }
+            vertices.add(new ThreeDPoint(x + top[0], y + top[1], z + top[2]));
+        }
+        return vertices;
+    }
+
+    /**
+     * Resets the position of every solid to its current vertices, which discards its cached volume and surface area.
+     */
+    private static void invalidate(List<? extends ThreeDShape> solids) {
+        for (ThreeDShape s : solids) {
+            Positionable p = (Positionable) s;
+            p.setPosition(new ArrayList<>(p.getPosition()));
+        }
+    }
+
+    private static void check() {
+        List<ThreeDPoint> cube = Arrays.asList(new ThreeDPoint(0, 0, 0), new ThreeDPoint(1, 0, 0),
+                                               new ThreeDPoint(1, 1, 0), new ThreeDPoint(0, 1, 0),
+                                               new ThreeDPoint(0, 0, 1), new ThreeDPoint(1, 0, 1),
+                                               new ThreeDPoint(1, 1, 1), new ThreeDPoint(0, 1, 1));
+        Hexahedron hexahedron = new Hexahedron(cube);
+        Box box = new Box(Arrays.asList(cube.get(6), cube.get(0)));
+        Tetrahedron tetrahedron = new Tetrahedron(Arrays.asList(cube.get(0), cube.get(1), cube.get(3), cube.get(4)));
+        Sphere sphere = new Sphere(1, 2, 3, 2);
+        expect(hexahedron, 1, 6);
+        expect(box, 1, 6);
+        expect(tetrahedron, 1.0 / 6, 1.5 + Math.sqrt(3) / 2);
+        expect(sphere, 32 * Math.PI / 3, 16 * Math.PI);
+        if (box.getLeastX() != 0 || hexahedron.getLeastX() != 0 || sphere.getLeastX() != -1)
+            throw new AssertionError("the least x-values differ");
+
+        List<ThreeDPoint> reversed = new ArrayList<>(cube);
+        reversed.set(1, cube.get(3));
+        reversed.set(3, cube.get(1));
+        reversed.set(5, cube.get(7));
+        reversed.set(7, cube.get(5));
+        List<ThreeDPoint> dented = new ArrayList<>(cube);
+        dented.set(6, new ThreeDPoint(0.6, 0.6, 0.6));
+        List<ThreeDPoint> flat = new ArrayList<>(cube.subList(0, 4));
+        flat.addAll(cube.subList(0, 4));
+        if (!hexahedron.isMember(cube) || !hexahedron.isMember(reversed) || hexahedron.isMember(dented)
+                || hexahedron.isMember(flat))
+            throw new AssertionError("convex hexahedra are not told from other solids");
+        if (tetrahedron.isMember(cube.subList(0, 4)) || box.isMember(Arrays.asList(cube.get(0), cube.get(1))))
+            throw new AssertionError("flat solids are accepted");
+
+        List<ThreeDShape> solids = randomSolids(40_000, new Random(216));
+        SolidColumns columns = SolidColumns.of(solids);
+        double[] volumes = columns.volumes(), areas = columns.surfaceAreas();
+        for (int i = 0; i < solids.size(); i++) {
+            ThreeDShape s = solids.get(i);
+            if (!s.isMember(((Positionable) s).getPosition()))
+                throw new AssertionError("solid " + i + " is invalid: " + s);
+            if (volumes[i] != s.volume() || areas[i] != s.surfaceArea())
+                throw new AssertionError("the batch volume or surface area of solid " + i + " differs");
+        }
+
+        List<ThreeDShape> expected = new ArrayList<>(solids), actual = new ArrayList<>(solids);
+        expected.sort(new Ordering.VolumeComparator());
+        Ordering.sortByVolume(actual);
+        if (!expected.equals(actual))
+            throw new AssertionError("sortByVolume differs from VolumeComparator");
+        expected.sort(new Ordering.SurfaceAreaComparator());
+        Ordering.sortBySurfaceArea(actual);
+        if (!expected.equals(actual))
+            throw new AssertionError("sortBySurfaceArea differs from SurfaceAreaComparator");
+    }
+
+    private static void expect(ThreeDShape s, double volume, double surfaceArea) {
+        if (Math.abs(s.volume() - volume) > 1e-12 * volume
+                || Math.abs(s.surfaceArea() - surfaceArea) > 1e-12 * surfaceArea)
+            throw new AssertionError(s + " has a volume of " + s.volume() + " and a surface area of "
+                                     + s.surfaceArea());
+    }
+}
@@ -0,0 +1,177 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A read-only snapshot of a sequence of solids, split by kind into columnar arrays for the batch kernels of
+ * {@link BatchGeometry}, the counterpart of {@link ShapeColumns} for {@link ThreeDShape} instances: the radii of the
+ * spheres, the corners of the boxes, and one array per vertex coordinate of the tetrahedra and of the hexahedra. Each
+ * kind also keeps the index in the sequence of each of its solids, so that results can be reported in the order of the
+ * sequence.
+ */
+public final class SolidColumns {
+
+    private final int size;
+
+    final double[] r;
+    final int[]    spheres;
+
+    final double[] minX, minY, minZ, maxX, maxY, maxZ;
+    final int[]    boxes;
+
+    /**
+     * The x-, y- and z-values of the k-th vertex of every tetrahedron are in <code>tx[k]</code>, <code>ty[k]</code> and
+     * <code>tz[k]</code>.
+     */
+    final double[][] tx, ty, tz;
+    final int[]      tetrahedra;
+
+    /**
+     * The x-, y- and z-values of the k-th vertex of every hexahedron are in <code>hx[k]</code>, <code>hy[k]</code> and
+     * <code>hz[k]</code>.
+     */
+    final double[][] hx, hy, hz;
+    final int[]      hexahedra;
+
+    private SolidColumns(ThreeDShape[] solids) {
+        size = solids.length;
+        int spheres = 0, boxes = 0, tetrahedra = 0, hexahedra = 0;
+        for (ThreeDShape s : solids) {
+            if (s instanceof Sphere)
+                spheres++;
+            else if (s instanceof Box)
+                boxes++;
+            else if (s instanceof Tetrahedron)
+                tetrahedra++;
+            else if (s instanceof Hexahedron)
+                hexahedra++;
+            else
+                throw new IllegalArgumentException("Error: Only spheres, boxes, tetrahedra and hexahedra can be "
+                                                   + "stored in columns.");
+        }
+        r = new double[spheres];
+        this.spheres = new int[spheres];
+        minX = new double[boxes];
+        minY = new double[boxes];
+        minZ = new double[boxes];
+        maxX = new double[boxes];
+        maxY = new double[boxes];
+        maxZ = new double[boxes];
+        this.boxes = new int[boxes];
+        tx = new double[4][tetrahedra];
+        ty = new double[4][tetrahedra];
+        tz = new double[4][tetrahedra];
+        this.tetrahedra = new int[tetrahedra];
+        hx = new double[8][hexahedra];
+        hy = new double[8][hexahedra];
+        hz = new double[8][hexahedra];
+        this.hexahedra = new int[hexahedra];
+
+        int c = 0, b = 0, t = 0, h = 0;
+        for (int i = 0; i < size; i++) {
+            ThreeDShape s = solids[i];
+            if (s instanceof Sphere) {
+                r[c] = ((Sphere) s).getRadius();
+                this.spheres[c++] = i;
+            } else if (s instanceof Box) {
+                ThreeDPoint min = (ThreeDPoint) ((Box) s).getPosition().get(0),
+                            max = (ThreeDPoint) ((Box) s).getPosition().get(1);
+                minX[b] = min.getX();
+                minY[b] = min.getY();
+                minZ[b] = min.getZ();
+                maxX[b] = max.getX();
+                maxY[b] = max.getY();
+                maxZ[b] = max.getZ();
+                this.boxes[b++] = i;
+            } else if (s instanceof Tetrahedron) {
+                copyVertices(((Tetrahedron) s).getPosition(), tx, ty, tz, t);
+                this.tetrahedra[t++] = i;
+            } else {
+                copyVertices(((Hexahedron) s).getPosition(), hx, hy, hz, h);
+                this.hexahedra[h++] = i;
+            }
+        }
+    }
+
+    private static void copyVertices(List<? extends Point> vertices, double[][] x, double[][] y,
+                                     double[][] z, int index) {
+        for (int k = 0; k < x.length; k++) {
+            ThreeDPoint p = (ThreeDPoint) vertices.get(k);
+            x[k][index] = p.getX();
+            y[k][index] = p.getY();
+            z[k][index] = p.getZ();
+        }
+    }
+
+    /**
+     * Copies the specified solids into columns.
+     *
+     * @throws IllegalArgumentException if one of the solids is not a {@link Sphere}, {@link Box}, {@link Tetrahedron}
+     * or {@link Hexahedron}.
+     */
+    public static SolidColumns of(Iterable<? extends ThreeDShape> solids) {
+        List<ThreeDShape> list = new ArrayList<>();
+        for (ThreeDShape s : solids)
+            list.add(s);
+        return new SolidColumns(list.toArray(new ThreeDShape[0]));
+    }
+
+    /**
+     * @return the number of solids of this snapshot
+     */
+    public int size() {return size;}
+
+    public int sphereCount() {return spheres.length;}
+
+    public int boxCount() {return boxes.length;}
+
+    public int tetrahedronCount() {return tetrahedra.length;}
+
+    public int hexahedronCount() {return hexahedra.length;}
+
+    /**
+     * @return the volume of every solid, in the order of the sequence; identical to {@link ThreeDShape#volume()}
+     */
+    public double[] volumes() {
+        double[] sphere = new double[spheres.length];
+        BatchGeometry.sphereVolumes(r, sphere, 0, sphere.length);
+        double[] box = new double[boxes.length];
+        BatchGeometry.boxVolumes(minX, minY, minZ, maxX, maxY, maxZ, box, 0, box.length);
+        double[] tetrahedron = new double[tetrahedra.length];
+        BatchGeometry.tetrahedronVolumes(tx, ty, tz, tetrahedron, 0, tetrahedron.length);
+        double[] hexahedron = new double[hexahedra.length];
+        BatchGeometry.hexahedronVolumes(hx, hy, hz, hexahedron, 0, hexahedron.length);
+        return scatter(sphere, box, tetrahedron, hexahedron);
+    }
+
+    /**
+     * @return the surface area of every solid, in the order of the sequence; identical to
+     * {@link ThreeDShape#surfaceArea()}
+     */
+    public double[] surfaceAreas() {
+        double[] sphere = new double[spheres.length];
+        BatchGeometry.sphereSurfaceAreas(r, sphere, 0, sphere.length);
+        double[] box = new double[boxes.length];
+        BatchGeometry.boxSurfaceAreas(minX, minY, minZ, maxX, maxY, maxZ, box, 0, box.length);
+        double[] tetrahedron = new double[tetrahedra.length];
+        BatchGeometry.tetrahedronSurfaceAreas(tx, ty, tz, tetrahedron, 0, tetrahedron.length);
+        double[] hexahedron = new double[hexahedra.length];
+        BatchGeometry.hexahedronSurfaceAreas(hx, hy, hz, hexahedron, 0, hexahedron.length);
+        return scatter(sphere, box, tetrahedron, hexahedron);
+    }
+
+    /**
+     * @return the values computed for each kind, moved to the indices of their solids in the sequence
+     */
+    private double[] scatter(double[] sphere, double[] box, double[] tetrahedron, double[] hexahedron) {
+        double[] values = new double[size];
+        for (int c = 0; c < sphere.length; c++)
+            values[spheres[c]] = sphere[c];
+        for (int b = 0; b < box.length; b++)
+            values[boxes[b]] = box[b];
+        for (int t = 0; t < tetrahedron.length; t++)
+            values[tetrahedra[t]] = tetrahedron[t];
+        for (int h = 0; h < hexahedron.length; h++)
+            values[hexahedra[h]] = hexahedron[h];
+        return values;
+    }
+}
@@ -0,0 +1,167 @@
+/**
+ * Allocation-free kernels computing the volume and surface area of the solids of this package, the three-dimensional
+ * counterpart of {@link Geometry}. Every kernel works on plain <code>double</code>s, either passed one by one or read
+ * from an array of interleaved <code>x</code>, <code>y</code> and <code>z</code> values starting at a given offset.
+ * <p>
+ * Volumes are sums of signed tetrahedra, i.e., of triple products of edges taken from a common vertex, so that flat
+ * solids come out with a volume of exactly zero. Areas are sums of triangles, i.e., of half the norms of cross
+ * products.
+ * <p>
+ * A hexahedron has its vertices numbered as in {@link Hexahedron}: the bottom face 0, 1, 2, 3, then the top face 4, 5,
+ * 6, 7, with vertex <code>k + 4</code> joined to vertex <code>k</code>. Each of its six faces is split into two
+ * triangles along the diagonal from its first vertex in {@link #HEXAHEDRON_FACES}, which is exact for planar faces.
+ */
+final class SolidGeometry {
+
+    /**
+     * The faces of a hexahedron, each with its vertices in counter-clockwise order as seen from outside when the bottom
+     * face 0, 1, 2, 3 is counter-clockwise as seen from above.
+     */
+    static final int[][] HEXAHEDRON_FACES = {
+            {0, 3, 2, 1}, {4, 5, 6, 7}, {0, 1, 5, 4}, {1, 2, 6, 5}, {2, 3, 7, 6}, {3, 0, 4, 7}
+    };
+
+    private SolidGeometry() {}
+
+    /**
+     * @return the triple product of the vectors from (ox,oy,oz) to a, b and c, which is six times the signed volume of
+     * the tetrahedron they form: positive if a, b and c turn counter-clockwise as seen from the side opposite to o
+     */
+    static double triple(double ox, double oy, double oz, double ax, double ay, double az,
+                         double bx, double by, double bz, double cx, double cy, double cz) {
+        ax -= ox; ay -= oy; az -= oz;
+        bx -= ox; by -= oy; bz -= oz;
+        cx -= ox; cy -= oy; cz -= oz;
+        return ax * (by * cz - bz * cy) + ay * (bz * cx - bx * cz) + az * (bx * cy - by * cx);
+    }
+
+    /**
+     * @return the area of the triangle with vertices a, b and c in space
+     */
+    static double triangleArea(double ax, double ay, double az, double bx, double by, double bz,
+                               double cx, double cy, double cz) {
+        bx -= ax; by -= ay; bz -= az;
+        cx -= ax; cy -= ay; cz -= az;
+        double nx = by * cz - bz * cy, ny = bz * cx - bx * cz, nz = bx * cy - by * cx;
+        return Math.sqrt(nx * nx + ny * ny + nz * nz) / 2;
+    }
+
+    static double sphereVolume(double r) {
+        return 4 * Math.PI / 3 * (r * r * r);
+    }
+
+    static double sphereSurfaceArea(double r) {
+        return 4 * Math.PI * (r * r);
+    }
+
+    static double boxVolume(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        return (maxX - minX) * (maxY - minY) * (maxZ - minZ);
+    }
+
+    static double boxSurfaceArea(double minX, double minY, double minZ, double maxX, double maxY, double maxZ) {
+        double dx = maxX - minX, dy = maxY - minY, dz = maxZ - minZ;
+        return 2 * (dx * dy + dy * dz + dz * dx);
+    }
+
+    static double tetrahedronVolume(double x1, double y1, double z1, double x2, double y2, double z2,
+                                    double x3, double y3, double z3, double x4, double y4, double z4) {
+        return Math.abs(triple(x1, y1, z1, x2, y2, z2, x3, y3, z3, x4, y4, z4)) / 6;
+    }
+
+    static double tetrahedronVolume(double[] xyz, int offset) {
+        return tetrahedronVolume(xyz[offset], xyz[offset + 1], xyz[offset + 2], xyz[offset + 3], xyz[offset + 4],
+                                 xyz[offset + 5], xyz[offset + 6], xyz[offset + 7], xyz[offset + 8], xyz[offset + 9],
+                                 xyz[offset + 10], xyz[offset + 11]);
+    }
+
+    static double tetrahedronSurfaceArea(double x1, double y1, double z1, double x2, double y2, double z2,
+                                         double x3, double y3, double z3, double x4, double y4, double z4) {
+        return triangleArea(x1, y1, z1, x2, y2, z2, x3, y3, z3) + triangleArea(x1, y1, z1, x2, y2, z2, x4, y4, z4)
+               + triangleArea(x1, y1, z1, x3, y3, z3, x4, y4, z4) + triangleArea(x2, y2, z2, x3, y3, z3, x4, y4, z4);
+    }
+
+    static double tetrahedronSurfaceArea(double[] xyz, int offset) {
+        return tetrahedronSurfaceArea(xyz[offset], xyz[offset + 1], xyz[offset + 2], xyz[offset + 3],
+                                      xyz[offset + 4], xyz[offset + 5], xyz[offset + 6], xyz[offset + 7],
+                                      xyz[offset + 8], xyz[offset + 9], xyz[offset + 10], xyz[offset + 11]);
+    }
+
+    /**
+     * Returns six times the signed volume of a hexahedron, as the sum of the tetrahedra formed by vertex 0 with each
+     * triangle of the faces; the triangles through vertex 0 itself add nothing and are skipped.
+     */
+    static double hexahedronTriple(double[] xyz, int offset) {
+        double ox = xyz[offset], oy = xyz[offset + 1], oz = xyz[offset + 2];
+        double sum = 0;
+        for (int[] face : HEXAHEDRON_FACES) {
+            for (int t = 1; t < 3; t++) {
+                int a = face[0], b = face[t], c = face[t + 1];
+                if (a == 0 || b == 0 || c == 0)
+                    continue;
+                int pa = offset + 3 * a, pb = offset + 3 * b, pc = offset + 3 * c;
+                sum += triple(ox, oy, oz, xyz[pa], xyz[pa + 1], xyz[pa + 2], xyz[pb], xyz[pb + 1], xyz[pb + 2],
+                              xyz[pc], xyz[pc + 1], xyz[pc + 2]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * @return the volume of the hexahedron whose eight vertices are interleaved in <code>xyz</code> from
+     * <code>offset</code>
+     */
+    static double hexahedronVolume(double[] xyz, int offset) {
+        return Math.abs(hexahedronTriple(xyz, offset)) / 6;
+    }
+
+    /**
+     * @return the surface area of the hexahedron whose eight vertices are interleaved in <code>xyz</code> from
+     * <code>offset</code>, as the sum of the areas of the twelve triangles of its faces
+     */
+    static double hexahedronSurfaceArea(double[] xyz, int offset) {
+        double sum = 0;
+        for (int[] face : HEXAHEDRON_FACES) {
+            for (int t = 1; t < 3; t++) {
+                int pa = offset + 3 * face[0], pb = offset + 3 * face[t], pc = offset + 3 * face[t + 1];
+                sum += triangleArea(xyz[pa], xyz[pa + 1], xyz[pa + 2], xyz[pb], xyz[pb + 1], xyz[pb + 2],
+                                    xyz[pc], xyz[pc + 1], xyz[pc + 2]);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Checks whether the hexahedron whose eight vertices are interleaved in <code>xyz</code> from <code>offset</code>
+     * is a proper convex solid: its volume is positive, and no vertex lies strictly outside the plane of any triangle
+     * of its faces, up to a tolerance relative to the size of the hexahedron.
+     */
+    static boolean isConvexHexahedron(double[] xyz, int offset) {
+        double sign = Math.signum(hexahedronTriple(xyz, offset));
+        if (sign == 0 || Double.isNaN(sign))
+            return false;
+        double extent = 0;
+        for (int d = 0; d < 3; d++) {
+            double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+            for (int k = 0; k < 8; k++) {
+                min = Math.min(min, xyz[offset + 3 * k + d]);
+                max = Math.max(max, xyz[offset + 3 * k + d]);
+            }
+            extent = Math.max(extent, max - min);
+        }
+        double tolerance = 1e-9 * extent * extent * extent;
+        for (int[] face : HEXAHEDRON_FACES) {
+            for (int t = 1; t < 3; t++) {
+                int pa = offset + 3 * face[0], pb = offset + 3 * face[t], pc = offset + 3 * face[t + 1];
+                for (int k = 0; k < 8; k++) {
+                    int pv = offset + 3 * k;
+                    // a vertex outside a face forms with it a tetrahedron of the opposite sign to the whole solid
+                    if (-sign * triple(xyz[pv], xyz[pv + 1], xyz[pv + 2], xyz[pa], xyz[pa + 1], xyz[pa + 2],
+                                       xyz[pb], xyz[pb + 1], xyz[pb + 2], xyz[pc], xyz[pc + 1], xyz[pc + 2])
+                            > tolerance)
+                        return false;
+                }
+            }
+        }
+        return true;
+    }
+}
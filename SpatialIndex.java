@@ -0,0 +1,55 @@
+import java.util.function.Consumer;
+
+/**
+ * An index of two-dimensional shapes by their location in the x-y plane, answering region queries without scanning
+ * every shape. Shapes are found through their bounding boxes and then checked exactly.
+ * <p>
+ * An index remembers the bounding box each shape had when it was inserted. Whenever a shape is moved (e.g., through
+ * {@link Positionable#setPosition(java.util.List)} or a snap), {@link #update(TwoDShape)} must be called for the index
+ * to find it at its new location.
+ *
+ * @param <T> the type of the indexed shapes
+ */
+public interface SpatialIndex<T extends TwoDShape> {
+
+    /**
+     * Adds the specified shape to this index. Shapes are told apart by identity.
+     */
+    void insert(T shape);
+
+    /**
+     * Removes the specified shape from this index.
+     *
+     * @return <code>true</code> if the shape was in this index
+     */
+    boolean remove(T shape);
+
+    /**
+     * Brings the location of the specified shape up to date after it has been moved.
+     *
+     * @return <code>true</code> if the shape was in this index
+     */
+    boolean update(T shape);
+
+    /**
+     * @return the number of shapes in this index
+     */
+    int size();
+
+    /**
+     * Passes every shape of this index that has at least one point in common with the specified window to the
+     * specified action.
+     */
+    void query(BoundingBox window, Consumer<? super T> action);
+
+    /**
+     * Passes every shape of this index that contains the point (x,y) to the specified action.
+     */
+    void containing(double x, double y, Consumer<? super T> action);
+
+    /**
+     * @return the shape of this index nearest to the point (x,y), any of them if several are equally near, or
+     * <code>null</code> if the index is empty
+     */
+    T nearest(double x, double y);
+}
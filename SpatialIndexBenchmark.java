@@ -0,0 +1,136 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Reports build time and query latency percentiles of {@link RTree} (bulk loaded and built by single inserts) and
+ * {@link UniformGrid} over a million or more small shapes spread over a square, for window, point containment and
+ * nearest-shape queries, and for moving shapes. A full scan of the shapes is timed for comparison.
+ * <p>
+ * Usage: <code>java SpatialIndexBenchmark [shapes] [queries]</code>.
+ */
+public class SpatialIndexBenchmark {
+
+    private static final double EXTENT = 10_000;
+
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Bench.sizes(args[0])[0] : 1_000_000;
+        int queries = args.length > 1 ? Bench.sizes(args[1])[0] : 20_000;
+        Random random = new Random(216);
+        List<TwoDShape> shapes = randomShapes(n, EXTENT, random);
+
+        long start = System.nanoTime();
+        RTree<TwoDShape> packed = RTree.bulkLoad(shapes);
+        System.out.printf("%-24s built in %8.1f ms, height %d%n", "rtree (STR)", (System.nanoTime() - start) / 1e6,
+                          packed.height());
+
+        start = System.nanoTime();
+        RTree<TwoDShape> inserted = new RTree<>();
+        for (TwoDShape s : shapes)
+            inserted.insert(s);
+        System.out.printf("%-24s built in %8.1f ms, height %d%n", "rtree (inserts)", (System.nanoTime() - start) / 1e6,
+                          inserted.height());
+
+        start = System.nanoTime();
+        int side = (int) Math.max(1, Math.sqrt(n / 4.0));
+        UniformGrid<TwoDShape> grid = new UniformGrid<>(new BoundingBox(0, 0, EXTENT, EXTENT), side, side);
+        for (TwoDShape s : shapes)
+            grid.insert(s);
+        System.out.printf("%-24s built in %8.1f ms, %d x %d cells%n", "grid", (System.nanoTime() - start) / 1e6,
+                          side, side);
+        System.out.println();
+
+        run("rtree (STR)", packed, shapes, queries, new Random(1));
+        run("rtree (inserts)", inserted, shapes, queries, new Random(1));
+        run("grid", grid, shapes, queries, new Random(1));
+
+        long[] scan = new long[Math.max(1, queries / 100)];
+        Random r = new Random(1);
+        int[] hits = new int[1];
+        for (int q = 0; q < scan.length; q++) {
+            BoundingBox window = window(r);
+            long t = System.nanoTime();
+            for (TwoDShape s : shapes)
+                if (s.intersects(window))
+                    hits[0]++;
+            scan[q] = System.nanoTime() - t;
+        }
+        System.out.printf("%-24s %-10s %s%n", "full scan", "window", Bench.percentiles(scan));
+        Bench.sink += hits[0];
+    }
+
+    private static void run(String name, SpatialIndex<TwoDShape> index, List<TwoDShape> shapes, int queries,
+                            Random random) {
+        int[] hits = new int[1];
+        Consumer<TwoDShape> count = s -> hits[0]++;
+        long[] window = new long[queries], point = new long[queries], nearest = new long[queries],
+               move = new long[queries];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int q = 0; q < queries; q++) {
+                BoundingBox w = window(random);
+                long t = System.nanoTime();
+                index.query(w, count);
+                window[q] = System.nanoTime() - t;
+
+                double x = random.nextDouble() * EXTENT, y = random.nextDouble() * EXTENT;
+                t = System.nanoTime();
+                index.containing(x, y, count);
+                point[q] = System.nanoTime() - t;
+
+                t = System.nanoTime();
+                hits[0] += System.identityHashCode(index.nearest(x, y)) & 1;
+                nearest[q] = System.nanoTime() - t;
+
+                Circle c = (Circle) shapes.get(3 * random.nextInt(shapes.size() / 3));
+                List<TwoDPoint> center = new ArrayList<>(1);
+                center.add(new TwoDPoint(random.nextDouble() * EXTENT, random.nextDouble() * EXTENT));
+                t = System.nanoTime();
+                c.setPosition(center);
+                index.update(c);
+                move[q] = System.nanoTime() - t;
+            }
+        }
+        System.out.printf("%-24s %-10s %s%n", name, "window", Bench.percentiles(window));
+        System.out.printf("%-24s %-10s %s%n", name, "point", Bench.percentiles(point));
+        System.out.printf("%-24s %-10s %s%n", name, "nearest", Bench.percentiles(nearest));
+        System.out.printf("%-24s %-10s %s%n", name, "move", Bench.percentiles(move));
+        Bench.sink += hits[0];
+    }
+
+    private static BoundingBox window(Random random) {
+        double x = random.nextDouble() * EXTENT, y = random.nextDouble() * EXTENT;
+        return new BoundingBox(x, y, x + 50, y + 50);
+    }
+
+    /**
+     * @return shapes of size up to ten spread uniformly over a square of the specified side, starting with a circle
+     * every third shape
+     */
+    static List<TwoDShape> randomShapes(int n, double extent, Random random) {
+        List<TwoDShape> shapes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            double x = random.nextDouble() * extent, y = random.nextDouble() * extent;
+            double w = 1 + random.nextDouble() * 9, h = 1 + random.nextDouble() * 9;
+            List<TwoDPoint> vertices = new ArrayList<>(4);
+            switch (i % 3) {
+                case 0:
+                    shapes.add(new Circle(x, y, w / 2));
+                    break;
+                case 1:
+                    vertices.add(new TwoDPoint(x, y));
+                    vertices.add(new TwoDPoint(x, y + h));
+                    vertices.add(new TwoDPoint(x + w, y));
+                    shapes.add(new Triangle(vertices));
+                    break;
+                default:
+                    vertices.add(new TwoDPoint(x, y));
+                    vertices.add(new TwoDPoint(x, y + h));
+                    vertices.add(new TwoDPoint(x + w, y + h));
+                    vertices.add(new TwoDPoint(x + w, y));
+                    shapes.add(new Quadrilateral(vertices));
+            }
+        }
+        return shapes;
+    }
+}
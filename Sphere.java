@@ -0,0 +1,87 @@
+import java.util.Collections;
+import java.util.List;
+
+public class Sphere implements ThreeDShape, Positionable {
+
+    private ThreeDPoint center;
+    private double radius;
+    private double leastX;
+
+    public Sphere(double x, double y, double z, double r) {
+        this.center = new ThreeDPoint(x, y, z);
+        this.radius = r;
+        this.leastX = x - r;
+    }
+
+    /**
+     * Sets the position of this sphere to be centered at the first element in the specified list of points.
+     *
+     * @param points the specified list of points.
+     * @throws IllegalArgumentException if the input does not consist of {@link ThreeDPoint} instances
+     */
+    @Override
+    public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        try {
+            if (points.get(0) instanceof ThreeDPoint) {
+                center = (ThreeDPoint) points.get(0);
+                leastX = center.getX() - radius;
+            }
+            else throw new IllegalArgumentException();
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: The list must consist of ThreeDPoint instances.");
+        }
+    }
+
+    /**
+     * @return the center of this sphere as an immutable singleton list
+     */
+    @Override
+    public List<? extends Point> getPosition() {
+        return Collections.singletonList(center);
+    }
+
+    /**
+     * @return the number of faces of this sphere, which is always set to positive infinity, as for the sides of a
+     * {@link Circle}
+     */
+    @Override
+    public int numFaces() {return (int) Double.POSITIVE_INFINITY;}
+
+    /**
+     * Checks whether or not a list of vertices is a valid collection of vertices for a sphere.
+     *
+     * @param centers the list of vertices to check against, where each vertex is a <code>Point</code> type. For
+     *                the Sphere object, this list is expected to contain only its center.
+     * @return <code>true</code> if and only if <code>centers</code> is a single point, and the radius of this sphere is
+     * a positive value.
+     */
+    @Override
+    public boolean isMember(List<? extends Point> centers) {
+        return centers.size() == 1 && radius > 0;
+    }
+
+    @Override
+    public double getLeastX() {return leastX;}
+
+    /**
+     * @return the radius of this sphere
+     */
+    public double getRadius() {return radius;}
+
+    @Override
+    public int compareTo(ThreeDShape s) {
+        return Double.compare(this.volume(), s.volume());
+    }
+
+    @Override
+    public double volume() {return SolidGeometry.sphereVolume(radius);}
+
+    @Override
+    public double surfaceArea() {return SolidGeometry.sphereSurfaceArea(radius);}
+
+    @Override
+    public String toString() {
+        return "Sphere[center: (" + String.format("%.2f", center.getX()) + "," + String.format("%.2f", center.getY())
+                + "," + String.format("%.2f", center.getZ()) + "); radius: " + radius + "]";
+    }
+}
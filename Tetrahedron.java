@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class Tetrahedron implements ThreeDShape, Positionable {
+
+    private double leastX;
+
+    private List<ThreeDPoint> vertices = new ArrayList<>();
+
+    // derived metrics, computed on first use and invalidated whenever the vertices change; volatile, so that threads
+    // sharing a solid that is no longer modified never read a torn value, at worst computing a metric more than once
+    private volatile double volume      = Double.NaN;
+    private volatile double surfaceArea = Double.NaN;
+
+    public Tetrahedron(List<ThreeDPoint> vertices) {
+        setPosition(vertices);
+    }
+
+    /**
+     * Sets the position of this tetrahedron according to the first four elements in the specified list of points,
+     * which are kept in the order given. If the input list has more than four elements, the subsequent elements are
+     * ignored.
+     *
+     * @param points the specified list of points.
+     */
+    @Override
+    public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        try {
+            List<ThreeDPoint> position = new ArrayList<>(4);
+            for (int i = 0; i < 4; i++) {
+                if (points.get(i) instanceof ThreeDPoint) {
+                    position.add((ThreeDPoint) points.get(i));
+                }
+                else throw new IllegalArgumentException();
+            }
+            vertices = position;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Error: The list must consist of ThreeDPoint instances.");
+        }
+        leastX = Double.POSITIVE_INFINITY;
+        for (ThreeDPoint p : vertices)
+            leastX = Math.min(leastX, p.getX());
+        volume      = Double.NaN;
+        surfaceArea = Double.NaN;
+    }
+
+    /**
+     * @return the four vertices of this tetrahedron, in the order they were given, as an unmodifiable list
+     */
+    @Override
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(vertices);}
+
+    /**
+     * @return the number of faces of this tetrahedron, which is always set to four
+     */
+    @Override
+    public int numFaces() {
+        return 4;
+    }
+
+    /**
+     * Checks whether or not a list of vertices forms a valid tetrahedron, i.e., four {@link ThreeDPoint} instances not
+     * all in the same plane.
+     */
+    @Override
+    public boolean isMember(List<? extends Point> vertices) {
+        if (vertices.size() != 4)
+            return false;
+        for (Point p : vertices)
+            if (!(p instanceof ThreeDPoint))
+                return false;
+        ThreeDPoint p1 = (ThreeDPoint) vertices.get(0), p2 = (ThreeDPoint) vertices.get(1),
+                    p3 = (ThreeDPoint) vertices.get(2), p4 = (ThreeDPoint) vertices.get(3);
+        return SolidGeometry.tetrahedronVolume(p1.getX(), p1.getY(), p1.getZ(), p2.getX(), p2.getY(), p2.getZ(),
+                                               p3.getX(), p3.getY(), p3.getZ(), p4.getX(), p4.getY(), p4.getZ()) > 0;
+    }
+
+    @Override
+    public double getLeastX() {return leastX;}
+
+    @Override
+    public int compareTo(ThreeDShape s) {
+        return Double.compare(this.volume(), s.volume());
+    }
+
+    /**
+     * @return the volume of this tetrahedron; computed once per position
+     */
+    @Override
+    public double volume() {
+        if (Double.isNaN(volume)) {
+            ThreeDPoint p1 = vertices.get(0), p2 = vertices.get(1), p3 = vertices.get(2), p4 = vertices.get(3);
+            volume = SolidGeometry.tetrahedronVolume(p1.getX(), p1.getY(), p1.getZ(), p2.getX(), p2.getY(), p2.getZ(),
+                                                     p3.getX(), p3.getY(), p3.getZ(), p4.getX(), p4.getY(), p4.getZ());
+        }
+        return volume;
+    }
+
+    /**
+     * @return the total area of the four faces of this tetrahedron; computed once per position
+     */
+    @Override
+    public double surfaceArea() {
+        if (Double.isNaN(surfaceArea)) {
+            ThreeDPoint p1 = vertices.get(0), p2 = vertices.get(1), p3 = vertices.get(2), p4 = vertices.get(3);
+            surfaceArea = SolidGeometry.tetrahedronSurfaceArea(p1.getX(), p1.getY(), p1.getZ(),
+                                                               p2.getX(), p2.getY(), p2.getZ(),
+                                                               p3.getX(), p3.getY(), p3.getZ(),
+                                                               p4.getX(), p4.getY(), p4.getZ());
+        }
+        return surfaceArea;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("Tetrahedron[");
+        for (int i = 0; i < vertices.size(); i++) {
+            ThreeDPoint p = vertices.get(i);
+            s.append(i == 0 ? "(" : ", (").append(String.format("%.2f", p.getX())).append(',')
+             .append(String.format("%.2f", p.getY())).append(',').append(String.format("%.2f", p.getZ())).append(')');
+        }
+        return s.append(']').toString();
+    }
+}
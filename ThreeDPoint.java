@@ -1,23 +1,22 @@
 /**
  * An unmodifiable point in the three-dimensional space. The coordinates are specified by exactly three doubles (its
  * <code>x</code>, <code>y</code>, and <code>z</code> values).
+ * <p>
+ * Like {@link TwoDPoint}, points are immutable values, equal if and only if their coordinates are, with a hash code
+ * computed once when the point is created.
  */
-public class ThreeDPoint implements Point {
+public final class ThreeDPoint implements Point {
 
-    private double x, y, z;
+    private final double x, y, z;
+    private final int    hash;
 
     public ThreeDPoint(double x, double y, double z) {
         this.x = x;
         this.y = y;
         this.z = z;
+        this.hash = 31 * (31 * Double.hashCode(x) + Double.hashCode(y)) + Double.hashCode(z);
     }
 
-    public void setX(double x) {this.x = x;}
-
-    public void setY(double y) {this.y = y;}
-
-    public void setZ(double z) {this.z = z;}
-
     public double getX() {return x;}
 
     public double getY() {return y;}
@@ -35,6 +34,24 @@ public class ThreeDPoint implements Point {
         return 0;
     }
 
+    /**
+     * @return <code>true</code> if and only if the specified object is a three-dimensional point with the same
+     * coordinates as this point, as per {@link TwoDPoint#equals(Object)}.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof ThreeDPoint))
+            return false;
+        ThreeDPoint p = (ThreeDPoint) o;
+        return hash == p.hash && Double.compare(x, p.x) == 0 && Double.compare(y, p.y) == 0
+               && Double.compare(z, p.z) == 0;
+    }
+
+    @Override
+    public int hashCode() {return hash;}
+
     @Override
     public int compareTo(Point p) {
         if (Math.abs(this.getX()) > Math.abs(p.getX()))
@@ -0,0 +1,36 @@
+import java.util.List;
+
+/**
+ * An interface to represent a solid in three-dimensional space, the counterpart of {@link TwoDShape}. Every class
+ * implementing this interface must be able to specify the number of faces of such a solid and implement a method to
+ * check whether the vertices of an instance is a valid set of vertices for that class. Solids are naturally ordered by
+ * their volume.
+ */
+public interface ThreeDShape extends Comparable<ThreeDShape> {
+
+    /**
+     * @return the number of faces of the three-dimensional shape
+     */
+    int numFaces();
+
+    /**
+     * Checks whether or not a list of vertices is a valid collection of vertices for the type of three-dimensional
+     * shape.
+     * @param vertices the list of vertices to check against, where each vertex is a <code>Point</code> type.
+     * @return <code>true</code> if <code>vertices</code> is a valid collection of points for the three-dimensional
+     * shape, and <code>false</code> otherwise. For example, a list of four vertices all in the same plane is invalid
+     * for a type meant to implement tetrahedra.
+     */
+    boolean isMember(List<? extends Point> vertices);
+
+    double getLeastX();
+
+    /**
+     * Compares the volumes of this shape and of the specified one.
+     */
+    @Override
+    int compareTo(ThreeDShape s);
+
+    double volume();
+    double surfaceArea();
+}
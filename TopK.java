@@ -0,0 +1,294 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Collector;
+
+/**
+ * Selection of the <code>k</code> smallest or largest elements of a collection on a primitive <code>double</code> key,
+ * without sorting the whole collection. Keys are ordered as per {@link Double#compare(double, double)} and elements
+ * with equal keys are kept in their encounter order, so the result is always the same as the first <code>k</code>
+ * elements of a stable sort on the key (in decreasing order of the key, for the largest elements).
+ * <p>
+ * Two algorithms are provided:
+ * <ul>
+ *     <li>a bounded heap of the <code>k</code> best elements seen so far, which takes a single pass over any
+ *     {@link Iterable} or stream in <code>O(n log k)</code> time and <code>O(k)</code> memory, and</li>
+ *     <li>quickselect over the keys of an in-memory list, which takes <code>O(n + k log k)</code> expected time and
+ *     <code>O(n)</code> memory, and wins when <code>k</code> is a sizable fraction of <code>n</code>.</li>
+ * </ul>
+ * Every key is extracted exactly once.
+ */
+final class TopK {
+
+    /**
+     * The initial capacity of a heap, so that asking for a large <code>k</code> of a small input costs little.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    private TopK() {}
+
+    /**
+     * Returns the <code>k</code> best elements of the specified iterable in a single pass.
+     *
+     * @param items   the elements to select from.
+     * @param k       the number of elements to select.
+     * @param key     the function extracting the key of an element.
+     * @param largest whether to select the elements with the largest keys rather than the smallest.
+     * @return the selected elements, best first; all of them if there are no more than <code>k</code>
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T> List<T> heapSelect(Iterable<? extends T> items, int k, ToDoubleFunction<? super T> key,
+                                  boolean largest) {
+        Heap<T> heap = new Heap<>(k, largest);
+        for (T t : items)
+            heap.offer(t, key.applyAsDouble(t));
+        return heap.toList();
+    }
+
+    /**
+     * @return a collector of the <code>k</code> best elements of a stream, best first, with the same contract as
+     * {@link #heapSelect(Iterable, int, ToDoubleFunction, boolean)}. Parallel streams are supported.
+     */
+    static <T> Collector<T, ?, List<T>> collector(int k, ToDoubleFunction<? super T> key, boolean largest) {
+        if (k < 0)
+            throw new IllegalArgumentException("Error: The number of elements to select cannot be negative.");
+        return Collector.of(() -> new Heap<T>(k, largest), (h, t) -> h.offer(t, key.applyAsDouble(t)),
+                            Heap::merge, Heap::toList);
+    }
+
+    /**
+     * @return the first element of the specified iterable with the least key, or <code>null</code> if it is empty
+     */
+    static <T> T min(Iterable<? extends T> items, ToDoubleFunction<? super T> key) {
+        T best = null;
+        long bestBits = 0;
+        for (T t : items) {
+            long b = KeySort.sortableBits(key.applyAsDouble(t));
+            if (best == null || b < bestBits) {
+                best = t;
+                bestBits = b;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the <code>k</code> best elements of the specified list with quickselect. The list is not modified.
+     *
+     * @param list    the elements to select from.
+     * @param k       the number of elements to select.
+     * @param key     the function extracting the key of an element.
+     * @param largest whether to select the elements with the largest keys rather than the smallest.
+     * @return the selected elements, best first; all of them if there are no more than <code>k</code>
+     * @throws IllegalArgumentException if <code>k</code> is negative.
+     */
+    static <T> List<T> quickSelect(List<? extends T> list, int k, ToDoubleFunction<? super T> key, boolean largest) {
+        if (k < 0)
+            throw new IllegalArgumentException("Error: The number of elements to select cannot be negative.");
+        Object[] elements = list.toArray();
+        int n = elements.length;
+        k = Math.min(k, n);
+        long[] bits = new long[n];
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked") T t = (T) elements[i];
+            bits[i] = bitsOf(key.applyAsDouble(t), largest);
+            order[i] = i;
+        }
+        if (k == 0)
+            return Collections.emptyList();
+        long[] keys = bits.clone();
+        if (k < n)
+            select(bits, order, k);
+
+        // the selected elements are sorted by position and then stably by key, so that ties keep their input order
+        Arrays.sort(order, 0, k);
+        for (int i = 0; i < k; i++)
+            bits[i] = keys[order[i]];
+        KeySort.sortRange(bits, order, 0, k);
+
+        List<T> selected = new ArrayList<>(k);
+        for (int i = 0; i < k; i++)
+            selected.add(elementAt(elements, order[i]));
+        return selected;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T elementAt(Object[] elements, int i) {
+        return (T) elements[i];
+    }
+
+    /**
+     * Rearranges <code>bits</code> together with <code>order</code> so that their first <code>k</code> entries are
+     * the <code>k</code> least, comparing by bits and then by order. Since no two entries compare equal, the selected
+     * entries are always the same.
+     */
+    private static void select(long[] bits, int[] order, int k) {
+        int from = 0, to = bits.length - 1;
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            // the median of the first, middle and last entries is moved to the middle and used as the pivot
+            if (less(bits, order, mid, from)) swap(bits, order, mid, from);
+            if (less(bits, order, to, from))  swap(bits, order, to, from);
+            if (less(bits, order, to, mid))   swap(bits, order, to, mid);
+            long pivotBits = bits[mid];
+            int pivotOrder = order[mid];
+
+            int i = from, j = to;
+            while (i <= j) {
+                while (less(bits[i], order[i], pivotBits, pivotOrder)) i++;
+                while (less(pivotBits, pivotOrder, bits[j], order[j])) j--;
+                if (i <= j)
+                    swap(bits, order, i++, j--);
+            }
+            if (k - 1 <= j)     to = j;
+            else if (k - 1 >= i) from = i;
+            else return;
+        }
+    }
+
+    private static boolean less(long[] bits, int[] order, int a, int b) {
+        return less(bits[a], order[a], bits[b], order[b]);
+    }
+
+    private static boolean less(long bitsA, int orderA, long bitsB, int orderB) {
+        return bitsA < bitsB || (bitsA == bitsB && orderA < orderB);
+    }
+
+    private static void swap(long[] bits, int[] order, int a, int b) {
+        long t = bits[a];
+        bits[a] = bits[b];
+        bits[b] = t;
+        int o = order[a];
+        order[a] = order[b];
+        order[b] = o;
+    }
+
+    /**
+     * @return the sortable bits of the specified key, complemented when the largest keys are wanted so that the best
+     * elements always have the least bits
+     */
+    private static long bitsOf(double key, boolean largest) {
+        long b = KeySort.sortableBits(key);
+        return largest ? ~b : b;
+    }
+
+    /**
+     * A max-heap of the best elements seen so far, the worst of them at the root. Ties are broken by the position of
+     * an element in the input, so that a newcomer with the same key as the root is worse than it and never displaces
+     * it.
+     */
+    static final class Heap<T> {
+        private final int     k;
+        private final boolean largest;
+
+        private long[]   bits;
+        private long[]   positions;
+        private Object[] elements;
+        private int      size;
+        private long     seen;
+
+        Heap(int k, boolean largest) {
+            if (k < 0)
+                throw new IllegalArgumentException("Error: The number of elements to select cannot be negative.");
+            this.k = k;
+            this.largest = largest;
+            int capacity = Math.min(k, INITIAL_CAPACITY);
+            this.bits = new long[capacity];
+            this.positions = new long[capacity];
+            this.elements = new Object[capacity];
+        }
+
+        void offer(T t, double key) {
+            offer(t, bitsOf(key, largest), seen++);
+        }
+
+        /**
+         * @return <code>true</code> if an element of the specified key offered next would be kept, so that callers can
+         * skip creating elements that would be dropped at once
+         */
+        boolean accepts(double key) {
+            return size < k || (k > 0 && worse(bits[0], positions[0], bitsOf(key, largest), seen));
+        }
+
+        private void offer(Object t, long b, long position) {
+            if (size < k) {
+                if (size == bits.length) {
+                    int capacity = (int) Math.min(k, 2L * size);
+                    bits = Arrays.copyOf(bits, capacity);
+                    positions = Arrays.copyOf(positions, capacity);
+                    elements = Arrays.copyOf(elements, capacity);
+                }
+                int i = size++;
+                // sift up
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (!worse(b, position, bits[parent], positions[parent]))
+                        break;
+                    set(i, bits[parent], positions[parent], elements[parent]);
+                    i = parent;
+                }
+                set(i, b, position, t);
+            } else if (k > 0 && worse(bits[0], positions[0], b, position)) {
+                siftDown(b, position, t);
+            }
+        }
+
+        /**
+         * Replaces the root with the specified entry and restores the heap order.
+         */
+        private void siftDown(long b, long position, Object t) {
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size)
+                    break;
+                if (child + 1 < size && worse(bits[child + 1], positions[child + 1], bits[child], positions[child]))
+                    child++;
+                if (!worse(bits[child], positions[child], b, position))
+                    break;
+                set(i, bits[child], positions[child], elements[child]);
+                i = child;
+            }
+            set(i, b, position, t);
+        }
+
+        private static boolean worse(long bitsA, long positionA, long bitsB, long positionB) {
+            return bitsA > bitsB || (bitsA == bitsB && positionA > positionB);
+        }
+
+        private void set(int i, long b, long position, Object t) {
+            bits[i] = b;
+            positions[i] = position;
+            elements[i] = t;
+        }
+
+        /**
+         * Adds the elements kept by the specified heap, which were encountered after every element of this one.
+         */
+        Heap<T> merge(Heap<T> other) {
+            for (int i = 0; i < other.size; i++)
+                offer(other.elements[i], other.bits[i], seen + other.positions[i]);
+            seen += other.seen;
+            return this;
+        }
+
+        /**
+         * @return the kept elements, best first. The heap is emptied.
+         */
+        List<T> toList() {
+            Object[] sorted = new Object[size];
+            while (size > 0) {
+                sorted[size - 1] = elements[0];
+                size--;
+                if (size > 0)
+                    siftDown(bits[size], positions[size], elements[size]);
+                elements[size] = null;
+            }
+            @SuppressWarnings("unchecked") List<T> list = (List<T>) Arrays.asList(sorted);
+            return Collections.unmodifiableList(list);
+        }
+    }
+}
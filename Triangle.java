@@ -4,12 +4,41 @@ public class Triangle implements TwoDShape, Positionable {
 
     private double leastX;
 
-    List<TwoDPoint> vertices;
+    List<TwoDPoint> vertices = new ArrayList<>();
+
+    // derived metrics, computed on first use and invalidated whenever the vertices change; volatile, so that threads
+    // sharing a shape that is no longer modified never read a torn value, at worst computing a metric more than once
+    private volatile double      area      = Double.NaN;
+    private volatile double      perimeter = Double.NaN;
+    private volatile BoundingBox bounds;
+    private volatile TwoDPoint   centroid;
 
     public Triangle(List<TwoDPoint> vertices) {
         setPosition(vertices);
     }
 
+    /**
+     * Creates a triangle whose vertices are the canonical points of the specified pool with the coordinates of the
+     * specified vertices, so that the triangles sharing a vertex share a single point object.
+     */
+    public Triangle(List<TwoDPoint> vertices, PointPool pool) {
+        setPosition(pool.internAll(vertices));
+    }
+
+    private Triangle() {}
+
+    /**
+     * Creates a triangle with the first three of the specified vertices in the same order. Unlike the public
+     * constructors, it does not sort the vertices, since {@link #sortVertices()} may reorder vertices it has already
+     * sorted: it is meant for the vertices of another triangle, or of a triangle kept in a store.
+     */
+    static Triangle inOrder(List<TwoDPoint> vertices) {
+        Triangle t = new Triangle();
+        t.vertices = new ArrayList<>(vertices.subList(0, 3));
+        t.leastX = leastX(t.vertices);
+        return t;
+    }
+
     /**
      * Sets the position of this triangle according to the first three elements in the specified list of points. The
      * triangle is formed on the basis of these three points taken in a clockwise manner on the two-dimensional
@@ -19,20 +48,42 @@ public class Triangle implements TwoDShape, Positionable {
      */
     @Override
     public void setPosition(List<? extends Point> points) throws IllegalArgumentException {
+        if (Metrics.ENABLED)
+            Metrics.SET_POSITION.increment();
         try {
-            if (this.vertices == null)
-                vertices = new ArrayList<>();
+            List<TwoDPoint> position = new ArrayList<>(3);
             for (int i = 0; i < 3; i++) {
                 if (points.get(i) instanceof TwoDPoint) {
-                    vertices.add((TwoDPoint) points.get(i));
+                    position.add((TwoDPoint) points.get(i));
                 }
                 else throw new IllegalArgumentException();
             }
+            vertices = position;
         } catch (IllegalArgumentException e) {
             System.out.println("Error: The list must consist of TwoDPoint instances.");
         }
         sortVertices();
-        leastX = vertices.get(0).getX();
+        leastX = leastX(vertices);
+        invalidate();
+    }
+
+    /**
+     * @return the least x-value of the specified vertices, which the single pass of {@link #sortVertices()} does not
+     * always bring first
+     */
+    private static double leastX(List<TwoDPoint> vertices) {
+        return Math.min(vertices.get(0).getX(), Math.min(vertices.get(1).getX(), vertices.get(2).getX()));
+    }
+
+    /**
+     * Discards the cached area, perimeter, bounding box and centroid of this triangle. Must be called whenever the
+     * vertices change.
+     */
+    private void invalidate() {
+        area      = Double.NaN;
+        perimeter = Double.NaN;
+        bounds    = null;
+        centroid  = null;
     }
 
     /**
@@ -43,7 +94,7 @@ public class Triangle implements TwoDShape, Positionable {
      * @return the retrieved list of points.
      */
     @Override
-    public List<? extends Point> getPosition() {return vertices;}
+    public List<? extends Point> getPosition() {return Collections.unmodifiableList(vertices);}
 
     /**
      * @return the number of sides of this triangle, which is always set to three
@@ -64,15 +115,30 @@ public class Triangle implements TwoDShape, Positionable {
 
     @Override
     public boolean isMember(List<? extends Point> vertices) {
+        return isValid(vertices);
+    }
+
+    /**
+     * Checks whether or not a list of vertices forms a valid triangle, as specified by {@link #isMember(List)}.
+     */
+    static boolean isValid(List<? extends Point> vertices) {
         TwoDPoint p1 = (TwoDPoint) vertices.get(0),
                   p2 = (TwoDPoint) vertices.get(1),
                   p3 = (TwoDPoint) vertices.get(2);
 
-        if (p1.getX() == p2.getX() && p2.getX() == p3.getX())
+        return isValid(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY());
+    }
+
+    /**
+     * Checks whether or not the three specified vertices form a valid triangle, as specified by
+     * {@link #isMember(List)}, without creating any object.
+     */
+    static boolean isValid(double x1, double y1, double x2, double y2, double x3, double y3) {
+        if (x1 == x2 && x2 == x3)
             return false;
-        else if (p1.getY() == p2.getY() && p2.getY() == p3.getY())
+        else if (y1 == y2 && y2 == y3)
             return false;
-        else return slope(p1, p2) != slope(p2, p3);
+        else return slopeOf(x1, y1, x2, y2) != slopeOf(x2, y2, x3, y3);
     }
 
     @Override
@@ -80,6 +146,8 @@ public class Triangle implements TwoDShape, Positionable {
 
     @Override
     public int compareTo(TwoDShape s) {
+        if (Metrics.ENABLED)
+            Metrics.COMPARE_TO.increment();
         return Double.compare(this.area(), s.area());
     }
 
@@ -91,58 +159,134 @@ public class Triangle implements TwoDShape, Positionable {
      * an in-place procedure, and the current instance is modified.
      */
     public void snap() {
+        trySnap();
+    }
+
+    /**
+     * Snaps this triangle as per {@link #snap()}, testing the snapped vertices before creating any point.
+     *
+     * @return <code>true</code> if the triangle was snapped, or <code>false</code> if it was left unchanged because
+     * the snapped triangle would be invalid.
+     */
+    boolean trySnap() {
         TwoDPoint o1 = vertices.get(0),
                   o2 = vertices.get(1),
                   o3 = vertices.get(2);
 
-
-        TwoDPoint p1 = new TwoDPoint(Math.round(o1.getX()), Math.round(o1.getY())),
-                  p2 = new TwoDPoint(Math.round(o2.getX()), Math.round(o2.getY())),
-                  p3 = new TwoDPoint(Math.round(o3.getX()), Math.round(o3.getY()));
+        double x1 = Math.round(o1.getX()), y1 = Math.round(o1.getY()),
+               x2 = Math.round(o2.getX()), y2 = Math.round(o2.getY()),
+               x3 = Math.round(o3.getX()), y3 = Math.round(o3.getY());
+        if (!isValid(x1, y1, x2, y2, x3, y3))
+            return false;
 
         List<TwoDPoint> temp = new ArrayList<>(3);
-        temp.add(p1);
-        temp.add(p2);
-        temp.add(p3);
-
-        if (isMember(temp)) {
-            vertices = temp;
-            leastX = temp.get(0).getX();
-        }
+        temp.add(new TwoDPoint(x1, y1));
+        temp.add(new TwoDPoint(x2, y2));
+        temp.add(new TwoDPoint(x3, y3));
+        vertices = temp;
+        leastX = Math.min(x1, Math.min(x2, x3));
+        invalidate();
+        return true;
     }
 
     /**
-     * @return the area of this triangle
+     * @return the area of this triangle; computed once per position
      */
     @Override
     public double area() {
+        if (Metrics.ENABLED)
+            Metrics.AREA.increment();
+        if (Double.isNaN(area))
+            area = computeArea();
+        return area;
+    }
+
+    private double computeArea() {
         TwoDPoint p1 = vertices.get(0),
                   p2 = vertices.get(1),
                   p3 = vertices.get(2);
 
-        double a = distance(p1, p2);
-        double b = distance(p2, p3);
-        double c = distance(p3, p1);
+        return Geometry.triangleArea(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY());
+    }
+
+    /**
+     * @return the perimeter (i.e., the total length of the boundary) of this triangle; computed once per position
+     */
+    public double perimeter() {
+        if (Metrics.ENABLED)
+            Metrics.PERIMETER.increment();
+        if (Double.isNaN(perimeter))
+            perimeter = computePerimeter();
+        return perimeter;
+    }
 
-        double p = perimeter();
-        double s = p/2;
+    private double computePerimeter() {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2);
 
-        return Math.sqrt(s * (s-a) * (s-b) * (s-c));
+        return Geometry.trianglePerimeter(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY());
     }
 
     /**
-     * @return the perimeter (i.e., the total length of the boundary) of this triangle
+     * @return the smallest axis-aligned rectangle enclosing the vertices of this triangle; computed once per position
      */
-    public double perimeter() {
+    @Override
+    public BoundingBox boundingBox() {
+        if (bounds == null) {
+            double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY,
+                   maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+            for (TwoDPoint v : vertices) {
+                minX = Math.min(minX, v.getX());
+                minY = Math.min(minY, v.getY());
+                maxX = Math.max(maxX, v.getX());
+                maxY = Math.max(maxY, v.getY());
+            }
+            bounds = new BoundingBox(minX, minY, maxX, maxY);
+        }
+        return bounds;
+    }
+
+    /**
+     * @return the centroid of this triangle, i.e., the average of its three vertices; computed once per position
+     */
+    @Override
+    public TwoDPoint centroid() {
+        if (centroid == null) {
+            TwoDPoint p1 = vertices.get(0),
+                      p2 = vertices.get(1),
+                      p3 = vertices.get(2);
+            centroid = new TwoDPoint((p1.getX() + p2.getX() + p3.getX()) / 3, (p1.getY() + p2.getY() + p3.getY()) / 3);
+        }
+        return centroid;
+    }
+
+    @Override
+    public boolean contains(double x, double y) {
         TwoDPoint p1 = vertices.get(0),
                   p2 = vertices.get(1),
                   p3 = vertices.get(2);
 
-        double a = distance(p1, p2);
-        double b = distance(p2, p3);
-        double c = distance(p3, p1);
+        return Geometry.triangleContains(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), x, y);
+    }
+
+    @Override
+    public double distanceTo(double x, double y) {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2);
 
-        return a + b + c;
+        return Geometry.triangleDistance(p1.getX(), p1.getY(), p2.getX(), p2.getY(), p3.getX(), p3.getY(), x, y);
+    }
+
+    @Override
+    public boolean intersects(BoundingBox box) {
+        TwoDPoint p1 = vertices.get(0),
+                  p2 = vertices.get(1),
+                  p3 = vertices.get(2);
+
+        return boundingBox().intersects(box) && Geometry.triangleIntersectsBox(p1.getX(), p1.getY(),
+                p2.getX(), p2.getY(), p3.getX(), p3.getY(), box);
     }
 
     public List<TwoDPoint> sortVertices() {
@@ -160,13 +304,19 @@ public class Triangle implements TwoDShape, Positionable {
     }
 
     public double slope (TwoDPoint p1, TwoDPoint p2) {
-        return (p2.getY() - p1.getY())/(p2.getX() - p1.getX());
+        return slopeOf(p1, p2);
+    }
+
+    private static double slopeOf(TwoDPoint p1, TwoDPoint p2) {
+        return slopeOf(p1.getX(), p1.getY(), p2.getX(), p2.getY());
+    }
+
+    private static double slopeOf(double x1, double y1, double x2, double y2) {
+        return (y2 - y1)/(x2 - x1);
     }
 
     public double distance (TwoDPoint p1, TwoDPoint p2) {
-        double a = p2.getX() - p1.getX();
-        double b = p2.getY() - p1.getY();
-        return Math.sqrt((a*a)+(b*b));
+        return Geometry.distance(p1.getX(), p1.getY(), p2.getX(), p2.getY());
     }
 
     public int compare(TwoDPoint o1, TwoDPoint o2) {
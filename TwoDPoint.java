@@ -4,15 +4,22 @@ import java.util.List;
 /**
  * An unmodifiable point in the standard two-dimensional Euclidean space. The coordinates of such a point is given by
  * exactly two doubles specifying its <code>x</code> and <code>y</code> values.
+ * <p>
+ * Points are immutable values: two points are equal if and only if their coordinates are, as per
+ * {@link Double#compare(double, double)}, and a point can be shared between shapes and threads without being copied.
+ * The hash code is computed once, when the point is created, and fits in the padding of the object, so that caching
+ * it costs no memory.
  */
-public class TwoDPoint implements Point {
+public final class TwoDPoint implements Point {
 
-    private double x;
-    private double y;
+    private final double x;
+    private final double y;
+    private final int    hash;
 
     public TwoDPoint(double x, double y) {
         this.x = x;
         this.y = y;
+        this.hash = 31 * Double.hashCode(x) + Double.hashCode(y);
     }
 
     /**
@@ -28,10 +35,6 @@ public class TwoDPoint implements Point {
         return 0;
     }
 
-    public void setX(double x) {this.x = x;}
-
-    public void setY(double y) {this.y = y;}
-
     public double getX() {return x;}
 
     public double getY() {return y;}
@@ -40,26 +43,44 @@ public class TwoDPoint implements Point {
     /**
      * Returns a list of <code>TwoDPoint</code>s based on the specified array of doubles. A valid argument must always
      * be an even number of doubles so that every pair can be used to form a single <code>TwoDPoint</code> to be added
-     * to the returned list of points.
+     * to the returned list of points. To pass large numbers of points around without creating one object per point,
+     * wrap the array with {@link PointArray#twoD(double[])} instead.
      *
      * @param coordinates the specified array of doubles.
-     * @return a list of two-dimensional point objects.
-     * @throws IllegalArgumentException if the input array has an odd number of doubles.
+     * @return a list of two-dimensional point objects, or an empty list if the input array has an odd number of
+     * doubles.
      */
     public static List<TwoDPoint> ofDoubles(double[] coordinates) throws IllegalArgumentException {
         List<TwoDPoint> twoDPoints = new ArrayList<>(coordinates.length/2);
         try {
-            if ((coordinates.length - 1)%2 == 0) {
-                for (int i = 0; i < coordinates.length - 1; i++)
-                    twoDPoints.set(i, new TwoDPoint(coordinates[i], coordinates[i + 1]));
+            if (coordinates.length%2 == 0) {
+                for (int i = 0; i < coordinates.length; i += 2)
+                    twoDPoints.add(new TwoDPoint(coordinates[i], coordinates[i + 1]));
             }
             else throw new IllegalArgumentException();
         } catch (IllegalArgumentException e) {
             System.out.println("Error: The array of doubles must have an even length.");
         }
-            return twoDPoints;
+        return twoDPoints;
     }
 
+    /**
+     * @return <code>true</code> if and only if the specified object is a two-dimensional point with the same
+     * coordinates as this point, <code>0.0</code> and <code>-0.0</code> being different and NaN being equal to itself.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof TwoDPoint))
+            return false;
+        TwoDPoint p = (TwoDPoint) o;
+        return hash == p.hash && Double.compare(x, p.x) == 0 && Double.compare(y, p.y) == 0;
+    }
+
+    @Override
+    public int hashCode() {return hash;}
+
     @Override
     public int compareTo(Point p) {
         return Double.compare(Math.abs(this.getX()), Math.abs(p.getX()));
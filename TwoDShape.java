@@ -4,6 +4,11 @@ import java.util.List;
  * An interface to represent a closed form in two-dimensional space. Every class implementing this interface must be
  * to able to specify the number of sides of such a form and implement a method to check whether the vertices of an
  * instance is a valid set of vertices for that class.
+ * <p>
+ * Shapes are not thread-safe. A shape may be read by several threads once it has been safely published, e.g. through
+ * an executor or a concurrent collection, as long as no thread modifies it, e.g. with
+ * {@link Positionable#setPosition(List)} or by snapping it: the metrics it caches are then computed at worst once per
+ * thread and never read torn.
  */
 public interface TwoDShape extends Comparable<TwoDShape>{
 
@@ -28,4 +33,31 @@ public interface TwoDShape extends Comparable<TwoDShape>{
 
     double area();
     double perimeter();
+
+    /**
+     * @return the smallest axis-aligned rectangle enclosing the two-dimensional shape
+     */
+    BoundingBox boundingBox();
+
+    /**
+     * @return the centroid (i.e., the center of mass of the enclosed region) of the two-dimensional shape
+     */
+    TwoDPoint centroid();
+
+    /**
+     * @return <code>true</code> if and only if the point (x,y) lies in the two-dimensional shape or on its boundary
+     */
+    boolean contains(double x, double y);
+
+    /**
+     * @return the distance from the point (x,y) to the nearest point of the two-dimensional shape, which is zero if the
+     * shape contains the point
+     */
+    double distanceTo(double x, double y);
+
+    /**
+     * @return <code>true</code> if and only if the two-dimensional shape and the specified box have at least one point
+     * in common
+     */
+    boolean intersects(BoundingBox box);
 }
\ No newline at end of file
@@ -0,0 +1,178 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * A uniform grid over two-dimensional shapes: a fixed rectangular extent of the x-y plane is cut into equally sized
+ * cells, and every shape is listed in each cell its bounding box overlaps. Shapes extending beyond the extent are
+ * listed in the cells along its border. A grid is simpler and cheaper to update than an {@link RTree}, and works best
+ * when the shapes are spread evenly over the extent and are not much larger than a cell.
+ *
+ * @param <T> the type of the indexed shapes
+ */
+public class UniformGrid<T extends TwoDShape> implements SpatialIndex<T> {
+
+    private final double minX, minY, cellWidth, cellHeight;
+    private final int    columns, rows;
+
+    private final List<List<Entry<T>>> cells;
+    private final Map<T, Entry<T>>     entries = new IdentityHashMap<>();
+
+    private static final class Entry<T> {
+        final T shape;
+        final int column0, row0, column1, row1;
+
+        Entry(T shape, int column0, int row0, int column1, int row1) {
+            this.shape = shape;
+            this.column0 = column0;
+            this.row0 = row0;
+            this.column1 = column1;
+            this.row1 = row1;
+        }
+    }
+
+    /**
+     * Creates an empty grid of the specified number of columns and rows over the specified extent.
+     *
+     * @throws IllegalArgumentException if the extent is empty or if there is not at least one column and one row.
+     */
+    public UniformGrid(BoundingBox extent, int columns, int rows) {
+        if (columns < 1 || rows < 1 || extent.width() <= 0 || extent.height() <= 0)
+            throw new IllegalArgumentException("Error: The grid must have at least one cell of positive size.");
+        this.minX = extent.getMinX();
+        this.minY = extent.getMinY();
+        this.cellWidth = extent.width() / columns;
+        this.cellHeight = extent.height() / rows;
+        this.columns = columns;
+        this.rows = rows;
+        this.cells = new ArrayList<>(columns * rows);
+        for (int i = 0; i < columns * rows; i++)
+            cells.add(new ArrayList<>(0));
+    }
+
+    private int column(double x) {
+        return (int) Math.max(0, Math.min(columns - 1, Math.floor((x - minX) / cellWidth)));
+    }
+
+    private int row(double y) {
+        return (int) Math.max(0, Math.min(rows - 1, Math.floor((y - minY) / cellHeight)));
+    }
+
+    private List<Entry<T>> cell(int column, int row) {
+        return cells.get(row * columns + column);
+    }
+
+    /**
+     * Adds the specified shape to this grid, or brings its location up to date if it is already there.
+     */
+    @Override
+    public void insert(T shape) {
+        if (entries.containsKey(shape))
+            remove(shape);
+        BoundingBox b = shape.boundingBox();
+        Entry<T> e = new Entry<>(shape, column(b.getMinX()), row(b.getMinY()), column(b.getMaxX()), row(b.getMaxY()));
+        entries.put(shape, e);
+        for (int r = e.row0; r <= e.row1; r++)
+            for (int c = e.column0; c <= e.column1; c++)
+                cell(c, r).add(e);
+    }
+
+    @Override
+    public boolean remove(T shape) {
+        Entry<T> e = entries.remove(shape);
+        if (e == null)
+            return false;
+        for (int r = e.row0; r <= e.row1; r++)
+            for (int c = e.column0; c <= e.column1; c++) {
+                List<Entry<T>> cell = cell(c, r);
+                for (int i = 0; i < cell.size(); i++)
+                    if (cell.get(i) == e) {
+                        cell.set(i, cell.get(cell.size() - 1));
+                        cell.remove(cell.size() - 1);
+                        break;
+                    }
+            }
+        return true;
+    }
+
+    @Override
+    public boolean update(T shape) {
+        if (!entries.containsKey(shape))
+            return false;
+        insert(shape);
+        return true;
+    }
+
+    @Override
+    public int size() {return entries.size();}
+
+    /**
+     * @return <code>true</code> if the specified cell is the first of the entry within the block of cells from column
+     * c0 and row r0, i.e., its lowest row and leftmost column there. A shape listed in several cells of a block is
+     * visited only in that one, which needs no state shared between queries, so that a grid that is no longer modified
+     * can be queried by several threads at once.
+     */
+    private static boolean isFirstCell(Entry<?> e, int c, int r, int c0, int r0) {
+        return c == Math.max(e.column0, c0) && r == Math.max(e.row0, r0);
+    }
+
+    @Override
+    public void query(BoundingBox window, Consumer<? super T> action) {
+        int c0 = column(window.getMinX()), r0 = row(window.getMinY());
+        for (int r = r0, r1 = row(window.getMaxY()); r <= r1; r++)
+            for (int c = c0, c1 = column(window.getMaxX()); c <= c1; c++)
+                for (Entry<T> e : cell(c, r))
+                    if (isFirstCell(e, c, r, c0, r0) && e.shape.intersects(window))
+                        action.accept(e.shape);
+    }
+
+    @Override
+    public void containing(double x, double y, Consumer<? super T> action) {
+        for (Entry<T> e : cell(column(x), row(y)))
+            if (e.shape.contains(x, y))
+                action.accept(e.shape);
+    }
+
+    /**
+     * Finds the nearest shape by visiting rings of cells of growing size around the cell of the point, until the
+     * nearest shape found so far is nearer than any cell not yet visited. A shape is measured once, in the first ring
+     * it overlaps: the cells of a ring that it overlaps are all in the block of cells visited so far but not in the
+     * block visited before, so the first of them in that block is on the ring.
+     */
+    @Override
+    public T nearest(double x, double y) {
+        if (entries.isEmpty())
+            return null;
+        int column = column(x), row = row(y);
+        T best = null;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ; ring++) {
+            int c0 = column - ring, c1 = column + ring, r0 = row - ring, r1 = row + ring;
+            int first = Math.max(c0, 0), bottom = Math.max(r0, 0);
+            for (int r = bottom; r <= Math.min(r1, rows - 1); r++)
+                for (int c = first; c <= Math.min(c1, columns - 1); c++) {
+                    if (r != r0 && r != r1 && c != c0 && c != c1)
+                        continue;
+                    for (Entry<T> e : cell(c, r))
+                        if (isFirstCell(e, c, r, first, bottom) && !(ring > 0 && e.column0 < c1 && e.column1 > c0
+                                                                     && e.row0 < r1 && e.row1 > r0)) {
+                            double d = e.shape.distanceTo(x, y);
+                            if (d < bestDistance) {
+                                bestDistance = d;
+                                best = e.shape;
+                            }
+                        }
+                }
+            // cells beyond a side of the visited block that is not on the border of the grid are at least this far
+            double unvisited = Double.POSITIVE_INFINITY;
+            if (c0 > 0)           unvisited = Math.min(unvisited, x - (minX + c0 * cellWidth));
+            if (c1 < columns - 1) unvisited = Math.min(unvisited, minX + (c1 + 1) * cellWidth - x);
+            if (r0 > 0)           unvisited = Math.min(unvisited, y - (minY + r0 * cellHeight));
+            if (r1 < rows - 1)    unvisited = Math.min(unvisited, minY + (r1 + 1) * cellHeight - y);
+            if (bestDistance <= unvisited || unvisited == Double.POSITIVE_INFINITY)
+                return best;
+        }
+    }
+}